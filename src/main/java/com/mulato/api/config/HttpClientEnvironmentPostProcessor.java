@@ -0,0 +1,59 @@
+package com.mulato.api.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.security.Security;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Propriedades da JVM lidas uma única vez pelo {@link java.net.http.HttpClient} e pelo cache
+ * de DNS do {@link java.net.InetAddress}, definidas a partir da configuração antes que o
+ * contexto crie qualquer cliente ou resolva qualquer nome:
+ *
+ * - {@code app.crawler.connection-pool.keep-alive} (ms): tempo até o cliente fechar uma conexão
+ *   ociosa ({@code jdk.httpclient.keepalive.timeout});
+ * - {@code app.crawler.connection-pool.max-per-host}: conexões ociosas guardadas pelo cliente
+ *   de cada host ({@code jdk.httpclient.connectionPoolSize}), o mesmo valor que limita as
+ *   requisições abertas a cada host;
+ * - {@code app.crawler.dns-ttl} (ms): validade de um endereço resolvido
+ *   ({@code networkaddress.cache.ttl}), para que a troca de IP de um host seja percebida.
+ *
+ * Valores passados na linha de comando com -D ou no java.security têm precedência.
+ */
+public class HttpClientEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    /** Padrão de {@code app.crawler.connection-pool.max-per-host}. */
+    public static final int DEFAULT_MAX_PER_HOST = 16;
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        Long keepAlive = environment.getProperty("app.crawler.connection-pool.keep-alive", Long.class);
+        if (keepAlive != null) {
+            setSystemProperty("jdk.httpclient.keepalive.timeout", toSeconds(keepAlive));
+        }
+        int maxPerHost = environment.getProperty("app.crawler.connection-pool.max-per-host", Integer.class,
+                DEFAULT_MAX_PER_HOST);
+        if (maxPerHost > 0) {
+            setSystemProperty("jdk.httpclient.connectionPoolSize", String.valueOf(maxPerHost));
+        }
+        Long dnsTtl = environment.getProperty("app.crawler.dns-ttl", Long.class);
+        if (dnsTtl != null && Security.getProperty("networkaddress.cache.ttl") == null) {
+            Security.setProperty("networkaddress.cache.ttl", toSeconds(dnsTtl));
+        }
+    }
+
+    private static void setSystemProperty(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * As propriedades da JVM são em segundos; valores positivos abaixo de um segundo viram um.
+     */
+    private static String toSeconds(long millis) {
+        return String.valueOf(millis > 0 ? Math.max(1, TimeUnit.MILLISECONDS.toSeconds(millis)) : millis);
+    }
+}
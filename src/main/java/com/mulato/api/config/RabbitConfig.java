@@ -2,11 +2,14 @@ package com.mulato.api.config;
 
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.CustomExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -17,6 +20,17 @@ public class RabbitConfig {
     public static final String CRAWL_EXCHANGE = "crawl.exchange";
     public static final String CRAWL_ROUTING_KEY = "crawl.task";
 
+    // Modo distribuído: uma mensagem por URL a buscar
+    public static final String CRAWL_URL_QUEUE = "crawl.url.queue";
+    public static final String CRAWL_URL_EXCHANGE = "crawl.url.exchange";
+    public static final String CRAWL_URL_ROUTING_KEY = "crawl.url";
+
+    // Particionamento por hash consistente: uma fila por nó, ligada ao anel com o seu peso
+    public static final String CRAWL_URL_HASH_EXCHANGE = "crawl.url.hash";
+    public static final String CRAWL_URL_NODE_QUEUE_PREFIX = "crawl.url.node.";
+    public static final String PARTITIONING_PROPERTY = "app.crawler.distributed.partitioning";
+    public static final String CONSISTENT_HASH = "consistent-hash";
+
     @Bean
     public Queue crawlQueue() {
         return new Queue(CRAWL_QUEUE, true);
@@ -32,6 +46,50 @@ public class RabbitConfig {
         return BindingBuilder.bind(crawlQueue).to(crawlExchange).with(CRAWL_ROUTING_KEY);
     }
 
+    @Bean
+    public Queue crawlUrlQueue() {
+        return new Queue(CRAWL_URL_QUEUE, true);
+    }
+
+    @Bean
+    public TopicExchange crawlUrlExchange() {
+        return new TopicExchange(CRAWL_URL_EXCHANGE);
+    }
+
+    @Bean
+    public Binding crawlUrlBinding(Queue crawlUrlQueue, TopicExchange crawlUrlExchange) {
+        return BindingBuilder.bind(crawlUrlQueue).to(crawlUrlExchange).with(CRAWL_URL_ROUTING_KEY);
+    }
+
+    /**
+     * Exchange do plugin rabbitmq_consistent_hash_exchange: a routing key de cada mensagem (a
+     * impressão digital da URL canônica) escolhe a fila do nó dono da URL. Só é declarada com
+     * {@code app.crawler.distributed.partitioning: consistent-hash}, que exige o plugin.
+     */
+    @Bean
+    @ConditionalOnProperty(name = PARTITIONING_PROPERTY, havingValue = CONSISTENT_HASH)
+    public CustomExchange crawlUrlHashExchange() {
+        return new CustomExchange(CRAWL_URL_HASH_EXCHANGE, "x-consistent-hash", true, false);
+    }
+
+    /**
+     * Fila das URLs deste nó. É durável e tem o nome do nó, para que um nó reiniciado com o
+     * mesmo {@code app.crawler.distributed.node-id} retome as URLs que eram dele.
+     */
+    @Bean
+    @ConditionalOnProperty(name = PARTITIONING_PROPERTY, havingValue = CONSISTENT_HASH)
+    public Queue crawlUrlNodeQueue(@Value("${app.crawler.distributed.node-id:${HOSTNAME:local}}") String nodeId) {
+        return new Queue(CRAWL_URL_NODE_QUEUE_PREFIX + nodeId, true);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = PARTITIONING_PROPERTY, havingValue = CONSISTENT_HASH)
+    public Binding crawlUrlNodeBinding(Queue crawlUrlNodeQueue, CustomExchange crawlUrlHashExchange,
+                                       @Value("${app.crawler.distributed.weight:1}") int weight) {
+        // No exchange de hash consistente a routing key da ligação é o peso do nó no anel
+        return BindingBuilder.bind(crawlUrlNodeQueue).to(crawlUrlHashExchange).with(String.valueOf(weight)).noargs();
+    }
+
     @Bean
     public Jackson2JsonMessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
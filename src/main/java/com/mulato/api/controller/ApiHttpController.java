@@ -61,6 +61,9 @@ public class ApiHttpController {
     @Operation(
         summary = "1a. Inicia nova busca por termo",
         description = "Inicia uma nova busca por um termo (keyword) no website configurado via BASE_URL. " +
+                     "Opcionalmente limita a profundidade (max_depth), os bytes baixados (max_bytes), a " +
+                     "duração em ms (max_duration) e o número de URLs encontradas (max_results), até os " +
+                     "máximos do servidor. " +
                      "Retorna um ID único de 8 caracteres alfanuméricos para acompanhar o progresso da busca."
     )
     @ApiResponses(value = {
@@ -78,7 +81,7 @@ public class ApiHttpController {
         ),
         @ApiResponse(
             responseCode = "400", 
-            description = "Termo inválido (deve ter entre 4-32 caracteres)"
+            description = "Termo inválido (deve ter entre 4-32 caracteres) ou limite inválido"
         ),
         @ApiResponse(
             responseCode = "415", 
@@ -94,7 +97,7 @@ public class ApiHttpController {
         @Valid @RequestBody CrawlRequest request
     ) {
         try {
-            String crawlId = crawlService.startCrawl(request.getKeyword());
+            String crawlId = crawlService.startCrawl(request.getKeyword(), request.toBudget());
             CrawlResponse response = new CrawlResponse(crawlId);
             return ResponseEntity.ok()
                 .body(response);
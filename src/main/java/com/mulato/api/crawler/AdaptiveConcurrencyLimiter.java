@@ -0,0 +1,154 @@
+package com.mulato.api.crawler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Limite de requisições simultâneas a um host ajustado por AIMD (aumento aditivo, redução
+ * multiplicativa). Enquanto o p95 da latência das últimas respostas fica abaixo do alvo e a
+ * taxa de erros abaixo do máximo, o limite cresce cerca de uma vaga por janela de
+ * {@code limite} respostas. Um timeout, 429 ou 5xx multiplica o limite por {@code backoff},
+ * uma vez por rodada: respostas de requisições enviadas antes da última redução não reduzem
+ * de novo.
+ *
+ * Requisições acima do limite ficam em uma fila e são iniciadas, na ordem de chegada, quando
+ * uma vaga é devolvida; nenhuma thread fica bloqueada esperando.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * Resultado de uma requisição, do ponto de vista do host.
+     */
+    public enum Outcome {
+        /** Resposta recebida, inclusive 404 e outros 4xx. */
+        SUCCESS,
+        /** Falha que não indica sobrecarga, como conexão recusada. */
+        ERROR,
+        /** Timeout, 429 ou 5xx: o host pede menos carga. */
+        OVERLOAD
+    }
+
+    // Respostas usadas no cálculo do p95 e da taxa de erros
+    private static final int WINDOW = 64;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double maxErrorRate;
+    private final double backoff;
+
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+    private final long[] latencies = new long[WINDOW];
+    private final boolean[] errors = new boolean[WINDOW];
+    private int samples;
+    private int next;
+    private int errorCount;
+
+    private double limit;
+    private int inFlight;
+    private boolean decreased;
+    private long lastDecrease;
+
+    /**
+     * @param targetLatencyNanos p95 acima do qual o limite deixa de crescer
+     * @param maxErrorRate fração de respostas com erro acima da qual o limite deixa de crescer
+     * @param backoff fator aplicado ao limite em caso de sobrecarga, entre 0 e 1
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos,
+                                      double maxErrorRate, double backoff) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.maxErrorRate = maxErrorRate;
+        this.backoff = backoff;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * Inicia a requisição agora, se houver vaga, ou a coloca na fila. Toda requisição iniciada
+     * deve devolver a vaga com {@link #release(long, long, Outcome)}.
+     */
+    public void acquire(Runnable start) {
+        synchronized (this) {
+            if (inFlight >= currentLimit()) {
+                waiting.add(start);
+                return;
+            }
+            inFlight++;
+        }
+        start.run();
+    }
+
+    /**
+     * Devolve a vaga de uma requisição, ajusta o limite e inicia as requisições da fila que
+     * couberem no novo limite.
+     * @param startedAt {@link System#nanoTime()} do envio da requisição
+     * @param finishedAt {@link System#nanoTime()} do fim da resposta
+     */
+    public void release(long startedAt, long finishedAt, Outcome outcome) {
+        List<Runnable> started;
+        synchronized (this) {
+            // Medido antes de devolver a vaga: o limite só cresce se estiver sendo usado
+            boolean saturated = inFlight * 2 >= currentLimit();
+            inFlight--;
+            record(finishedAt - startedAt, outcome);
+            if (outcome == Outcome.OVERLOAD) {
+                if (!decreased || startedAt - lastDecrease >= 0) {
+                    limit = Math.max(minLimit, limit * backoff);
+                    decreased = true;
+                    lastDecrease = finishedAt;
+                }
+            } else if (outcome == Outcome.SUCCESS && saturated && isHealthy()) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            started = startWaiting();
+        }
+        started.forEach(Runnable::run);
+    }
+
+    public synchronized int currentLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int waiting() {
+        return waiting.size();
+    }
+
+    private void record(long latency, Outcome outcome) {
+        boolean error = outcome != Outcome.SUCCESS;
+        if (samples == WINDOW) {
+            errorCount -= errors[next] ? 1 : 0;
+        } else {
+            samples++;
+        }
+        latencies[next] = latency;
+        errors[next] = error;
+        errorCount += error ? 1 : 0;
+        next = (next + 1) % WINDOW;
+    }
+
+    private boolean isHealthy() {
+        if (errorCount > maxErrorRate * samples) {
+            return false;
+        }
+        // Latências das falhas também entram: um timeout é a latência mais alta possível
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(samples * 0.95) - 1] <= targetLatencyNanos;
+    }
+
+    private List<Runnable> startWaiting() {
+        List<Runnable> started = new ArrayList<>();
+        while (!waiting.isEmpty() && inFlight < currentLimit()) {
+            inFlight++;
+            started.add(waiting.poll());
+        }
+        return started;
+    }
+}
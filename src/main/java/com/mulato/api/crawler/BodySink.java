@@ -0,0 +1,22 @@
+package com.mulato.api.crawler;
+
+/**
+ * Recebe os bytes do corpo de uma página à medida que chegam da rede, antes de a
+ * resposta completa estar disponível.
+ */
+@FunctionalInterface
+public interface BodySink {
+
+    void accept(byte[] data, int offset, int length);
+
+    /**
+     * Sink que entrega cada bloco a este sink e depois a {@code next}, para que vários
+     * consumidores compartilhem a mesma passada sobre o corpo.
+     */
+    default BodySink andThen(BodySink next) {
+        return (data, offset, length) -> {
+            accept(data, offset, length);
+            next.accept(data, offset, length);
+        };
+    }
+}
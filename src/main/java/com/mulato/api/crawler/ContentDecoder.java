@@ -0,0 +1,148 @@
+package com.mulato.api.crawler;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodificação incremental de um corpo com Content-Encoding gzip ou deflate. Os blocos
+ * comprimidos entram à medida que chegam da rede e os bytes decodificados saem direto no
+ * array de destino, sem montar o corpo comprimido nem passar por um stream intermediário.
+ *
+ * Do gzip só o cabeçalho é interpretado; o CRC e o tamanho do trailer não são conferidos, e
+ * o que vier depois do primeiro membro é ignorado. A instância usa memória nativa do
+ * {@link Inflater} e deve ser liberada com {@link #end()}.
+ */
+public final class ContentDecoder {
+
+    /** Codificações anunciadas em Accept-Encoding. */
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final int GZIP_HEADER = 10;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final Inflater inflater;
+    // Bytes do cabeçalho gzip recebidos enquanto ele não está completo; null depois dele
+    private byte[] header;
+
+    private ContentDecoder(boolean gzip) {
+        // gzip traz o deflate sem o envelope zlib; "deflate" no HTTP é o formato zlib
+        this.inflater = new Inflater(gzip);
+        this.header = gzip ? new byte[0] : null;
+    }
+
+    /**
+     * Decodificador para o Content-Encoding, ou null se o corpo não está codificado.
+     * @throws IllegalArgumentException se a codificação não é suportada
+     */
+    public static ContentDecoder forEncoding(String contentEncoding) {
+        switch (normalize(contentEncoding)) {
+            case "", "identity":
+                return null;
+            case "gzip", "x-gzip":
+                return new ContentDecoder(true);
+            case "deflate":
+                return new ContentDecoder(false);
+            default:
+                throw new IllegalArgumentException("Unsupported content encoding: " + contentEncoding);
+        }
+    }
+
+    public static boolean isSupported(String contentEncoding) {
+        switch (normalize(contentEncoding)) {
+            case "", "identity", "gzip", "x-gzip", "deflate":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String normalize(String contentEncoding) {
+        return contentEncoding == null ? "" : contentEncoding.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Entrega o próximo bloco comprimido. O bloco anterior precisa ter sido todo decodificado
+     * ({@link #decode} retornando 0), pois o Inflater guarda só uma entrada por vez.
+     */
+    public void setInput(ByteBuffer buffer) throws DataFormatException {
+        if (header == null) {
+            inflater.setInput(buffer);
+            return;
+        }
+        int received = header.length;
+        header = Arrays.copyOf(header, received + buffer.remaining());
+        buffer.get(header, received, header.length - received);
+        int length = gzipHeaderLength(header);
+        if (length >= 0) {
+            inflater.setInput(header, length, header.length - length);
+            header = null;
+        }
+    }
+
+    /**
+     * Decodifica para {@code out} o quanto couber da entrada recebida.
+     * @return bytes decodificados; 0 quando a entrada acabou ou o corpo terminou
+     */
+    public int decode(byte[] out, int offset, int length) throws DataFormatException {
+        if (header != null || inflater.finished() || length == 0) {
+            return 0;
+        }
+        return inflater.inflate(out, offset, length);
+    }
+
+    /**
+     * O fim do corpo comprimido foi decodificado.
+     */
+    public boolean isFinished() {
+        return inflater.finished();
+    }
+
+    public void end() {
+        inflater.end();
+    }
+
+    /**
+     * Tamanho do cabeçalho gzip, ou -1 se ainda faltam bytes para conhecê-lo.
+     */
+    static int gzipHeaderLength(byte[] header) throws DataFormatException {
+        if (header.length < GZIP_HEADER) {
+            return -1;
+        }
+        if ((header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b || header[2] != 8) {
+            throw new DataFormatException("Not in GZIP format");
+        }
+        int flags = header[3] & 0xff;
+        int position = GZIP_HEADER;
+        if ((flags & FEXTRA) != 0) {
+            if (header.length < position + 2) {
+                return -1;
+            }
+            position += 2 + ((header[position] & 0xff) | (header[position + 1] & 0xff) << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            position = skipZeroTerminated(header, position);
+        }
+        if ((flags & FCOMMENT) != 0 && position >= 0) {
+            position = skipZeroTerminated(header, position);
+        }
+        if ((flags & FHCRC) != 0 && position >= 0) {
+            position += 2;
+        }
+        return position >= 0 && position <= header.length ? position : -1;
+    }
+
+    private static int skipZeroTerminated(byte[] header, int position) {
+        for (int i = position; i < header.length; i++) {
+            if (header[i] == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,225 @@
+package com.mulato.api.crawler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fronteira de URLs compartilhada pelos workers de uma mesma tarefa de crawling.
+ *
+ * Além da fila, controla quantas URLs estão em processamento: uma fila vazia só
+ * significa fim do crawling quando nenhum worker ainda pode descobrir novos links.
+ * Toda URL obtida com {@link #next(long, TimeUnit)} deve ser liberada com {@link #done()}
+ * depois que seus links forem enfileirados, e toda entrada obtida com
+ * {@link #nextEntry(long, TimeUnit)}, com {@link #done(Entry)}.
+ *
+ * Por padrão a fila é FIFO, o que percorre o site em largura. Uma fronteira com prioridade
+ * entrega primeiro as URLs de maior prioridade e, entre as de mesma prioridade, as mais
+ * antigas.
+ */
+public class CrawlFrontier {
+
+    private static final Comparator<Entry> BEST_FIRST = Comparator.comparingInt((Entry entry) -> -entry.priority)
+            .thenComparingLong(entry -> entry.sequence);
+
+    private final Queue<Entry> queue;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // Entradas em processamento, para que o checkpoint as inclua
+    private final Set<Entry> taken = new HashSet<>();
+    private long sequence;
+    private int inFlight;
+
+    public CrawlFrontier() {
+        this(false);
+    }
+
+    /**
+     * @param prioritized entrega as URLs por prioridade em vez da ordem de chegada
+     */
+    public CrawlFrontier(boolean prioritized) {
+        this.queue = prioritized ? new PriorityQueue<>(BEST_FIRST) : new ArrayDeque<>();
+    }
+
+    public void offer(String url) {
+        offer(url, 0, 0);
+    }
+
+    /**
+     * @param depth distância em links da URL base
+     * @param priority prioridade da URL; ignorada na fronteira FIFO
+     */
+    public void offer(String url, int depth, int priority) {
+        lock.lock();
+        try {
+            queue.offer(new Entry(url, depth, priority, sequence++));
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retira a próxima URL da fila. Enquanto houver URLs em processamento o worker
+     * aguarda novos links, até o timeout informado.
+     * @return a URL, ou null se a fronteira esgotou ou nada chegou no período
+     */
+    public String next(long timeout, TimeUnit unit) throws InterruptedException {
+        Entry entry = poll(timeout, unit, false);
+        return entry != null ? entry.url : null;
+    }
+
+    /**
+     * Como {@link #next(long, TimeUnit)}, devolvendo também a profundidade da URL. A entrada
+     * conta no {@link #snapshot()} até ser liberada com {@link #done(Entry)}.
+     */
+    public Entry nextEntry(long timeout, TimeUnit unit) throws InterruptedException {
+        return poll(timeout, unit, true);
+    }
+
+    private Entry poll(long timeout, TimeUnit unit, boolean track) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (queue.isEmpty() && inFlight > 0 && remaining > 0) {
+                remaining = changed.awaitNanos(remaining);
+            }
+            Entry entry = queue.poll();
+            if (entry != null) {
+                inFlight++;
+                if (track) {
+                    taken.add(entry);
+                }
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void done() {
+        done(null);
+    }
+
+    /**
+     * Libera uma entrada obtida com {@link #nextEntry(long, TimeUnit)}.
+     */
+    public void done(Entry entry) {
+        lock.lock();
+        try {
+            if (entry != null) {
+                taken.remove(entry);
+            }
+            inFlight--;
+            if (inFlight == 0) {
+                // Acorda os workers ociosos para que percebam o fim do crawling
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aguarda até que nenhuma URL esteja em processamento.
+     */
+    public void awaitIdle() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight > 0) {
+                changed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A fronteira está esgotada quando não há URLs na fila nem em processamento.
+     */
+    public boolean isExhausted() {
+        lock.lock();
+        try {
+            return inFlight == 0 && queue.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cópia das URLs em processamento e das que aguardam na fila, nessa ordem. Uma URL em
+     * processamento ainda pode não ter enfileirado os seus links, então volta à fronteira
+     * quando o crawling é retomado.
+     */
+    public List<Entry> snapshot() {
+        lock.lock();
+        try {
+            List<Entry> entries = new ArrayList<>(taken.size() + queue.size());
+            entries.addAll(taken);
+            entries.addAll(queue);
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isPrioritized() {
+        return queue instanceof PriorityQueue;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * URL da fronteira com a profundidade em que foi descoberta.
+     */
+    public static final class Entry {
+
+        private final String url;
+        private final int depth;
+        private final int priority;
+        private final long sequence;
+
+        private Entry(String url, int depth, int priority, long sequence) {
+            this.url = url;
+            this.depth = depth;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+    
+        public int getPriority() {
+            return priority;
+        }
+    }
+}
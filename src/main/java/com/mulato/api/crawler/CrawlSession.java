@@ -0,0 +1,351 @@
+package com.mulato.api.crawler;
+
+import com.mulato.api.model.CrawlTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sessão de crawling de uma URL base, compartilhada pelas tarefas que buscam palavras-chave
+ * diferentes no mesmo site. Cada página é buscada uma vez e examinada para todas as tarefas
+ * anexadas naquele momento.
+ *
+ * Uma tarefa anexada com a sessão em andamento não viu as páginas já processadas: ao ser
+ * anexada, a URL base volta para a fronteira e as páginas já processadas são percorridas de
+ * novo a partir dela, seguindo os links, mas examinadas apenas para as tarefas que ainda não
+ * as cobriram, na profundidade da primeira visita e sem contar no limite de páginas. Assim a
+ * sessão guarda só a impressão digital de cada URL, e nunca a URL em si. Uma sessão criada
+ * sem coalescência não aceita outras tarefas.
+ *
+ * Com a fronteira priorizada, os links são ordenados pela {@link LinkPriority} calculada com
+ * as palavras-chave das tarefas anexadas.
+ */
+public class CrawlSession {
+
+    private final String id;
+    private final String baseUrl;
+    private final UrlScope scope;
+    private final CrawlFrontier frontier;
+    private final AtomicInteger pagesProcessed = new AtomicInteger();
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    // Quantas tarefas (prefixo da lista de anexadas) já cobriram cada URL; alterado sob o lock da sessão
+    private final UrlCoverageMap coverage = new UrlCoverageMap();
+    private final boolean coalescing;
+    // URLs que já entraram na fronteira, para que links repetidos não sejam enfileirados de novo
+    private final UrlFingerprintSet enqueued = new UrlFingerprintSet();
+    // URLs já processadas devolvidas à fronteira desde a última tarefa anexada; null até a segunda tarefa
+    private volatile UrlFingerprintSet revisited;
+
+    private volatile Attached attached = new Attached(List.of());
+    private volatile boolean pageLimitReached;
+    private boolean closed;
+
+    public CrawlSession(CrawlTask task) {
+        this(task, task.getBaseUrl());
+    }
+
+    /**
+     * @param baseUrl URL base da tarefa na forma usada pela fronteira (ex.: canônica)
+     */
+    public CrawlSession(CrawlTask task, String baseUrl) {
+        this(task, baseUrl, false);
+    }
+
+    /**
+     * @param baseUrl URL base da tarefa na forma usada pela fronteira (ex.: canônica)
+     * @param prioritized usa a fronteira best-first em vez da FIFO
+     */
+    public CrawlSession(CrawlTask task, String baseUrl, boolean prioritized) {
+        this(task, baseUrl, prioritized, true);
+    }
+
+    /**
+     * @param baseUrl URL base da tarefa na forma usada pela fronteira (ex.: canônica)
+     * @param prioritized usa a fronteira best-first em vez da FIFO
+     * @param coalescing aceita outras tarefas para a mesma URL base depois de criada
+     */
+    public CrawlSession(CrawlTask task, String baseUrl, boolean prioritized, boolean coalescing) {
+        this.id = task.getId();
+        this.coalescing = coalescing;
+        this.baseUrl = baseUrl;
+        this.scope = UrlScope.of(baseUrl);
+        this.frontier = new CrawlFrontier(prioritized);
+        attach(task);
+        enqueue(baseUrl);
+    }
+
+    /**
+     * Id da tarefa que abriu a sessão.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Escopo da URL base, calculado uma vez para todos os links da sessão.
+     */
+    public UrlScope getScope() {
+        return scope;
+    }
+
+    public CrawlFrontier getFrontier() {
+        return frontier;
+    }
+
+    public boolean isPrioritized() {
+        return frontier.isPrioritized();
+    }
+
+    public int getPagesProcessed() {
+        return pagesProcessed.get();
+    }
+
+    public List<CrawlTask> getTasks() {
+        return attached.tasks;
+    }
+
+    /**
+     * Anexa a tarefa à sessão. Se a URL base já foi processada, ela volta à fronteira para que
+     * as páginas já processadas sejam percorridas de novo para a tarefa.
+     * @return false se a sessão já foi encerrada ou não coalesce tarefas
+     */
+    public synchronized boolean attach(CrawlTask task) {
+        if (closed || (!coalescing && !attached.tasks.isEmpty())) {
+            return false;
+        }
+        List<CrawlTask> tasks = new ArrayList<>(attached.tasks);
+        tasks.add(task);
+        attached = new Attached(tasks);
+        if (coverage.size() > 0) {
+            revisited = new UrlFingerprintSet();
+            revisit(baseUrl);
+        }
+        return true;
+    }
+
+    /**
+     * Devolve à fronteira uma URL já processada que alguma tarefa anexada ainda não cobriu,
+     * uma vez por tarefa anexada. A profundidade da primeira visita mantém valendo o limite de
+     * profundidade da tarefa anexada.
+     */
+    private boolean revisit(String url) {
+        int covered = coverage.covered(url);
+        if (covered < 0 || covered >= attached.tasks.size() || !revisited.add(url)) {
+            return false;
+        }
+        int depth = coverage.depth(url);
+        int priority = frontier.isPrioritized() ? attached.linkPriority.score(url, null, depth, false) : 0;
+        frontier.offer(url, depth, priority);
+        return true;
+    }
+
+    /**
+     * Enfileira a URL se ela ainda não passou pela fronteira desta sessão.
+     * @return false se a URL já tinha sido enfileirada
+     */
+    public boolean enqueue(String url) {
+        return enqueue(url, 0, 0);
+    }
+
+    /**
+     * Enfileira a URL ou, depois que uma tarefa foi anexada com a sessão em andamento, a
+     * devolve à fronteira se ela já foi processada sem cobrir todas as tarefas.
+     * @param depth distância em links da URL base
+     * @param priority prioridade na fronteira best-first
+     * @return false se a URL já tinha sido enfileirada
+     */
+    public boolean enqueue(String url, int depth, int priority) {
+        if (enqueued.add(url)) {
+            frontier.offer(url, depth, priority);
+            return true;
+        }
+        if (revisited == null) {
+            return false;
+        }
+        synchronized (this) {
+            return revisit(url);
+        }
+    }
+
+    /**
+     * Reserva a URL base, ou outra URL de profundidade 0, para as tarefas anexadas que ainda
+     * não a cobriram.
+     * @return a visita, ou null se todas já cobriram a URL ou o limite de páginas novas foi atingido
+     */
+    public Visit claim(String url, int maxPages) {
+        return claim(url, 0, maxPages);
+    }
+
+    /**
+     * Reserva a URL para as tarefas anexadas que ainda não a cobriram. A revisita de uma URL
+     * já processada tem a profundidade da primeira visita.
+     * @param depth distância em links da URL base
+     * @return a visita, ou null se todas já cobriram a URL ou o limite de páginas novas foi atingido
+     */
+    public synchronized Visit claim(String url, int depth, int maxPages) {
+        Attached current = attached;
+        int covered = coverage.covered(url);
+        if (covered < 0) {
+            if (pagesProcessed.get() >= maxPages) {
+                pageLimitReached = true;
+                return null;
+            }
+            pagesProcessed.incrementAndGet();
+            coverage.cover(url, current.tasks.size(), depth);
+            return new Visit(current, 0, true, depth);
+        }
+        if (covered < current.tasks.size()) {
+            coverage.cover(url, current.tasks.size(), depth);
+            return new Visit(current, covered, false, coverage.depth(url));
+        }
+        return null;
+    }
+
+    /**
+     * Registra uma URL equivalente a outra já reservada (ex.: a URL declarada em
+     * {@code rel="canonical"}) como coberta pelas mesmas tarefas, para que não seja buscada
+     * de novo. Não conta no limite de páginas.
+     */
+    public synchronized void alias(String url, Visit visit) {
+        coverage.cover(url, visit.tasks.size(), visit.depth);
+    }
+
+    /**
+     * Retoma a contagem de páginas novas de um checkpoint, para que o limite de páginas valha
+     * para o crawling inteiro e não só para a parte depois da retomada.
+     */
+    public void restorePagesProcessed(int pages) {
+        pagesProcessed.accumulateAndGet(pages, Math::max);
+    }
+
+    /**
+     * Devolve ao limite de páginas uma URL reservada que acabou não sendo buscada.
+     */
+    public void releasePage() {
+        pagesProcessed.decrementAndGet();
+    }
+
+    /**
+     * Indica se o limite de páginas impediu alguma página nova de ser buscada.
+     */
+    public boolean isPageLimitReached() {
+        return pageLimitReached;
+    }
+
+    /**
+     * A sessão está ativa enquanto alguma tarefa anexada estiver; tarefas cuja duração máxima
+     * já passou são encerradas aqui.
+     */
+    public boolean isActive() {
+        boolean active = false;
+        for (CrawlTask task : attached.tasks) {
+            active |= task.checkBudget();
+        }
+        return active;
+    }
+
+    /**
+     * Encerra a sessão para novas tarefas. Falha enquanto houver URLs devolvidas à
+     * fronteira por uma tarefa anexada depois que os workers terminaram.
+     */
+    public synchronized boolean close() {
+        if (!frontier.isExhausted() && isActive()) {
+            return false;
+        }
+        closed = true;
+        return true;
+    }
+
+    public synchronized void forceClose() {
+        closed = true;
+    }
+
+    public void finish() {
+        finished.countDown();
+    }
+
+    public void awaitFinished() throws InterruptedException {
+        finished.await();
+    }
+
+    /**
+     * @return false se a sessão não terminou no período
+     */
+    public boolean awaitFinished(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    private static final class Attached {
+
+        private final List<CrawlTask> tasks;
+        private final MultiKeywordMatcher matcher;
+        private final LinkPriority linkPriority;
+
+        Attached(List<CrawlTask> tasks) {
+            this.tasks = List.copyOf(tasks);
+            List<String> keywords = tasks.stream().map(CrawlTask::getKeyword).toList();
+            this.matcher = tasks.isEmpty() ? null : MultiKeywordMatcher.compile(keywords);
+            this.linkPriority = new LinkPriority(keywords);
+        }
+    }
+
+    /**
+     * Visita reservada de uma URL: as tarefas de índice {@code from} em diante ainda não a cobriram.
+     */
+    public static final class Visit {
+
+        private final List<CrawlTask> tasks;
+        private final MultiKeywordMatcher matcher;
+        private final LinkPriority linkPriority;
+        private final int from;
+        private final boolean firstVisit;
+        private final int depth;
+
+        private Visit(Attached attached, int from, boolean firstVisit, int depth) {
+            this.tasks = attached.tasks;
+            this.matcher = attached.matcher;
+            this.linkPriority = attached.linkPriority;
+            this.from = from;
+            this.firstVisit = firstVisit;
+            this.depth = depth;
+        }
+
+        public List<CrawlTask> getTasks() {
+            return tasks;
+        }
+
+        public MultiKeywordMatcher getMatcher() {
+            return matcher;
+        }
+
+        public LinkPriority getLinkPriority() {
+            return linkPriority;
+        }
+
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * false quando a URL já foi buscada antes e a visita só completa as tarefas anexadas depois.
+         */
+        public boolean isFirstVisit() {
+            return firstVisit;
+        }
+
+        /**
+         * Distância em links da URL base em que a URL foi visitada.
+         */
+        public int getDepth() {
+            return depth;
+        }
+    }
+}
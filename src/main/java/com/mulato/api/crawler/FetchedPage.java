@@ -0,0 +1,181 @@
+package com.mulato.api.crawler;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
+
+/**
+ * Resposta HTTP de uma página buscada pelo crawler.
+ */
+public class FetchedPage {
+
+    private final String url;
+    private final String finalUrl;
+    private final int statusCode;
+    private final String contentType;
+    private final byte[] body;
+    private final String etag;
+    private final String lastModified;
+    private final long transferredBytes;
+    private final boolean truncated;
+    private final String location;
+
+    public FetchedPage(String url, String finalUrl, int statusCode, String contentType, byte[] body) {
+        this(url, finalUrl, statusCode, contentType, body, null, null);
+    }
+
+    public FetchedPage(String url, String finalUrl, int statusCode, String contentType, byte[] body,
+                       String etag, String lastModified) {
+        this(url, finalUrl, statusCode, contentType, body, etag, lastModified, body.length, false);
+    }
+
+    public FetchedPage(String url, String finalUrl, int statusCode, String contentType, byte[] body,
+                       String etag, String lastModified, long transferredBytes, boolean truncated) {
+        this(url, finalUrl, statusCode, contentType, body, etag, lastModified, transferredBytes, truncated, null);
+    }
+
+    private FetchedPage(String url, String finalUrl, int statusCode, String contentType, byte[] body,
+                        String etag, String lastModified, long transferredBytes, boolean truncated,
+                        String location) {
+        this.url = url;
+        this.finalUrl = finalUrl;
+        this.statusCode = statusCode;
+        this.contentType = contentType;
+        this.body = body;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.transferredBytes = transferredBytes;
+        this.truncated = truncated;
+        this.location = location;
+    }
+
+    /**
+     * Resposta de redirecionamento sem corpo; o destino no cabeçalho Location pode ser relativo
+     * à URL pedida.
+     */
+    public static FetchedPage redirect(String url, int statusCode, String location) {
+        return new FetchedPage(url, url, statusCode, null, new byte[0], null, null, 0, false, location);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getFinalUrl() {
+        return finalUrl;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Cabeçalho ETag da resposta, ou null se o servidor não o enviou.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Cabeçalho Last-Modified da resposta, ou null se o servidor não o enviou.
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Bytes do corpo recebidos da rede, ainda comprimidos quando a resposta veio com
+     * Content-Encoding; 0 para uma página servida do cache.
+     */
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    /**
+     * A mesma página entregue de novo sem nova transferência, como numa leitura do cache.
+     */
+    public FetchedPage replayed() {
+        return new FetchedPage(url, finalUrl, statusCode, contentType, body, etag, lastModified, 0, truncated,
+                location);
+    }
+
+    /**
+     * O corpo foi cortado em {@code app.crawler.max-body-bytes} e não é a página inteira: não
+     * pode ser guardado no cache nem servir de corpo para um 304.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Resposta 3xx com Location: o cliente não segue redirecionamentos, e o destino passa pelo
+     * escopo e pela fronteira como um link da página.
+     */
+    public boolean isRedirect() {
+        return location != null;
+    }
+
+    /**
+     * Cabeçalho Location do redirecionamento, ou null se a resposta não é um redirecionamento.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Resposta 304 a uma busca condicional: o corpo está vazio e o conteúdo guardado continua válido.
+     */
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+
+    /**
+     * Charset declarado no Content-Type, ou null para que o parser o detecte pelo conteúdo.
+     */
+    public String getCharset() {
+        return charsetOf(contentType);
+    }
+
+    /**
+     * Extrai o charset de um cabeçalho Content-Type, ou null se ausente ou não suportado.
+     */
+    public static String charsetOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                String charset = trimmed.substring("charset=".length()).replace("\"", "").trim();
+                try {
+                    return Charset.isSupported(charset) ? charset : null;
+                } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "FetchedPage{" +
+                "url='" + url + '\'' +
+                ", statusCode=" + statusCode +
+                ", contentType='" + contentType + '\'' +
+                ", bytes=" + body.length +
+                ", transferredBytes=" + transferredBytes +
+                ", truncated=" + truncated +
+                ", location='" + location + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,62 @@
+package com.mulato.api.crawler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Token bucket por host, na forma de agendamento virtual (GCRA): cada host guarda apenas o
+ * instante teórico da próxima requisição. Uma reserva devolve quanto tempo a requisição deve
+ * esperar para que o host receba no máximo uma requisição por intervalo, com rajadas de até
+ * {@code burst} requisições depois de um período ocioso.
+ *
+ * A reserva é feita no momento em que a requisição é agendada, então requisições simultâneas
+ * ao mesmo host recebem horários sucessivos em vez de competirem pelo mesmo token.
+ */
+public class HostRateLimiter {
+
+    // Acima disso, os hosts ociosos saem do mapa
+    private static final int PRUNE_THRESHOLD = 1024;
+
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Reserva o próximo horário livre do host.
+     * @param intervalNanos intervalo médio entre requisições ao host; 0 desativa o limite
+     * @param burst requisições que podem sair sem espera depois de um período ocioso
+     * @return nanossegundos a esperar antes de enviar a requisição (0 para enviar já)
+     */
+    public long reserve(String host, long intervalNanos, int burst) {
+        if (intervalNanos <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (buckets.size() > PRUNE_THRESHOLD) {
+            buckets.values().removeIf(bucket -> bucket.isIdle(now));
+        }
+        return buckets.computeIfAbsent(host, key -> new Bucket(now)).reserve(now, intervalNanos, Math.max(1, burst));
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private static final class Bucket {
+
+        // Instante teórico em que o host volta a ter todos os tokens
+        private long theoreticalArrival;
+
+        Bucket(long now) {
+            this.theoreticalArrival = now;
+        }
+
+        synchronized long reserve(long now, long intervalNanos, int burst) {
+            long arrival = Math.max(theoreticalArrival, now) + intervalNanos;
+            theoreticalArrival = arrival;
+            return Math.max(0, arrival - burst * intervalNanos - now);
+        }
+
+        synchronized boolean isIdle(long now) {
+            return theoreticalArrival - now < 0;
+        }
+    }
+}
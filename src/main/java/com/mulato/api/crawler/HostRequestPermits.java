@@ -0,0 +1,93 @@
+package com.mulato.api.crawler;
+
+import java.util.ArrayDeque;
+import java.util.function.LongConsumer;
+
+/**
+ * Vagas de requisição a um host: no máximo {@code maxRequests} requisições abertas ao mesmo
+ * tempo. Requisições acima do limite ficam em uma fila e são iniciadas, na ordem de chegada,
+ * quando uma vaga é devolvida; nenhuma thread fica bloqueada esperando.
+ *
+ * O limite é de requisições, não de conexões: com HTTP/1.1 ele também limita as conexões que
+ * o cliente abre ao host, mas com HTTP/2 as requisições dividem a mesma conexão.
+ */
+public class HostRequestPermits {
+
+    private final int maxRequests;
+    private final LongConsumer waitRecorder;
+
+    private final ArrayDeque<Waiting> waiting = new ArrayDeque<>();
+    private int active;
+
+    /**
+     * @param waitRecorder recebe, em nanossegundos, a espera de cada requisição na fila
+     */
+    public HostRequestPermits(int maxRequests, LongConsumer waitRecorder) {
+        this.maxRequests = Math.max(1, maxRequests);
+        this.waitRecorder = waitRecorder;
+    }
+
+    /**
+     * Inicia a requisição agora, se houver vaga, ou a coloca na fila. Toda requisição iniciada
+     * deve devolver a vaga com {@link #release()}.
+     */
+    public void acquire(Runnable start) {
+        synchronized (this) {
+            if (active >= maxRequests) {
+                waiting.add(new Waiting(start, System.nanoTime()));
+                return;
+            }
+            active++;
+        }
+        waitRecorder.accept(0);
+        start.run();
+    }
+
+    /**
+     * Devolve a vaga de uma requisição concluída e inicia a próxima da fila.
+     */
+    public void release() {
+        Waiting next;
+        long now = System.nanoTime();
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                active--;
+            }
+        }
+        if (next != null) {
+            waitRecorder.accept(now - next.queuedAt);
+            next.start.run();
+        }
+    }
+
+    public int maxRequests() {
+        return maxRequests;
+    }
+
+    public synchronized int active() {
+        return active;
+    }
+
+    public synchronized int pending() {
+        return waiting.size();
+    }
+
+    /**
+     * Fração das vagas em uso, de 0 a 1.
+     */
+    public synchronized double saturation() {
+        return (double) active / maxRequests;
+    }
+
+    private static final class Waiting {
+
+        final Runnable start;
+        final long queuedAt;
+
+        Waiting(Runnable start, long queuedAt) {
+            this.start = start;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
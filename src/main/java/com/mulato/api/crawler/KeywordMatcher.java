@@ -0,0 +1,188 @@
+package com.mulato.api.crawler;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Busca case insensitive de uma palavra-chave diretamente sobre os bytes de uma página,
+ * usando Boyer-Moore-Horspool.
+ *
+ * Cada caractere da palavra-chave é codificado no charset da página em minúsculas e em
+ * maiúsculas; quando as duas formas têm o mesmo tamanho, cada posição do padrão aceita
+ * qualquer um dos dois bytes. Caracteres cujas formas têm tamanhos diferentes (ex.: 'ı' e 'I')
+ * só casam na forma em que foram digitados.
+ *
+ * A instância é imutável e pode ser compartilhada; o estado de cada página fica em um
+ * {@link Scanner}, que aceita o corpo em blocos e encontra ocorrências que atravessam
+ * a fronteira entre dois blocos.
+ */
+public final class KeywordMatcher {
+
+    private final String keyword;
+    private final Charset charset;
+    private final byte[] lower;
+    private final byte[] upper;
+    private final int[] shift = new int[256];
+
+    private KeywordMatcher(String keyword, Charset charset, byte[] lower, byte[] upper) {
+        this.keyword = keyword;
+        this.charset = charset;
+        this.lower = lower;
+        this.upper = upper;
+
+        int last = lower.length - 1;
+        Arrays.fill(shift, lower.length);
+        for (int i = 0; i < last; i++) {
+            shift[lower[i] & 0xFF] = last - i;
+            shift[upper[i] & 0xFF] = last - i;
+        }
+    }
+
+    public static KeywordMatcher compile(String keyword) {
+        return compile(keyword, StandardCharsets.UTF_8);
+    }
+
+    public static KeywordMatcher compile(String keyword, Charset charset) {
+        if (keyword == null || keyword.isEmpty()) {
+            throw new IllegalArgumentException("Keyword must not be empty");
+        }
+
+        byte[] lower = new byte[0];
+        byte[] upper = new byte[0];
+        for (int i = 0; i < keyword.length(); ) {
+            int codePoint = keyword.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            byte[] original = encode(codePoint, charset);
+            byte[] lowerForm = encode(Character.toLowerCase(codePoint), charset);
+            byte[] upperForm = encode(Character.toUpperCase(codePoint), charset);
+            if (lowerForm.length != upperForm.length) {
+                lowerForm = original;
+                upperForm = original;
+            }
+            lower = append(lower, lowerForm);
+            upper = append(upper, upperForm);
+        }
+        return new KeywordMatcher(keyword, charset, lower, upper);
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * Mesma palavra-chave codificada no charset informado; null mantém o charset atual.
+     */
+    public KeywordMatcher forCharset(String charsetName) {
+        if (charsetName == null) {
+            return this;
+        }
+        Charset target = Charset.forName(charsetName);
+        return target.equals(charset) ? this : compile(keyword, target);
+    }
+
+    /**
+     * Tamanho do padrão em bytes.
+     */
+    public int length() {
+        return lower.length;
+    }
+
+    public boolean matches(byte[] data) {
+        return indexOf(data, 0, data.length) >= 0;
+    }
+
+    public Scanner newScanner() {
+        return new Scanner();
+    }
+
+    /**
+     * Posição da primeira ocorrência em {@code data[from, to)}, ou -1.
+     */
+    int indexOf(byte[] data, int from, int to) {
+        int last = lower.length - 1;
+        int position = from;
+        while (position + last < to) {
+            int j = last;
+            while (j >= 0 && matchesAt(data[position + j], j)) {
+                j--;
+            }
+            if (j < 0) {
+                return position;
+            }
+            position += shift[data[position + last] & 0xFF];
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(byte b, int index) {
+        return b == lower[index] || b == upper[index];
+    }
+
+    private static byte[] encode(int codePoint, Charset charset) {
+        return new String(Character.toChars(codePoint)).getBytes(charset);
+    }
+
+    private static byte[] append(byte[] target, byte[] bytes) {
+        byte[] result = Arrays.copyOf(target, target.length + bytes.length);
+        System.arraycopy(bytes, 0, result, target.length, bytes.length);
+        return result;
+    }
+
+    /**
+     * Estado da busca em uma página. Guarda os últimos {@code length() - 1} bytes do bloco
+     * anterior para detectar ocorrências divididas entre blocos, e ignora o restante do
+     * corpo assim que a palavra-chave é encontrada. Não é thread-safe.
+     */
+    public final class Scanner implements BodySink {
+
+        private final byte[] bridge = new byte[2 * (lower.length - 1)];
+        private int carried;
+        private boolean found;
+
+        @Override
+        public void accept(byte[] data, int offset, int length) {
+            if (found || length <= 0) {
+                return;
+            }
+
+            int keep = lower.length - 1;
+            if (carried > 0) {
+                // Ocorrências que começam no bloco anterior terminam nos primeiros keep bytes deste
+                int head = Math.min(keep, length);
+                System.arraycopy(data, offset, bridge, carried, head);
+                if (indexOf(bridge, 0, carried + head) >= 0) {
+                    found = true;
+                    return;
+                }
+            }
+
+            if (indexOf(data, offset, offset + length) >= 0) {
+                found = true;
+                return;
+            }
+
+            carry(data, offset, length, keep);
+        }
+
+        public boolean isFound() {
+            return found;
+        }
+
+        private void carry(byte[] data, int offset, int length, int keep) {
+            if (keep == 0) {
+                return;
+            }
+            if (length >= keep) {
+                System.arraycopy(data, offset + length - keep, bridge, 0, keep);
+                carried = keep;
+            } else {
+                int fromBridge = Math.min(carried, keep - length);
+                System.arraycopy(bridge, carried - fromBridge, bridge, 0, fromBridge);
+                System.arraycopy(data, offset, bridge, fromBridge, length);
+                carried = fromBridge + length;
+            }
+        }
+    }
+}
@@ -0,0 +1,574 @@
+package com.mulato.api.crawler;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extrai os links ({@code <a href>}), o {@code <base href>} e o {@code <link rel="canonical">}
+ * de uma página em uma única passada sobre os bytes, sem montar o DOM.
+ *
+ * O tokenizer segue as regras do HTML5 que importam para os atributos: comentários, valores
+ * entre aspas duplas, simples ou sem aspas, o primeiro atributo repetido vale e o conteúdo de
+ * script, style, textarea, title e afins é texto. Só os valores de href (e o rel de {@code <link>})
+ * são copiados, então a alocação é proporcional ao número de links e não ao tamanho da página.
+ * Opcionalmente guarda também o texto de cada link (até {@value #MAX_ANCHOR_TEXT} bytes), usado
+ * para priorizar a fronteira.
+ *
+ * Funciona para charsets compatíveis com ASCII (ver {@link #supports(String)}). Recebe o corpo
+ * em blocos como um {@link BodySink} e não é thread-safe.
+ */
+public final class LinkExtractor implements BodySink {
+
+    private static final int TEXT = 0;
+    private static final int TAG_OPEN = 1;
+    private static final int END_TAG_OPEN = 2;
+    private static final int TAG_NAME = 3;
+    private static final int BEFORE_ATTR = 4;
+    private static final int ATTR_NAME = 5;
+    private static final int AFTER_ATTR_NAME = 6;
+    private static final int BEFORE_VALUE = 7;
+    private static final int QUOTED_VALUE = 8;
+    private static final int UNQUOTED_VALUE = 9;
+    private static final int MARKUP = 10;
+    private static final int COMMENT = 11;
+    private static final int BOGUS = 12;
+    private static final int RAW_TEXT = 13;
+
+    private static final int OTHER_TAG = 0;
+    private static final int ANCHOR_TAG = 1;
+    private static final int BASE_TAG = 2;
+    private static final int RAW_TAG = 3;
+    private static final int LINK_TAG = 4;
+
+    // Maior nome de tag ou atributo que precisa ser reconhecido ("textarea", "noframes")
+    private static final int MAX_NAME = 8;
+
+    // Bytes do texto de um link guardados; o resto é descartado
+    private static final int MAX_ANCHOR_TEXT = 256;
+
+    private static final byte[] HREF = ascii("href");
+    private static final byte[] REL = ascii("rel");
+    private static final byte[] ANCHOR = ascii("a");
+    private static final byte[] BASE = ascii("base");
+    private static final byte[] LINK = ascii("link");
+    private static final byte[] CANONICAL = ascii("canonical");
+    private static final byte[][] RAW_TAGS = {
+            ascii("script"), ascii("style"), ascii("textarea"), ascii("title"),
+            ascii("xmp"), ascii("iframe"), ascii("noembed"), ascii("noframes")
+    };
+
+    private static final String ASCII_PROBE;
+
+    static {
+        StringBuilder probe = new StringBuilder("\t\n\f\r");
+        for (char c = ' '; c < 0x7F; c++) {
+            probe.append(c);
+        }
+        ASCII_PROBE = probe.toString();
+    }
+
+    private final Charset charset;
+    private final List<String> links = new ArrayList<>();
+    private final List<String> anchorTexts;
+    private String baseHref;
+    private String canonicalHref;
+
+    private int state = TEXT;
+    private boolean endTag;
+    private final byte[] name = new byte[MAX_NAME];
+    private int nameLength;
+    private int tagKind;
+    private boolean hrefSeen;
+    private boolean relSeen;
+    private String linkHref;
+    private boolean linkCanonical;
+    private final byte[] attribute = new byte[MAX_NAME];
+    private int attributeLength;
+    private boolean capturing;
+    private boolean capturingRel;
+    private byte quote;
+    private byte[] value = new byte[64];
+    private int valueLength;
+    private int dashes;
+    private byte[] rawClose;
+    private int rawMatched;
+    // Link cujo texto está sendo lido, ou -1; o link do <a> em andamento entra em pendingAnchor
+    private int anchorIndex = -1;
+    private int pendingAnchor = -1;
+    private byte[] anchorText;
+    private int anchorTextLength;
+
+    /**
+     * @param charsetName charset declarado pela página, ou null para UTF-8
+     */
+    public LinkExtractor(String charsetName) {
+        this(charsetName, false);
+    }
+
+    /**
+     * @param charsetName charset declarado pela página, ou null para UTF-8
+     * @param captureAnchorText guarda o texto de cada link (ver {@link #getAnchorTexts()})
+     */
+    public LinkExtractor(String charsetName, boolean captureAnchorText) {
+        this.charset = charsetName == null ? StandardCharsets.UTF_8 : Charset.forName(charsetName);
+        this.anchorTexts = captureAnchorText ? new ArrayList<>() : null;
+        this.anchorText = captureAnchorText ? new byte[MAX_ANCHOR_TEXT] : null;
+    }
+
+    /**
+     * Indica se o charset codifica o ASCII como o próprio ASCII, o que permite reconhecer
+     * as tags byte a byte (não vale para UTF-16, por exemplo).
+     * @param charsetName charset declarado pela página, ou null para UTF-8
+     */
+    public static boolean supports(String charsetName) {
+        if (charsetName == null) {
+            return true;
+        }
+        try {
+            Charset charset = Charset.forName(charsetName);
+            return charset.canEncode()
+                    && Arrays.equals(ASCII_PROBE.getBytes(charset), ASCII_PROBE.getBytes(StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Valores de href dos links, na ordem do documento, com entidades decodificadas e sem
+     * espaços nas pontas.
+     */
+    public List<String> getLinks() {
+        return links;
+    }
+
+    /**
+     * Texto de cada link de {@link #getLinks()}, na mesma ordem, sem tags, com entidades
+     * decodificadas e sem espaços nas pontas; vazio quando o extractor não guarda o texto.
+     */
+    public List<String> getAnchorTexts() {
+        if (anchorTexts == null) {
+            return List.of();
+        }
+        // Um <a> sem fechamento vai até o fim da página
+        closeAnchor();
+        return anchorTexts;
+    }
+
+    /**
+     * Valor do primeiro {@code <base href>}, ou null se a página não tem um.
+     */
+    public String getBaseHref() {
+        return baseHref;
+    }
+
+    /**
+     * Valor do href do primeiro {@code <link rel="canonical">}, ou null se a página não tem um.
+     */
+    public String getCanonicalHref() {
+        return canonicalHref;
+    }
+
+    @Override
+    public void accept(byte[] data, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (state == TEXT) {
+                // Caminho mais comum: pula o texto até a próxima tag
+                int start = i;
+                while (i < end && data[i] != '<') {
+                    i++;
+                }
+                if (anchorIndex >= 0) {
+                    appendAnchorText(data, start, i);
+                }
+                if (i < end) {
+                    state = TAG_OPEN;
+                }
+                continue;
+            }
+            step(data[i]);
+        }
+    }
+
+    private void step(byte b) {
+        switch (state) {
+            case TAG_OPEN:
+                if (isLetter(b)) {
+                    startTag(false, b);
+                } else if (b == '!') {
+                    dashes = 0;
+                    state = MARKUP;
+                } else if (b == '/') {
+                    state = END_TAG_OPEN;
+                } else if (b == '?') {
+                    state = BOGUS;
+                } else {
+                    state = b == '<' ? TAG_OPEN : TEXT;
+                }
+                break;
+            case END_TAG_OPEN:
+                if (isLetter(b)) {
+                    startTag(true, b);
+                } else {
+                    state = b == '>' ? TEXT : BOGUS;
+                }
+                break;
+            case TAG_NAME:
+                if (isWhitespace(b) || b == '/') {
+                    endOfTagName();
+                    state = BEFORE_ATTR;
+                } else if (b == '>') {
+                    endOfTagName();
+                    endOfTag();
+                } else {
+                    nameLength = append(name, nameLength, b);
+                }
+                break;
+            case BEFORE_ATTR:
+                if (b == '>') {
+                    endOfTag();
+                } else if (!isWhitespace(b) && b != '/') {
+                    startAttribute(b);
+                }
+                break;
+            case ATTR_NAME:
+                if (isWhitespace(b)) {
+                    state = AFTER_ATTR_NAME;
+                } else if (b == '/') {
+                    state = BEFORE_ATTR;
+                } else if (b == '=') {
+                    state = BEFORE_VALUE;
+                } else if (b == '>') {
+                    endOfTag();
+                } else {
+                    attributeLength = append(attribute, attributeLength, b);
+                }
+                break;
+            case AFTER_ATTR_NAME:
+                if (b == '/') {
+                    state = BEFORE_ATTR;
+                } else if (b == '=') {
+                    state = BEFORE_VALUE;
+                } else if (b == '>') {
+                    endOfTag();
+                } else if (!isWhitespace(b)) {
+                    startAttribute(b);
+                }
+                break;
+            case BEFORE_VALUE:
+                if (b == '"' || b == '\'') {
+                    startValue();
+                    quote = b;
+                    state = QUOTED_VALUE;
+                } else if (b == '>') {
+                    endOfTag();
+                } else if (!isWhitespace(b)) {
+                    startValue();
+                    appendValue(b);
+                    state = UNQUOTED_VALUE;
+                }
+                break;
+            case QUOTED_VALUE:
+                if (b == quote) {
+                    endValue();
+                    state = BEFORE_ATTR;
+                } else {
+                    appendValue(b);
+                }
+                break;
+            case UNQUOTED_VALUE:
+                if (isWhitespace(b)) {
+                    endValue();
+                    state = BEFORE_ATTR;
+                } else if (b == '>') {
+                    endValue();
+                    endOfTag();
+                } else {
+                    appendValue(b);
+                }
+                break;
+            case MARKUP:
+                // "<!--" abre um comentário; qualquer outra declaração vai até o '>'
+                if (b == '-' && ++dashes == 2) {
+                    dashes = 0;
+                    state = COMMENT;
+                } else if (b != '-') {
+                    state = b == '>' ? TEXT : BOGUS;
+                }
+                break;
+            case COMMENT:
+                if (b == '-') {
+                    dashes++;
+                } else if (b == '>' && dashes >= 2) {
+                    state = TEXT;
+                } else {
+                    dashes = 0;
+                }
+                break;
+            case BOGUS:
+                if (b == '>') {
+                    state = TEXT;
+                }
+                break;
+            case RAW_TEXT:
+                // Procura "</nome" ignorando maiúsculas; o resto da tag de fechamento é descartado
+                int lower = toLower(b);
+                if (lower == rawClose[rawMatched]) {
+                    if (++rawMatched == rawClose.length) {
+                        state = BOGUS;
+                    }
+                } else {
+                    rawMatched = lower == '<' ? 1 : 0;
+                }
+                break;
+            default:
+                state = TEXT;
+        }
+    }
+
+    private void startTag(boolean end, byte first) {
+        endTag = end;
+        nameLength = append(name, 0, first);
+        hrefSeen = false;
+        relSeen = false;
+        linkHref = null;
+        linkCanonical = false;
+        state = TAG_NAME;
+    }
+
+    private void startAttribute(byte first) {
+        attributeLength = append(attribute, 0, first);
+        state = ATTR_NAME;
+    }
+
+    private void startValue() {
+        // Em atributos repetidos vale o primeiro, como no parser HTML
+        capturing = tagKind != OTHER_TAG && tagKind != RAW_TAG && !hrefSeen && nameIs(attribute, attributeLength, HREF);
+        capturingRel = !capturing && tagKind == LINK_TAG && !relSeen && nameIs(attribute, attributeLength, REL);
+        if (capturing) {
+            hrefSeen = true;
+        } else if (capturingRel) {
+            relSeen = true;
+            capturing = true;
+        }
+        valueLength = 0;
+    }
+
+    private void appendValue(byte b) {
+        if (!capturing) {
+            return;
+        }
+        if (valueLength == value.length) {
+            value = Arrays.copyOf(value, value.length * 2);
+        }
+        value[valueLength++] = b;
+    }
+
+    private void endValue() {
+        if (!capturing) {
+            return;
+        }
+        capturing = false;
+        if (capturingRel) {
+            capturingRel = false;
+            linkCanonical = isCanonicalRel();
+            return;
+        }
+        String href = decodeEntities(new String(value, 0, valueLength, charset).strip());
+        if (tagKind == ANCHOR_TAG) {
+            links.add(href);
+            if (anchorTexts != null) {
+                anchorTexts.add("");
+                pendingAnchor = links.size() - 1;
+            }
+        } else if (tagKind == LINK_TAG) {
+            linkHref = href;
+        } else if (baseHref == null) {
+            baseHref = href;
+        }
+    }
+
+    /**
+     * O atributo rel é uma lista de palavras separadas por espaço; procura "canonical" nela.
+     */
+    private boolean isCanonicalRel() {
+        int start = 0;
+        for (int i = 0; i <= valueLength; i++) {
+            if (i == valueLength || isWhitespace(value[i])) {
+                if (i - start == CANONICAL.length) {
+                    boolean same = true;
+                    for (int j = 0; j < CANONICAL.length && same; j++) {
+                        same = toLower(value[start + j]) == CANONICAL[j];
+                    }
+                    if (same) {
+                        return true;
+                    }
+                }
+                start = i + 1;
+            }
+        }
+        return false;
+    }
+
+    private void endOfTagName() {
+        if (!endTag) {
+            tagKind = classifyTag();
+            return;
+        }
+        if (anchorTexts != null && nameIs(name, nameLength, ANCHOR)) {
+            closeAnchor();
+        }
+        tagKind = OTHER_TAG;
+    }
+
+    private void endOfTag() {
+        if (tagKind == ANCHOR_TAG && anchorTexts != null) {
+            // Um <a> dentro de outro fecha o anterior, como no parser HTML
+            closeAnchor();
+            anchorIndex = pendingAnchor;
+            pendingAnchor = -1;
+            anchorTextLength = 0;
+        }
+        if (tagKind == LINK_TAG && linkCanonical && linkHref != null && canonicalHref == null) {
+            canonicalHref = linkHref;
+        }
+        if (tagKind == RAW_TAG) {
+            rawMatched = 0;
+            state = RAW_TEXT;
+        } else {
+            state = TEXT;
+        }
+    }
+
+    private void appendAnchorText(byte[] data, int from, int to) {
+        int length = Math.min(to - from, MAX_ANCHOR_TEXT - anchorTextLength);
+        if (length > 0) {
+            System.arraycopy(data, from, anchorText, anchorTextLength, length);
+            anchorTextLength += length;
+        }
+    }
+
+    private void closeAnchor() {
+        if (anchorIndex >= 0) {
+            String text = new String(anchorText, 0, anchorTextLength, charset);
+            anchorTexts.set(anchorIndex, decodeEntities(text).strip());
+            anchorIndex = -1;
+        }
+    }
+
+    private int classifyTag() {
+        if (nameIs(name, nameLength, ANCHOR)) {
+            return ANCHOR_TAG;
+        }
+        if (nameIs(name, nameLength, BASE)) {
+            return BASE_TAG;
+        }
+        if (nameIs(name, nameLength, LINK)) {
+            return LINK_TAG;
+        }
+        for (byte[] raw : RAW_TAGS) {
+            if (nameIs(name, nameLength, raw)) {
+                rawClose = new byte[raw.length + 2];
+                rawClose[0] = '<';
+                rawClose[1] = '/';
+                System.arraycopy(raw, 0, rawClose, 2, raw.length);
+                return RAW_TAG;
+            }
+        }
+        return OTHER_TAG;
+    }
+
+    /**
+     * Acrescenta o byte em minúsculas; nomes maiores que {@link #MAX_NAME} ficam com
+     * tamanho MAX_NAME + 1 e não casam com nenhum nome conhecido.
+     */
+    private static int append(byte[] buffer, int length, byte b) {
+        if (length < buffer.length) {
+            buffer[length] = (byte) toLower(b);
+            return length + 1;
+        }
+        return buffer.length + 1;
+    }
+
+    private static boolean nameIs(byte[] buffer, int length, byte[] expected) {
+        return length == expected.length && Arrays.equals(buffer, 0, length, expected, 0, length);
+    }
+
+    private static int toLower(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + 0x20 : b & 0xFF;
+    }
+
+    private static boolean isLetter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f';
+    }
+
+    /**
+     * Decodifica as referências de caractere comuns em URLs (&amp;amp;, &amp;#38;, &amp;#x26; etc.);
+     * referências desconhecidas ficam como estão.
+     */
+    static String decodeEntities(String text) {
+        int amp = text.indexOf('&');
+        if (amp < 0) {
+            return text;
+        }
+        StringBuilder decoded = new StringBuilder(text.length());
+        decoded.append(text, 0, amp);
+        int i = amp;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            int semicolon = c == '&' ? text.indexOf(';', i) : -1;
+            if (semicolon > i + 1 && semicolon - i <= 10) {
+                int codePoint = entity(text.substring(i + 1, semicolon));
+                if (codePoint >= 0) {
+                    decoded.appendCodePoint(codePoint);
+                    i = semicolon + 1;
+                    continue;
+                }
+            }
+            decoded.append(c);
+            i++;
+        }
+        return decoded.toString();
+    }
+
+    private static int entity(String reference) {
+        if (reference.charAt(0) == '#') {
+            try {
+                boolean hex = reference.length() > 1 && (reference.charAt(1) == 'x' || reference.charAt(1) == 'X');
+                int codePoint = hex
+                        ? Integer.parseInt(reference.substring(2), 16)
+                        : Integer.parseInt(reference.substring(1));
+                return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        switch (reference) {
+            case "amp":
+                return '&';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            case "nbsp":
+                return 0xA0;
+            default:
+                return -1;
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
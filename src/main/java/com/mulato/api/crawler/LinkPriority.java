@@ -0,0 +1,69 @@
+package com.mulato.api.crawler;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Prioridade de um link na fronteira best-first. Somam pontos a palavra-chave de alguma tarefa
+ * no texto do link ou no caminho da URL e a página de origem conter alguma palavra-chave;
+ * cada nível de profundidade desconta um ponto, até {@value #MAX_DEPTH_PENALTY}.
+ *
+ * A comparação ignora maiúsculas e não decodifica a URL. A instância é imutável e vale para
+ * as tarefas anexadas à sessão no momento em que foi criada.
+ */
+public final class LinkPriority {
+
+    static final int ANCHOR_TEXT = 8;
+    static final int URL_PATH = 4;
+    static final int PARENT_MATCHED = 2;
+    // Links relevantes continuam à frente dos demais em qualquer profundidade
+    static final int MAX_DEPTH_PENALTY = ANCHOR_TEXT;
+
+    private final String[] keywords;
+
+    public LinkPriority(List<String> keywords) {
+        this.keywords = keywords.stream().map(keyword -> keyword.toLowerCase(Locale.ROOT)).toArray(String[]::new);
+    }
+
+    /**
+     * @param anchorText texto do link, ou null se não é conhecido
+     * @param depth profundidade do link (a da página de origem mais um)
+     * @param parentMatched a página de origem contém a palavra-chave de alguma tarefa
+     */
+    public int score(String url, String anchorText, int depth, boolean parentMatched) {
+        int score = -Math.min(depth, MAX_DEPTH_PENALTY);
+        if (parentMatched) {
+            score += PARENT_MATCHED;
+        }
+        if (anchorText != null && !anchorText.isEmpty() && containsKeyword(anchorText)) {
+            score += ANCHOR_TEXT;
+        }
+        if (containsKeyword(pathOf(url))) {
+            score += URL_PATH;
+        }
+        return score;
+    }
+
+    private boolean containsKeyword(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (String keyword : keywords) {
+            if (lower.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Caminho e query da URL, sem esquema, host e fragmento.
+     */
+    static String pathOf(String url) {
+        int authority = url.indexOf("://");
+        int start = authority < 0 ? 0 : url.indexOf('/', authority + 3);
+        if (start < 0) {
+            return "";
+        }
+        int fragment = url.indexOf('#', start);
+        return fragment < 0 ? url.substring(start) : url.substring(start, fragment);
+    }
+}
@@ -0,0 +1,294 @@
+package com.mulato.api.crawler;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Busca case insensitive de várias palavras-chave em uma única passada sobre os bytes
+ * de uma página, usando um autômato de Aho-Corasick.
+ *
+ * O autômato trabalha sobre UTF-8 com as letras ASCII e as letras acentuadas do Latin-1
+ * (À-Þ, codificadas como C3 80-9E) convertidas para minúsculas byte a byte. Palavras-chave
+ * com outras letras, páginas em outros charsets ou uma única palavra-chave usam um
+ * {@link KeywordMatcher} por palavra-chave.
+ *
+ * A instância é imutável; o índice de cada palavra-chave é a sua posição na lista
+ * informada em {@link #compile(List)}.
+ */
+public final class MultiKeywordMatcher {
+
+    private static final int LATIN1_LEAD = 0xC3;
+
+    private final List<String> keywords;
+    private final KeywordMatcher[] matchers;
+    private final boolean[] inAutomaton;
+    private final Automaton automaton;
+
+    private MultiKeywordMatcher(List<String> keywords) {
+        this.keywords = List.copyOf(keywords);
+        this.matchers = new KeywordMatcher[keywords.size()];
+        this.inAutomaton = new boolean[keywords.size()];
+
+        List<byte[]> patterns = new ArrayList<>();
+        List<Integer> patternKeywords = new ArrayList<>();
+        for (int i = 0; i < keywords.size(); i++) {
+            matchers[i] = KeywordMatcher.compile(keywords.get(i));
+            byte[] folded = foldedPattern(keywords.get(i));
+            if (folded != null) {
+                patterns.add(folded);
+                patternKeywords.add(i);
+            }
+        }
+
+        // Com uma só palavra-chave o Boyer-Moore-Horspool é mais rápido que o autômato
+        if (patterns.size() > 1) {
+            for (int keyword : patternKeywords) {
+                inAutomaton[keyword] = true;
+            }
+            this.automaton = new Automaton(patterns, patternKeywords);
+        } else {
+            this.automaton = null;
+        }
+    }
+
+    public static MultiKeywordMatcher compile(List<String> keywords) {
+        return new MultiKeywordMatcher(keywords);
+    }
+
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    public int size() {
+        return keywords.size();
+    }
+
+    /**
+     * Cria o estado de busca de uma página.
+     * @param charsetName charset declarado pela página, ou null para UTF-8
+     */
+    public Scanner newScanner(String charsetName) {
+        boolean utf8 = charsetName == null || StandardCharsets.UTF_8.equals(Charset.forName(charsetName));
+        return new Scanner(utf8 ? null : charsetName);
+    }
+
+    /**
+     * Padrão do autômato para a palavra-chave, ou null se alguma letra não for coberta pela
+     * conversão byte a byte (ex.: letras gregas ou cirílicas).
+     */
+    private static byte[] foldedPattern(String keyword) {
+        for (int i = 0; i < keyword.length(); ) {
+            int codePoint = keyword.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            byte[] lower = fold(utf8(Character.toLowerCase(codePoint)));
+            if (!Arrays.equals(lower, fold(utf8(codePoint)))
+                    || !Arrays.equals(lower, fold(utf8(Character.toUpperCase(codePoint))))) {
+                return null;
+            }
+        }
+        return fold(keyword.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] utf8(int codePoint) {
+        return new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] fold(byte[] bytes) {
+        byte[] folded = new byte[bytes.length];
+        int previous = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            folded[i] = (byte) fold(previous, b);
+            previous = b;
+        }
+        return folded;
+    }
+
+    private static int fold(int previous, int b) {
+        if (b >= 'A' && b <= 'Z') {
+            return b + 0x20;
+        }
+        // Segundo byte de À-Þ (exceto ×) vira o segundo byte de à-þ
+        if (previous == LATIN1_LEAD && b >= 0x80 && b <= 0x9E && b != 0x97) {
+            return b + 0x20;
+        }
+        return b;
+    }
+
+    /**
+     * Estado da busca em uma página; recebe o corpo em blocos e para de examiná-lo quando
+     * todas as palavras-chave já foram encontradas. Não é thread-safe.
+     */
+    public final class Scanner implements BodySink {
+
+        private final KeywordMatcher.Scanner[] scanners = new KeywordMatcher.Scanner[keywords.size()];
+        private final boolean[] found = new boolean[keywords.size()];
+        private final boolean useAutomaton;
+        private int remaining = keywords.size();
+        private int state;
+        private int previous;
+
+        private Scanner(String charsetName) {
+            this.useAutomaton = automaton != null && charsetName == null;
+            for (int i = 0; i < scanners.length; i++) {
+                if (!useAutomaton || !inAutomaton[i]) {
+                    scanners[i] = matchers[i].forCharset(charsetName).newScanner();
+                }
+            }
+        }
+
+        @Override
+        public void accept(byte[] data, int offset, int length) {
+            if (remaining == 0 || length <= 0) {
+                return;
+            }
+            for (int i = 0; i < scanners.length; i++) {
+                KeywordMatcher.Scanner scanner = scanners[i];
+                if (scanner != null && !found[i]) {
+                    scanner.accept(data, offset, length);
+                    if (scanner.isFound()) {
+                        markFound(i);
+                    }
+                }
+            }
+            if (useAutomaton && remaining > 0) {
+                scan(data, offset, length);
+            }
+        }
+
+        public boolean isFound(int keyword) {
+            return found[keyword];
+        }
+
+        private void scan(byte[] data, int offset, int length) {
+            int[] next = automaton.next;
+            int[] classes = automaton.classes;
+            int[][] outputs = automaton.outputs;
+            int width = automaton.width;
+
+            int current = state;
+            int last = previous;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                int b = data[i] & 0xFF;
+                current = next[current * width + classes[fold(last, b)]];
+                last = b;
+
+                int[] hits = outputs[current];
+                if (hits != null) {
+                    for (int keyword : hits) {
+                        markFound(keyword);
+                    }
+                    if (remaining == 0) {
+                        break;
+                    }
+                }
+            }
+            state = current;
+            previous = last;
+        }
+
+        private void markFound(int keyword) {
+            if (!found[keyword]) {
+                found[keyword] = true;
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * Autômato determinístico completo: a função de falha já está resolvida na tabela de
+     * transições. Os bytes que não aparecem em nenhum padrão compartilham a classe 0.
+     */
+    private static final class Automaton {
+
+        private final int[] classes = new int[256];
+        private final int width;
+        private final int[] next;
+        private final int[][] outputs;
+
+        Automaton(List<byte[]> patterns, List<Integer> keywordIndexes) {
+            int classCount = 1;
+            int maxStates = 1;
+            for (byte[] pattern : patterns) {
+                maxStates += pattern.length;
+                for (byte b : pattern) {
+                    if (classes[b & 0xFF] == 0) {
+                        classes[b & 0xFF] = classCount++;
+                    }
+                }
+            }
+            this.width = classCount;
+
+            // Trie dos padrões; -1 marca transição inexistente
+            int[] trie = new int[maxStates * width];
+            Arrays.fill(trie, -1);
+            List<List<Integer>> found = new ArrayList<>();
+            found.add(null);
+            int states = 1;
+            for (int p = 0; p < patterns.size(); p++) {
+                int current = 0;
+                for (byte b : patterns.get(p)) {
+                    int slot = current * width + classes[b & 0xFF];
+                    if (trie[slot] < 0) {
+                        trie[slot] = states++;
+                        found.add(null);
+                    }
+                    current = trie[slot];
+                }
+                if (found.get(current) == null) {
+                    found.set(current, new ArrayList<>());
+                }
+                found.get(current).add(keywordIndexes.get(p));
+            }
+
+            this.next = new int[states * width];
+            this.outputs = new int[states][];
+            int[] failure = new int[states];
+            Deque<Integer> queue = new ArrayDeque<>();
+
+            for (int c = 0; c < width; c++) {
+                int child = trie[c];
+                if (child > 0) {
+                    next[c] = child;
+                    queue.add(child);
+                }
+            }
+            outputs[0] = null;
+
+            while (!queue.isEmpty()) {
+                int current = queue.poll();
+                outputs[current] = merge(found.get(current), outputs[failure[current]]);
+                for (int c = 0; c < width; c++) {
+                    int child = trie[current * width + c];
+                    if (child > 0) {
+                        failure[child] = next[failure[current] * width + c];
+                        next[current * width + c] = child;
+                        queue.add(child);
+                    } else {
+                        next[current * width + c] = next[failure[current] * width + c];
+                    }
+                }
+            }
+        }
+
+        private static int[] merge(List<Integer> own, int[] inherited) {
+            if (own == null) {
+                return inherited;
+            }
+            int[] merged = new int[own.size() + (inherited == null ? 0 : inherited.length)];
+            for (int i = 0; i < own.size(); i++) {
+                merged[i] = own.get(i);
+            }
+            if (inherited != null) {
+                System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+            }
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.mulato.api.crawler;
+
+import java.io.IOException;
+
+/**
+ * Falha ao buscar uma página: erro HTTP, tipo de conteúdo não suportado ou URL inválida.
+ */
+public class PageFetchException extends IOException {
+
+    private final int statusCode;
+
+    public PageFetchException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public PageFetchException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = -1;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,47 @@
+package com.mulato.api.crawler;
+
+import java.util.List;
+
+/**
+ * Resultado da busca de uma única página no modo distribuído: se a palavra-chave foi
+ * encontrada, o tamanho do corpo e os links no escopo da tarefa, já na forma canônica.
+ */
+public final class ScannedPage {
+
+    private final String url;
+    private final boolean found;
+    private final long bytes;
+    private final String canonicalUrl;
+    private final List<String> links;
+
+    /**
+     * @param canonicalUrl URL canônica declarada pela página, se diferente da buscada e no escopo, ou null
+     */
+    public ScannedPage(String url, boolean found, long bytes, String canonicalUrl, List<String> links) {
+        this.url = url;
+        this.found = found;
+        this.bytes = bytes;
+        this.canonicalUrl = canonicalUrl;
+        this.links = links;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public String getCanonicalUrl() {
+        return canonicalUrl;
+    }
+
+    public List<String> getLinks() {
+        return links;
+    }
+}
@@ -0,0 +1,170 @@
+package com.mulato.api.crawler;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Forma canônica das URLs da fronteira, para que endereços equivalentes da mesma página
+ * sejam buscados e registrados uma única vez.
+ *
+ * Segue a normalização do RFC 3986 (seção 6.2.2): esquema e host em minúsculas, sem porta
+ * padrão, sem fragmento, caminho vazio como "/", segmentos "." e ".." resolvidos e escapes
+ * "%xx" em maiúsculas, com caracteres não reservados decodificados. Opcionalmente os
+ * parâmetros da query são ordenados pelo nome.
+ */
+public final class UrlCanonicalizer {
+
+    private static final Comparator<String> BY_PARAMETER_NAME = Comparator.comparing(UrlCanonicalizer::parameterName);
+
+    private UrlCanonicalizer() {
+    }
+
+    /**
+     * Forma canônica da URL. URLs relativas, opacas ou inválidas são devolvidas como estão.
+     * @param sortQuery ordena os parâmetros da query pelo nome (a ordem entre parâmetros de
+     *                  mesmo nome é mantida)
+     */
+    public static String canonicalize(String url, boolean sortQuery) {
+        if (url == null) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            return url;
+        }
+        return uri.getScheme() == null || uri.getHost() == null ? url : canonicalizeUri(uri, sortQuery);
+    }
+
+    /**
+     * Forma canônica de uma URI já analisada (ex.: o resultado de {@link URI#resolve}), sem
+     * analisar a String de novo. URIs relativas ou opacas são devolvidas como estão.
+     */
+    public static String canonicalizeUri(URI uri, boolean sortQuery) {
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            return uri.toString();
+        }
+
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        StringBuilder canonical = new StringBuilder(64).append(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            canonical.append(uri.getRawUserInfo()).append('@');
+        }
+        canonical.append(uri.getHost().toLowerCase(Locale.ROOT));
+        int port = uri.getPort();
+        if (port != -1 && port != defaultPort(scheme)) {
+            canonical.append(':').append(port);
+        }
+
+        String path = uri.getRawPath();
+        canonical.append(path == null || path.isEmpty() ? "/" : removeDotSegments(normalizeEscapes(path)));
+
+        String query = uri.getRawQuery();
+        if (query != null && !query.isEmpty()) {
+            query = normalizeEscapes(query);
+            canonical.append('?').append(sortQuery ? sortParameters(query) : query);
+        }
+        return canonical.toString();
+    }
+
+    private static int defaultPort(String scheme) {
+        switch (scheme) {
+            case "http":
+                return 80;
+            case "https":
+                return 443;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Algoritmo remove_dot_segments do RFC 3986 (seção 5.2.4) para caminhos absolutos.
+     */
+    static String removeDotSegments(String path) {
+        if (!path.contains(".")) {
+            return path;
+        }
+        String[] segments = path.split("/", -1);
+        String[] output = new String[segments.length];
+        int size = 0;
+        // O primeiro segmento é vazio, já que o caminho começa com "/"
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            boolean last = i == segments.length - 1;
+            if (segment.equals(".")) {
+                if (last) {
+                    output[size++] = "";
+                }
+            } else if (segment.equals("..")) {
+                if (size > 0) {
+                    size--;
+                }
+                if (last) {
+                    output[size++] = "";
+                }
+            } else {
+                output[size++] = segment;
+            }
+        }
+        StringBuilder result = new StringBuilder(path.length());
+        for (int i = 0; i < size; i++) {
+            result.append('/').append(output[i]);
+        }
+        return result.length() == 0 ? "/" : result.toString();
+    }
+
+    /**
+     * Escapes em maiúsculas e caracteres não reservados (letras, dígitos, "-", ".", "_", "~")
+     * decodificados, como recomenda o RFC 3986 (seção 6.2.2).
+     */
+    static String normalizeEscapes(String text) {
+        int percent = text.indexOf('%');
+        if (percent < 0) {
+            return text;
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        normalized.append(text, 0, percent);
+        for (int i = percent; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' && i + 2 < text.length() && isHex(text.charAt(i + 1)) && isHex(text.charAt(i + 2))) {
+                char decoded = (char) Integer.parseInt(text.substring(i + 1, i + 3), 16);
+                if (isUnreserved(decoded)) {
+                    normalized.append(decoded);
+                } else {
+                    normalized.append('%')
+                            .append(Character.toUpperCase(text.charAt(i + 1)))
+                            .append(Character.toUpperCase(text.charAt(i + 2)));
+                }
+                i += 2;
+            } else {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static String sortParameters(String query) {
+        String[] parameters = query.split("&");
+        Arrays.sort(parameters, BY_PARAMETER_NAME);
+        return String.join("&", parameters);
+    }
+
+    private static String parameterName(String parameter) {
+        int equals = parameter.indexOf('=');
+        return equals < 0 ? parameter : parameter.substring(0, equals);
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+}
@@ -0,0 +1,115 @@
+package com.mulato.api.crawler;
+
+/**
+ * Cobertura das URLs de uma {@link CrawlSession}: para cada URL, quantas tarefas (prefixo da
+ * lista de anexadas) já a cobriram e a profundidade em que foi visitada. As URLs são guardadas
+ * pela impressão digital de {@link UrlFingerprintSet} em uma tabela de endereçamento aberto
+ * com arrays primitivos, cerca de 16 a 32 bytes por URL conforme a ocupação, em vez da
+ * String e do nó de um {@code ConcurrentHashMap}.
+ *
+ * Não é thread-safe: a sessão acessa o mapa sob o seu lock.
+ */
+final class UrlCoverageMap {
+
+    private static final int MIN_CAPACITY = 64;
+    private static final int MAX_CAPACITY = 1 << 27;
+
+    // 0 marca uma posição livre; fingerprintOf nunca devolve 0
+    private static final long EMPTY = 0L;
+
+    private long[] keys = new long[MIN_CAPACITY];
+    private int[] covered = new int[MIN_CAPACITY];
+    private int[] depths = new int[MIN_CAPACITY];
+    private int mask = MIN_CAPACITY - 1;
+    private int size;
+
+    /**
+     * @return quantas tarefas já cobriram a URL, ou -1 se ela ainda não foi visitada
+     */
+    int covered(String url) {
+        int index = find(UrlFingerprintSet.fingerprintOf(url));
+        return index < 0 ? -1 : covered[index];
+    }
+
+    /**
+     * @return profundidade em que a URL foi visitada, ou -1 se ela ainda não foi visitada
+     */
+    int depth(String url) {
+        int index = find(UrlFingerprintSet.fingerprintOf(url));
+        return index < 0 ? -1 : depths[index];
+    }
+
+    /**
+     * Registra a URL como coberta pelas primeiras {@code tasks} tarefas. A profundidade é a da
+     * primeira visita; numa URL já registrada o número de tarefas só aumenta.
+     */
+    void cover(String url, int tasks, int depth) {
+        long fingerprint = UrlFingerprintSet.fingerprintOf(url);
+        int index = find(fingerprint);
+        if (index >= 0) {
+            covered[index] = Math.max(covered[index], tasks);
+            return;
+        }
+        // Fator de carga máximo de 3/4
+        if ((size + 1) * 4L > (mask + 1) * 3L) {
+            grow();
+        }
+        index = freeSlot(fingerprint);
+        keys[index] = fingerprint;
+        covered[index] = tasks;
+        depths[index] = depth;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(long fingerprint) {
+        int index = indexOf(fingerprint);
+        while (true) {
+            long current = keys[index];
+            if (current == EMPTY) {
+                return -1;
+            }
+            if (current == fingerprint) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private int indexOf(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private int freeSlot(long fingerprint) {
+        int index = indexOf(fingerprint);
+        while (keys[index] != EMPTY) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow() {
+        int capacity = mask + 1;
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("URL coverage map is full: " + size + " URLs");
+        }
+        long[] oldKeys = keys;
+        int[] oldCovered = covered;
+        int[] oldDepths = depths;
+        keys = new long[capacity * 2];
+        covered = new int[capacity * 2];
+        depths = new int[capacity * 2];
+        mask = capacity * 2 - 1;
+        for (int i = 0; i < capacity; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = freeSlot(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                covered[index] = oldCovered[i];
+                depths[index] = oldDepths[i];
+            }
+        }
+    }
+}
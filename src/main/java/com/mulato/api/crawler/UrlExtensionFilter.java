@@ -0,0 +1,50 @@
+package com.mulato.api.crawler;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Pré-filtro barato de links que com certeza não são páginas HTML: documentos, imagens,
+ * mídia, arquivos compactados, executáveis, fontes, CSS e JavaScript, reconhecidos pela
+ * extensão do último segmento do caminho. Links sem extensão ou com extensão desconhecida
+ * passam e são verificados pelo Content-Type da resposta.
+ */
+public final class UrlExtensionFilter {
+
+    static final Set<String> SKIPPED = Set.of(
+            "pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx", "odt", "ods", "odp", "rtf", "epub",
+            "jpg", "jpeg", "png", "gif", "webp", "svg", "ico", "bmp", "tif", "tiff", "avif",
+            "mp3", "mp4", "m4a", "m4v", "avi", "mov", "wmv", "mkv", "webm", "ogg", "wav", "flac",
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "tar", "jar", "war",
+            "exe", "msi", "dmg", "iso", "apk", "deb", "rpm", "bin",
+            "woff", "woff2", "ttf", "otf", "eot", "css", "js");
+
+    // Extensão mais longa da lista
+    private static final int MAX_EXTENSION = 5;
+
+    private UrlExtensionFilter() {
+    }
+
+    /**
+     * Indica se a URL absoluta aponta para um tipo de arquivo que não é HTML. A query e o
+     * fragmento não contam: "/download.php?file=a.pdf" passa.
+     */
+    public static boolean isSkipped(String url) {
+        String path = LinkPriority.pathOf(url);
+        int end = path.length();
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            end = query;
+        }
+        int dot = path.lastIndexOf('.', end - 1);
+        if (dot < 0 || end - dot - 1 > MAX_EXTENSION) {
+            return false;
+        }
+        // O ponto precisa estar no último segmento
+        int slash = path.indexOf('/', dot);
+        if (slash >= 0 && slash < end) {
+            return false;
+        }
+        return SKIPPED.contains(path.substring(dot + 1, end).toLowerCase(Locale.ROOT));
+    }
+}
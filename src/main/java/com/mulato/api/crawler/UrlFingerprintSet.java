@@ -0,0 +1,223 @@
+package com.mulato.api.crawler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Conjunto de URLs guardado como impressões digitais de 64 bits (XXH64 dos caracteres da URL
+ * em UTF-16LE) em uma tabela de endereçamento aberto de {@code long}. Cada URL ocupa de 8 a 16
+ * bytes da tabela, conforme a ocupação, em vez da String, do nó e da referência de um
+ * {@code ConcurrentHashMap}. A tabela pode ficar fora do heap, em um buffer direto.
+ *
+ * Duas URLs diferentes com a mesma impressão digital são tratadas como a mesma URL: com um
+ * milhão de URLs a chance de alguma colisão é da ordem de 1 em 30 milhões, e o efeito é
+ * apenas deixar de visitar uma página.
+ */
+public final class UrlFingerprintSet {
+
+    private static final int MIN_CAPACITY = 64;
+    // 1 GB de tabela, cerca de 100 milhões de URLs; o buffer direto não passa de 2 GB
+    private static final int MAX_CAPACITY = 1 << 27;
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    // 0 marca uma posição livre; a impressão digital 0 é guardada como 1
+    private static final long EMPTY = 0L;
+
+    private final boolean offHeap;
+    private LongBuffer table;
+    private int mask;
+    private int size;
+
+    public UrlFingerprintSet() {
+        this(false);
+    }
+
+    /**
+     * @param offHeap guarda a tabela em um buffer direto, fora do heap
+     */
+    public UrlFingerprintSet(boolean offHeap) {
+        this.offHeap = offHeap;
+        this.table = allocate(MIN_CAPACITY);
+        this.mask = MIN_CAPACITY - 1;
+    }
+
+    /**
+     * @return true se a URL ainda não estava no conjunto
+     */
+    public synchronized boolean add(String url) {
+        long fingerprint = fingerprintOf(url);
+        int index = indexOf(fingerprint);
+        while (true) {
+            long current = table.get(index);
+            if (current == EMPTY) {
+                break;
+            }
+            if (current == fingerprint) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        // Fator de carga máximo de 3/4
+        if ((size + 1) * 4L > (mask + 1) * 3L) {
+            grow();
+            index = freeSlot(fingerprint);
+        }
+        table.put(index, fingerprint);
+        size++;
+        return true;
+    }
+
+    public synchronized boolean contains(String url) {
+        long fingerprint = fingerprintOf(url);
+        int index = indexOf(fingerprint);
+        while (true) {
+            long current = table.get(index);
+            if (current == EMPTY) {
+                return false;
+            }
+            if (current == fingerprint) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Bytes ocupados pela tabela.
+     */
+    public synchronized long tableBytes() {
+        return (mask + 1L) * Long.BYTES;
+    }
+
+    /**
+     * XXH64 (semente 0) dos caracteres da String lidos como UTF-16LE, sem copiar a String
+     * para um array de bytes.
+     */
+    public static long hash(String text) {
+        int length = text.length();
+        int i = 0;
+        long hash;
+        if (length >= 16) {
+            long v1 = PRIME1 + PRIME2;
+            long v2 = PRIME2;
+            long v3 = 0;
+            long v4 = -PRIME1;
+            // Blocos de 32 bytes: 16 caracteres, 4 por lane
+            for (; i + 16 <= length; i += 16) {
+                v1 = round(v1, lane(text, i));
+                v2 = round(v2, lane(text, i + 4));
+                v3 = round(v3, lane(text, i + 8));
+                v4 = round(v4, lane(text, i + 12));
+            }
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+                    + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += length * 2L;
+
+        for (; i + 4 <= length; i += 4) {
+            hash ^= round(0, lane(text, i));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (i + 2 <= length) {
+            long word = text.charAt(i) | ((long) text.charAt(i + 1) << 16);
+            hash ^= word * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            i += 2;
+        }
+        if (i < length) {
+            char c = text.charAt(i);
+            hash ^= (c & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+            hash ^= (c >>> 8) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    static long fingerprintOf(String url) {
+        long fingerprint = hash(url);
+        return fingerprint == EMPTY ? 1L : fingerprint;
+    }
+
+    private static long lane(String text, int i) {
+        return text.charAt(i) | ((long) text.charAt(i + 1) << 16)
+                | ((long) text.charAt(i + 2) << 32) | ((long) text.charAt(i + 3) << 48);
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        accumulator ^= round(0, value);
+        return accumulator * PRIME1 + PRIME4;
+    }
+
+    private int indexOf(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private int freeSlot(long fingerprint) {
+        int index = indexOf(fingerprint);
+        while (table.get(index) != EMPTY) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow() {
+        int capacity = mask + 1;
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("URL fingerprint set is full: " + size + " URLs");
+        }
+        LongBuffer old = table;
+        table = allocate(capacity * 2);
+        mask = capacity * 2 - 1;
+        for (int i = 0; i < capacity; i++) {
+            long fingerprint = old.get(i);
+            if (fingerprint != EMPTY) {
+                table.put(freeSlot(fingerprint), fingerprint);
+            }
+        }
+    }
+
+    private LongBuffer allocate(int capacity) {
+        if (offHeap) {
+            // O buffer direto começa zerado e é liberado quando o conjunto deixa de ser referenciado
+            return ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+        return LongBuffer.wrap(new long[capacity]);
+    }
+}
@@ -0,0 +1,159 @@
+package com.mulato.api.crawler;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+
+/**
+ * Escopo de uma tarefa de crawling: URLs com o mesmo esquema, host e porta efetiva da URL
+ * base.
+ *
+ * A URL base é analisada uma única vez; as verificações percorrem a String do link sem criar
+ * objetos, para descartar links de outros sites antes de qualquer {@link URI} ser montado.
+ * A instância é imutável e pode ser compartilhada entre os workers.
+ */
+public final class UrlScope {
+
+    private static final UrlScope EMPTY = new UrlScope(null, null, -1);
+
+    private final String scheme;
+    private final String host;
+    private final int port;
+
+    private UrlScope(String scheme, String host, int port) {
+        this.scheme = scheme;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Escopo da URL base. Uma URL base inválida ou sem host resulta em um escopo vazio.
+     */
+    public static UrlScope of(String baseUrl) {
+        if (baseUrl == null) {
+            return EMPTY;
+        }
+        try {
+            URI uri = new URI(baseUrl);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return EMPTY;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort() != -1 ? uri.getPort() : defaultPort(scheme);
+            return new UrlScope(scheme, uri.getHost().toLowerCase(Locale.ROOT), port);
+        } catch (URISyntaxException e) {
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Indica se a URL absoluta pertence ao escopo.
+     */
+    public boolean contains(String url) {
+        if (scheme == null || url == null) {
+            return false;
+        }
+        int colon = schemeEnd(url);
+        return colon == scheme.length()
+                && url.regionMatches(true, 0, scheme, 0, colon)
+                && authorityMatches(url, colon + 1);
+    }
+
+    /**
+     * Verificação prévia de um href ainda não resolvido: hrefs absolutos e sem esquema
+     * ("//host/...") são verificados aqui; hrefs relativos herdam o escopo da base contra
+     * a qual serão resolvidos.
+     * @param relativeInScope se a base de resolução dos links relativos está no escopo
+     */
+    public boolean mayContain(String href, boolean relativeInScope) {
+        if (scheme == null || href == null) {
+            return false;
+        }
+        if (href.startsWith("//")) {
+            return authorityMatches(href, 0);
+        }
+        if (schemeEnd(href) > 0) {
+            return contains(href);
+        }
+        return relativeInScope;
+    }
+
+    /**
+     * Compara a autoridade que começa em {@code start} ("//[usuário@]host[:porta]") com a do
+     * escopo, ignorando maiúsculas no host.
+     */
+    private boolean authorityMatches(String url, int start) {
+        if (!url.startsWith("//", start)) {
+            return false;
+        }
+        int authorityStart = start + 2;
+        int authorityEnd = url.length();
+        for (int i = authorityStart; i < authorityEnd; i++) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                authorityEnd = i;
+            }
+        }
+
+        int hostStart = url.lastIndexOf('@', authorityEnd - 1);
+        hostStart = hostStart >= authorityStart ? hostStart + 1 : authorityStart;
+        int hostEnd;
+        if (hostStart < authorityEnd && url.charAt(hostStart) == '[') {
+            int bracket = url.indexOf(']', hostStart);
+            if (bracket < 0 || bracket >= authorityEnd) {
+                return false;
+            }
+            hostEnd = bracket + 1;
+        } else {
+            hostEnd = url.indexOf(':', hostStart);
+            if (hostEnd < 0 || hostEnd > authorityEnd) {
+                hostEnd = authorityEnd;
+            }
+        }
+        if (hostEnd - hostStart != host.length() || !url.regionMatches(true, hostStart, host, 0, host.length())) {
+            return false;
+        }
+
+        if (hostEnd == authorityEnd) {
+            return port == defaultPort(scheme);
+        }
+        if (url.charAt(hostEnd) != ':') {
+            return false;
+        }
+        // Porta vazia ("host:/") equivale à porta padrão
+        if (hostEnd + 1 == authorityEnd) {
+            return port == defaultPort(scheme);
+        }
+        int urlPort = 0;
+        for (int i = hostEnd + 1; i < authorityEnd; i++) {
+            char c = url.charAt(i);
+            if (c < '0' || c > '9' || urlPort > 65535) {
+                return false;
+            }
+            urlPort = urlPort * 10 + (c - '0');
+        }
+        return urlPort == port;
+    }
+
+    /**
+     * Posição do ':' que termina o esquema (letra seguida de letras, dígitos, "+", "-" ou "."),
+     * ou -1 se a String não começa com um esquema.
+     */
+    private static int schemeEnd(String url) {
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == ':') {
+                return i > 0 ? i : -1;
+            }
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            if (!letter && (i == 0 || !((c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.'))) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int defaultPort(String scheme) {
+        return "https".equals(scheme) ? 443 : 80;
+    }
+}
@@ -0,0 +1,118 @@
+package com.mulato.api.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "crawl_checkpoints")
+public class CrawlCheckpointEntity {
+    
+    @Id
+    @Column(name = "task_id", length = 8)
+    private String taskId;
+    
+    // Fronteira e contagem de páginas da sessão que executava a tarefa
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "session_id", nullable = false)
+    private CrawlSessionCheckpointEntity session;
+    
+    @Column(name = "bytes_downloaded", nullable = false)
+    private Long bytesDownloaded;
+    
+    @Column(name = "elapsed_ms", nullable = false)
+    private Long elapsedMs;
+    
+    @Column(name = "max_depth")
+    private Integer maxDepth;
+    
+    @Column(name = "max_bytes")
+    private Long maxBytes;
+    
+    @Column(name = "max_duration")
+    private Long maxDuration;
+    
+    @Column(name = "max_results")
+    private Integer maxResults;
+    
+    @Column(name = "checkpoint_at", nullable = false)
+    private LocalDateTime checkpointAt;
+    
+    public CrawlCheckpointEntity() {}
+    
+    public CrawlCheckpointEntity(String taskId) {
+        this.taskId = taskId;
+    }
+    
+    // Getters and Setters
+    public String getTaskId() {
+        return taskId;
+    }
+    
+    public void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+    
+    public CrawlSessionCheckpointEntity getSession() {
+        return session;
+    }
+    
+    public void setSession(CrawlSessionCheckpointEntity session) {
+        this.session = session;
+    }
+    
+    public Long getBytesDownloaded() {
+        return bytesDownloaded;
+    }
+    
+    public void setBytesDownloaded(Long bytesDownloaded) {
+        this.bytesDownloaded = bytesDownloaded;
+    }
+    
+    public Long getElapsedMs() {
+        return elapsedMs;
+    }
+    
+    public void setElapsedMs(Long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+    
+    public Integer getMaxDepth() {
+        return maxDepth;
+    }
+    
+    public void setMaxDepth(Integer maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+    
+    public Long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public void setMaxBytes(Long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+    
+    public Long getMaxDuration() {
+        return maxDuration;
+    }
+    
+    public void setMaxDuration(Long maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+    
+    public Integer getMaxResults() {
+        return maxResults;
+    }
+    
+    public void setMaxResults(Integer maxResults) {
+        this.maxResults = maxResults;
+    }
+    
+    public LocalDateTime getCheckpointAt() {
+        return checkpointAt;
+    }
+    
+    public void setCheckpointAt(LocalDateTime checkpointAt) {
+        this.checkpointAt = checkpointAt;
+    }
+}
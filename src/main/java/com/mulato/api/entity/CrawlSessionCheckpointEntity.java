@@ -0,0 +1,75 @@
+package com.mulato.api.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "crawl_session_checkpoints")
+public class CrawlSessionCheckpointEntity {
+    
+    // Id da tarefa que abriu a sessão
+    @Id
+    @Column(name = "session_id", length = 8)
+    private String sessionId;
+    
+    // Uma entrada por linha: profundidade, prioridade e URL separadas por tabulação
+    @Lob
+    @Column(nullable = false)
+    private String frontier;
+    
+    @Column(name = "frontier_size", nullable = false)
+    private Integer frontierSize;
+    
+    @Column(name = "pages_processed", nullable = false)
+    private Integer pagesProcessed;
+    
+    @Column(name = "checkpoint_at", nullable = false)
+    private LocalDateTime checkpointAt;
+    
+    public CrawlSessionCheckpointEntity() {}
+    
+    public CrawlSessionCheckpointEntity(String sessionId) {
+        this.sessionId = sessionId;
+    }
+    
+    // Getters and Setters
+    public String getSessionId() {
+        return sessionId;
+    }
+    
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+    
+    public String getFrontier() {
+        return frontier;
+    }
+    
+    public void setFrontier(String frontier) {
+        this.frontier = frontier;
+    }
+    
+    public Integer getFrontierSize() {
+        return frontierSize;
+    }
+    
+    public void setFrontierSize(Integer frontierSize) {
+        this.frontierSize = frontierSize;
+    }
+    
+    public Integer getPagesProcessed() {
+        return pagesProcessed;
+    }
+    
+    public void setPagesProcessed(Integer pagesProcessed) {
+        this.pagesProcessed = pagesProcessed;
+    }
+    
+    public LocalDateTime getCheckpointAt() {
+        return checkpointAt;
+    }
+    
+    public void setCheckpointAt(LocalDateTime checkpointAt) {
+        this.checkpointAt = checkpointAt;
+    }
+}
@@ -32,6 +32,15 @@ public class CrawlTaskEntity {
     @Column(name = "total_urls_found")
     private Integer totalUrlsFound = 0;
     
+    @Column(name = "stop_reason", length = 20)
+    private String stopReason;
+    
+    @Column(name = "pending_urls", nullable = false)
+    private Integer pendingUrls = 0;
+    
+    @Column(name = "bytes_downloaded", nullable = false)
+    private Long bytesDownloaded = 0L;
+    
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
     
@@ -126,6 +135,30 @@ public class CrawlTaskEntity {
         this.totalUrlsFound = totalUrlsFound;
     }
     
+    public String getStopReason() {
+        return stopReason;
+    }
+    
+    public void setStopReason(String stopReason) {
+        this.stopReason = stopReason;
+    }
+    
+    public Integer getPendingUrls() {
+        return pendingUrls;
+    }
+    
+    public void setPendingUrls(Integer pendingUrls) {
+        this.pendingUrls = pendingUrls;
+    }
+    
+    public Long getBytesDownloaded() {
+        return bytesDownloaded;
+    }
+    
+    public void setBytesDownloaded(Long bytesDownloaded) {
+        this.bytesDownloaded = bytesDownloaded;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
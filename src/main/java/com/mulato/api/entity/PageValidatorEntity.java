@@ -0,0 +1,128 @@
+package com.mulato.api.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "page_validators")
+public class PageValidatorEntity {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, length = 1000)
+    private String url;
+    
+    @Column(name = "final_url", nullable = false, length = 1000)
+    private String finalUrl;
+    
+    @Column(length = 255)
+    private String etag;
+    
+    @Column(name = "last_modified", length = 64)
+    private String lastModified;
+    
+    @Column(name = "content_type", length = 255)
+    private String contentType;
+    
+    @Column(name = "body_digest", nullable = false, length = 64)
+    private String bodyDigest;
+    
+    @Lob
+    @Column(nullable = false)
+    private byte[] body;
+    
+    @Column(name = "fetched_at", nullable = false)
+    private LocalDateTime fetchedAt;
+    
+    @Column(name = "validated_at", nullable = false)
+    private LocalDateTime validatedAt;
+    
+    public PageValidatorEntity() {}
+    
+    public PageValidatorEntity(String url) {
+        this.url = url;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getUrl() {
+        return url;
+    }
+    
+    public void setUrl(String url) {
+        this.url = url;
+    }
+    
+    public String getFinalUrl() {
+        return finalUrl;
+    }
+    
+    public void setFinalUrl(String finalUrl) {
+        this.finalUrl = finalUrl;
+    }
+    
+    public String getEtag() {
+        return etag;
+    }
+    
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+    
+    public String getLastModified() {
+        return lastModified;
+    }
+    
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+    
+    public String getBodyDigest() {
+        return bodyDigest;
+    }
+    
+    public void setBodyDigest(String bodyDigest) {
+        this.bodyDigest = bodyDigest;
+    }
+    
+    public byte[] getBody() {
+        return body;
+    }
+    
+    public void setBody(byte[] body) {
+        this.body = body;
+    }
+    
+    public LocalDateTime getFetchedAt() {
+        return fetchedAt;
+    }
+    
+    public void setFetchedAt(LocalDateTime fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+    
+    public LocalDateTime getValidatedAt() {
+        return validatedAt;
+    }
+    
+    public void setValidatedAt(LocalDateTime validatedAt) {
+        this.validatedAt = validatedAt;
+    }
+}
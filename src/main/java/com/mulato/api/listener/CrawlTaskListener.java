@@ -3,6 +3,7 @@ package com.mulato.api.listener;
 import com.mulato.api.config.RabbitConfig;
 import com.mulato.api.model.CrawlTask;
 import com.mulato.api.service.CrawlService;
+import com.mulato.api.service.DistributedCrawlService;
 import com.mulato.api.service.WebCrawlerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,18 +22,44 @@ public class CrawlTaskListener {
     @Autowired
     private CrawlService crawlService;
     
+    @Autowired
+    private DistributedCrawlService distributedCrawlService;
+    
     @RabbitListener(queues = RabbitConfig.CRAWL_QUEUE)
     public void processCrawlTask(CrawlTask task) {
         logger.info("Received crawl task from queue: {}", task.getId());
         
+        // Modo distribuído: a tarefa vira mensagens de URL, processadas pelo CrawlUrlListener de cada nó
+        if (distributedCrawlService.isEnabled()) {
+            distributedCrawlService.seed(task);
+            return;
+        }
+        
+        // A mensagem traz uma cópia da tarefa; os resultados parciais precisam chegar à
+        // instância mantida pelo CrawlService, que é a consultada pelo GET /crawl/{id}
+        CrawlTask activeTask = crawlService.resumeCrawlTask(task);
+        if (activeTask == null) {
+            logger.info("Crawl task already finished, ignoring message: {}", task.getId());
+            return;
+        }
+        task = activeTask;
+        
+        boolean finished;
         try {
-            webCrawlerService.crawlWebsite(task);
-            crawlService.finishCrawlTask(task.getId());
-            logger.info("Crawl task completed successfully: {}", task.getId());
+            finished = webCrawlerService.crawlWebsite(task);
+            if (finished) {
+                crawlService.finishCrawlTask(task.getId());
+                logger.info("Crawl task completed successfully: {}", task.getId());
+            }
         } catch (Exception e) {
             logger.error("Error processing crawl task: {}", task.getId(), e);
             task.setActive(false);
             crawlService.finishCrawlTask(task.getId());
+            return;
+        }
+        if (!finished) {
+            // Nó encerrando: a mensagem volta para a fila e a tarefa é retomada do checkpoint
+            throw new IllegalStateException("Crawl task interrupted, returning it to the queue: " + task.getId());
         }
     }
 }
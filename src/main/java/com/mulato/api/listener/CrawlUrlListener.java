@@ -0,0 +1,24 @@
+package com.mulato.api.listener;
+
+import com.mulato.api.config.RabbitConfig;
+import com.mulato.api.model.CrawlUrlMessage;
+import com.mulato.api.service.DistributedCrawlService;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumidor das mensagens de URL do modo distribuído. Cada nó abre
+ * {@code app.crawler.distributed.consumers} consumidores, que buscam URLs de qualquer tarefa.
+ */
+@Component
+public class CrawlUrlListener {
+    
+    @Autowired
+    private DistributedCrawlService distributedCrawlService;
+    
+    @RabbitListener(queues = RabbitConfig.CRAWL_URL_QUEUE, concurrency = "${app.crawler.distributed.consumers:4}")
+    public void processCrawlUrl(CrawlUrlMessage message) {
+        distributedCrawlService.processUrl(message);
+    }
+}
@@ -0,0 +1,26 @@
+package com.mulato.api.listener;
+
+import com.mulato.api.config.RabbitConfig;
+import com.mulato.api.model.CrawlUrlMessage;
+import com.mulato.api.service.DistributedCrawlService;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumidor da fila de URLs deste nó no particionamento por hash consistente: recebe só as
+ * URLs das quais o nó é dono no anel.
+ */
+@Component
+@ConditionalOnProperty(name = RabbitConfig.PARTITIONING_PROPERTY, havingValue = RabbitConfig.CONSISTENT_HASH)
+public class CrawlUrlNodeListener {
+    
+    @Autowired
+    private DistributedCrawlService distributedCrawlService;
+    
+    @RabbitListener(queues = "#{crawlUrlNodeQueue.name}", concurrency = "${app.crawler.distributed.consumers:4}")
+    public void processCrawlUrl(CrawlUrlMessage message) {
+        distributedCrawlService.processUrl(message);
+    }
+}
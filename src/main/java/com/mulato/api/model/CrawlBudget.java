@@ -0,0 +1,79 @@
+package com.mulato.api.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Limites de uma tarefa de crawling: profundidade máxima dos links a partir da URL base,
+ * total de bytes baixados, duração máxima em milissegundos e quantidade de URLs encontradas.
+ * Um limite null não restringe a tarefa.
+ */
+public class CrawlBudget {
+
+    public static final CrawlBudget UNLIMITED = new CrawlBudget(null, null, null, null);
+
+    private final Integer maxDepth;
+    private final Long maxBytes;
+    private final Long maxDuration;
+    private final Integer maxResults;
+
+    @JsonCreator
+    public CrawlBudget(@JsonProperty("maxDepth") Integer maxDepth,
+                       @JsonProperty("maxBytes") Long maxBytes,
+                       @JsonProperty("maxDuration") Long maxDuration,
+                       @JsonProperty("maxResults") Integer maxResults) {
+        this.maxDepth = maxDepth;
+        this.maxBytes = maxBytes;
+        this.maxDuration = maxDuration;
+        this.maxResults = maxResults;
+    }
+
+    public Integer getMaxDepth() {
+        return maxDepth;
+    }
+
+    public Long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Long getMaxDuration() {
+        return maxDuration;
+    }
+
+    public Integer getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Limites pedidos restritos aos limites do servidor: cada limite não informado assume o
+     * do servidor, e nenhum passa dele.
+     */
+    public CrawlBudget cappedBy(CrawlBudget caps) {
+        return new CrawlBudget(min(maxDepth, caps.maxDepth), min(maxBytes, caps.maxBytes),
+                min(maxDuration, caps.maxDuration), min(maxResults, caps.maxResults));
+    }
+
+    public boolean allowsDepth(int depth) {
+        return maxDepth == null || depth <= maxDepth;
+    }
+
+    private static <T extends Comparable<T>> T min(T requested, T cap) {
+        if (requested == null) {
+            return cap;
+        }
+        if (cap == null) {
+            return requested;
+        }
+        return requested.compareTo(cap) <= 0 ? requested : cap;
+    }
+
+    @Override
+    public String toString() {
+        return "CrawlBudget{" +
+                "maxDepth=" + maxDepth +
+                ", maxBytes=" + maxBytes +
+                ", maxDuration=" + maxDuration +
+                ", maxResults=" + maxResults +
+                '}';
+    }
+}
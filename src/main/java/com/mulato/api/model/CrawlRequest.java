@@ -2,7 +2,9 @@ package com.mulato.api.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
 @Schema(description = "Requisição para iniciar uma nova busca de crawling")
@@ -20,6 +22,40 @@ public class CrawlRequest {
     @Size(min = 4, max = 32, message = "Keyword must be between 4 and 32 characters")
     private String keyword;
     
+    @JsonProperty("max_depth")
+    @Schema(
+            description = "Profundidade máxima dos links a partir da URL base (0 busca só a URL base); " +
+                          "limitada pelo máximo do servidor",
+            example = "5"
+    )
+    @Min(value = 0, message = "Max depth cannot be negative")
+    private Integer maxDepth;
+    
+    @JsonProperty("max_bytes")
+    @Schema(
+            description = "Total máximo de bytes de páginas baixadas; limitado pelo máximo do servidor",
+            example = "52428800"
+    )
+    @Positive(message = "Max bytes must be positive")
+    private Long maxBytes;
+    
+    @JsonProperty("max_duration")
+    @Schema(
+            description = "Duração máxima da busca em milissegundos; limitada pelo máximo do servidor",
+            example = "60000"
+    )
+    @Positive(message = "Max duration must be positive")
+    private Long maxDuration;
+    
+    @JsonProperty("max_results")
+    @Schema(
+            description = "Quantidade máxima de URLs encontradas; a busca termina ao atingi-la. " +
+                          "Sem este campo vale app.search.max-results, que também limita o valor informado",
+            example = "20"
+    )
+    @Positive(message = "Max results must be positive")
+    private Integer maxResults;
+    
     public CrawlRequest() {}
     
     public CrawlRequest(String keyword) {
@@ -34,10 +70,53 @@ public class CrawlRequest {
         this.keyword = keyword;
     }
     
+    public Integer getMaxDepth() {
+        return maxDepth;
+    }
+    
+    public void setMaxDepth(Integer maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+    
+    public Long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public void setMaxBytes(Long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+    
+    public Long getMaxDuration() {
+        return maxDuration;
+    }
+    
+    public void setMaxDuration(Long maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+    
+    public Integer getMaxResults() {
+        return maxResults;
+    }
+    
+    public void setMaxResults(Integer maxResults) {
+        this.maxResults = maxResults;
+    }
+    
+    /**
+     * Limites pedidos para a tarefa; os não informados ficam null.
+     */
+    public CrawlBudget toBudget() {
+        return new CrawlBudget(maxDepth, maxBytes, maxDuration, maxResults);
+    }
+    
     @Override
     public String toString() {
         return "CrawlRequest{" +
                 "keyword='" + keyword + '\'' +
+                ", maxDepth=" + maxDepth +
+                ", maxBytes=" + maxBytes +
+                ", maxDuration=" + maxDuration +
+                ", maxResults=" + maxResults +
                 '}';
     }
 }
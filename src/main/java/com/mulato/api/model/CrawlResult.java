@@ -1,5 +1,6 @@
 package com.mulato.api.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 
@@ -27,12 +28,34 @@ public class CrawlResult {
     )
     private List<String> urls;
     
+    @JsonProperty("stop_reason")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(
+            description = "Limite que encerrou a busca antes de percorrer todo o site; ausente quando nenhum limite foi atingido",
+            example = "max_depth",
+            allowableValues = {"max_pages", "max_depth", "max_bytes", "max_duration", "max_results"}
+    )
+    private String stopReason;
+    
+    @JsonProperty("truncated")
+    @Schema(
+            description = "A lista de URLs parou na quantidade máxima de resultados e o site pode ter outras ocorrências",
+            example = "false"
+    )
+    private boolean truncated;
+    
     public CrawlResult() {}
     
     public CrawlResult(String id, String status, List<String> urls) {
+        this(id, status, urls, null);
+    }
+    
+    public CrawlResult(String id, String status, List<String> urls, String stopReason) {
         this.id = id;
         this.status = status;
         this.urls = urls;
+        this.stopReason = stopReason;
+        this.truncated = CrawlTask.STOP_MAX_RESULTS.equals(stopReason);
     }
     
     public String getId() {
@@ -59,12 +82,30 @@ public class CrawlResult {
         this.urls = urls;
     }
     
+    public String getStopReason() {
+        return stopReason;
+    }
+    
+    public void setStopReason(String stopReason) {
+        this.stopReason = stopReason;
+    }
+    
+    public boolean isTruncated() {
+        return truncated;
+    }
+    
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+    
     @Override
     public String toString() {
         return "CrawlResult{" +
                 "id='" + id + '\'' +
                 ", status='" + status + '\'' +
                 ", urls=" + urls +
+                ", stopReason='" + stopReason + '\'' +
+                ", truncated=" + truncated +
                 '}';
     }
 }
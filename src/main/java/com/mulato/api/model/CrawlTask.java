@@ -1,25 +1,67 @@
 package com.mulato.api.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.mulato.api.crawler.UrlFingerprintSet;
+
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class CrawlTask {
     
+    // Limite que encerrou a tarefa antes de a fronteira esgotar
+    public static final String STOP_MAX_PAGES = "max_pages";
+    public static final String STOP_MAX_DEPTH = "max_depth";
+    public static final String STOP_MAX_BYTES = "max_bytes";
+    public static final String STOP_MAX_DURATION = "max_duration";
+    public static final String STOP_MAX_RESULTS = "max_results";
+    
     private final String id;
     private final String keyword;
     private final String baseUrl;
+    private final CrawlBudget budget;
     private final LocalDateTime startTime;
-    private final ConcurrentHashMap<String, Boolean> visitedUrls = new ConcurrentHashMap<>();
+    private final UrlFingerprintSet visitedUrls;
     private final CopyOnWriteArrayList<String> foundUrls = new CopyOnWriteArrayList<>();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+    private final AtomicLong bytesTransferred = new AtomicLong();
     private volatile boolean active = true;
+    private volatile long started;
+    private volatile long deadline;
+    private volatile boolean depthLimited;
+    private volatile String stopReason;
     
     public CrawlTask(String id, String keyword, String baseUrl) {
+        this(id, keyword, baseUrl, CrawlBudget.UNLIMITED);
+    }
+    
+    // Construtor usado ao ler a tarefa da mensagem da fila
+    @JsonCreator
+    public CrawlTask(String id, String keyword, String baseUrl, CrawlBudget budget) {
+        this(id, keyword, baseUrl, budget, false);
+    }
+    
+    /**
+     * @param offHeapVisitedUrls guarda as impressões digitais das URLs visitadas fora do heap
+     */
+    public CrawlTask(String id, String keyword, String baseUrl, boolean offHeapVisitedUrls) {
+        this(id, keyword, baseUrl, CrawlBudget.UNLIMITED, offHeapVisitedUrls);
+    }
+    
+    /**
+     * @param budget limites da tarefa; null equivale a {@link CrawlBudget#UNLIMITED}
+     * @param offHeapVisitedUrls guarda as impressões digitais das URLs visitadas fora do heap
+     */
+    public CrawlTask(String id, String keyword, String baseUrl, CrawlBudget budget, boolean offHeapVisitedUrls) {
         this.id = id;
         this.keyword = keyword;
         this.baseUrl = baseUrl;
+        this.budget = budget != null ? budget : CrawlBudget.UNLIMITED;
         this.startTime = LocalDateTime.now();
+        this.visitedUrls = new UrlFingerprintSet(offHeapVisitedUrls);
     }
     
     public String getId() {
@@ -34,11 +76,19 @@ public class CrawlTask {
         return baseUrl;
     }
     
+    public CrawlBudget getBudget() {
+        return budget;
+    }
+    
     public LocalDateTime getStartTime() {
         return startTime;
     }
     
-    public ConcurrentHashMap<String, Boolean> getVisitedUrls() {
+    /**
+     * URLs visitadas, guardadas apenas como impressões digitais; não vão na mensagem da fila.
+     */
+    @JsonIgnore
+    public UrlFingerprintSet getVisitedUrls() {
         return visitedUrls;
     }
     
@@ -46,18 +96,41 @@ public class CrawlTask {
         return foundUrls;
     }
     
-    public void addFoundUrl(String url) {
-        if (!foundUrls.contains(url)) {
-            foundUrls.add(url);
+    /**
+     * Registra uma URL encontrada e encerra a tarefa ao atingir a quantidade máxima de URLs;
+     * depois disso nenhuma URL é acrescentada.
+     * @return true se a URL entrou nos resultados
+     */
+    public synchronized boolean addFoundUrl(String url) {
+        Integer maxResults = budget.getMaxResults();
+        if (maxResults != null && foundUrls.size() >= maxResults) {
+            return false;
+        }
+        boolean added = foundUrls.addIfAbsent(url);
+        if (maxResults != null && foundUrls.size() >= maxResults) {
+            stop(STOP_MAX_RESULTS);
         }
+        return added;
     }
     
-    public void markUrlAsVisited(String url) {
-        visitedUrls.put(url, true);
+    /**
+     * A lista de URLs encontradas foi cortada na quantidade máxima de resultados.
+     */
+    @JsonIgnore
+    public boolean isTruncated() {
+        return STOP_MAX_RESULTS.equals(stopReason);
+    }
+    
+    /**
+     * Marca a URL como visitada de forma atômica.
+     * @return true se a URL ainda não tinha sido visitada
+     */
+    public boolean markUrlAsVisited(String url) {
+        return visitedUrls.add(url);
     }
     
     public boolean isUrlVisited(String url) {
-        return visitedUrls.containsKey(url);
+        return visitedUrls.contains(url);
     }
     
     public boolean isActive() {
@@ -72,6 +145,102 @@ public class CrawlTask {
         return active ? "active" : "done";
     }
     
+    /**
+     * Começa a contar a duração máxima da tarefa, a partir de agora.
+     */
+    public void startBudget() {
+        startBudget(0);
+    }
+    
+    /**
+     * Retoma a contagem da duração máxima de uma tarefa que já rodou por {@code elapsedMillis} ms.
+     */
+    public void startBudget(long elapsedMillis) {
+        started = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(elapsedMillis);
+        Long maxDuration = budget.getMaxDuration();
+        deadline = maxDuration == null ? 0 : started + TimeUnit.MILLISECONDS.toNanos(maxDuration);
+    }
+    
+    /**
+     * Tempo de crawling da tarefa em milissegundos, somando o de antes de uma retomada.
+     */
+    @JsonIgnore
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+    
+    /**
+     * Encerra a tarefa se a duração máxima já passou.
+     * @return true se a tarefa continua ativa
+     */
+    public boolean checkBudget() {
+        long limit = deadline;
+        if (active && limit != 0 && System.nanoTime() - limit >= 0) {
+            stop(STOP_MAX_DURATION);
+        }
+        return active;
+    }
+    
+    /**
+     * Soma os bytes de uma página processada e encerra a tarefa ao atingir o limite de bytes.
+     * A página que atinge o limite ainda conta nos resultados.
+     */
+    public void addBytesDownloaded(long bytes) {
+        long total = bytesDownloaded.addAndGet(bytes);
+        Long maxBytes = budget.getMaxBytes();
+        if (maxBytes != null && total >= maxBytes) {
+            stop(STOP_MAX_BYTES);
+        }
+    }
+    
+    @JsonIgnore
+    public long getBytesDownloaded() {
+        return bytesDownloaded.get();
+    }
+    
+    /**
+     * Soma os bytes que vieram da rede para uma página, ainda comprimidos. Não conta para o
+     * limite de bytes, que vale para o conteúdo decodificado.
+     */
+    public void addBytesTransferred(long bytes) {
+        bytesTransferred.addAndGet(bytes);
+    }
+    
+    @JsonIgnore
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+    
+    /**
+     * Registra que links foram descartados por estarem além da profundidade máxima.
+     */
+    public void markDepthLimited() {
+        depthLimited = true;
+    }
+    
+    @JsonIgnore
+    public boolean isDepthLimited() {
+        return depthLimited;
+    }
+    
+    /**
+     * Encerra a tarefa registrando o limite que a encerrou; o primeiro limite registrado vale.
+     */
+    public synchronized void stop(String reason) {
+        if (stopReason == null) {
+            stopReason = reason;
+        }
+        active = false;
+    }
+    
+    /**
+     * Limite que encerrou a tarefa, ou null se o site foi percorrido até o fim.
+     */
+    @JsonIgnore
+    public String getStopReason() {
+        return stopReason;
+    }
+    
     @Override
     public String toString() {
         return "CrawlTask{" +
@@ -79,6 +248,7 @@ public class CrawlTask {
                 ", keyword='" + keyword + '\'' +
                 ", baseUrl='" + baseUrl + '\'' +
                 ", startTime=" + startTime +
+                ", budget=" + budget +
                 ", active=" + active +
                 ", foundUrls=" + foundUrls.size() +
                 '}';
@@ -0,0 +1,73 @@
+package com.mulato.api.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Mensagem do modo distribuído: uma URL a buscar para uma tarefa. Traz a palavra-chave, a URL
+ * base e os limites da tarefa, para que o nó que a receber não dependa do estado de outro nó.
+ */
+public class CrawlUrlMessage {
+    
+    private final String taskId;
+    private final String keyword;
+    private final String baseUrl;
+    private final String url;
+    private final int depth;
+    private final CrawlBudget budget;
+    
+    @JsonCreator
+    public CrawlUrlMessage(@JsonProperty("taskId") String taskId,
+                           @JsonProperty("keyword") String keyword,
+                           @JsonProperty("baseUrl") String baseUrl,
+                           @JsonProperty("url") String url,
+                           @JsonProperty("depth") int depth,
+                           @JsonProperty("budget") CrawlBudget budget) {
+        this.taskId = taskId;
+        this.keyword = keyword;
+        this.baseUrl = baseUrl;
+        this.url = url;
+        this.depth = depth;
+        this.budget = budget != null ? budget : CrawlBudget.UNLIMITED;
+    }
+    
+    /**
+     * Mensagem de um link encontrado nesta página, um nível mais fundo.
+     */
+    public CrawlUrlMessage forLink(String link) {
+        return new CrawlUrlMessage(taskId, keyword, baseUrl, link, depth + 1, budget);
+    }
+    
+    public String getTaskId() {
+        return taskId;
+    }
+    
+    public String getKeyword() {
+        return keyword;
+    }
+    
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+    
+    public String getUrl() {
+        return url;
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public CrawlBudget getBudget() {
+        return budget;
+    }
+    
+    @Override
+    public String toString() {
+        return "CrawlUrlMessage{" +
+                "taskId='" + taskId + '\'' +
+                ", url='" + url + '\'' +
+                ", depth=" + depth +
+                '}';
+    }
+}
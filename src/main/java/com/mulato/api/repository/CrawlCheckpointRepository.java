@@ -0,0 +1,32 @@
+package com.mulato.api.repository;
+
+import com.mulato.api.entity.CrawlCheckpointEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CrawlCheckpointRepository extends JpaRepository<CrawlCheckpointEntity, String> {
+    
+    // Checkpoints de tarefas ainda ativas que nenhum nó atualizou desde o instante informado
+    @Query("SELECT c FROM CrawlCheckpointEntity c, CrawlTaskEntity t " +
+           "WHERE t.id = c.taskId AND t.status = 'active' AND c.checkpointAt < :before")
+    List<CrawlCheckpointEntity> findStaleActive(@Param("before") LocalDateTime before);
+    
+    // Reivindica um checkpoint parado: 0 se outro nó já o atualizou depois da leitura
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlCheckpointEntity c SET c.checkpointAt = :now " +
+           "WHERE c.taskId = :taskId AND c.checkpointAt = :seen")
+    int claim(@Param("taskId") String taskId, @Param("seen") LocalDateTime seen,
+              @Param("now") LocalDateTime now);
+    
+    // Outra tarefa ainda usa a fronteira gravada da sessão
+    boolean existsBySessionSessionId(String sessionId);
+}
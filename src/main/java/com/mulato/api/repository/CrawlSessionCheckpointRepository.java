@@ -0,0 +1,9 @@
+package com.mulato.api.repository;
+
+import com.mulato.api.entity.CrawlSessionCheckpointEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CrawlSessionCheckpointRepository extends JpaRepository<CrawlSessionCheckpointEntity, String> {
+}
@@ -2,9 +2,11 @@ package com.mulato.api.repository;
 
 import com.mulato.api.entity.CrawlTaskEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -18,4 +20,77 @@ public interface CrawlTaskRepository extends JpaRepository<CrawlTaskEntity, Stri
     
     @Query("SELECT t FROM CrawlTaskEntity t WHERE t.status = 'active' AND t.startTime < :timeout")
     List<CrawlTaskEntity> findStaleActiveTasks(@Param("timeout") LocalDateTime timeout);
+    
+    // Contadores do modo distribuído: cada UPDATE é atômico no banco, que coordena os nós
+    
+    // Reserva uma página do limite de páginas; 0 quando o limite já foi atingido
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlTaskEntity t SET t.totalPagesVisited = t.totalPagesVisited + 1 " +
+           "WHERE t.id = :id AND t.totalPagesVisited < :max")
+    int reservePage(@Param("id") String id, @Param("max") int max);
+    
+    // Reserva um bloco de páginas de uma vez para um nó; 0 se o bloco inteiro não cabe no limite
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlTaskEntity t SET t.totalPagesVisited = t.totalPagesVisited + :pages " +
+           "WHERE t.id = :id AND t.totalPagesVisited + :pages <= :max")
+    int reservePages(@Param("id") String id, @Param("pages") int pages, @Param("max") int max);
+    
+    // Devolve ao limite as páginas reservadas por um nó e não usadas
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlTaskEntity t SET t.totalPagesVisited = t.totalPagesVisited - :pages WHERE t.id = :id")
+    int releasePages(@Param("id") String id, @Param("pages") int pages);
+    
+    // Reserva um resultado do limite de resultados; 0 quando o limite já foi atingido
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlTaskEntity t SET t.totalUrlsFound = t.totalUrlsFound + 1 " +
+           "WHERE t.id = :id AND t.totalUrlsFound < :max")
+    int reserveResult(@Param("id") String id, @Param("max") int max);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlTaskEntity t SET t.bytesDownloaded = t.bytesDownloaded + :bytes WHERE t.id = :id")
+    int addBytesDownloaded(@Param("id") String id, @Param("bytes") long bytes);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlTaskEntity t SET t.pendingUrls = t.pendingUrls + :delta WHERE t.id = :id")
+    int addPendingUrls(@Param("id") String id, @Param("delta") int delta);
+    
+    @Query("SELECT t.pendingUrls FROM CrawlTaskEntity t WHERE t.id = :id")
+    Integer findPendingUrls(@Param("id") String id);
+    
+    // Encerra a tarefa por um limite; max_depth não encerra a tarefa e cede a vez a outro limite
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlTaskEntity t SET t.stopReason = :reason " +
+           "WHERE t.id = :id AND (t.stopReason IS NULL OR t.stopReason = 'max_depth')")
+    int stop(@Param("id") String id, @Param("reason") String reason);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlTaskEntity t SET t.stopReason = 'max_results' WHERE t.id = :id " +
+           "AND t.totalUrlsFound >= :max AND (t.stopReason IS NULL OR t.stopReason = 'max_depth')")
+    int stopAtResults(@Param("id") String id, @Param("max") int max);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlTaskEntity t SET t.stopReason = 'max_bytes' WHERE t.id = :id " +
+           "AND t.bytesDownloaded >= :max AND (t.stopReason IS NULL OR t.stopReason = 'max_depth')")
+    int stopAtBytes(@Param("id") String id, @Param("max") long max);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlTaskEntity t SET t.stopReason = 'max_depth' WHERE t.id = :id AND t.stopReason IS NULL")
+    int markDepthLimited(@Param("id") String id);
+    
+    // Conclui a tarefa uma única vez, mesmo que dois nós vejam o contador chegar a zero
+    @Modifying
+    @Transactional
+    @Query("UPDATE CrawlTaskEntity t SET t.status = 'done', t.endTime = :endTime, t.updatedAt = :endTime " +
+           "WHERE t.id = :id AND t.status = 'active'")
+    int finish(@Param("id") String id, @Param("endTime") LocalDateTime endTime);
 }
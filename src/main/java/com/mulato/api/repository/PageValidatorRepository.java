@@ -0,0 +1,35 @@
+package com.mulato.api.repository;
+
+import com.mulato.api.entity.PageValidatorEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PageValidatorRepository extends JpaRepository<PageValidatorEntity, Long> {
+    
+    Optional<PageValidatorEntity> findByUrl(String url);
+    
+    // Atualiza só os validadores, sem regravar o corpo
+    @Modifying
+    @Query("UPDATE PageValidatorEntity p SET p.etag = :etag, p.lastModified = :lastModified, " +
+           "p.validatedAt = :validatedAt WHERE p.id = :id")
+    int updateValidators(@Param("id") Long id, @Param("etag") String etag,
+                         @Param("lastModified") String lastModified,
+                         @Param("validatedAt") LocalDateTime validatedAt);
+    
+    // Instantes de validação, dos mais recentes para os mais antigos
+    @Query("SELECT p.validatedAt FROM PageValidatorEntity p ORDER BY p.validatedAt DESC")
+    List<LocalDateTime> findValidatedAt(Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM PageValidatorEntity p WHERE p.validatedAt < :before")
+    int deleteValidatedBefore(@Param("before") LocalDateTime before);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -18,6 +19,9 @@ public interface VisitedUrlRepository extends JpaRepository<VisitedUrlEntity, Lo
     @Query("SELECT v.url FROM VisitedUrlEntity v WHERE v.taskId = :taskId")
     List<String> findUrlsByTaskId(@Param("taskId") String taskId);
     
+    @Query("SELECT v.url FROM VisitedUrlEntity v WHERE v.taskId = :taskId AND v.visitedAt < :before")
+    List<String> findUrlsByTaskIdVisitedBefore(@Param("taskId") String taskId, @Param("before") LocalDateTime before);
+    
     Long countByTaskId(String taskId);
     
     void deleteByTaskId(String taskId);
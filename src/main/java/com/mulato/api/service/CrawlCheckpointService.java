@@ -0,0 +1,365 @@
+package com.mulato.api.service;
+
+import com.mulato.api.crawler.CrawlFrontier;
+import com.mulato.api.crawler.CrawlSession;
+import com.mulato.api.entity.CrawlCheckpointEntity;
+import com.mulato.api.entity.CrawlSessionCheckpointEntity;
+import com.mulato.api.entity.CrawlTaskEntity;
+import com.mulato.api.model.CrawlBudget;
+import com.mulato.api.model.CrawlTask;
+import com.mulato.api.repository.CrawlCheckpointRepository;
+import com.mulato.api.repository.CrawlSessionCheckpointRepository;
+import com.mulato.api.repository.CrawlTaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkpoints das tarefas em andamento, para que um reinício do nó não recomece o crawling
+ * da URL base.
+ *
+ * A cada {@code app.crawler.checkpoint.interval} ms a fronteira de cada sessão em execução
+ * (URLs na fila e em processamento) é gravada uma vez em {@code crawl_session_checkpoints} e
+ * os contadores de cada tarefa ativa da sessão em {@code crawl_checkpoints}, depois das URLs
+ * visitadas e encontradas que ainda estavam no buffer de gravação. Na retomada, contam como
+ * visitadas só as URLs registradas antes do checkpoint e fora da fronteira salva, cujos links
+ * já estão nela; as visitadas depois do checkpoint são buscadas de novo.
+ *
+ * A mensagem de uma tarefa interrompida volta para a fila e é retomada por quem a receber. Na
+ * inicialização, as tarefas ativas cujo checkpoint ninguém atualiza há
+ * {@code app.crawler.checkpoint.stale-after} ms são enviadas de novo para a fila. Cada nó
+ * reivindica o checkpoint com um UPDATE condicionado ao instante lido, e só quem o altera
+ * reenvia a tarefa; nós que iniciam juntos não duplicam a mensagem.
+ *
+ * Os checkpoints só servem se o banco sobrevive ao reinício. Sem
+ * {@code app.crawler.checkpoint.enabled}, eles ficam ativos apenas quando
+ * {@code spring.datasource.url} não é um H2 em memória ({@code jdbc:h2:mem:}).
+ */
+@Service
+public class CrawlCheckpointService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlCheckpointService.class);
+
+    // Sem valor: ativo só com banco persistente
+    @Value("${app.crawler.checkpoint.enabled:#{null}}")
+    private Boolean configuredEnabled;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    @Value("${app.crawler.checkpoint.interval:30000}")
+    private long interval;
+
+    @Value("${app.crawler.checkpoint.stale-after:300000}")
+    private long staleAfter;
+
+    @Autowired
+    private CrawlCheckpointRepository crawlCheckpointRepository;
+
+    @Autowired
+    private CrawlSessionCheckpointRepository crawlSessionCheckpointRepository;
+
+    @Autowired
+    private CrawlTaskRepository crawlTaskRepository;
+
+    @Autowired
+    private CrawlPersistenceService crawlPersistenceService;
+
+    @Autowired
+    private CrawlMessageService crawlMessageService;
+
+    // Sessões executadas por este nó
+    private final Set<CrawlSession> sessions = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+    private boolean enabled;
+
+    @PostConstruct
+    public void init() {
+        boolean inMemory = isInMemory(datasourceUrl);
+        enabled = configuredEnabled != null ? configuredEnabled : !inMemory;
+        if (!enabled) {
+            if (configuredEnabled == null) {
+                logger.info("Crawl checkpoints disabled: {} does not survive a restart", datasourceUrl);
+            }
+            return;
+        }
+        if (inMemory) {
+            logger.warn("Crawl checkpoints are written to the in-memory database {} and are lost on restart",
+                       datasourceUrl);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crawl-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkpointAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    static boolean isInMemory(String datasourceUrl) {
+        return datasourceUrl != null && datasourceUrl.startsWith("jdbc:h2:mem:");
+    }
+
+    /**
+     * Passa a gravar checkpoints da sessão, começando por um imediato.
+     */
+    public void register(CrawlSession session) {
+        if (enabled) {
+            sessions.add(session);
+            checkpoint(session);
+        }
+    }
+
+    public void unregister(CrawlSession session) {
+        sessions.remove(session);
+    }
+
+    public void checkpointAll() {
+        for (CrawlSession session : sessions) {
+            checkpoint(session);
+        }
+    }
+
+    /**
+     * Grava a fronteira da sessão e o checkpoint de cada tarefa ativa. A fronteira é copiada
+     * antes de gravar as URLs pendentes, então toda URL registrada antes do instante do
+     * checkpoint já tinha enfileirado os seus links ou está na cópia.
+     */
+    public void checkpoint(CrawlSession session) {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime checkpointAt = LocalDateTime.now();
+        List<CrawlFrontier.Entry> entries = session.getFrontier().snapshot();
+        int pagesProcessed = session.getPagesProcessed();
+        List<CrawlTask> tasks = session.getTasks().stream().filter(CrawlTask::isActive).toList();
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        CrawlSessionCheckpointEntity sessionCheckpoint;
+        try {
+            for (CrawlTask task : tasks) {
+                crawlPersistenceService.writePending(task.getId());
+            }
+            sessionCheckpoint = new CrawlSessionCheckpointEntity(session.getId());
+            sessionCheckpoint.setFrontier(encode(entries));
+            sessionCheckpoint.setFrontierSize(entries.size());
+            sessionCheckpoint.setPagesProcessed(pagesProcessed);
+            sessionCheckpoint.setCheckpointAt(checkpointAt);
+            sessionCheckpoint = crawlSessionCheckpointRepository.save(sessionCheckpoint);
+        } catch (Exception e) {
+            logger.error("Error saving checkpoint for session {}: {}", session.getId(), e.getMessage());
+            return;
+        }
+
+        for (CrawlTask task : tasks) {
+            try {
+                CrawlCheckpointEntity checkpoint = new CrawlCheckpointEntity(task.getId());
+                checkpoint.setSession(sessionCheckpoint);
+                checkpoint.setBytesDownloaded(task.getBytesDownloaded());
+                checkpoint.setElapsedMs(task.getElapsedMillis());
+                CrawlBudget budget = task.getBudget();
+                checkpoint.setMaxDepth(budget.getMaxDepth());
+                checkpoint.setMaxBytes(budget.getMaxBytes());
+                checkpoint.setMaxDuration(budget.getMaxDuration());
+                checkpoint.setMaxResults(budget.getMaxResults());
+                checkpoint.setCheckpointAt(checkpointAt);
+                crawlCheckpointRepository.save(checkpoint);
+            } catch (Exception e) {
+                logger.error("Error saving checkpoint for task {}: {}", task.getId(), e.getMessage());
+            }
+        }
+        logger.debug("Saved checkpoint for session {} with {} tasks: {} URLs in frontier",
+                    session.getId(), tasks.size(), entries.size());
+    }
+
+    /**
+     * Checkpoint da tarefa, ou null se ela não tem um ou os checkpoints estão desativados.
+     */
+    public CrawlCheckpointEntity load(String taskId) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            return crawlCheckpointRepository.findById(taskId).orElse(null);
+        } catch (Exception e) {
+            logger.warn("Error loading checkpoint for task {}: {}", taskId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Remove o checkpoint da tarefa e, se nenhuma outra tarefa o usa, o da sua sessão.
+     */
+    public void delete(String taskId) {
+        if (!enabled) {
+            return;
+        }
+        Optional<CrawlCheckpointEntity> checkpoint = crawlCheckpointRepository.findById(taskId);
+        if (checkpoint.isEmpty()) {
+            return;
+        }
+        crawlCheckpointRepository.delete(checkpoint.get());
+        String sessionId = checkpoint.get().getSession().getSessionId();
+        if (!crawlCheckpointRepository.existsBySessionSessionId(sessionId)) {
+            crawlSessionCheckpointRepository.deleteById(sessionId);
+        }
+    }
+
+    /**
+     * Devolve à tarefa o estado do checkpoint: URLs visitadas antes dele, URLs encontradas,
+     * bytes baixados e tempo de crawling.
+     */
+    public void restoreTask(CrawlTask task, CrawlCheckpointEntity checkpoint) {
+        Set<String> frontierUrls = new HashSet<>();
+        for (SavedEntry entry : decode(checkpoint.getSession().getFrontier())) {
+            frontierUrls.add(entry.url);
+        }
+        for (String url : crawlPersistenceService.getVisitedUrls(task.getId(), checkpoint.getCheckpointAt())) {
+            if (!frontierUrls.contains(url)) {
+                task.markUrlAsVisited(url);
+            }
+        }
+        for (String url : crawlPersistenceService.getFoundUrls(task.getId())) {
+            task.addFoundUrl(url);
+        }
+        task.startBudget(checkpoint.getElapsedMs());
+        task.addBytesDownloaded(checkpoint.getBytesDownloaded());
+    }
+
+    /**
+     * Devolve a fronteira do checkpoint à sessão que vai executar a tarefa.
+     * @param ownSession a sessão foi aberta para a tarefa, e não é uma sessão em andamento
+     *                   à qual ela foi anexada; só nesse caso a contagem de páginas é retomada
+     */
+    public void restoreFrontier(CrawlSession session, CrawlCheckpointEntity checkpoint, boolean ownSession) {
+        if (ownSession) {
+            session.restorePagesProcessed(checkpoint.getSession().getPagesProcessed());
+        }
+        for (SavedEntry entry : decode(checkpoint.getSession().getFrontier())) {
+            session.enqueue(entry.url, entry.depth, entry.priority);
+        }
+    }
+
+    /**
+     * Envia de novo para a fila as tarefas ativas cujo checkpoint ficou sem atualização, como
+     * as de um nó que parou sem que a mensagem voltasse para a fila. O checkpoint é marcado
+     * antes do envio para que outro nó iniciando ao mesmo tempo não envie a tarefa também.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverStaleTasks() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<CrawlCheckpointEntity> stale;
+        try {
+            stale = crawlCheckpointRepository.findStaleActive(now.minusNanos(TimeUnit.MILLISECONDS.toNanos(staleAfter)));
+        } catch (Exception e) {
+            logger.warn("Error looking up stale crawl checkpoints: {}", e.getMessage());
+            return;
+        }
+        for (CrawlCheckpointEntity checkpoint : stale) {
+            Optional<CrawlTaskEntity> entity = crawlTaskRepository.findById(checkpoint.getTaskId());
+            if (entity.isEmpty()) {
+                continue;
+            }
+            CrawlBudget budget = new CrawlBudget(checkpoint.getMaxDepth(), checkpoint.getMaxBytes(),
+                    checkpoint.getMaxDuration(), checkpoint.getMaxResults());
+            CrawlTask task = new CrawlTask(entity.get().getId(), entity.get().getKeyword(),
+                    entity.get().getBaseUrl(), budget);
+            try {
+                if (crawlCheckpointRepository.claim(task.getId(), checkpoint.getCheckpointAt(), now) != 1) {
+                    logger.debug("Crawl task {} already recovered by another node", task.getId());
+                    continue;
+                }
+                crawlMessageService.sendCrawlMessage(task);
+                logger.info("Re-queued crawl task {} from checkpoint with {} URLs in frontier",
+                           task.getId(), checkpoint.getSession().getFrontierSize());
+            } catch (Exception e) {
+                logger.error("Error re-queuing crawl task {}: {}", task.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Uma entrada por linha: profundidade, prioridade e URL separadas por tabulação. URLs
+     * canônicas não têm tabulação nem quebra de linha.
+     */
+    static String encode(List<CrawlFrontier.Entry> entries) {
+        StringBuilder builder = new StringBuilder(entries.size() * 64);
+        for (CrawlFrontier.Entry entry : entries) {
+            builder.append(entry.getDepth()).append('\t')
+                   .append(entry.getPriority()).append('\t')
+                   .append(entry.getUrl()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    static List<SavedEntry> decode(String frontier) {
+        List<SavedEntry> entries = new ArrayList<>();
+        if (frontier == null) {
+            return entries;
+        }
+        int start = 0;
+        while (start < frontier.length()) {
+            int end = frontier.indexOf('\n', start);
+            if (end < 0) {
+                end = frontier.length();
+            }
+            int first = frontier.indexOf('\t', start);
+            int second = first < 0 ? -1 : frontier.indexOf('\t', first + 1);
+            if (second > 0 && second < end) {
+                entries.add(new SavedEntry(frontier.substring(second + 1, end),
+                        Integer.parseInt(frontier, start, first, 10),
+                        Integer.parseInt(frontier, first + 1, second, 10)));
+            }
+            start = end + 1;
+        }
+        return entries;
+    }
+
+    /**
+     * Entrada da fronteira lida de um checkpoint.
+     */
+    static final class SavedEntry {
+
+        final String url;
+        final int depth;
+        final int priority;
+
+        SavedEntry(String url, int depth, int priority) {
+            this.url = url;
+            this.depth = depth;
+            this.priority = priority;
+        }
+    }
+}
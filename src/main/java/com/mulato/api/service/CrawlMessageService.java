@@ -1,11 +1,14 @@
 package com.mulato.api.service;
 
 import com.mulato.api.config.RabbitConfig;
+import com.mulato.api.crawler.UrlFingerprintSet;
 import com.mulato.api.model.CrawlTask;
+import com.mulato.api.model.CrawlUrlMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -16,6 +19,9 @@ public class CrawlMessageService {
     @Autowired
     private RabbitTemplate rabbitTemplate;
     
+    @Value("${" + RabbitConfig.PARTITIONING_PROPERTY + ":database}")
+    private String partitioning;
+    
     public void sendCrawlMessage(CrawlTask task) {
         try {
             logger.info("Sending crawl task to queue: {}", task.getId());
@@ -30,4 +36,35 @@ public class CrawlMessageService {
             throw new RuntimeException("Failed to send crawl task to queue", e);
         }
     }
+    
+    /**
+     * Publica uma URL do modo distribuído. Com particionamento por hash consistente a routing
+     * key é a impressão digital da URL, que a leva sempre à fila do mesmo nó; as URLs não
+     * cabem no limite de 255 bytes de uma routing key.
+     */
+    public void sendUrlMessage(CrawlUrlMessage message) {
+        try {
+            if (isPartitioned()) {
+                rabbitTemplate.convertAndSend(
+                    RabbitConfig.CRAWL_URL_HASH_EXCHANGE,
+                    Long.toHexString(UrlFingerprintSet.hash(message.getUrl())),
+                    message
+                );
+            } else {
+                rabbitTemplate.convertAndSend(
+                    RabbitConfig.CRAWL_URL_EXCHANGE,
+                    RabbitConfig.CRAWL_URL_ROUTING_KEY,
+                    message
+                );
+            }
+            logger.debug("URL message sent for task {}: {}", message.getTaskId(), message.getUrl());
+        } catch (Exception e) {
+            logger.error("Error sending URL message for task {}: {}", message.getTaskId(), message.getUrl(), e);
+            throw new RuntimeException("Failed to send URL message to queue", e);
+        }
+    }
+    
+    public boolean isPartitioned() {
+        return RabbitConfig.CONSISTENT_HASH.equalsIgnoreCase(partitioning);
+    }
 }
@@ -1,49 +1,349 @@
 package com.mulato.api.service;
 
-import com.mulato.api.entity.CrawlResultEntity;
-import com.mulato.api.entity.VisitedUrlEntity;
 import com.mulato.api.repository.CrawlResultRepository;
 import com.mulato.api.repository.VisitedUrlRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Registro das URLs visitadas e encontradas pelas tarefas de crawling.
+ *
+ * As gravações são write-behind: as linhas ficam em um buffer por tarefa e vão ao banco em
+ * lotes JDBC quando o buffer chega a {@code app.crawler.persistence.batch-size} linhas ou a
+ * cada {@code app.crawler.persistence.flush-interval} ms. As entidades usam
+ * {@code GenerationType.IDENTITY}, o que impede o Hibernate de agrupar os INSERTs, por isso
+ * os lotes são gravados direto com {@link JdbcTemplate#batchUpdate}. Com
+ * {@code app.crawler.persistence.buffer-capacity} linhas pendentes o worker que grava grava
+ * o lote ele mesmo, o que segura o crawler até o banco acompanhar. {@link #flush(String)}
+ * grava o que restou da tarefa e deve ser chamado antes de a tarefa ser encerrada.
+ *
+ * Um lote que falha por um erro que pode passar, como a conexão indisponível, volta para o
+ * início do buffer da tarefa e é gravado de novo no próximo flush, até
+ * {@code app.crawler.persistence.max-retries} falhas seguidas; depois disso é descartado.
+ * Um lote recusado pelo próprio banco, como uma URL maior que a coluna, é gravado linha a
+ * linha e só as linhas recusadas são descartadas. Um buffer vazio é descartado pelo flush
+ * periódico, inclusive o recriado por uma gravação que chegou depois de {@link #flush(String)}.
+ */
 @Service
 public class CrawlPersistenceService {
     
     private static final Logger logger = LoggerFactory.getLogger(CrawlPersistenceService.class);
     
+    private static final String INSERT_FOUND_URL =
+            "INSERT INTO crawl_results (task_id, url, found_at) VALUES (?, ?, ?)";
+    
+    // INSERT simples: a violação do índice unique_task_url indica que a URL já foi reservada
+    private static final String INSERT_VISITED_URL =
+            "INSERT INTO visited_urls (task_id, url, visited_at) VALUES (?, ?, ?)";
+    
+    // Variantes que ignoram a URL já registrada para a tarefa (índice unique_task_url)
+    private static final String MERGE_VISITED_URL_H2 =
+            "MERGE INTO visited_urls (task_id, url, visited_at) KEY (task_id, url) VALUES (?, ?, ?)";
+    
+    private static final String INSERT_VISITED_URL_POSTGRESQL =
+            INSERT_VISITED_URL + " ON CONFLICT (task_id, url) DO NOTHING";
+    
+    private static final String INSERT_VISITED_URL_MYSQL =
+            "INSERT IGNORE INTO visited_urls (task_id, url, visited_at) VALUES (?, ?, ?)";
+    
+    @Value("${app.crawler.persistence.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${app.crawler.persistence.flush-interval:1000}")
+    private long flushInterval;
+    
+    @Value("${app.crawler.persistence.buffer-capacity:10000}")
+    private int bufferCapacity;
+    
+    @Value("${app.crawler.persistence.max-retries:5}")
+    private int maxRetries;
+    
     @Autowired
     private CrawlResultRepository crawlResultRepository;
     
     @Autowired
     private VisitedUrlRepository visitedUrlRepository;
     
-    @Transactional
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private final ConcurrentMap<String, TaskBuffer> buffers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+    // Gravação das URLs visitadas no dialeto do banco; null até a primeira gravação
+    private volatile String visitedUrlSql;
+    
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crawl-persistence-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flushAll();
+    }
+    
     public void saveFoundUrl(String taskId, String url) {
-        try {
-            CrawlResultEntity result = new CrawlResultEntity(taskId, url);
-            crawlResultRepository.save(result);
-            logger.debug("Saved found URL for task {}: {}", taskId, url);
-        } catch (Exception e) {
-            logger.error("Error saving found URL for task {}: {}", taskId, url, e);
+        Object[] row = new Object[] {taskId, url, LocalDateTime.now()};
+        while (true) {
+            TaskBuffer buffer = buffers.computeIfAbsent(taskId, TaskBuffer::new);
+            int size = buffer.addFound(row);
+            // Buffer já descartado por um flush: a linha vai para um novo
+            if (size >= 0) {
+                afterAdd(buffer, size);
+                return;
+            }
         }
     }
     
-    @Transactional
     public void saveVisitedUrl(String taskId, String url) {
+        Object[] row = new Object[] {taskId, url, LocalDateTime.now()};
+        while (true) {
+            TaskBuffer buffer = buffers.computeIfAbsent(taskId, TaskBuffer::new);
+            int size = buffer.addVisited(row);
+            if (size >= 0) {
+                afterAdd(buffer, size);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Registra a URL como visitada pela tarefa na hora, sem passar pelo buffer. No modo
+     * distribuído o índice único das URLs visitadas coordena os nós: só quem inserir a linha
+     * publica a URL, e nenhuma página é buscada duas vezes para a mesma tarefa.
+     * @return false se a URL já estava registrada para a tarefa
+     */
+    public boolean claimUrl(String taskId, String url) {
         try {
-            if (!visitedUrlRepository.existsByTaskIdAndUrl(taskId, url)) {
-                VisitedUrlEntity visited = new VisitedUrlEntity(taskId, url);
-                visitedUrlRepository.save(visited);
-                logger.debug("Saved visited URL for task {}: {}", taskId, url);
+            jdbcTemplate.update(INSERT_VISITED_URL, taskId, url, LocalDateTime.now());
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Grava as linhas pendentes da tarefa e descarta o buffer. Ao retornar, tudo o que a
+     * tarefa registrou está no banco, inclusive um lote que o flusher estava gravando; se a
+     * gravação falhar, as linhas ficam em um novo buffer até o próximo flush periódico.
+     */
+    public void flush(String taskId) {
+        TaskBuffer buffer = buffers.remove(taskId);
+        if (buffer != null) {
+            buffer.close();
+            write(buffer);
+        }
+    }
+    
+    /**
+     * Grava as linhas pendentes da tarefa, mantendo o buffer para as próximas. Ao retornar,
+     * tudo o que a tarefa registrou até a chamada está no banco.
+     */
+    public void writePending(String taskId) {
+        TaskBuffer buffer = buffers.get(taskId);
+        if (buffer != null) {
+            write(buffer);
+        }
+    }
+    
+    /**
+     * Grava as linhas pendentes de todas as tarefas e descarta os buffers que ficaram vazios.
+     */
+    public void flushAll() {
+        for (TaskBuffer buffer : buffers.values()) {
+            if (write(buffer) && buffer.closeIfEmpty()) {
+                buffers.remove(buffer.taskId, buffer);
+            }
+        }
+    }
+    
+    /**
+     * Número de linhas ainda não gravadas da tarefa.
+     */
+    public int pending(String taskId) {
+        TaskBuffer buffer = buffers.get(taskId);
+        return buffer == null ? 0 : buffer.size();
+    }
+    
+    private void afterAdd(TaskBuffer buffer, int size) {
+        if (size >= bufferCapacity) {
+            // Buffer cheio: o próprio worker grava o lote antes de continuar
+            write(buffer);
+        } else if (size >= batchSize) {
+            if (flusher == null) {
+                write(buffer);
+                return;
+            }
+            // Um único lote do buffer aguardando o flusher: as linhas que chegarem até ele
+            // rodar vão no mesmo lote
+            if (!buffer.scheduled.compareAndSet(false, true)) {
+                return;
             }
+            try {
+                flusher.execute(() -> {
+                    buffer.scheduled.set(false);
+                    write(buffer);
+                });
+            } catch (RejectedExecutionException e) {
+                buffer.scheduled.set(false);
+                write(buffer);
+            }
+        }
+    }
+    
+    /**
+     * Grava o conteúdo do buffer. O lock mantém um único lote da tarefa em gravação por vez,
+     * de modo que {@link #flush(String)} espera o lote que o flusher já retirou do buffer.
+     * @return false se alguma parte do lote falhou e voltou para o buffer
+     */
+    private boolean write(TaskBuffer buffer) {
+        buffer.writeLock.lock();
+        try {
+            List<Object[]> visited;
+            List<Object[]> found;
+            synchronized (buffer) {
+                visited = buffer.visited;
+                found = buffer.found;
+                buffer.visited = new ArrayList<>();
+                buffer.found = new ArrayList<>();
+            }
+            // URLs visitadas primeiro, na mesma ordem em que eram gravadas uma a uma
+            if (!visited.isEmpty()) {
+                visited = insert(visitedSql(), visited, "visited", buffer.taskId);
+            }
+            if (!found.isEmpty()) {
+                found = insert(INSERT_FOUND_URL, found, "found", buffer.taskId);
+            }
+            if (visited.isEmpty() && found.isEmpty()) {
+                buffer.failures = 0;
+                return true;
+            }
+            if (++buffer.failures > maxRetries) {
+                logger.error("Dropping {} rows for task {} after {} failed writes",
+                        visited.size() + found.size(), buffer.taskId, buffer.failures);
+                buffer.failures = 0;
+                return true;
+            }
+            requeue(buffer, visited, found);
+            return false;
+        } finally {
+            buffer.writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Grava o lote. Se o banco o recusa por um erro que se repetiria em uma nova tentativa,
+     * grava linha a linha, pulando as URLs já registradas e descartando as linhas recusadas.
+     * @return as linhas que devem voltar ao buffer, por uma falha que pode passar
+     */
+    private List<Object[]> insert(String sql, List<Object[]> rows, String kind, String taskId) {
+        try {
+            jdbcTemplate.batchUpdate(sql, rows);
+            logger.debug("Saved {} {} URLs for task {}", rows.size(), kind, taskId);
+            return List.of();
         } catch (Exception e) {
-            logger.error("Error saving visited URL for task {}: {}", taskId, url, e);
+            if (isRetryable(e)) {
+                logger.error("Error saving {} URLs for task {}: {} rows will be retried", kind, taskId, rows.size(), e);
+                return rows;
+            }
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            try {
+                jdbcTemplate.update(sql, rows.get(i));
+            } catch (DuplicateKeyException duplicate) {
+                // URL já registrada para a tarefa
+            } catch (Exception e) {
+                if (isRetryable(e)) {
+                    logger.error("Error saving {} URLs for task {}: {} rows will be retried",
+                            kind, taskId, rows.size() - i, e);
+                    return new ArrayList<>(rows.subList(i, rows.size()));
+                }
+                logger.error("Dropping {} URL {} for task {}: {}", kind, rows.get(i)[1], taskId, e.getMessage());
+            }
+        }
+        return List.of();
+    }
+    
+    /**
+     * Falhas que podem não se repetir: erros fora do acesso a dados, erros transitórios e
+     * falhas de conexão. As demais vêm do próprio SQL ou dos dados da linha.
+     */
+    private static boolean isRetryable(Exception e) {
+        return !(e instanceof DataAccessException)
+                || e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+    
+    /**
+     * Devolve as linhas de um lote que falhou ao início do buffer, ou ao buffer que substituiu
+     * um já descartado por {@link #flush(String)}.
+     */
+    private void requeue(TaskBuffer buffer, List<Object[]> visited, List<Object[]> found) {
+        while (!buffer.prepend(visited, found)) {
+            buffer = buffers.computeIfAbsent(buffer.taskId, TaskBuffer::new);
+        }
+    }
+    
+    private String visitedSql() {
+        String sql = visitedUrlSql;
+        if (sql == null) {
+            sql = visitedUrlSql = visitedUrlSql();
+        }
+        return sql;
+    }
+    
+    /**
+     * INSERT das URLs visitadas que ignora as já registradas, no dialeto do banco conectado.
+     * Para bancos sem uma variante conhecida, o INSERT simples, e as duplicatas são puladas
+     * na gravação linha a linha.
+     */
+    private String visitedUrlSql() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        switch (product == null ? "" : product.toLowerCase(Locale.ROOT)) {
+            case "h2":
+                return MERGE_VISITED_URL_H2;
+            case "postgresql":
+                return INSERT_VISITED_URL_POSTGRESQL;
+            case "mysql", "mariadb":
+                return INSERT_VISITED_URL_MYSQL;
+            default:
+                return INSERT_VISITED_URL;
         }
     }
     
@@ -62,6 +362,14 @@ public class CrawlPersistenceService {
         return visitedUrlRepository.findUrlsByTaskId(taskId);
     }
     
+    /**
+     * URLs registradas como visitadas antes do instante informado.
+     */
+    @Transactional(readOnly = true)
+    public List<String> getVisitedUrls(String taskId, LocalDateTime before) {
+        return visitedUrlRepository.findUrlsByTaskIdVisitedBefore(taskId, before);
+    }
+    
     @Transactional(readOnly = true)
     public long getFoundUrlsCount(String taskId) {
         return crawlResultRepository.countByTaskId(taskId);
@@ -71,4 +379,69 @@ public class CrawlPersistenceService {
     public long getVisitedUrlsCount(String taskId) {
         return visitedUrlRepository.countByTaskId(taskId);
     }
+    
+    /**
+     * Linhas pendentes de uma tarefa, já com os parâmetros dos INSERTs. Depois de fechado o
+     * buffer não aceita novas linhas, e quem grava deve obter outro no mapa.
+     */
+    private static final class TaskBuffer {
+        
+        private final String taskId;
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // Gravações seguidas que falharam; protegido por writeLock
+        private int failures;
+        private List<Object[]> visited = new ArrayList<>();
+        private List<Object[]> found = new ArrayList<>();
+        private boolean closed;
+        
+        TaskBuffer(String taskId) {
+            this.taskId = taskId;
+        }
+        
+        /**
+         * @return linhas pendentes, ou -1 se o buffer está fechado
+         */
+        synchronized int addVisited(Object[] row) {
+            if (closed) {
+                return -1;
+            }
+            visited.add(row);
+            return visited.size() + found.size();
+        }
+        
+        synchronized int addFound(Object[] row) {
+            if (closed) {
+                return -1;
+            }
+            found.add(row);
+            return visited.size() + found.size();
+        }
+        
+        /**
+         * Recoloca as linhas antes das pendentes.
+         * @return false se o buffer está fechado
+         */
+        synchronized boolean prepend(List<Object[]> failedVisited, List<Object[]> failedFound) {
+            if (closed) {
+                return false;
+            }
+            visited.addAll(0, failedVisited);
+            found.addAll(0, failedFound);
+            return true;
+        }
+        
+        synchronized void close() {
+            closed = true;
+        }
+        
+        synchronized boolean closeIfEmpty() {
+            closed = visited.isEmpty() && found.isEmpty();
+            return closed;
+        }
+        
+        synchronized int size() {
+            return visited.size() + found.size();
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.mulato.api.service;
 
 import com.mulato.api.entity.CrawlTaskEntity;
+import com.mulato.api.model.CrawlBudget;
 import com.mulato.api.model.CrawlResult;
 import com.mulato.api.model.CrawlTask;
 import com.mulato.api.repository.CrawlResultRepository;
@@ -9,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,6 +24,22 @@ public class CrawlService {
     @Value("${app.base-url}")
     private String baseUrl;
     
+    @Value("${app.crawler.visited-set.off-heap:false}")
+    private boolean offHeapVisitedUrls;
+    
+    // Limites do servidor: valem quando a requisição não informa o limite e nenhuma requisição passa deles
+    @Value("${app.crawler.budget.max-depth:50}")
+    private int maxDepth;
+    
+    @Value("${app.crawler.budget.max-bytes:1GB}")
+    private DataSize maxBytes;
+    
+    @Value("${app.crawler.budget.max-duration:3600000}")
+    private long maxDuration;
+    
+    @Value("${app.search.max-results:100}")
+    private int maxResults;
+    
     @Autowired
     private CrawlMessageService crawlMessageService;
     
@@ -34,11 +52,28 @@ public class CrawlService {
     @Autowired
     private CrawlResultRepository crawlResultRepository;
     
+    @Autowired
+    private CrawlPersistenceService crawlPersistenceService;
+    
+    @Autowired
+    private CrawlCheckpointService crawlCheckpointService;
+    
+    @Autowired
+    private DistributedCrawlService distributedCrawlService;
+    
     // Cache em memória para tarefas ativas
     private final ConcurrentMap<String, CrawlTask> activeTasks = new ConcurrentHashMap<>();
     
     @Transactional
     public String startCrawl(String keyword) {
+        return startCrawl(keyword, null);
+    }
+    
+    /**
+     * @param budget limites pedidos para a tarefa (null ou limites null assumem os do servidor)
+     */
+    @Transactional
+    public String startCrawl(String keyword, CrawlBudget budget) {
         String crawlId = idGeneratorService.generateId();
         
         // Salva no banco de dados
@@ -46,8 +81,11 @@ public class CrawlService {
         crawlTaskRepository.save(entity);
         
         // Cria task para processamento
-        CrawlTask task = new CrawlTask(crawlId, keyword, baseUrl);
-        activeTasks.put(crawlId, task);
+        CrawlTask task = new CrawlTask(crawlId, keyword, baseUrl, effectiveBudget(budget), offHeapVisitedUrls);
+        // No modo distribuído os resultados vêm de vários nós e o GET /crawl/{id} os lê do banco
+        if (!distributedCrawlService.isEnabled()) {
+            activeTasks.put(crawlId, task);
+        }
         
         // Envia mensagem para iniciar o crawling
         crawlMessageService.sendCrawlMessage(task);
@@ -63,7 +101,8 @@ public class CrawlService {
             return new CrawlResult(
                 activeTask.getId(),
                 activeTask.getStatus(),
-                activeTask.getFoundUrls()
+                activeTask.getFoundUrls(),
+                activeTask.getStopReason()
             );
         }
         
@@ -74,7 +113,8 @@ public class CrawlService {
             return new CrawlResult(
                 taskEntity.get().getId(),
                 taskEntity.get().getStatus(),
-                urls
+                urls,
+                taskEntity.get().getStopReason()
             );
         }
         
@@ -85,8 +125,31 @@ public class CrawlService {
         return activeTasks.get(crawlId);
     }
     
+    /**
+     * Instância da tarefa que o crawler deve usar para uma mensagem recebida da fila: a mantida
+     * em memória ou, se este nó não a conhece (mensagem redistribuída depois de um reinício ou
+     * criada em outro nó), a própria cópia da mensagem, que passa a ser a consultada pelo
+     * GET /crawl/{id}.
+     * @return a tarefa, ou null se ela já foi concluída
+     */
+    public CrawlTask resumeCrawlTask(CrawlTask task) {
+        CrawlTask activeTask = activeTasks.get(task.getId());
+        if (activeTask != null) {
+            return activeTask;
+        }
+        Optional<CrawlTaskEntity> entity = crawlTaskRepository.findById(task.getId());
+        if (entity.isPresent() && "done".equals(entity.get().getStatus())) {
+            return null;
+        }
+        activeTask = activeTasks.putIfAbsent(task.getId(), task);
+        return activeTask != null ? activeTask : task;
+    }
+    
     @Transactional
     public void finishCrawlTask(String crawlId) {
+        // As URLs ainda no buffer de gravação vão ao banco antes de a tarefa constar como concluída
+        crawlPersistenceService.flush(crawlId);
+        
         CrawlTask task = activeTasks.remove(crawlId);
         if (task != null) {
             // Atualiza status no banco
@@ -97,11 +160,18 @@ public class CrawlService {
                 entity.setEndTime(LocalDateTime.now());
                 entity.setTotalPagesVisited(task.getVisitedUrls().size());
                 entity.setTotalUrlsFound(task.getFoundUrls().size());
+                entity.setStopReason(task.getStopReason());
                 crawlTaskRepository.save(entity);
             }
+            crawlCheckpointService.delete(crawlId);
         }
     }
     
+    CrawlBudget effectiveBudget(CrawlBudget requested) {
+        CrawlBudget caps = new CrawlBudget(maxDepth, maxBytes.toBytes(), maxDuration, maxResults);
+        return requested == null ? caps : requested.cappedBy(caps);
+    }
+    
     @Transactional(readOnly = true)
     public List<CrawlTaskEntity> getActiveTasks() {
         return crawlTaskRepository.findByStatus("active");
@@ -0,0 +1,502 @@
+package com.mulato.api.service;
+
+import com.mulato.api.crawler.ScannedPage;
+import com.mulato.api.crawler.UrlFingerprintSet;
+import com.mulato.api.crawler.UrlScope;
+import com.mulato.api.entity.CrawlTaskEntity;
+import com.mulato.api.model.CrawlBudget;
+import com.mulato.api.model.CrawlTask;
+import com.mulato.api.model.CrawlUrlMessage;
+import com.mulato.api.repository.CrawlTaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Crawling distribuído ({@code app.crawler.distribution: distributed}): a mensagem da tarefa
+ * em {@code crawl.queue} só publica a URL base em {@code crawl.url.queue}, e cada mensagem dessa
+ * fila é uma URL, buscada por qualquer consumidor de qualquer nó, que publica os links novos
+ * da página. A fila de URLs faz o papel da fronteira local.
+ *
+ * O estado compartilhado fica no banco: uma URL só é publicada por quem conseguir inseri-la em
+ * {@code visited_urls}, cujo índice único impede que a mesma página seja buscada duas vezes
+ * para a tarefa, e os limites são reservados com UPDATEs atômicos em {@code crawl_tasks}. A
+ * coluna {@code pending_urls} conta as mensagens publicadas e ainda não processadas; quem a
+ * levar a zero conclui a tarefa.
+ *
+ * Com {@code app.crawler.distributed.partitioning: consistent-hash} a deduplicação sai do
+ * banco: as URLs são distribuídas por hash consistente entre as filas dos nós, cada URL vai
+ * sempre para o mesmo nó e cada nó guarda em memória só a sua parte das URLs visitadas. Quem
+ * publica não consulta nada, e o dono descarta a URL que já processou. Uma URL só é buscada de
+ * novo se mudar de dono, quando um nó entra ou sai do anel durante a tarefa.
+ *
+ * Cada nó acumula em memória o que não precisa ir ao banco a cada mensagem e grava a cada
+ * {@code app.crawler.distributed.flush-interval} ms: as mensagens concluídas (descontadas de
+ * {@code pending_urls} depois das URLs que elas registraram), os bytes baixados (o limite de
+ * bytes é conferido nessa gravação) e a linha da tarefa, relida no mesmo intervalo. As páginas
+ * são reservadas em blocos de {@code app.crawler.distributed.page-lease}, e as não usadas
+ * voltam ao limite na gravação seguinte. Os links já enviados por este nó não são reservados
+ * nem publicados de novo. Com o intervalo 0 tudo vai ao banco a cada mensagem.
+ *
+ * Todos os nós precisam do mesmo banco ({@code spring.datasource.url} de um servidor, como
+ * {@code jdbc:h2:tcp://host:9092/crawler}); com um H2 em memória cada nó teria o seu, e a
+ * aplicação não inicia no modo distribuído.
+ */
+@Service
+public class DistributedCrawlService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedCrawlService.class);
+    
+    // Sem intervalo de gravação, intervalo em que as tarefas paradas neste nó são conferidas
+    private static final long IDLE_CHECK_INTERVAL = 1000;
+
+    @Value("${app.crawler.distribution:local}")
+    private String distribution;
+
+    @Value("${app.crawler.max-pages:1000}")
+    private int maxPages;
+
+    @Value("${app.crawler.visited-set.off-heap:false}")
+    private boolean offHeapVisitedUrls;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    @Value("${app.crawler.distributed.flush-interval:500}")
+    private long flushInterval;
+
+    @Value("${app.crawler.distributed.page-lease:8}")
+    private int pageLease;
+
+    @Autowired
+    private WebCrawlerService webCrawlerService;
+
+    @Autowired
+    private CrawlTaskRepository crawlTaskRepository;
+
+    @Autowired
+    private CrawlPersistenceService crawlPersistenceService;
+
+    @Autowired
+    private CrawlMessageService crawlMessageService;
+
+    // Estado das tarefas com mensagens processadas por este nó
+    private final ConcurrentMap<String, NodeTask> tasks = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (CrawlCheckpointService.isInMemory(datasourceUrl)) {
+            throw new IllegalStateException("Distributed crawling needs a database shared by all nodes, but "
+                    + "spring.datasource.url is the in-memory " + datasourceUrl);
+        }
+        long interval = flushInterval > 0 ? flushInterval : IDLE_CHECK_INTERVAL;
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "distributed-crawl-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushCounters, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flushCounters();
+        }
+    }
+
+    public boolean isEnabled() {
+        return "distributed".equalsIgnoreCase(distribution);
+    }
+
+    /**
+     * Publica a URL base da tarefa. Uma mensagem da tarefa recebida de novo não publica nada,
+     * pois a URL base já está reservada.
+     */
+    public void seed(CrawlTask task) {
+        String url = webCrawlerService.canonicalize(task.getBaseUrl());
+        // Particionado, uma nova entrega publica a URL base de novo e o nó dono a descarta
+        if (!crawlMessageService.isPartitioned() && !crawlPersistenceService.claimUrl(task.getId(), url)) {
+            logger.info("Base URL already published for task {}, ignoring message", task.getId());
+            return;
+        }
+        crawlTaskRepository.addPendingUrls(task.getId(), 1);
+        try {
+            crawlMessageService.sendUrlMessage(new CrawlUrlMessage(task.getId(), task.getKeyword(),
+                    task.getBaseUrl(), url, 0, task.getBudget()));
+        } catch (RuntimeException e) {
+            // A URL base já está reservada: uma nova entrega da tarefa não a publicaria
+            logger.error("Error starting distributed crawl for task: {}", task.getId(), e);
+            crawlTaskRepository.addPendingUrls(task.getId(), -1);
+            crawlTaskRepository.finish(task.getId(), LocalDateTime.now());
+            return;
+        }
+        logger.info("Distributed crawl started for task {} from {}", task.getId(), url);
+    }
+
+    /**
+     * Processa uma mensagem de URL. Só uma falha ao ler a tarefa chega ao listener e devolve a
+     * mensagem à fila; depois disso a mensagem é descontada de {@code pending_urls} mesmo que
+     * a página falhe, pois uma nova entrega a descontaria de novo.
+     */
+    public void processUrl(CrawlUrlMessage message) {
+        String taskId = message.getTaskId();
+        NodeTask node = tasks.computeIfAbsent(taskId, id -> new NodeTask(id, offHeapVisitedUrls));
+        CrawlTaskEntity entity = node.entity(crawlTaskRepository, flushInterval);
+        if (entity == null || !"active".equals(entity.getStatus())) {
+            logger.debug("Task {} is no longer active, dropping URL {}", taskId, message.getUrl());
+            tasks.remove(taskId, node);
+            return;
+        }
+        node.maxBytes = message.getBudget().getMaxBytes();
+        if (crawlMessageService.isPartitioned() && !node.shard().add(message.getUrl())) {
+            logger.debug("URL already processed by this node for task {}: {}", taskId, message.getUrl());
+            complete(node);
+            return;
+        }
+
+        try {
+            if (!isStopped(entity) && withinDuration(message, node, entity)) {
+                crawl(message, node);
+            }
+        } catch (Exception e) {
+            logger.error("Error processing URL {} for task {}", message.getUrl(), taskId, e);
+        } finally {
+            complete(node);
+        }
+    }
+
+    private void crawl(CrawlUrlMessage message, NodeTask node) {
+        String taskId = message.getTaskId();
+        String url = message.getUrl();
+        CrawlBudget budget = message.getBudget();
+
+        if (!reservePage(node)) {
+            stop(node, CrawlTask.STOP_MAX_PAGES);
+            return;
+        }
+        if (crawlMessageService.isPartitioned()) {
+            // Sem reserva no banco a URL visitada é registrada pelo buffer, em lotes
+            crawlPersistenceService.saveVisitedUrl(taskId, url);
+        }
+
+        ScannedPage page = webCrawlerService.scanPage(url, message.getKeyword(), UrlScope.of(message.getBaseUrl()));
+        if (page == null) {
+            return;
+        }
+        if (page.isFound()) {
+            Integer maxResults = budget.getMaxResults();
+            if (crawlTaskRepository.reserveResult(taskId, maxResults != null ? maxResults : Integer.MAX_VALUE) > 0) {
+                crawlPersistenceService.saveFoundUrl(taskId, url);
+                logger.info("Found keyword '{}' in URL: {}", message.getKeyword(), url);
+                if (maxResults != null && crawlTaskRepository.stopAtResults(taskId, maxResults) > 0) {
+                    node.stopped(CrawlTask.STOP_MAX_RESULTS);
+                    logger.info("Crawl for task {} stopped by budget: {}", taskId, CrawlTask.STOP_MAX_RESULTS);
+                    return;
+                }
+            }
+        }
+        node.bytes.addAndGet(page.getBytes());
+        if (flushInterval <= 0 && flushBytes(node)) {
+            return;
+        }
+
+        // A URL canônica declarada pela página fica coberta por esta visita; particionado, ela
+        // pode pertencer a outro nó e é buscada pelo dono
+        if (page.getCanonicalUrl() != null && !crawlMessageService.isPartitioned()
+                && node.sent.add(page.getCanonicalUrl())) {
+            crawlPersistenceService.claimUrl(taskId, page.getCanonicalUrl());
+        }
+        publishLinks(message, node, page.getLinks());
+    }
+
+    /**
+     * Reserva uma página do limite, de um bloco já reservado por este nó ou de um novo. Perto
+     * do limite, quando o bloco não cabe, reserva uma página por vez; como as páginas de um
+     * bloco só voltam na gravação seguinte, a tarefa pode parar por {@code max_pages} com até
+     * {@code page-lease - 1} páginas por nó ainda não visitadas.
+     */
+    private boolean reservePage(NodeTask node) {
+        if (node.takeLeasedPage()) {
+            return true;
+        }
+        if (pageLease > 1 && flushInterval > 0 && crawlTaskRepository.reservePages(node.taskId, pageLease, maxPages) > 0) {
+            node.lease(pageLease - 1);
+            return true;
+        }
+        return crawlTaskRepository.reservePage(node.taskId, maxPages) > 0;
+    }
+
+    /**
+     * Publica os links que esta mensagem conseguiu reservar ou, particionado, todos os links,
+     * que o nó dono de cada um deduplica. Links já enviados por este nó são ignorados. O
+     * contador de pendentes sobe antes do envio, para que nenhum nó veja zero enquanto os
+     * links ainda não estão na fila.
+     */
+    private void publishLinks(CrawlUrlMessage message, NodeTask node, List<String> links) {
+        String taskId = message.getTaskId();
+        if (links.isEmpty()) {
+            return;
+        }
+        if (!message.getBudget().allowsDepth(message.getDepth() + 1)) {
+            // Só conta como limitada pela profundidade se algum link ainda não passou por este nó
+            if (!node.depthLimited) {
+                for (String link : links) {
+                    if (!node.sent.contains(link)) {
+                        crawlTaskRepository.markDepthLimited(taskId);
+                        node.depthLimited = true;
+                        break;
+                    }
+                }
+            }
+            return;
+        }
+
+        List<CrawlUrlMessage> claimed = new ArrayList<>();
+        boolean partitioned = crawlMessageService.isPartitioned();
+        for (String link : links) {
+            if (!node.sent.add(link)) {
+                continue;
+            }
+            try {
+                if (partitioned || crawlPersistenceService.claimUrl(taskId, link)) {
+                    claimed.add(message.forLink(link));
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to claim URL {} for task {}: {}", link, taskId, e.getMessage());
+            }
+        }
+        if (claimed.isEmpty()) {
+            return;
+        }
+        crawlTaskRepository.addPendingUrls(taskId, claimed.size());
+        int failed = 0;
+        for (CrawlUrlMessage next : claimed) {
+            try {
+                crawlMessageService.sendUrlMessage(next);
+            } catch (RuntimeException e) {
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            crawlTaskRepository.addPendingUrls(taskId, -failed);
+        }
+        logger.debug("Published {} URLs for task {} from {}", claimed.size() - failed, taskId, message.getUrl());
+    }
+
+    /**
+     * Conta a mensagem como concluída; sem intervalo de gravação, grava na hora.
+     */
+    private void complete(NodeTask node) {
+        node.completed.incrementAndGet();
+        if (flushInterval <= 0) {
+            flush(node);
+        }
+    }
+
+    /**
+     * Grava os contadores acumulados de todas as tarefas deste nó.
+     */
+    public void flushCounters() {
+        for (NodeTask node : tasks.values()) {
+            flush(node);
+        }
+    }
+
+    /**
+     * Grava os contadores acumulados da tarefa e a conclui quando não resta nenhuma mensagem
+     * pendente. As URLs registradas pelas mensagens concluídas vão ao banco antes, para que a
+     * tarefa concluída as tenha. O que não foi gravado volta para o acumulado.
+     *
+     * O estado da tarefa sai do nó quando não resta mensagem pendente ou, sem nada a gravar,
+     * quando a tarefa já não está ativa, qualquer que seja o nó que a concluiu.
+     */
+    private void flush(NodeTask node) {
+        String taskId = node.taskId;
+        int leased = node.releaseLeases();
+        int completed = node.completed.getAndSet(0);
+        try {
+            if (leased > 0) {
+                crawlTaskRepository.releasePages(taskId, leased);
+                leased = 0;
+            }
+            flushBytes(node);
+            if (completed > 0) {
+                crawlPersistenceService.writePending(taskId);
+                crawlTaskRepository.addPendingUrls(taskId, -completed);
+                completed = 0;
+                node.unsettled = true;
+            }
+            if (!node.unsettled) {
+                CrawlTaskEntity entity = node.entity(crawlTaskRepository, flushInterval);
+                if (entity == null || !"active".equals(entity.getStatus())) {
+                    tasks.remove(taskId, node);
+                }
+                return;
+            }
+            Integer pending = crawlTaskRepository.findPendingUrls(taskId);
+            node.unsettled = false;
+            if (pending != null && pending <= 0) {
+                if (crawlTaskRepository.finish(taskId, LocalDateTime.now()) > 0) {
+                    crawlPersistenceService.flush(taskId);
+                    logger.info("Distributed crawl completed for task: {}", taskId);
+                }
+                tasks.remove(taskId, node);
+            }
+        } catch (Exception e) {
+            logger.error("Error saving counters for task {}", taskId, e);
+            node.completed.addAndGet(completed);
+            node.lease(leased);
+        }
+    }
+
+    /**
+     * Grava os bytes baixados desde a última gravação e confere o limite de bytes.
+     * @return true se a tarefa parou pelo limite
+     */
+    private boolean flushBytes(NodeTask node) {
+        long bytes = node.bytes.getAndSet(0);
+        if (bytes == 0) {
+            return false;
+        }
+        try {
+            crawlTaskRepository.addBytesDownloaded(node.taskId, bytes);
+        } catch (RuntimeException e) {
+            node.bytes.addAndGet(bytes);
+            throw e;
+        }
+        Long maxBytes = node.maxBytes;
+        if (maxBytes != null && crawlTaskRepository.stopAtBytes(node.taskId, maxBytes) > 0) {
+            node.stopped(CrawlTask.STOP_MAX_BYTES);
+            logger.info("Crawl for task {} stopped by budget: {}", node.taskId, CrawlTask.STOP_MAX_BYTES);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean withinDuration(CrawlUrlMessage message, NodeTask node, CrawlTaskEntity entity) {
+        Long maxDuration = message.getBudget().getMaxDuration();
+        if (maxDuration == null || Duration.between(entity.getStartTime(), LocalDateTime.now()).toMillis() < maxDuration) {
+            return true;
+        }
+        stop(node, CrawlTask.STOP_MAX_DURATION);
+        return false;
+    }
+
+    private void stop(NodeTask node, String reason) {
+        if (crawlTaskRepository.stop(node.taskId, reason) > 0) {
+            logger.info("Crawl for task {} stopped by budget: {}", node.taskId, reason);
+        }
+        node.stopped(reason);
+    }
+
+    /**
+     * A tarefa foi encerrada por um limite: as mensagens restantes só são descontadas.
+     * {@code max_depth} não encerra a tarefa.
+     */
+    private static boolean isStopped(CrawlTaskEntity entity) {
+        return entity.getStopReason() != null && !CrawlTask.STOP_MAX_DEPTH.equals(entity.getStopReason());
+    }
+
+    /**
+     * Estado de uma tarefa neste nó: a linha da tarefa relida a cada intervalo de gravação,
+     * os contadores ainda não gravados, as páginas reservadas e não usadas, a parte das URLs
+     * visitadas que pertence ao nó no particionamento por hash e os links já enviados.
+     */
+    private static final class NodeTask {
+
+        final String taskId;
+        final boolean offHeap;
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+        final UrlFingerprintSet sent;
+        volatile Long maxBytes;
+        volatile boolean depthLimited;
+        // Mensagens descontadas de pending_urls sem que a conclusão da tarefa tenha sido conferida
+        volatile boolean unsettled;
+        private volatile UrlFingerprintSet shard;
+        private CrawlTaskEntity entity;
+        private long loadedAt;
+        private int leasedPages;
+
+        NodeTask(String taskId, boolean offHeap) {
+            this.taskId = taskId;
+            this.offHeap = offHeap;
+            this.sent = new UrlFingerprintSet(offHeap);
+        }
+
+        /**
+         * Linha da tarefa, relida do banco quando a cópia tem mais de {@code maxAgeMillis}.
+         * @return null se a tarefa não existe
+         */
+        synchronized CrawlTaskEntity entity(CrawlTaskRepository repository, long maxAgeMillis) {
+            long now = System.nanoTime();
+            if (entity == null || now - loadedAt >= TimeUnit.MILLISECONDS.toNanos(maxAgeMillis)) {
+                entity = repository.findById(taskId).orElse(null);
+                loadedAt = now;
+            }
+            return entity;
+        }
+
+        /**
+         * Registra na cópia o limite que encerrou a tarefa, sem esperar a próxima leitura.
+         */
+        synchronized void stopped(String reason) {
+            if (entity != null && !isStopped(entity)) {
+                entity.setStopReason(reason);
+            }
+        }
+
+        UrlFingerprintSet shard() {
+            UrlFingerprintSet current = shard;
+            if (current == null) {
+                synchronized (this) {
+                    if (shard == null) {
+                        shard = new UrlFingerprintSet(offHeap);
+                    }
+                    current = shard;
+                }
+            }
+            return current;
+        }
+
+        synchronized boolean takeLeasedPage() {
+            if (leasedPages == 0) {
+                return false;
+            }
+            leasedPages--;
+            return true;
+        }
+
+        synchronized void lease(int pages) {
+            leasedPages += pages;
+        }
+
+        synchronized int releaseLeases() {
+            int pages = leasedPages;
+            leasedPages = 0;
+            return pages;
+        }
+    }
+}
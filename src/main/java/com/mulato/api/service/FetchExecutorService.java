@@ -0,0 +1,100 @@
+package com.mulato.api.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor compartilhado por todas as tarefas de crawling no modo {@code app.crawler.executor=virtual}.
+ *
+ * Nesse modo nenhuma thread espera a resposta de uma busca: o exame de cada página roda em
+ * sua própria virtual thread quando a busca termina, e um semáforo global
+ * ({@code app.crawler.max-in-flight}) limita quantas páginas ficam em andamento ao mesmo tempo
+ * somando todas as tarefas ativas. No modo {@code platform} (padrão) cada tarefa usa seu
+ * próprio pool de {@code app.crawler.parallelism} threads e este serviço não é utilizado.
+ */
+@Service
+public class FetchExecutorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FetchExecutorService.class);
+
+    public static final String MODE_PLATFORM = "platform";
+    public static final String MODE_VIRTUAL = "virtual";
+
+    @Value("${app.crawler.executor:platform}")
+    private String mode;
+
+    @Value("${app.crawler.max-in-flight:256}")
+    private int maxInFlight;
+
+    private ExecutorService executor;
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        if (isVirtual()) {
+            executor = newVirtualThreadExecutor();
+            permits = new Semaphore(Math.max(1, maxInFlight), true);
+            logger.info("Crawler fetch executor mode: virtual (max in-flight requests: {})", maxInFlight);
+        }
+    }
+
+    public boolean isVirtual() {
+        return MODE_VIRTUAL.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Reserva uma vaga no limite global de requisições simultâneas.
+     */
+    public void acquire() throws InterruptedException {
+        permits.acquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    public int availablePermits() {
+        return permits == null ? 0 : permits.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Virtual threads só existem a partir do Java 21; em versões anteriores o modo
+     * continua funcionando sobre um pool elástico de platform threads.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            logger.warn("Virtual threads are not available on Java {}, falling back to cached platform threads",
+                       Runtime.version().feature());
+            AtomicInteger threadCounter = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "crawler-fetch-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
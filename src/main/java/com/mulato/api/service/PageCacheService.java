@@ -0,0 +1,327 @@
+package com.mulato.api.service;
+
+import com.mulato.api.crawler.BodySink;
+import com.mulato.api.crawler.FetchedPage;
+import com.mulato.api.crawler.UrlCanonicalizer;
+import com.mulato.api.entity.PageValidatorEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Cache de páginas compartilhado por todas as tarefas de crawling, na frente do
+ * {@link PageFetcherService}.
+ *
+ * As entradas expiram após {@code app.crawler.cache.ttl} milissegundos e as menos usadas
+ * são descartadas quando o total de bytes passa de {@code app.crawler.cache.max-size}.
+ * Buscas simultâneas da mesma URL fazem uma única requisição (single-flight). Em todos os
+ * casos o sink de cada chamador recebe o corpo, para que a busca da palavra-chave funcione
+ * igual com ou sem o cache.
+ *
+ * Com {@code app.crawler.revalidate}, o que não está no cache é buscado de forma condicional
+ * a partir dos validadores guardados pelo {@link PageValidatorService}; uma resposta 304
+ * reaproveita o corpo guardado em vez de baixá-lo de novo. A consulta e a gravação dos
+ * validadores rodam em {@code app.crawler.validator-store.threads} threads próprias, sem
+ * ocupar a thread do crawler nem a thread que completa as respostas do HttpClient.
+ */
+@Service
+public class PageCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageCacheService.class);
+
+    // Custo aproximado de uma entrada além do corpo (chave, objetos e ponteiros do mapa)
+    private static final int ENTRY_OVERHEAD = 128;
+
+    @Value("${app.crawler.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.crawler.cache.ttl:600000}")
+    private long ttl;
+
+    @Value("${app.crawler.cache.max-size:64MB}")
+    private DataSize maxSize;
+
+    @Value("${app.crawler.revalidate:false}")
+    private boolean revalidate;
+
+    @Value("${app.crawler.validator-store.threads:2}")
+    private int validatorThreads = 2;
+
+    @Autowired
+    private PageFetcherService pageFetcherService;
+
+    @Autowired
+    private PageValidatorService pageValidatorService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Gravações de corpo entre duas podas da tabela de validadores
+    private static final int PRUNE_EVERY = 256;
+
+    // Em ordem de acesso, para descartar a entrada usada há mais tempo; protegido por synchronized
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ConcurrentMap<String, CompletableFuture<FetchedPage>> inFlight = new ConcurrentHashMap<>();
+    private long weight;
+
+    private ExecutorService validatorExecutor;
+    private final AtomicInteger validatorWrites = new AtomicInteger();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter shared;
+    private Counter sizeEvictions;
+    private Counter expiredEvictions;
+    private Counter notModified;
+    private Counter modified;
+
+    @PostConstruct
+    public void init() {
+        hits = requests("hit");
+        misses = requests("miss");
+        shared = requests("shared");
+        sizeEvictions = evictions("size");
+        expiredEvictions = evictions("expired");
+        notModified = revalidations("not-modified");
+        modified = revalidations("modified");
+        Gauge.builder("crawler.page.cache.entries", this, PageCacheService::size)
+                .description("Pages currently held in the page cache")
+                .register(meterRegistry);
+        Gauge.builder("crawler.page.cache.weight", this, PageCacheService::weight)
+                .description("Approximate bytes held in the page cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        validatorExecutor = Executors.newFixedThreadPool(Math.max(1, validatorThreads), runnable -> {
+            Thread thread = new Thread(runnable, "page-validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (enabled) {
+            logger.info("Page cache enabled (ttl: {} ms, max size: {})", ttl, maxSize);
+        }
+    }
+
+    /**
+     * Mesmo contrato de {@link PageFetcherService#fetchAsync(String, Function)}, servindo a
+     * página do cache quando possível.
+     */
+    public CompletableFuture<FetchedPage> fetchAsync(String url, Function<String, BodySink> sinkFactory) {
+        String key = cacheKey(url);
+        if (!enabled) {
+            return fetch(key, url, sinkFactory);
+        }
+
+        FetchedPage cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(replay(cached, sinkFactory));
+        }
+
+        CompletableFuture<FetchedPage> result = new CompletableFuture<>();
+        CompletableFuture<FetchedPage> leader = inFlight.putIfAbsent(key, result);
+        if (leader != null) {
+            shared.increment();
+            return leader.thenApply(page -> replay(page, sinkFactory));
+        }
+
+        // Outra thread pode ter guardado a página entre a consulta e a reserva
+        cached = lookup(key);
+        if (cached != null) {
+            inFlight.remove(key, result);
+            result.complete(cached);
+            hits.increment();
+            return result.thenApply(page -> replay(page, sinkFactory));
+        }
+
+        misses.increment();
+        fetch(key, url, sinkFactory).whenComplete((page, error) -> {
+            if (page != null && !page.isTruncated() && !page.isRedirect()) {
+                store(key, page);
+            }
+            inFlight.remove(key, result);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(page);
+            }
+        });
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (validatorExecutor != null) {
+            validatorExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Busca a página na rede, de forma condicional quando há validadores guardados.
+     */
+    private CompletableFuture<FetchedPage> fetch(String key, String url, Function<String, BodySink> sinkFactory) {
+        if (!revalidate) {
+            return pageFetcherService.fetchAsync(url, sinkFactory);
+        }
+
+        return CompletableFuture.supplyAsync(() -> pageValidatorService.find(key), validatorExecutor)
+                .thenCompose(stored -> {
+                    if (stored == null) {
+                        return pageFetcherService.fetchAsync(url, sinkFactory).thenApply(page -> {
+                            saveValidators(key, page);
+                            return page;
+                        });
+                    }
+                    return pageFetcherService.fetchAsync(url, sinkFactory, stored.getEtag(), stored.getLastModified())
+                            .thenApplyAsync(page -> {
+                                if (!page.isNotModified()) {
+                                    modified.increment();
+                                    saveValidators(key, page);
+                                    return page;
+                                }
+                                notModified.increment();
+                                logger.debug("Page not modified, reusing stored body: {}", url);
+                                pageValidatorService.markValidated(stored, page);
+                                return replay(PageValidatorService.toPage(url, stored), sinkFactory);
+                            }, validatorExecutor);
+                });
+    }
+
+    /**
+     * Grava os validadores da página sem esperar, podando a tabela a cada
+     * {@value #PRUNE_EVERY} corpos gravados.
+     */
+    private void saveValidators(String key, FetchedPage page) {
+        validatorExecutor.execute(() -> {
+            if (pageValidatorService.save(key, page) && validatorWrites.incrementAndGet() % PRUNE_EVERY == 0) {
+                pageValidatorService.prune();
+            }
+        });
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private synchronized FetchedPage lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.storedAt > ttl) {
+            remove(key, entry);
+            expiredEvictions.increment();
+            return null;
+        }
+        return entry.page;
+    }
+
+    private synchronized void store(String key, FetchedPage page) {
+        long maxWeight = maxSize.toBytes();
+        Entry entry = new Entry(page, System.currentTimeMillis());
+        if (entry.weight > maxWeight) {
+            return;
+        }
+
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entry.weight;
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            weight -= evicted.weight;
+            sizeEvictions.increment();
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        weight -= entry.weight;
+    }
+
+    private static FetchedPage replay(FetchedPage page, Function<String, BodySink> sinkFactory) {
+        if (page.isRedirect()) {
+            return page.replayed();
+        }
+        BodySink sink = sinkFactory.apply(page.getContentType());
+        if (sink != null) {
+            sink.accept(page.getBody(), 0, page.getBody().length);
+        }
+        return page.replayed();
+    }
+
+    /**
+     * Chave do cache: a forma canônica da URL, sem reordenar a query. URLs inválidas são
+     * usadas como estão.
+     */
+    static String cacheKey(String url) {
+        return UrlCanonicalizer.canonicalize(url, false);
+    }
+
+    private Counter requests(String result) {
+        return Counter.builder("crawler.page.cache.requests")
+                .description("Page cache lookups by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter evictions(String cause) {
+        return Counter.builder("crawler.page.cache.evictions")
+                .description("Pages removed from the page cache")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    private Counter revalidations(String result) {
+        return Counter.builder("crawler.page.revalidations")
+                .description("Conditional fetches by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class Entry {
+
+        private final FetchedPage page;
+        private final long storedAt;
+        private final long weight;
+
+        Entry(FetchedPage page, long storedAt) {
+            this.page = page;
+            this.storedAt = storedAt;
+            this.weight = page.getBody().length + 2L * page.getUrl().length() + ENTRY_OVERHEAD;
+        }
+    }
+}
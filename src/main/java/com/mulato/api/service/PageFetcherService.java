@@ -0,0 +1,640 @@
+package com.mulato.api.service;
+
+import com.mulato.api.config.HttpClientEnvironmentPostProcessor;
+import com.mulato.api.crawler.AdaptiveConcurrencyLimiter;
+import com.mulato.api.crawler.BodySink;
+import com.mulato.api.crawler.ContentDecoder;
+import com.mulato.api.crawler.FetchedPage;
+import com.mulato.api.crawler.HostRateLimiter;
+import com.mulato.api.crawler.HostRequestPermits;
+import com.mulato.api.crawler.PageFetchException;
+import com.mulato.api.crawler.UrlFingerprintSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+
+/**
+ * Camada de busca de páginas baseada em {@link HttpClient} assíncrono.
+ *
+ * Mantém um cliente compartilhado por host base (esquema, host e porta), reaproveitando
+ * conexões keep-alive entre as páginas e usando HTTP/2 quando o servidor oferece.
+ *
+ * As requisições a um mesmo host, somando todas as tarefas ativas, saem no máximo uma a cada
+ * {@code app.crawler.delay} ms em média, com rajadas de até {@code app.crawler.host-burst}.
+ * Uma requisição que precisa esperar é agendada para o seu horário, sem ocupar uma thread
+ * dormindo; páginas servidas pelo cache não passam por aqui e não esperam.
+ *
+ * Com {@code app.crawler.adaptive.enabled}, o número de requisições simultâneas a cada host
+ * segue um {@link AdaptiveConcurrencyLimiter}: cresce enquanto o p95 da latência e a taxa de
+ * erros ficam saudáveis e cai pela metade em timeouts, 429 e 5xx. O limite atual de cada host
+ * é publicado na métrica {@code crawler.fetch.concurrency.limit}.
+ *
+ * O corpo de cada resposta é lido até {@code app.crawler.max-body-bytes}: ao atingir o limite a
+ * leitura é cancelada e a página segue truncada para a busca da palavra-chave e dos links, sem
+ * que uma resposta enorme ocupe o heap. A página fica marcada em {@link FetchedPage#isTruncated()}
+ * e as respostas truncadas são contadas na métrica {@code crawler.fetch.truncated}.
+ *
+ * Respostas de erro HTTP e respostas cujo Content-Type não é HTML, XML ou texto são rejeitadas
+ * pelos cabeçalhos: o corpo não é lido e a conexão é fechada. A URL fica registrada e não é pedida de novo por
+ * nenhuma tarefa; essas respostas são contadas na métrica {@code crawler.fetch.non-html}.
+ *
+ * Com {@code app.crawler.compression} as requisições aceitam gzip e deflate, e o corpo é
+ * decodificado bloco a bloco à medida que chega, direto no array entregue ao sink; o limite de
+ * {@code app.crawler.max-body-bytes} vale para os bytes decodificados. Cada página informa os
+ * bytes que vieram da rede em {@link FetchedPage#getTransferredBytes()}.
+ *
+ * Com {@code app.crawler.connection-pool.max-per-host} maior que zero, cada host tem suas
+ * {@link HostRequestPermits}: no máximo essa quantidade de requisições abertas ao mesmo tempo,
+ * com as demais esperando na fila sem ocupar thread. A ocupação e a espera das vagas de cada
+ * host são publicadas nas métricas {@code crawler.http.host.permits.*}. O mesmo valor limita as
+ * conexões ociosas guardadas pelo cliente; ele, o tempo de keep-alive dessas conexões e o TTL
+ * do cache de DNS são propriedades da JVM, definidas na inicialização por
+ * {@link com.mulato.api.config.HttpClientEnvironmentPostProcessor}.
+ */
+@Service
+public class PageFetcherService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageFetcherService.class);
+
+    private static final String ACCEPT = "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+
+    private static final int NOT_MODIFIED = 304;
+
+    private static final int INITIAL_BODY_CAPACITY = 16 * 1024;
+    private static final int MAX_PRESIZED_BODY = 4 * 1024 * 1024;
+
+    @Value("${app.crawler.timeout:30000}")
+    private int timeout;
+
+    @Value("${app.crawler.user-agent:Web Crawler 1.0}")
+    private String userAgent;
+
+    @Value("${app.crawler.max-body-bytes:10MB}")
+    private DataSize maxBodyBytes = DataSize.ofMegabytes(10);
+
+    @Value("${app.crawler.compression:true}")
+    private boolean compression = true;
+
+    @Value("${app.crawler.connection-pool.max-per-host:" + HttpClientEnvironmentPostProcessor.DEFAULT_MAX_PER_HOST + "}")
+    private int maxRequestsPerHost;
+
+    @Value("${app.crawler.delay:100}")
+    private long delay;
+
+    @Value("${app.crawler.host-burst:1}")
+    private int hostBurst;
+
+    @Value("${app.crawler.adaptive.enabled:false}")
+    private boolean adaptive;
+
+    @Value("${app.crawler.adaptive.initial-limit:4}")
+    private int initialLimit;
+
+    @Value("${app.crawler.adaptive.min-limit:1}")
+    private int minLimit;
+
+    @Value("${app.crawler.adaptive.max-limit:64}")
+    private int maxLimit;
+
+    @Value("${app.crawler.adaptive.target-latency:2000}")
+    private long targetLatency;
+
+    @Value("${app.crawler.adaptive.max-error-rate:0.1}")
+    private double maxErrorRate;
+
+    @Value("${app.crawler.adaptive.backoff:0.5}")
+    private double backoff;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HostRateLimiter hostRateLimiter = new HostRateLimiter();
+
+    private final ConcurrentMap<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, HostRequestPermits> permits = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, HttpClient> clients = new ConcurrentHashMap<>();
+
+    // URLs que já responderam com um Content-Type não suportado
+    private final UrlFingerprintSet nonHtmlUrls = new UrlFingerprintSet();
+
+    /**
+     * Busca a página de forma assíncrona. O future falha com {@link PageFetchException}
+     * para respostas de erro HTTP ou conteúdo que não seja HTML/XML/texto.
+     */
+    public CompletableFuture<FetchedPage> fetchAsync(String url) {
+        return fetchAsync(url, contentType -> null);
+    }
+
+    /**
+     * Busca a página repassando cada bloco do corpo, à medida que chega, ao sink criado por
+     * {@code sinkFactory} a partir do Content-Type. O factory só é chamado para respostas que
+     * serão aceitas e pode retornar null quando o corpo não precisa ser acompanhado.
+     */
+    public CompletableFuture<FetchedPage> fetchAsync(String url, Function<String, BodySink> sinkFactory) {
+        return fetchAsync(url, sinkFactory, null, null);
+    }
+
+    /**
+     * Busca condicional: envia If-None-Match e If-Modified-Since com os validadores
+     * informados (qualquer um pode ser null). Se o servidor responder 304, o future completa
+     * com uma página vazia em que {@link FetchedPage#isNotModified()} é verdadeiro e o sink
+     * não é criado.
+     */
+    public CompletableFuture<FetchedPage> fetchAsync(String url, Function<String, BodySink> sinkFactory,
+                                                     String etag, String lastModified) {
+        if (nonHtmlUrls.contains(url)) {
+            return CompletableFuture.failedFuture(new PageFetchException("Known non-HTML URL skipped: " + url, -1));
+        }
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new PageFetchException("Invalid URL: " + url, e));
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(timeout))
+                .header("User-Agent", userAgent)
+                .header("Accept", ACCEPT)
+                .GET();
+        if (compression) {
+            request.header("Accept-Encoding", ContentDecoder.ACCEPT_ENCODING);
+        }
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+        boolean conditional = etag != null || lastModified != null;
+
+        HttpClient client = clientFor(uri);
+        HttpRequest built = request.build();
+        HttpResponse.BodyHandler<ResponseBody> bodyHandler = responseInfo -> bodySubscriber(url, responseInfo, sinkFactory);
+
+        String host = hostKey(uri);
+        Supplier<CompletableFuture<HttpResponse<ResponseBody>>> send = () -> client.sendAsync(built, bodyHandler);
+        // A vaga do host é reservada antes do intervalo entre requisições, para que a fila de
+        // vagas não solte várias requisições ao host de uma vez
+        CompletableFuture<HttpResponse<ResponseBody>> response = permitted(host,
+                () -> adaptive ? limited(host, send) : paced(host, send));
+        return response.thenApply(page -> toPage(url, page, conditional));
+    }
+
+    /**
+     * Envia dentro de uma vaga de requisição do host, devolvida quando a resposta termina.
+     */
+    private <T> CompletableFuture<T> permitted(String host, Supplier<CompletableFuture<T>> send) {
+        if (maxRequestsPerHost <= 0) {
+            return send.get();
+        }
+        HostRequestPermits hostPermits = permitsFor(host);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        hostPermits.acquire(() -> {
+            CompletableFuture<T> sent;
+            try {
+                sent = send.get();
+            } catch (RuntimeException e) {
+                sent = CompletableFuture.failedFuture(e);
+            }
+            sent.whenComplete((response, error) -> {
+                hostPermits.release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(response);
+                }
+            });
+        });
+        return result;
+    }
+
+    HostRequestPermits permitsFor(String host) {
+        return permits.computeIfAbsent(host, key -> {
+            Tags tags = Tags.of("host", key);
+            Timer wait = Timer.builder("crawler.http.host.permits.wait")
+                    .description("Time requests waited for a request permit to the host")
+                    .tags(tags)
+                    .register(meterRegistry);
+            HostRequestPermits hostPermits = new HostRequestPermits(maxRequestsPerHost,
+                    nanos -> wait.record(nanos, TimeUnit.NANOSECONDS));
+            Gauge.builder("crawler.http.host.permits.active", hostPermits, HostRequestPermits::active)
+                    .description("Request permits in use per host")
+                    .tags(tags)
+                    .register(meterRegistry);
+            Gauge.builder("crawler.http.host.permits.pending", hostPermits, HostRequestPermits::pending)
+                    .description("Requests waiting for a request permit per host")
+                    .tags(tags)
+                    .register(meterRegistry);
+            Gauge.builder("crawler.http.host.permits.saturation", hostPermits, HostRequestPermits::saturation)
+                    .description("Fraction of the request permits in use per host")
+                    .tags(tags)
+                    .register(meterRegistry);
+            return hostPermits;
+        });
+    }
+
+    /**
+     * Agenda o envio para o próximo horário livre do host.
+     */
+    private <T> CompletableFuture<T> paced(String host, Supplier<CompletableFuture<T>> send) {
+        long wait = hostRateLimiter.reserve(host, TimeUnit.MILLISECONDS.toNanos(delay), hostBurst);
+        if (wait == 0) {
+            return send.get();
+        }
+        Executor scheduled = CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS);
+        return CompletableFuture.runAsync(() -> { }, scheduled).thenCompose(ignored -> send.get());
+    }
+
+    /**
+     * Envia dentro de uma vaga do limite adaptativo do host. A latência medida vai do envio ao
+     * fim do corpo, sem a espera na fila nem o intervalo entre requisições.
+     */
+    private CompletableFuture<HttpResponse<ResponseBody>> limited(String host,
+                                                                  Supplier<CompletableFuture<HttpResponse<ResponseBody>>> send) {
+        AdaptiveConcurrencyLimiter limiter = limiterFor(host);
+        CompletableFuture<HttpResponse<ResponseBody>> result = new CompletableFuture<>();
+        limiter.acquire(() -> {
+            long[] startedAt = {System.nanoTime()};
+            CompletableFuture<HttpResponse<ResponseBody>> sent;
+            try {
+                sent = paced(host, () -> {
+                    startedAt[0] = System.nanoTime();
+                    return send.get();
+                });
+            } catch (RuntimeException e) {
+                sent = CompletableFuture.failedFuture(e);
+            }
+            sent.whenComplete((response, error) -> {
+                limiter.release(startedAt[0], System.nanoTime(), outcomeOf(response, error));
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(response);
+                }
+            });
+        });
+        return result;
+    }
+
+    AdaptiveConcurrencyLimiter limiterFor(String host) {
+        return limiters.computeIfAbsent(host, key -> {
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                    TimeUnit.MILLISECONDS.toNanos(targetLatency), maxErrorRate, backoff);
+            Gauge.builder("crawler.fetch.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::currentLimit)
+                    .description("Adaptive limit of concurrent requests per host")
+                    .tags(Tags.of("host", key))
+                    .register(meterRegistry);
+            Gauge.builder("crawler.fetch.in-flight", limiter, AdaptiveConcurrencyLimiter::inFlight)
+                    .description("Requests in flight per host")
+                    .tags(Tags.of("host", key))
+                    .register(meterRegistry);
+            return limiter;
+        });
+    }
+
+    /**
+     * Timeouts, 429 e 5xx indicam que o host está sobrecarregado; demais respostas HTTP, mesmo
+     * de erro, contam como sucesso.
+     */
+    static AdaptiveConcurrencyLimiter.Outcome outcomeOf(HttpResponse<?> response, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            return cause instanceof HttpTimeoutException
+                    ? AdaptiveConcurrencyLimiter.Outcome.OVERLOAD : AdaptiveConcurrencyLimiter.Outcome.ERROR;
+        }
+        int status = response.statusCode();
+        return status == 429 || status >= 500
+                ? AdaptiveConcurrencyLimiter.Outcome.OVERLOAD : AdaptiveConcurrencyLimiter.Outcome.SUCCESS;
+    }
+
+    /**
+     * Cliente compartilhado para o host base da URL. Ele não segue redirecionamentos: o destino
+     * volta para o crawler, que o submete ao escopo da sessão, ao intervalo entre requisições e
+     * às vagas do seu host.
+     */
+    HttpClient clientFor(URI uri) {
+        return clients.computeIfAbsent(hostKey(uri), key -> {
+            logger.debug("Creating HTTP client for host: {}", key);
+            return HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .connectTimeout(Duration.ofMillis(timeout))
+                    .build();
+        });
+    }
+
+    private HttpResponse.BodySubscriber<ResponseBody> bodySubscriber(String url, HttpResponse.ResponseInfo responseInfo,
+                                                                     Function<String, BodySink> sinkFactory) {
+        String contentType = responseInfo.headers().firstValue("Content-Type").orElse(null);
+        int status = responseInfo.statusCode();
+        if (!isSuccess(status)) {
+            // Erros, redirecionamentos e 304 não são examinados: o corpo não é lido
+            return new DiscardingBodySubscriber();
+        }
+        if (contentType != null && !isSupportedContentType(contentType)) {
+            // O corpo seria descartado: a conexão é fechada sem lê-lo
+            nonHtml(url, contentType);
+            return new DiscardingBodySubscriber();
+        }
+        ContentDecoder decoder;
+        try {
+            decoder = ContentDecoder.forEncoding(responseInfo.headers().firstValue("Content-Encoding").orElse(null));
+        } catch (IllegalArgumentException e) {
+            // Sem como decodificar o corpo, a página é rejeitada em toPage
+            logger.debug("Skipping body of {}: {}", url, e.getMessage());
+            return new DiscardingBodySubscriber();
+        }
+        BodySink sink = sinkFactory.apply(contentType);
+
+        long limit = maxBodyBytes.toBytes();
+        // Comprimido, o Content-Length não diz o tamanho do corpo decodificado
+        long contentLength = decoder == null
+                ? responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1) : -1;
+        int capacity = contentLength > 0 && contentLength <= MAX_PRESIZED_BODY
+                ? (int) contentLength : INITIAL_BODY_CAPACITY;
+        return new StreamingBodySubscriber(sink, decoder, (int) Math.min(capacity, limit), limit,
+                () -> truncated(url, limit));
+    }
+
+    private void nonHtml(String url, String contentType) {
+        nonHtmlUrls.add(url);
+        logger.debug("Skipping body of {} with content type {}", url, contentType);
+        Counter.builder("crawler.fetch.non-html")
+                .description("Responses rejected by Content-Type before reading the body")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void truncated(String url, long limit) {
+        logger.debug("Response body of {} truncated at {} bytes", url, limit);
+        Counter.builder("crawler.fetch.truncated")
+                .description("Responses whose body was cut at app.crawler.max-body-bytes")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static boolean isSuccess(int status) {
+        return status >= 200 && status < 300;
+    }
+
+    private FetchedPage toPage(String url, HttpResponse<ResponseBody> response, boolean conditional) {
+        int status = response.statusCode();
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        if (status == NOT_MODIFIED && conditional) {
+            return new FetchedPage(url, response.uri().toString(), status, null, new byte[0], etag, lastModified);
+        }
+        Optional<String> location = response.headers().firstValue("Location");
+        if (status >= 300 && status < 400 && status != NOT_MODIFIED && location.isPresent()) {
+            return FetchedPage.redirect(url, status, location.get());
+        }
+        if (!isSuccess(status)) {
+            throw new CompletionException(new PageFetchException(
+                    "HTTP error fetching URL. Status=" + status, status));
+        }
+
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        if (contentType != null && !isSupportedContentType(contentType)) {
+            throw new CompletionException(new PageFetchException(
+                    "Unhandled content type: " + contentType, status));
+        }
+        String contentEncoding = response.headers().firstValue("Content-Encoding").orElse(null);
+        if (!ContentDecoder.isSupported(contentEncoding)) {
+            throw new CompletionException(new PageFetchException(
+                    "Unsupported content encoding: " + contentEncoding, status));
+        }
+
+        ResponseBody body = response.body();
+        return new FetchedPage(url, response.uri().toString(), status, contentType, body.bytes,
+                etag, lastModified, body.transferred, body.truncated);
+    }
+
+    /**
+     * Mesmos tipos aceitos pelo jsoup: texto, HTML e XML.
+     */
+    private boolean isSupportedContentType(String contentType) {
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/")
+                || type.startsWith("application/xml")
+                || type.startsWith("application/xhtml+xml")
+                || (type.startsWith("application/") && type.contains("+xml"));
+    }
+
+    private static String hostKey(URI uri) {
+        String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase(Locale.ROOT);
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+        int port = uri.getPort() != -1 ? uri.getPort() : ("https".equals(scheme) ? 443 : 80);
+        return scheme + "://" + host + ":" + port;
+    }
+
+    /**
+     * Corpo da resposta, já decodificado, e os bytes que vieram da rede para ele.
+     */
+    private static final class ResponseBody {
+
+        private static final ResponseBody EMPTY = new ResponseBody(new byte[0], 0, false);
+
+        final byte[] bytes;
+        final long transferred;
+        final boolean truncated;
+
+        ResponseBody(byte[] bytes, long transferred, boolean truncated) {
+            this.bytes = bytes;
+            this.transferred = transferred;
+            this.truncated = truncated;
+        }
+    }
+
+    /**
+     * Acumula o corpo da resposta e entrega cada bloco ao sink sem cópias extras: o sink lê
+     * diretamente do array onde o corpo está sendo montado. Com um {@link ContentDecoder}, os
+     * blocos comprimidos são decodificados direto nesse array, sem guardar o corpo comprimido.
+     * Ao chegar a {@code limit} bytes a assinatura é cancelada e o corpo lido até ali é o
+     * resultado.
+     */
+    private static final class StreamingBodySubscriber implements HttpResponse.BodySubscriber<ResponseBody> {
+
+        private final BodySink sink;
+        private final ContentDecoder decoder;
+        private final long limit;
+        private final Runnable onTruncated;
+        private final CompletableFuture<ResponseBody> result = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private byte[] body;
+        private int size;
+        private long transferred;
+        private boolean truncated;
+
+        StreamingBodySubscriber(BodySink sink, ContentDecoder decoder, int capacity, long limit, Runnable onTruncated) {
+            this.sink = sink;
+            this.decoder = decoder;
+            this.limit = limit;
+            this.onTruncated = onTruncated;
+            this.body = new byte[capacity];
+        }
+
+        @Override
+        public CompletableFuture<ResponseBody> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    transferred += buffer.remaining();
+                    truncated = decoder == null ? copy(buffer) : decode(buffer);
+                    if (truncated) {
+                        subscription.cancel();
+                        onTruncated.run();
+                        onComplete();
+                        return;
+                    }
+                }
+            } catch (RuntimeException | DataFormatException e) {
+                subscription.cancel();
+                end();
+                result.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Copia o bloco para o corpo.
+         * @return o bloco passou do limite e o corpo foi truncado
+         */
+        private boolean copy(ByteBuffer buffer) {
+            int length = (int) Math.min(buffer.remaining(), limit - size);
+            boolean truncated = length < buffer.remaining();
+            if (size + length > body.length) {
+                body = Arrays.copyOf(body, (int) Math.min(Math.max(body.length * 2L, size + length), limit));
+            }
+            buffer.get(body, size, length);
+            append(length);
+            return truncated;
+        }
+
+        /**
+         * Decodifica o bloco para o corpo até consumi-lo.
+         * @return o corpo decodificado chegou ao limite antes do fim e foi truncado
+         */
+        private boolean decode(ByteBuffer buffer) throws DataFormatException {
+            decoder.setInput(buffer);
+            while (true) {
+                if (size == limit) {
+                    return !decoder.isFinished();
+                }
+                if (size == body.length) {
+                    body = Arrays.copyOf(body, (int) Math.min(body.length * 2L, limit));
+                }
+                int length = decoder.decode(body, size, body.length - size);
+                if (length == 0) {
+                    return false;
+                }
+                append(length);
+            }
+        }
+
+        private void append(int length) {
+            if (sink != null) {
+                sink.accept(body, size, length);
+            }
+            size += length;
+        }
+
+        private void end() {
+            if (decoder != null) {
+                decoder.end();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            end();
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            end();
+            result.complete(new ResponseBody(size == body.length ? body : Arrays.copyOf(body, size),
+                    transferred, truncated));
+        }
+    }
+
+    /**
+     * Cancela a assinatura assim que ela começa, sem pedir nenhum bloco do corpo, e completa
+     * com um corpo vazio.
+     */
+    private static final class DiscardingBodySubscriber implements HttpResponse.BodySubscriber<ResponseBody> {
+
+        private final CompletableFuture<ResponseBody> result = new CompletableFuture<>();
+
+        @Override
+        public CompletableFuture<ResponseBody> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.cancel();
+            result.complete(ResponseBody.EMPTY);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.complete(ResponseBody.EMPTY);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(ResponseBody.EMPTY);
+        }
+    }
+}
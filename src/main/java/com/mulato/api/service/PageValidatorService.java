@@ -0,0 +1,141 @@
+package com.mulato.api.service;
+
+import com.mulato.api.crawler.FetchedPage;
+import com.mulato.api.entity.PageValidatorEntity;
+import com.mulato.api.repository.PageValidatorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Guarda o ETag, o Last-Modified e o último corpo de cada página para que buscas
+ * seguintes sejam condicionais: uma resposta 304 reaproveita o corpo guardado.
+ *
+ * A tabela é limitada: páginas maiores que {@code app.crawler.validator-store.max-body-size}
+ * não são guardadas, e {@link #prune()} mantém só as
+ * {@code app.crawler.validator-store.max-entries} páginas validadas mais recentemente.
+ */
+@Service
+public class PageValidatorService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PageValidatorService.class);
+    
+    @Value("${app.crawler.validator-store.max-body-size:256KB}")
+    private DataSize maxBodySize = DataSize.ofKilobytes(256);
+    
+    @Value("${app.crawler.validator-store.max-entries:10000}")
+    private int maxEntries = 10000;
+    
+    @Autowired
+    private PageValidatorRepository pageValidatorRepository;
+    
+    /**
+     * Validadores guardados para a URL, ou null se a página nunca foi guardada.
+     */
+    @Transactional(readOnly = true)
+    public PageValidatorEntity find(String url) {
+        try {
+            return pageValidatorRepository.findByUrl(url).orElse(null);
+        } catch (Exception e) {
+            logger.error("Error loading validators for URL: {}", url, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Guarda os validadores e o corpo de uma resposta completa. Respostas sem ETag nem
+     * Last-Modified não podem ser revalidadas e são ignoradas, assim como as truncadas, cujo
+     * corpo não é a página inteira, e as maiores que o limite; o corpo só é regravado quando o
+     * digest mudou.
+     * @return um corpo foi gravado
+     */
+    @Transactional
+    public boolean save(String url, FetchedPage page) {
+        if ((page.getEtag() == null && page.getLastModified() == null) || page.isTruncated()
+                || page.getBody().length > maxBodySize.toBytes()) {
+            return false;
+        }
+        try {
+            PageValidatorEntity entity = pageValidatorRepository.findByUrl(url)
+                    .orElseGet(() -> new PageValidatorEntity(url));
+            LocalDateTime now = LocalDateTime.now();
+            String digest = digest(page.getBody());
+            if (entity.getId() != null && digest.equals(entity.getBodyDigest())) {
+                pageValidatorRepository.updateValidators(entity.getId(), page.getEtag(), page.getLastModified(), now);
+                return false;
+            }
+            entity.setFinalUrl(page.getFinalUrl());
+            entity.setContentType(page.getContentType());
+            entity.setEtag(page.getEtag());
+            entity.setLastModified(page.getLastModified());
+            entity.setBody(page.getBody());
+            entity.setBodyDigest(digest);
+            entity.setFetchedAt(now);
+            entity.setValidatedAt(now);
+            pageValidatorRepository.save(entity);
+            logger.debug("Saved validators for URL: {}", url);
+            return true;
+        } catch (Exception e) {
+            logger.error("Error saving validators for URL: {}", url, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Apaga as páginas validadas há mais tempo além das {@code max-entries} mais recentes.
+     */
+    @Transactional
+    public void prune() {
+        try {
+            List<LocalDateTime> cutoff = pageValidatorRepository.findValidatedAt(PageRequest.of(maxEntries, 1));
+            if (!cutoff.isEmpty()) {
+                int deleted = pageValidatorRepository.deleteValidatedBefore(cutoff.get(0));
+                logger.debug("Pruned {} stored pages validated before {}", deleted, cutoff.get(0));
+            }
+        } catch (Exception e) {
+            logger.error("Error pruning stored pages", e);
+        }
+    }
+    
+    /**
+     * Registra uma resposta 304, mantendo os validadores que o servidor não reenviou.
+     */
+    @Transactional
+    public void markValidated(PageValidatorEntity entity, FetchedPage notModified) {
+        try {
+            String etag = notModified.getEtag() != null ? notModified.getEtag() : entity.getEtag();
+            String lastModified = notModified.getLastModified() != null
+                    ? notModified.getLastModified() : entity.getLastModified();
+            pageValidatorRepository.updateValidators(entity.getId(), etag, lastModified, LocalDateTime.now());
+        } catch (Exception e) {
+            logger.error("Error updating validators for URL: {}", entity.getUrl(), e);
+        }
+    }
+    
+    /**
+     * Página equivalente à resposta guardada, para ser usada no lugar de um 304.
+     */
+    public static FetchedPage toPage(String url, PageValidatorEntity entity) {
+        return new FetchedPage(url, entity.getFinalUrl(), 200, entity.getContentType(), entity.getBody(),
+                entity.getEtag(), entity.getLastModified());
+    }
+    
+    static String digest(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
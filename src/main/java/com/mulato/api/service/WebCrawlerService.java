@@ -1,5 +1,16 @@
 package com.mulato.api.service;
 
+import com.mulato.api.crawler.BodySink;
+import com.mulato.api.crawler.CrawlFrontier;
+import com.mulato.api.crawler.CrawlSession;
+import com.mulato.api.crawler.FetchedPage;
+import com.mulato.api.crawler.LinkExtractor;
+import com.mulato.api.crawler.MultiKeywordMatcher;
+import com.mulato.api.crawler.ScannedPage;
+import com.mulato.api.crawler.UrlCanonicalizer;
+import com.mulato.api.crawler.UrlExtensionFilter;
+import com.mulato.api.crawler.UrlScope;
+import com.mulato.api.entity.CrawlCheckpointEntity;
 import com.mulato.api.model.CrawlTask;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -11,164 +22,674 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 @Service
 public class WebCrawlerService {
     
     private static final Logger logger = LoggerFactory.getLogger(WebCrawlerService.class);
     
-    @Value("${app.crawler.timeout:30000}")
-    private int timeout;
+    @Value("${app.crawler.max-pages:1000}")
+    private int maxPages;
     
-    @Value("${app.crawler.user-agent:Web Crawler 1.0}")
-    private String userAgent;
+    @Value("${app.crawler.parallelism:1}")
+    private int parallelism;
     
-    @Value("${app.crawler.delay:100}")
-    private int delay;
+    @Value("${app.crawler.coalesce:false}")
+    private boolean coalesce;
     
-    @Value("${app.crawler.max-pages:1000}")
-    private int maxPages;
+    // jsoup monta o DOM da página; streaming extrai os hrefs na mesma passada da busca da palavra-chave
+    @Value("${app.crawler.link-extractor:streaming}")
+    private String linkExtractor;
+    
+    @Value("${app.crawler.canonical.sort-query:false}")
+    private boolean sortQuery;
+    
+    // fifo percorre o site em largura; priority busca antes os links mais promissores para as palavras-chave
+    @Value("${app.crawler.frontier:fifo}")
+    private String frontierMode;
     
     @Autowired
     private CrawlPersistenceService crawlPersistenceService;
     
-    public void crawlWebsite(CrawlTask task) {
+    @Autowired
+    private FetchExecutorService fetchExecutorService;
+    
+    @Autowired
+    private PageCacheService pageCacheService;
+    
+    @Autowired
+    private CrawlCheckpointService crawlCheckpointService;
+    
+    // Sessões em andamento por URL base, usadas quando app.crawler.coalesce está ativo
+    private final ConcurrentMap<String, CrawlSession> sessions = new ConcurrentHashMap<>();
+    
+    /**
+     * Executa o crawling da tarefa até a fronteira esgotar ou um limite encerrar a tarefa. Uma
+     * tarefa com checkpoint é retomada dele.
+     * @return false se a thread foi interrompida e a tarefa continua ativa, para ser retomada
+     *         do checkpoint
+     */
+    public boolean crawlWebsite(CrawlTask task) {
         logger.info("Starting crawl for task: {}", task.getId());
+        task.startBudget();
         
-        BlockingQueue<String> urlQueue = new LinkedBlockingQueue<>();
-        urlQueue.offer(task.getBaseUrl());
+        // URLs já registradas no banco para a tarefa são carregadas uma única vez; daqui em diante
+        // a memória responde se a URL foi visitada e o banco fica só como registro durável
+        CrawlCheckpointEntity checkpoint = crawlCheckpointService.load(task.getId());
+        if (checkpoint != null) {
+            crawlCheckpointService.restoreTask(task, checkpoint);
+            logger.info("Resuming task {} from checkpoint of {} - Pages processed: {}, URLs in frontier: {}",
+                       task.getId(), checkpoint.getCheckpointAt(), checkpoint.getSession().getPagesProcessed(),
+                       checkpoint.getSession().getFrontierSize());
+        } else {
+            for (String visitedUrl : crawlPersistenceService.getVisitedUrls(task.getId())) {
+                task.markUrlAsVisited(visitedUrl);
+            }
+        }
         
-        int pagesProcessed = 0;
+        // A fronteira, as URLs visitadas e o registro de sessões usam a forma canônica das URLs
+        CrawlSession session = new CrawlSession(task, canonicalize(task.getBaseUrl()),
+                                                "priority".equalsIgnoreCase(frontierMode), coalesce);
+        CrawlSession running = coalesce ? attachToRunningSession(session, task) : null;
         
-        while (!urlQueue.isEmpty() && task.isActive() && pagesProcessed < maxPages) {
+        if (running != null) {
+            logger.info("Task {} attached to running crawl session {} for {}",
+                       task.getId(), running.getId(), running.getBaseUrl());
+            if (checkpoint != null) {
+                crawlCheckpointService.restoreFrontier(running, checkpoint, false);
+            }
             try {
-                String url = urlQueue.poll(1, TimeUnit.SECONDS);
-                if (url == null) continue;
-                
-                // Verifica se URL já foi visitada (no banco ou na memória)
-                if (task.isUrlVisited(url) || crawlPersistenceService.isUrlVisited(task.getId(), url)) {
-                    continue;
+                // A tarefa anexada deixa a sessão ao atingir a sua duração máxima
+                boolean finished = false;
+                while (!finished && task.checkBudget()) {
+                    finished = running.awaitFinished(100, TimeUnit.MILLISECONDS);
                 }
-                
-                task.markUrlAsVisited(url);
-                crawlPersistenceService.saveVisitedUrl(task.getId(), url);
-                pagesProcessed++;
-                
-                Document doc = fetchDocument(url);
-                if (doc != null) {
-                    // Verifica se o conteúdo contém a palavra-chave
-                    if (containsKeyword(doc.html(), task.getKeyword())) {
-                        task.addFoundUrl(url);
-                        crawlPersistenceService.saveFoundUrl(task.getId(), url);
-                        logger.info("Found keyword '{}' in URL: {}", task.getKeyword(), url);
-                    }
-                    
-                    // Extrai links para processar
-                    Elements links = doc.select("a[href]");
-                    for (Element link : links) {
-                        String href = link.attr("href");
-                        String absoluteUrl = resolveUrl(url, href);
-                        
-                        if (absoluteUrl != null && 
-                            isSameBaseUrl(absoluteUrl, task.getBaseUrl()) &&
-                            !task.isUrlVisited(absoluteUrl) &&
-                            !crawlPersistenceService.isUrlVisited(task.getId(), absoluteUrl)) {
-                            urlQueue.offer(absoluteUrl);
-                        }
-                    }
-                }
-                
-                // Delay entre requisições
-                Thread.sleep(delay);
-                
             } catch (InterruptedException e) {
                 logger.warn("Crawl task interrupted: {}", task.getId());
                 Thread.currentThread().interrupt();
-                break;
-            } catch (Exception e) {
-                logger.error("Error processing URL in task {}: {}", task.getId(), e.getMessage());
             }
+        } else {
+            if (checkpoint != null) {
+                crawlCheckpointService.restoreFrontier(session, checkpoint, true);
+            }
+            crawlCheckpointService.register(session);
+            try {
+                runSession(session);
+            } finally {
+                if (Thread.currentThread().isInterrupted()) {
+                    crawlCheckpointService.checkpoint(session);
+                }
+                crawlCheckpointService.unregister(session);
+                session.forceClose();
+                sessions.remove(session.getBaseUrl(), session);
+                session.finish();
+            }
+        }
+        
+        if (Thread.currentThread().isInterrupted() && task.isActive() && crawlCheckpointService.isEnabled()) {
+            logger.warn("Crawl for task {} interrupted, it stays active to resume from its checkpoint", task.getId());
+            return false;
         }
         
+        // Registra o limite que deixou páginas de fora, se nenhum outro encerrou a tarefa antes
+        if ((running != null ? running : session).isPageLimitReached()) {
+            task.stop(CrawlTask.STOP_MAX_PAGES);
+        } else if (task.isDepthLimited()) {
+            task.stop(CrawlTask.STOP_MAX_DEPTH);
+        }
         task.setActive(false);
-        logger.info("Crawl completed for task: {} - Pages processed: {}, URLs found: {}", 
-                   task.getId(), pagesProcessed, task.getFoundUrls().size());
+        if (task.getStopReason() != null) {
+            logger.info("Crawl for task {} stopped by budget: {}", task.getId(), task.getStopReason());
+        }
+        logger.info("Crawl completed for task: {} - Pages processed: {}, URLs found: {}, bytes: {} ({} transferred)", 
+                   task.getId(), task.getVisitedUrls().size(), task.getFoundUrls().size(),
+                   task.getBytesDownloaded(), task.getBytesTransferred());
+        return true;
     }
     
-    private Document fetchDocument(String url) {
-        try {
-            return Jsoup.connect(url)
-                    .timeout(timeout)
-                    .userAgent(userAgent)
-                    .get();
-        } catch (IOException e) {
-            logger.warn("Failed to fetch URL: {} - {}", url, e.getMessage());
-            return null;
+    /**
+     * Anexa a tarefa à sessão em andamento para a mesma URL base ou registra a sessão nova.
+     * @return a sessão em andamento, ou null se a sessão nova deve ser executada por esta thread
+     */
+    private CrawlSession attachToRunningSession(CrawlSession session, CrawlTask task) {
+        while (true) {
+            CrawlSession running = sessions.putIfAbsent(session.getBaseUrl(), session);
+            if (running == null) {
+                return null;
+            }
+            if (running.attach(task)) {
+                return running;
+            }
+            // A sessão encontrada já está encerrando; ela sai do registro e tentamos de novo
+            sessions.remove(session.getBaseUrl(), running);
         }
     }
     
-    private boolean containsKeyword(String content, String keyword) {
-        return content.toLowerCase().contains(keyword.toLowerCase());
+    /**
+     * Executa os workers até a fronteira esgotar. Uma tarefa anexada depois que os workers
+     * terminaram devolve URLs à fronteira, e nesse caso eles voltam a rodar.
+     */
+    private void runSession(CrawlSession session) {
+        int workers = Math.max(1, parallelism);
+        do {
+            if (fetchExecutorService.isVirtual()) {
+                runDispatcher(session);
+            } else if (workers == 1) {
+                runWorker(session);
+            } else {
+                runWorkers(session, workers);
+            }
+        } while (!Thread.currentThread().isInterrupted() && !session.close());
     }
     
-    private String resolveUrl(String baseUrl, String href) {
+    /**
+     * Executa N workers que compartilham a fronteira e o conjunto de URLs visitadas da sessão.
+     * O pool é exclusivo da sessão e encerrado ao final do crawling.
+     */
+    private void runWorkers(CrawlSession session, int workers) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "crawler-" + session.getId() + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
         try {
-            URI base = new URI(baseUrl);
-            URI resolved = base.resolve(href);
-            return resolved.toString();
-        } catch (URISyntaxException e) {
-            logger.warn("Failed to resolve URL: {} with href: {}", baseUrl, href);
-            return null;
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(pool.submit(() -> runWorker(session)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Crawl task interrupted: {}", session.getId());
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Crawl worker failed for task {}: {}", session.getId(), e.getCause().getMessage());
+        } finally {
+            pool.shutdownNow();
         }
     }
     
-    private boolean isSameBaseUrl(String url, String baseUrl) {
+    /**
+     * Modo virtual: esta thread apenas distribui as URLs e inicia as buscas, respeitando o
+     * limite global de requisições. Nenhuma thread espera a resposta; o exame de cada página
+     * roda numa thread do executor compartilhado quando a busca termina.
+     */
+    private void runDispatcher(CrawlSession session) {
+        CrawlFrontier frontier = session.getFrontier();
         try {
-            URI uri = new URI(url);
-            URI baseUri = new URI(baseUrl);
-            
-            String uriHost = uri.getHost();
-            String baseUriHost = baseUri.getHost();
-            String uriScheme = uri.getScheme();
-            String baseUriScheme = baseUri.getScheme();
-            
-            // Se qualquer host ou scheme for null, as URLs não são da mesma base
-            if (uriHost == null || baseUriHost == null || uriScheme == null || baseUriScheme == null) {
-                return false;
+            while (!frontier.isExhausted() && session.isActive()) {
+                CrawlFrontier.Entry entry = frontier.nextEntry(100, TimeUnit.MILLISECONDS);
+                if (entry == null) continue;
+                
+                try {
+                    fetchExecutorService.acquire();
+                } catch (InterruptedException e) {
+                    frontier.done(entry);
+                    throw e;
+                }
+                
+                visitAsync(session, entry).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        logger.error("Error processing URL in task {}: {}", session.getId(), error.getMessage());
+                    }
+                    fetchExecutorService.release();
+                    frontier.done(entry);
+                });
             }
             
-            // Verifica se os hosts são iguais
-            if (!uriHost.equals(baseUriHost)) {
-                return false;
+            // Aguarda as páginas ainda em andamento antes de encerrar a tarefa
+            frontier.awaitIdle();
+        } catch (InterruptedException e) {
+            logger.warn("Crawl task interrupted: {}", session.getId());
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void runWorker(CrawlSession session) {
+        CrawlFrontier frontier = session.getFrontier();
+        while (!frontier.isExhausted() && session.isActive()) {
+            CrawlFrontier.Entry entry;
+            try {
+                entry = frontier.nextEntry(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                logger.warn("Crawl task interrupted: {}", session.getId());
+                Thread.currentThread().interrupt();
+                break;
             }
+            if (entry == null) continue;
             
-            // Verifica se os schemes são iguais
-            if (!uriScheme.equals(baseUriScheme)) {
+            if (!visit(session, entry)) {
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Processa a URL e a libera na fronteira ao final. O worker espera a página, e por isso
+     * {@code app.crawler.parallelism} é o limite de buscas simultâneas de cada tarefa.
+     * @return false se a thread foi interrompida
+     */
+    private boolean visit(CrawlSession session, CrawlFrontier.Entry entry) {
+        try {
+            // O intervalo entre requisições ao mesmo host é aplicado pelo PageFetcherService
+            processUrl(session, entry.getUrl(), entry.getDepth(), Runnable::run).join();
+            if (Thread.currentThread().isInterrupted()) {
+                logger.warn("Crawl task interrupted: {}", session.getId());
                 return false;
             }
+            return true;
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            logger.error("Error processing URL in task {}: {}", session.getId(), cause.getMessage());
+            return true;
+        } finally {
+            session.getFrontier().done(entry);
+        }
+    }
+    
+    /**
+     * Inicia a busca da URL sem esperar por ela; o exame da página roda no executor compartilhado.
+     */
+    private CompletableFuture<Void> visitAsync(CrawlSession session, CrawlFrontier.Entry entry) {
+        try {
+            return processUrl(session, entry.getUrl(), entry.getDepth(), fetchExecutorService::execute);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Processa uma URL da fronteira: busca a página, verifica as palavras-chave das tarefas
+     * que ainda não a cobriram e enfileira os links.
+     * @param depth distância em links da URL base
+     * @param executor onde a página é examinada quando a busca termina
+     * @return concluído depois do exame da página
+     */
+    private CompletableFuture<Void> processUrl(CrawlSession session, String url, int depth, Executor executor) {
+        // Reserva a URL; o limite de páginas vale só para páginas novas, já que vários workers disputam o contador
+        CrawlSession.Visit visit = session.claim(url, depth, maxPages);
+        if (visit == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        // Tarefas ativas, dentro da profundidade máxima, que ainda não visitaram a URL; a marcação em memória é atômica
+        List<CrawlTask> tasks = visit.getTasks();
+        List<Integer> pending = new ArrayList<>(tasks.size() - visit.getFrom());
+        for (int i = visit.getFrom(); i < tasks.size(); i++) {
+            CrawlTask task = tasks.get(i);
+            if (task.checkBudget() && task.getBudget().allowsDepth(visit.getDepth()) && task.markUrlAsVisited(url)) {
+                pending.add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            if (visit.isFirstVisit()) {
+                session.releasePage();
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        for (int index : pending) {
+            crawlPersistenceService.saveVisitedUrl(tasks.get(index).getId(), url);
+        }
+        
+        // As palavras-chave e os links são procurados nos bytes do corpo enquanto ele chega da rede
+        boolean streamLinks = !"jsoup".equalsIgnoreCase(linkExtractor);
+        AtomicReference<MultiKeywordMatcher.Scanner> scanner = new AtomicReference<>();
+        AtomicReference<LinkExtractor> extractor = new AtomicReference<>();
+        return fetchAndScan(url, visit.getMatcher(), streamLinks, session.isPrioritized(), scanner, extractor)
+                .thenAcceptAsync(page -> scanned(session, visit, pending, url, page, scanner.get(), extractor.get()),
+                                 executor);
+    }
+    
+    /**
+     * Registra nas tarefas pendentes as palavras-chave e os bytes da página buscada e
+     * enfileira os links.
+     * @param page a página, ou null se a busca falhou
+     */
+    private void scanned(CrawlSession session, CrawlSession.Visit visit, List<Integer> pending, String url,
+                         FetchedPage page, MultiKeywordMatcher.Scanner scanner, LinkExtractor extractor) {
+        List<CrawlTask> tasks = visit.getTasks();
+        if (page != null) {
+            // Verifica se o conteúdo contém a palavra-chave de cada tarefa
+            for (int index : pending) {
+                CrawlTask task = tasks.get(index);
+                if (scanner != null && scanner.isFound(index) && task.addFoundUrl(url)) {
+                    crawlPersistenceService.saveFoundUrl(task.getId(), url);
+                    logger.info("Found keyword '{}' in URL: {}", task.getKeyword(), url);
+                }
+                task.addBytesDownloaded(page.getBody().length);
+                task.addBytesTransferred(page.getTransferredBytes());
+            }
             
-            // Verifica as portas, considerando valores padrão (80 para HTTP, 443 para HTTPS)
-            int uriPort = uri.getPort() == -1 ? getDefaultPort(uriScheme) : uri.getPort();
-            int baseUriPort = baseUri.getPort() == -1 ? getDefaultPort(baseUriScheme) : baseUri.getPort();
+            // Na revisita para uma tarefa anexada depois, a sessão só devolve à fronteira os links
+            // já processados que ela ainda não cobriu
+            if (page.isRedirect()) {
+                enqueueRedirect(session, visit, url, page.getLocation());
+                return;
+            }
+            boolean matched = false;
+            for (int i = 0; i < tasks.size() && !matched; i++) {
+                matched = scanner != null && scanner.isFound(i);
+            }
+            enqueueLinks(session, visit, url, visit.getDepth(), matched, page, extractor);
+        }
+    }
+    
+    /**
+     * Enfileira o destino de um redirecionamento na profundidade da URL redirecionada, se ele
+     * está no escopo da sessão; a busca dele passa pelo intervalo e pelas vagas do seu host.
+     */
+    private void enqueueRedirect(CrawlSession session, CrawlSession.Visit visit, String url, String location) {
+        String target = redirectTarget(url, location, session.getScope());
+        if (target == null || !isPendingForAnyTask(visit.getTasks(), target)) {
+            return;
+        }
+        int priority = session.isPrioritized()
+                ? visit.getLinkPriority().score(target, null, visit.getDepth(), false) : 0;
+        session.enqueue(target, visit.getDepth(), priority);
+    }
+    
+    /**
+     * Forma canônica do destino do redirecionamento, ou null se ele está fora do escopo, é a
+     * própria URL ou tem extensão ignorada.
+     */
+    private String redirectTarget(String url, String location, UrlScope scope) {
+        URI base = toUri(url);
+        String target = base != null ? resolveUrl(base, location) : null;
+        if (target == null || target.equals(url) || !scope.contains(target) || UrlExtensionFilter.isSkipped(target)) {
+            logger.debug("Skipping redirect from {} to {}", url, location);
+            return null;
+        }
+        return target;
+    }
+    
+    /**
+     * Enfileira os links da página e, se ela declara uma URL canônica diferente, marca essa
+     * URL como já coberta pela visita. Na fronteira priorizada, cada link recebe a prioridade
+     * calculada com o seu texto, a URL, a profundidade e o resultado da página.
+     * @param matched a página contém a palavra-chave de alguma tarefa anexada
+     */
+    private void enqueueLinks(CrawlSession session, CrawlSession.Visit visit, String url, int depth,
+                              boolean matched, FetchedPage page, LinkExtractor extractor) {
+        boolean prioritized = session.isPrioritized();
+        PageLinks links = pageLinks(url, page, extractor, prioritized);
+        if (links == null) {
+            return;
+        }
+        List<String> hrefs = links.hrefs;
+        List<String> anchorTexts = links.anchorTexts;
+        URI linkBase = linkBase(url, links.baseHref);
+        if (linkBase == null) {
+            return;
+        }
+        
+        UrlScope scope = session.getScope();
+        if (links.canonicalHref != null) {
+            String canonicalUrl = resolveUrl(linkBase, links.canonicalHref);
+            if (canonicalUrl != null && !canonicalUrl.equals(url) && scope.contains(canonicalUrl)) {
+                session.alias(canonicalUrl, visit);
+            }
+        }
+        
+        // Links além da profundidade máxima de todas as tarefas não entram na fronteira
+        List<CrawlTask> tasks = visit.getTasks();
+        int linkDepth = depth + 1;
+        boolean withinDepth = false;
+        for (CrawlTask task : tasks) {
+            withinDepth |= task.getBudget().allowsDepth(linkDepth);
+        }
+        boolean depthLimitMarked = false;
+        
+        // Links relativos só ficam no escopo se a base de resolução estiver nele
+        boolean relativeInScope = scope.contains(linkBase.toString());
+        for (int i = 0; i < hrefs.size(); i++) {
+            String href = hrefs.get(i);
+            // Links de outros sites são descartados antes de montar qualquer URI
+            if (!scope.mayContain(href, relativeInScope)) {
+                continue;
+            }
+            String absoluteUrl = resolveUrl(linkBase, href);
             
-            return uriPort == baseUriPort;
+            if (absoluteUrl != null && 
+                scope.contains(absoluteUrl) &&
+                !UrlExtensionFilter.isSkipped(absoluteUrl) &&
+                isPendingForAnyTask(tasks, absoluteUrl)) {
+                if (!depthLimitMarked) {
+                    markDepthLimited(tasks, linkDepth);
+                    depthLimitMarked = true;
+                }
+                if (!withinDepth) {
+                    break;
+                }
+                int priority = prioritized ? visit.getLinkPriority().score(absoluteUrl,
+                        i < anchorTexts.size() ? anchorTexts.get(i) : null, linkDepth, matched) : 0;
+                session.enqueue(absoluteUrl, linkDepth, priority);
+            }
+        }
+    }
+    
+    /**
+     * Registra nas tarefas que não aceitam a profundidade que um link foi descartado.
+     */
+    private void markDepthLimited(List<CrawlTask> tasks, int depth) {
+        for (CrawlTask task : tasks) {
+            if (!task.getBudget().allowsDepth(depth)) {
+                task.markDepthLimited();
+            }
+        }
+    }
+    
+    /**
+     * Busca uma única página para uma tarefa, sem sessão nem fronteira local: no modo
+     * distribuído a fronteira é a fila de URLs e cada mensagem traz uma URL.
+     * @param scope escopo da URL base da tarefa
+     * @return a página examinada, com a URL canônica declarada e os links no escopo na forma
+     *         canônica, ou null se a busca falhou
+     */
+    ScannedPage scanPage(String url, String keyword, UrlScope scope) {
+        boolean streamLinks = !"jsoup".equalsIgnoreCase(linkExtractor);
+        AtomicReference<MultiKeywordMatcher.Scanner> scanner = new AtomicReference<>();
+        AtomicReference<LinkExtractor> extractor = new AtomicReference<>();
+        // O consumidor da fila espera a página; app.crawler.distributed.consumers limita as buscas do nó
+        FetchedPage page = fetchAndScan(url, MultiKeywordMatcher.compile(List.of(keyword)), streamLinks, false,
+                                        scanner, extractor).join();
+        if (page == null) {
+            return null;
+        }
+        if (page.isRedirect()) {
+            String target = redirectTarget(url, page.getLocation(), scope);
+            return new ScannedPage(url, false, 0, null, target != null ? List.of(target) : List.of());
+        }
+        boolean found = scanner.get() != null && scanner.get().isFound(0);
+        
+        Set<String> inScope = new LinkedHashSet<>();
+        String canonicalUrl = null;
+        PageLinks links = pageLinks(url, page, extractor.get(), false);
+        URI linkBase = links != null ? linkBase(url, links.baseHref) : null;
+        if (linkBase != null) {
+            if (links.canonicalHref != null) {
+                String resolved = resolveUrl(linkBase, links.canonicalHref);
+                if (resolved != null && !resolved.equals(url) && scope.contains(resolved)) {
+                    canonicalUrl = resolved;
+                }
+            }
+            boolean relativeInScope = scope.contains(linkBase.toString());
+            for (String href : links.hrefs) {
+                if (!scope.mayContain(href, relativeInScope)) {
+                    continue;
+                }
+                String absoluteUrl = resolveUrl(linkBase, href);
+                if (absoluteUrl != null && !absoluteUrl.equals(url) && scope.contains(absoluteUrl)
+                        && !UrlExtensionFilter.isSkipped(absoluteUrl)) {
+                    inScope.add(absoluteUrl);
+                }
+            }
+        }
+        return new ScannedPage(url, found, page.getBody().length, canonicalUrl, List.copyOf(inScope));
+    }
+    
+    /**
+     * Busca a página procurando as palavras-chave (e, com {@code streamLinks}, os links) nos
+     * bytes do corpo enquanto ele chega da rede.
+     */
+    private CompletableFuture<FetchedPage> fetchAndScan(String url, MultiKeywordMatcher matcher, boolean streamLinks, boolean anchorTexts,
+                                     AtomicReference<MultiKeywordMatcher.Scanner> scanner,
+                                     AtomicReference<LinkExtractor> extractor) {
+        return fetchPage(url, contentType -> {
+            String charset = FetchedPage.charsetOf(contentType);
+            MultiKeywordMatcher.Scanner pageScanner = matcher.newScanner(charset);
+            scanner.set(pageScanner);
+            if (!streamLinks || !LinkExtractor.supports(charset)) {
+                return pageScanner;
+            }
+            LinkExtractor pageLinks = new LinkExtractor(charset, anchorTexts);
+            extractor.set(pageLinks);
+            return pageScanner.andThen(pageLinks);
+        });
+    }
+    
+    /**
+     * Links da página, do extrator em streaming ou, sem ele, do DOM montado pelo jsoup.
+     * @return os links, ou null se a página não pôde ser analisada
+     */
+    private PageLinks pageLinks(String url, FetchedPage page, LinkExtractor extractor, boolean anchorTexts) {
+        if (extractor != null) {
+            return new PageLinks(extractor.getLinks(), extractor.getAnchorTexts(),
+                                 extractor.getBaseHref(), extractor.getCanonicalHref());
+        }
+        Document doc;
+        try {
+            doc = Jsoup.parse(new ByteArrayInputStream(page.getBody()), page.getCharset(), page.getFinalUrl());
+        } catch (IOException e) {
+            logger.warn("Failed to parse URL: {} - {}", url, e.getMessage());
+            return null;
+        }
+        
+        Elements links = doc.select("a[href]");
+        List<String> hrefs = new ArrayList<>(links.size());
+        List<String> texts = anchorTexts ? new ArrayList<>(links.size()) : List.of();
+        for (Element link : links) {
+            hrefs.add(link.attr("href"));
+            if (anchorTexts) {
+                texts.add(link.text());
+            }
+        }
+        Element base = doc.selectFirst("base[href]");
+        String canonicalHref = null;
+        for (Element link : doc.select("link[rel][href]")) {
+            if (Arrays.asList(link.attr("rel").toLowerCase(Locale.ROOT).split("\\s+")).contains("canonical")) {
+                canonicalHref = link.attr("href");
+                break;
+            }
+        }
+        return new PageLinks(hrefs, texts, base != null ? base.attr("href") : null, canonicalHref);
+    }
+    
+    /**
+     * Base de resolução dos links: a URL da página ou a do {@code <base href>}, analisada uma vez por página.
+     */
+    private URI linkBase(String url, String baseHref) {
+        URI linkBase = toUri(url);
+        if (linkBase != null && baseHref != null) {
+            linkBase = toUri(resolveUrl(linkBase, baseHref));
+        }
+        return linkBase;
+    }
+    
+    private boolean isPendingForAnyTask(List<CrawlTask> tasks, String url) {
+        for (CrawlTask task : tasks) {
+            if (!task.isUrlVisited(url)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Busca a página; uma busca que falha conclui com null.
+     */
+    private CompletableFuture<FetchedPage> fetchPage(String url, Function<String, BodySink> sinkFactory) {
+        return pageCacheService.fetchAsync(url, sinkFactory).exceptionally(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            logger.warn("Failed to fetch URL: {} - {}", url, cause.getMessage());
+            return null;
+        });
+    }
+    
+    /**
+     * Resolve o href contra a base já analisada e devolve a forma canônica da URL.
+     */
+    private String resolveUrl(URI base, String href) {
+        try {
+            return UrlCanonicalizer.canonicalizeUri(base.resolve(href), sortQuery);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Failed to resolve URL: {} with href: {}", base, href);
+            return null;
+        }
+    }
+    
+    private URI toUri(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            return new URI(url);
         } catch (URISyntaxException e) {
-            return false;
+            logger.warn("Failed to parse URL: {}", url);
+            return null;
         }
     }
     
+    String canonicalize(String url) {
+        return UrlCanonicalizer.canonicalize(url, sortQuery);
+    }
+    
+    private boolean isSameBaseUrl(String url, String baseUrl) {
+        // Mesmo esquema, host e porta (considerando 80 para HTTP e 443 para HTTPS)
+        return UrlScope.of(baseUrl).contains(url);
+    }
+    
     /**
-     * Retorna a porta padrão para um protocolo específico
-     * @param scheme O protocolo (http ou https)
-     * @return Porta padrão (80 para http, 443 para https)
+     * Links de uma página antes da resolução contra a URL base.
      */
-    private int getDefaultPort(String scheme) {
-        return "https".equalsIgnoreCase(scheme) ? 443 : 80;
+    private static final class PageLinks {
+        
+        private final List<String> hrefs;
+        private final List<String> anchorTexts;
+        private final String baseHref;
+        private final String canonicalHref;
+        
+        PageLinks(List<String> hrefs, List<String> anchorTexts, String baseHref, String canonicalHref) {
+            this.hrefs = hrefs;
+            this.anchorTexts = anchorTexts;
+            this.baseHref = baseHref;
+            this.canonicalHref = canonicalHref;
+        }
     }
 }
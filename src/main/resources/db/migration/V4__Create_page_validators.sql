@@ -0,0 +1,16 @@
+-- Validadores HTTP e último conteúdo de cada página, para revalidar com
+-- If-None-Match / If-Modified-Since em vez de baixar a página de novo
+CREATE TABLE page_validators (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    url VARCHAR(1000) NOT NULL,
+    final_url VARCHAR(1000) NOT NULL,
+    etag VARCHAR(255) NULL,
+    last_modified VARCHAR(64) NULL,
+    content_type VARCHAR(255) NULL,
+    body_digest VARCHAR(64) NOT NULL,
+    body BLOB NOT NULL,
+    fetched_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    validated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE UNIQUE INDEX unique_page_validators_url ON page_validators(url);
@@ -0,0 +1,3 @@
+-- Limite (max_pages, max_depth, max_bytes, max_duration ou max_results) que encerrou a tarefa
+-- antes de percorrer todo o site; nulo quando nenhum limite foi atingido
+ALTER TABLE crawl_tasks ADD COLUMN stop_reason VARCHAR(20) NULL;
@@ -0,0 +1,19 @@
+-- Último checkpoint de cada tarefa em andamento: fronteira (uma URL por linha, com
+-- profundidade e prioridade), contadores e limites, para retomar o crawling depois de
+-- um reinício do nó. A linha é removida quando a tarefa termina
+CREATE TABLE crawl_checkpoints (
+    task_id VARCHAR(8) PRIMARY KEY,
+    frontier CLOB NOT NULL,
+    frontier_size INT NOT NULL,
+    pages_processed INT NOT NULL,
+    bytes_downloaded BIGINT NOT NULL,
+    elapsed_ms BIGINT NOT NULL,
+    max_depth INT NULL,
+    max_bytes BIGINT NULL,
+    max_duration BIGINT NULL,
+    max_results INT NULL,
+    checkpoint_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (task_id) REFERENCES crawl_tasks(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_crawl_checkpoints_checkpoint_at ON crawl_checkpoints(checkpoint_at);
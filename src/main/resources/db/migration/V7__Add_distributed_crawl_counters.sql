@@ -0,0 +1,4 @@
+-- Contadores do modo distribuído, atualizados por todos os nós: mensagens de URL publicadas
+-- e ainda não processadas (a tarefa termina quando chega a zero) e bytes baixados
+ALTER TABLE crawl_tasks ADD COLUMN pending_urls INT NOT NULL DEFAULT 0;
+ALTER TABLE crawl_tasks ADD COLUMN bytes_downloaded BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,23 @@
+-- Fronteira de cada sessão de crawling em andamento, gravada uma vez para todas as tarefas
+-- anexadas à sessão; o id é o da tarefa que abriu a sessão. O checkpoint de cada tarefa
+-- fica só com os seus contadores e limites e aponta para a sessão
+CREATE TABLE crawl_session_checkpoints (
+    session_id VARCHAR(8) PRIMARY KEY,
+    frontier CLOB NOT NULL,
+    frontier_size INT NOT NULL,
+    pages_processed INT NOT NULL,
+    checkpoint_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO crawl_session_checkpoints (session_id, frontier, frontier_size, pages_processed, checkpoint_at)
+SELECT task_id, frontier, frontier_size, pages_processed, checkpoint_at FROM crawl_checkpoints;
+
+ALTER TABLE crawl_checkpoints ADD COLUMN session_id VARCHAR(8);
+UPDATE crawl_checkpoints SET session_id = task_id;
+ALTER TABLE crawl_checkpoints ALTER COLUMN session_id SET NOT NULL;
+ALTER TABLE crawl_checkpoints ADD FOREIGN KEY (session_id) REFERENCES crawl_session_checkpoints(session_id);
+ALTER TABLE crawl_checkpoints DROP COLUMN frontier;
+ALTER TABLE crawl_checkpoints DROP COLUMN frontier_size;
+ALTER TABLE crawl_checkpoints DROP COLUMN pages_processed;
+
+CREATE INDEX idx_crawl_checkpoints_session_id ON crawl_checkpoints(session_id);
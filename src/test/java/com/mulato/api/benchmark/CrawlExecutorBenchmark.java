@@ -0,0 +1,139 @@
+package com.mulato.api.benchmark;
+
+import com.mulato.api.model.CrawlTask;
+import com.mulato.api.service.CrawlCheckpointService;
+import com.mulato.api.service.CrawlPersistenceService;
+import com.mulato.api.service.FetchExecutorService;
+import com.mulato.api.service.PageCacheService;
+import com.mulato.api.service.PageFetcherService;
+import com.mulato.api.service.WebCrawlerService;
+import com.mulato.api.util.SyntheticSite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compara o modo de executor {@code platform} (pool fixo por tarefa) com o modo
+ * {@code virtual} (uma thread por busca de página + limite global) rodando várias
+ * buscas simultâneas contra o mesmo site sintético com latência fixa por página.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CrawlExecutorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CrawlExecutorBenchmark {
+
+    private static final int PAGES = 100;
+    private static final long LATENCY_MILLIS = 20;
+
+    @Param({"platform", "virtual"})
+    private String executor;
+
+    @Param({"1", "32"})
+    private int concurrentCrawls;
+
+    private SyntheticSite site;
+    private WebCrawlerService crawler;
+    private FetchExecutorService fetchExecutorService;
+    private ExecutorService listeners;
+    private final AtomicLong taskIds = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        site = new SyntheticSite(PAGES, 10, "security", LATENCY_MILLIS);
+
+        fetchExecutorService = new FetchExecutorService();
+        ReflectionTestUtils.setField(fetchExecutorService, "mode", executor);
+        ReflectionTestUtils.setField(fetchExecutorService, "maxInFlight", 128);
+        fetchExecutorService.init();
+
+        PageFetcherService pageFetcherService = new PageFetcherService();
+        ReflectionTestUtils.setField(pageFetcherService, "timeout", 5000);
+        ReflectionTestUtils.setField(pageFetcherService, "userAgent", "Benchmark Crawler");
+
+        // Sem cache: cada operação deve buscar o site de novo
+        PageCacheService pageCacheService = new PageCacheService();
+        ReflectionTestUtils.setField(pageCacheService, "enabled", false);
+        ReflectionTestUtils.setField(pageCacheService, "pageFetcherService", pageFetcherService);
+        ReflectionTestUtils.setField(pageCacheService, "meterRegistry", new SimpleMeterRegistry());
+        pageCacheService.init();
+
+        crawler = new WebCrawlerService();
+        ReflectionTestUtils.setField(crawler, "pageCacheService", pageCacheService);
+        ReflectionTestUtils.setField(crawler, "maxPages", PAGES);
+        ReflectionTestUtils.setField(crawler, "parallelism", 4);
+        ReflectionTestUtils.setField(crawler, "crawlPersistenceService", new InMemoryPersistence());
+        ReflectionTestUtils.setField(crawler, "fetchExecutorService", fetchExecutorService);
+        ReflectionTestUtils.setField(crawler, "crawlCheckpointService", new CrawlCheckpointService());
+
+        // Simula as threads do listener do RabbitMQ, uma por busca ativa
+        listeners = Executors.newFixedThreadPool(concurrentCrawls);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        listeners.shutdownNow();
+        fetchExecutorService.shutdown();
+        site.close();
+    }
+
+    @Benchmark
+    public int crawlSyntheticSite() throws Exception {
+        List<Future<Integer>> crawls = new ArrayList<>(concurrentCrawls);
+        for (int i = 0; i < concurrentCrawls; i++) {
+            CrawlTask task = new CrawlTask("b" + taskIds.incrementAndGet(), "security", site.baseUrl());
+            crawls.add(listeners.submit(() -> {
+                crawler.crawlWebsite(task);
+                return task.getFoundUrls().size();
+            }));
+        }
+        int found = 0;
+        for (Future<Integer> crawl : crawls) {
+            found += crawl.get();
+        }
+        return found;
+    }
+
+    /**
+     * Persistência sem banco: o benchmark mede apenas busca e processamento das páginas.
+     */
+    static class InMemoryPersistence extends CrawlPersistenceService {
+
+        @Override
+        public void saveFoundUrl(String taskId, String url) {
+        }
+
+        @Override
+        public void saveVisitedUrl(String taskId, String url) {
+        }
+
+        @Override
+        public List<String> getVisitedUrls(String taskId) {
+            return List.of();
+        }
+    }
+}
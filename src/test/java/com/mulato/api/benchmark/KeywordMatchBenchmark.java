@@ -0,0 +1,89 @@
+package com.mulato.api.benchmark;
+
+import com.mulato.api.crawler.KeywordMatcher;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a verificação antiga da palavra-chave ({@code doc.html().toLowerCase().contains})
+ * com o {@link KeywordMatcher} aplicado aos bytes do corpo em blocos de 16 KB, como o
+ * HttpClient os entrega. O parse do jsoup fica fora da medição nos dois casos, já que
+ * continua sendo feito para extrair os links.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=KeywordMatchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeywordMatchBenchmark {
+
+    private static final String KEYWORD = "security";
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    @Param({"16", "256"})
+    private int pageKb;
+
+    /**
+     * absent: o termo não aparece e a página inteira é percorrida;
+     * middle: o termo aparece na metade da página.
+     */
+    @Param({"absent", "middle"})
+    private String position;
+
+    private byte[] body;
+    private Document document;
+    private KeywordMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        StringBuilder html = new StringBuilder("<html><head><title>Benchmark</title></head><body>");
+        boolean keywordPending = "middle".equals(position);
+        int paragraphs = 0;
+        while (html.length() < pageKb * 1024) {
+            if (keywordPending && html.length() >= pageKb * 512) {
+                html.append("<p class=\"note\">Notes about SECURITY policies.</p>");
+                keywordPending = false;
+            }
+            html.append("<p class=\"text\">Lorem ipsum dolor sit amet, <a href=\"/page/")
+                    .append(paragraphs).append(".html\">consectetur</a> adipiscing elit, sed do")
+                    .append(" eiusmod tempor incididunt ut labore et dolore magna aliqua.</p>\n");
+            paragraphs++;
+        }
+        html.append("</body></html>");
+
+        body = html.toString().getBytes(StandardCharsets.UTF_8);
+        document = Jsoup.parse(html.toString(), "http://example.com/");
+        matcher = KeywordMatcher.compile(KEYWORD);
+    }
+
+    @Benchmark
+    public boolean documentToLowerCase() {
+        return document.html().toLowerCase().contains(KEYWORD.toLowerCase());
+    }
+
+    @Benchmark
+    public boolean streamingMatcher() {
+        KeywordMatcher.Scanner scanner = matcher.newScanner();
+        for (int offset = 0; offset < body.length && !scanner.isFound(); offset += CHUNK_SIZE) {
+            scanner.accept(body, offset, Math.min(CHUNK_SIZE, body.length - offset));
+        }
+        return scanner.isFound();
+    }
+}
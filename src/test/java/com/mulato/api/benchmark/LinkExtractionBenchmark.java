@@ -0,0 +1,101 @@
+package com.mulato.api.benchmark;
+
+import com.mulato.api.crawler.LinkExtractor;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a extração de links com jsoup ({@code Jsoup.parse} + {@code select("a[href]")}) com o
+ * {@link LinkExtractor}, que recebe o corpo em blocos de 16 KB como o HttpClient os entrega.
+ * A página imita uma página de documentação: parágrafos longos, blocos de código, uma tabela
+ * e um link a cada {@code textPerLink} bytes de texto.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=LinkExtractionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkExtractionBenchmark {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    @Param({"16", "256"})
+    private int pageKb;
+
+    @Param({"200", "2000"})
+    private int textPerLink;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head><title>Docs</title>")
+                .append("<base href=\"/docs/\"><style>pre { color: #333 }</style></head><body>");
+        int links = 0;
+        int sinceLink = 0;
+        while (html.length() < pageKb * 1024) {
+            int before = html.length();
+            switch (links % 3) {
+                case 0:
+                    html.append("<p class=\"text\">Lorem ipsum dolor sit amet, <em>consectetur</em> adipiscing")
+                            .append(" elit, sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.</p>\n");
+                    break;
+                case 1:
+                    html.append("<pre><code>for (int i = 0; i &lt; n; i++) { total += values[i]; }</code></pre>\n");
+                    break;
+                default:
+                    html.append("<table><tr><td>key</td><td>value</td></tr><tr><td>a</td><td>b</td></tr></table>\n");
+            }
+            sinceLink += html.length() - before;
+            if (sinceLink >= textPerLink) {
+                html.append("<a href=\"section/").append(links).append(".html?lang=pt&amp;v=2\">Section ")
+                        .append(links).append("</a>\n");
+                sinceLink = 0;
+            }
+            links++;
+        }
+        html.append("</body></html>");
+        body = html.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<String> jsoupDocument() throws IOException {
+        Document doc = Jsoup.parse(new ByteArrayInputStream(body), "UTF-8", "http://example.com/");
+        List<String> hrefs = new ArrayList<>();
+        for (Element link : doc.select("a[href]")) {
+            hrefs.add(link.attr("href"));
+        }
+        return hrefs;
+    }
+
+    @Benchmark
+    public List<String> streamingExtractor() {
+        LinkExtractor extractor = new LinkExtractor("UTF-8");
+        for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+            extractor.accept(body, offset, Math.min(CHUNK_SIZE, body.length - offset));
+        }
+        return extractor.getLinks();
+    }
+}
@@ -0,0 +1,148 @@
+package com.mulato.api.benchmark;
+
+import com.mulato.api.crawler.UrlCanonicalizer;
+import com.mulato.api.crawler.UrlScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a resolução e a verificação de escopo dos links de uma página como eram feitas no
+ * {@code WebCrawlerService} (a URL da página e a URL base analisadas de novo a cada link) com
+ * o {@link UrlScope}, que analisa a URL base uma vez e descarta links de outros sites antes de
+ * montar qualquer {@link URI}. A página tem 200 links: relativos, absolutos do mesmo site,
+ * de outros sites, "mailto:" e "javascript:", com {@code offSitePercent}% fora do escopo.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=LinkScopeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkScopeBenchmark {
+
+    private static final String BASE_URL = "https://docs.example.com/";
+    private static final String PAGE_URL = "https://docs.example.com/guide/getting-started.html";
+    private static final int LINKS = 200;
+
+    @Param({"10", "70"})
+    private int offSitePercent;
+
+    private List<String> hrefs;
+    private UrlScope scope;
+
+    @Setup
+    public void setUp() {
+        hrefs = new ArrayList<>(LINKS);
+        for (int i = 0; i < LINKS; i++) {
+            if (i % 10 < offSitePercent / 10) {
+                switch (i % 4) {
+                    case 0:
+                        hrefs.add("https://github.com/example/project/issues/" + i);
+                        break;
+                    case 1:
+                        hrefs.add("//cdn.example.net/assets/" + i + ".js");
+                        break;
+                    case 2:
+                        hrefs.add("mailto:team" + i + "@example.com");
+                        break;
+                    default:
+                        hrefs.add("javascript:void(" + i + ")");
+                }
+            } else {
+                switch (i % 3) {
+                    case 0:
+                        hrefs.add("../api/section-" + i + ".html?lang=pt");
+                        break;
+                    case 1:
+                        hrefs.add("https://docs.example.com/reference/" + i + "#top");
+                        break;
+                    default:
+                        hrefs.add("chapter-" + i + ".html");
+                }
+            }
+        }
+        scope = UrlScope.of(BASE_URL);
+    }
+
+    @Benchmark
+    public List<String> uriPerLink() {
+        List<String> accepted = new ArrayList<>();
+        for (String href : hrefs) {
+            String absoluteUrl = resolveUrl(PAGE_URL, href);
+            if (absoluteUrl != null && isSameBaseUrl(absoluteUrl, BASE_URL)) {
+                accepted.add(absoluteUrl);
+            }
+        }
+        return accepted;
+    }
+
+    @Benchmark
+    public List<String> urlScope() throws URISyntaxException {
+        List<String> accepted = new ArrayList<>();
+        URI linkBase = new URI(PAGE_URL);
+        boolean relativeInScope = scope.contains(PAGE_URL);
+        for (String href : hrefs) {
+            if (!scope.mayContain(href, relativeInScope)) {
+                continue;
+            }
+            String absoluteUrl = UrlCanonicalizer.canonicalizeUri(linkBase.resolve(href), false);
+            if (scope.contains(absoluteUrl)) {
+                accepted.add(absoluteUrl);
+            }
+        }
+        return accepted;
+    }
+
+    // Cópias dos métodos anteriores do WebCrawlerService
+
+    private static String resolveUrl(String baseUrl, String href) {
+        try {
+            URI base = new URI(baseUrl);
+            URI resolved = base.resolve(href);
+            return UrlCanonicalizer.canonicalize(resolved.toString(), false);
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isSameBaseUrl(String url, String baseUrl) {
+        try {
+            URI uri = new URI(url);
+            URI baseUri = new URI(baseUrl);
+            if (uri.getHost() == null || baseUri.getHost() == null
+                    || uri.getScheme() == null || baseUri.getScheme() == null) {
+                return false;
+            }
+            if (!uri.getHost().equalsIgnoreCase(baseUri.getHost())
+                    || !uri.getScheme().equalsIgnoreCase(baseUri.getScheme())) {
+                return false;
+            }
+            int uriPort = uri.getPort() == -1 ? defaultPort(uri.getScheme()) : uri.getPort();
+            int baseUriPort = baseUri.getPort() == -1 ? defaultPort(baseUri.getScheme()) : baseUri.getPort();
+            return uriPort == baseUriPort;
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    private static int defaultPort(String scheme) {
+        return "https".equalsIgnoreCase(scheme) ? 443 : 80;
+    }
+}
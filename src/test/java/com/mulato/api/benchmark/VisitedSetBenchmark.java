@@ -0,0 +1,119 @@
+package com.mulato.api.benchmark;
+
+import com.mulato.api.crawler.UrlFingerprintSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Compara o conjunto de URLs visitadas de uma tarefa como era ({@code ConcurrentHashMap<String,
+ * Boolean>}) com o {@link UrlFingerprintSet} no heap e fora dele. Antes das medições o conjunto
+ * recebe {@code urls} URLs criadas uma a uma, como o crawler as cria, e a memória retida por URL
+ * (heap mais buffers diretos, depois de um GC) é impressa no log da execução. O benchmark mede
+ * a consulta de URLs presentes e ausentes.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=VisitedSetBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class VisitedSetBenchmark {
+
+    private static final int SAMPLE = 4096;
+
+    @Param({"map", "fingerprint", "fingerprint-off-heap"})
+    private String storage;
+
+    @Param({"1000000"})
+    private int urls;
+
+    private Predicate<String> visited;
+    private String[] present;
+    private String[] absent;
+    private int next;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        long before = retainedBytes();
+        visited = fill(storage, urls);
+        long after = retainedBytes();
+        System.out.printf("%n%s: %d URLs, %.1f bytes/URL%n", storage, urls, (after - before) / (double) urls);
+
+        present = new String[SAMPLE];
+        absent = new String[SAMPLE];
+        for (int i = 0; i < SAMPLE; i++) {
+            present[i] = url(i * (urls / SAMPLE));
+            absent[i] = url(urls + i);
+        }
+    }
+
+    @Benchmark
+    public boolean containsPresent() {
+        return visited.test(present[next++ & (SAMPLE - 1)]);
+    }
+
+    @Benchmark
+    public boolean containsAbsent() {
+        return visited.test(absent[next++ & (SAMPLE - 1)]);
+    }
+
+    private static Predicate<String> fill(String storage, int urls) {
+        switch (storage) {
+            case "map": {
+                ConcurrentHashMap<String, Boolean> map = new ConcurrentHashMap<>();
+                for (int i = 0; i < urls; i++) {
+                    map.putIfAbsent(url(i), true);
+                }
+                return map::containsKey;
+            }
+            case "fingerprint":
+            case "fingerprint-off-heap": {
+                UrlFingerprintSet set = new UrlFingerprintSet(storage.endsWith("off-heap"));
+                for (int i = 0; i < urls; i++) {
+                    set.add(url(i));
+                }
+                return set::contains;
+            }
+            default:
+                throw new IllegalArgumentException(storage);
+        }
+    }
+
+    /**
+     * URL com o tamanho típico de uma página de documentação (cerca de 60 caracteres).
+     */
+    private static String url(int i) {
+        return "https://docs.example.com/section-" + (i % 1000) + "/page-" + i + ".html?lang=pt";
+    }
+
+    private static long retainedBytes() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        long bytes = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                bytes += pool.getMemoryUsed();
+            }
+        }
+        return bytes;
+    }
+}
@@ -16,7 +16,10 @@ import org.springframework.test.web.servlet.ResultMatcher;
 import java.util.Arrays;
 import java.util.Collections;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -61,7 +64,7 @@ public class ApiHttpControllerTest {
     public void testPostCrawl_DeveIniciarNovaBusca() throws Exception {
         // Arrange - usando exemplo exato do desafio
         String expectedId = "30vbllyb";  // ID de 8 caracteres conforme exemplo
-        when(crawlService.startCrawl("security")).thenReturn(expectedId);
+        when(crawlService.startCrawl(eq("security"), any())).thenReturn(expectedId);
 
         CrawlRequest request = new CrawlRequest("security");
 
@@ -144,7 +147,7 @@ public class ApiHttpControllerTest {
     @DisplayName("1a. POST /crawl - Deve validar Content-Type application/json")
     public void testPostCrawl_DeveValidarContentType() throws Exception {
         // Arrange
-        when(crawlService.startCrawl(anyString())).thenReturn("test1234");
+        when(crawlService.startCrawl(anyString(), any())).thenReturn("test1234");
         CrawlRequest request = new CrawlRequest("security");
 
         // Act & Assert
@@ -200,7 +203,7 @@ public class ApiHttpControllerTest {
     public void testRequisito2_DeveAceitarTermoNoLimiteMinimo() throws Exception {
         // Arrange
         String expectedId = "abcd1234";
-        when(crawlService.startCrawl("test")).thenReturn(expectedId);
+        when(crawlService.startCrawl(eq("test"), any())).thenReturn(expectedId);
         
         CrawlRequest request = new CrawlRequest("test"); // 4 caracteres - exatamente o mínimo
 
@@ -220,7 +223,7 @@ public class ApiHttpControllerTest {
         String expectedId = "wxyz9876";
         // 32 caracteres - exatamente o máximo
         String longKeyword = "abcdefghijklmnopqrstuvwxyzabcdef";
-        when(crawlService.startCrawl(longKeyword)).thenReturn(expectedId);
+        when(crawlService.startCrawl(eq(longKeyword), any())).thenReturn(expectedId);
         
         CrawlRequest request = new CrawlRequest(longKeyword);
 
@@ -237,9 +240,9 @@ public class ApiHttpControllerTest {
     @DisplayName("3. ID da busca - Deve ser um código alfanumérico de 8 caracteres")
     public void testRequisito3_IdDaBuscaAlfanumerico() throws Exception {
         // Arrange - Mock de serviço com diversos IDs para validação
-        when(crawlService.startCrawl("keyword1")).thenReturn("12345678");
-        when(crawlService.startCrawl("keyword2")).thenReturn("abcdefgh");
-        when(crawlService.startCrawl("keyword3")).thenReturn("a1b2c3d4");
+        when(crawlService.startCrawl(eq("keyword1"), any())).thenReturn("12345678");
+        when(crawlService.startCrawl(eq("keyword2"), any())).thenReturn("abcdefgh");
+        when(crawlService.startCrawl(eq("keyword3"), any())).thenReturn("a1b2c3d4");
 
         // Act & Assert - Testando múltiplos casos
         // ID com 8 dígitos
@@ -283,4 +286,66 @@ public class ApiHttpControllerTest {
                 .content("{}"))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    @DisplayName("1a. POST /crawl - Deve repassar os limites opcionais da busca")
+    public void testPostCrawl_DeveRepassarLimites() throws Exception {
+        // Arrange
+        when(crawlService.startCrawl(eq("security"), argThat(budget -> budget.getMaxDepth() == 3
+                && budget.getMaxBytes() == null && budget.getMaxDuration() == 60000L && budget.getMaxResults() == 10))).thenReturn("30vbllyb");
+
+        // Act & Assert
+        mockMvc.perform(post("/crawl")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"keyword\": \"security\", \"max_depth\": 3, \"max_duration\": 60000, \"max_results\": 10}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is("30vbllyb")));
+    }
+
+    @Test
+    @DisplayName("1a. POST /crawl - Deve rejeitar limites negativos")
+    public void testPostCrawl_DeveRejeitarLimitesInvalidos() throws Exception {
+        mockMvc.perform(post("/crawl")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"keyword\": \"security\", \"max_depth\": -1}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/crawl")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"keyword\": \"security\", \"max_bytes\": 0}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("1b. GET /crawl/{id} - Deve informar o limite que encerrou a busca")
+    public void testGetCrawl_DeveInformarLimiteAtingido() throws Exception {
+        // Arrange
+        when(crawlService.getCrawlResult("30vbllyb")).thenReturn(
+                new CrawlResult("30vbllyb", "done", Collections.emptyList(), "max_depth"));
+        when(crawlService.getCrawlResult("abcd1234")).thenReturn(
+                new CrawlResult("abcd1234", "done", Collections.emptyList()));
+
+        // Act & Assert
+        mockMvc.perform(get("/crawl/30vbllyb"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stop_reason", is("max_depth")))
+                .andExpect(jsonPath("$.truncated", is(false)));
+        mockMvc.perform(get("/crawl/abcd1234"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stop_reason").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("1b. GET /crawl/{id} - Deve indicar resultados truncados em max_results")
+    public void testGetCrawl_DeveInformarResultadosTruncados() throws Exception {
+        // Arrange
+        when(crawlService.getCrawlResult("30vbllyb")).thenReturn(
+                new CrawlResult("30vbllyb", "done", Arrays.asList("http://example.com/a.html"), "max_results"));
+
+        // Act & Assert
+        mockMvc.perform(get("/crawl/30vbllyb"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("done")))
+                .andExpect(jsonPath("$.truncated", is(true)))
+                .andExpect(jsonPath("$.stop_reason", is("max_results")));
+    }
 }
@@ -0,0 +1,118 @@
+package com.mulato.api.crawler;
+
+import com.mulato.api.crawler.AdaptiveConcurrencyLimiter.Outcome;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Limite adaptativo de requisições simultâneas")
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(5);
+    private static final long TARGET = TimeUnit.SECONDS.toNanos(1);
+
+    private long clock;
+
+    @Test
+    @DisplayName("Requisições acima do limite esperam na fila e saem quando uma vaga é devolvida")
+    void testQueueing() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 2, TARGET, 0.1, 0.5);
+        List<Integer> started = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            int request = i;
+            limiter.acquire(() -> started.add(request));
+        }
+        assertEquals(List.of(0, 1), started);
+        assertEquals(2, limiter.inFlight());
+        assertEquals(2, limiter.waiting());
+
+        complete(limiter, FAST, Outcome.SUCCESS);
+        assertEquals(List.of(0, 1, 2), started);
+        assertEquals(2, limiter.inFlight());
+        assertEquals(1, limiter.waiting());
+    }
+
+    @Test
+    @DisplayName("Limite cresce uma vaga por janela de respostas rápidas e com o limite em uso")
+    void testAdditiveIncrease() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 64, TARGET, 0.1, 0.5);
+
+        // Com poucas requisições em andamento, o limite não está sendo usado e não cresce
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(() -> { });
+            complete(limiter, FAST, Outcome.SUCCESS);
+        }
+        assertEquals(4, limiter.currentLimit());
+
+        saturate(limiter);
+        for (int i = 0; i < 5; i++) {
+            completeAndRefill(limiter, FAST, Outcome.SUCCESS);
+        }
+        assertEquals(5, limiter.currentLimit());
+    }
+
+    @Test
+    @DisplayName("Limite não cresce com p95 acima do alvo nem com muitos erros")
+    void testHoldWhenUnhealthy() {
+        AdaptiveConcurrencyLimiter slow = new AdaptiveConcurrencyLimiter(4, 1, 64, TARGET, 0.1, 0.5);
+        saturate(slow);
+        for (int i = 0; i < 40; i++) {
+            completeAndRefill(slow, SLOW, Outcome.SUCCESS);
+        }
+        assertEquals(4, slow.currentLimit());
+
+        AdaptiveConcurrencyLimiter failing = new AdaptiveConcurrencyLimiter(4, 1, 64, TARGET, 0.1, 0.5);
+        saturate(failing);
+        for (int i = 0; i < 40; i++) {
+            completeAndRefill(failing, FAST, i % 4 == 0 ? Outcome.ERROR : Outcome.SUCCESS);
+        }
+        assertEquals(4, failing.currentLimit());
+    }
+
+    @Test
+    @DisplayName("Sobrecarga reduz o limite pela metade uma vez por rodada, até o mínimo")
+    void testMultiplicativeDecrease() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 2, 64, TARGET, 0.1, 0.5);
+        for (int i = 0; i < 16; i++) {
+            limiter.acquire(() -> { });
+        }
+
+        // As 16 requisições saíram juntas: só a primeira resposta 429 reduz o limite
+        long sentAt = clock;
+        for (int i = 0; i < 16; i++) {
+            clock += FAST;
+            limiter.release(sentAt, clock, Outcome.OVERLOAD);
+        }
+        assertEquals(8, limiter.currentLimit());
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(() -> { });
+            clock += FAST;
+            limiter.release(clock - FAST, clock, Outcome.OVERLOAD);
+        }
+        assertEquals(2, limiter.currentLimit());
+    }
+
+    private void saturate(AdaptiveConcurrencyLimiter limiter) {
+        while (limiter.inFlight() < limiter.currentLimit()) {
+            limiter.acquire(() -> { });
+        }
+    }
+
+    private void completeAndRefill(AdaptiveConcurrencyLimiter limiter, long latency, Outcome outcome) {
+        complete(limiter, latency, outcome);
+        saturate(limiter);
+    }
+
+    private void complete(AdaptiveConcurrencyLimiter limiter, long latency, Outcome outcome) {
+        clock += latency;
+        limiter.release(clock - latency, clock, outcome);
+    }
+}
@@ -0,0 +1,106 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Decodificação incremental de gzip e deflate")
+class ContentDecoderTest {
+
+    private static final byte[] HTML = "<html><body><p>security</p><a href=\"/a\">A</a></body></html>"
+            .repeat(50).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    @DisplayName("gzip recebido byte a byte é decodificado num destino pequeno")
+    void testGzipInSmallChunks() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(HTML);
+        }
+
+        assertArrayEquals(HTML, decode("gzip", compressed.toByteArray(), 1, 7));
+    }
+
+    @Test
+    @DisplayName("Cabeçalho gzip com campo extra, nome e comentário é pulado")
+    void testGzipOptionalHeaderFields() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        // FEXTRA, FNAME e FCOMMENT
+        compressed.write(new byte[] {0x1f, (byte) 0x8b, 8, 4 | 8 | 16, 0, 0, 0, 0, 0, 3});
+        compressed.write(new byte[] {3, 0, 'a', 'b', 'c'});
+        compressed.write("index.html\0".getBytes(StandardCharsets.US_ASCII));
+        compressed.write("comment\0".getBytes(StandardCharsets.US_ASCII));
+        compressed.write(rawDeflate(HTML));
+
+        assertArrayEquals(HTML, decode("x-gzip", compressed.toByteArray(), 3, 64));
+    }
+
+    @Test
+    @DisplayName("deflate usa o formato zlib")
+    void testDeflate() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+            out.write(HTML);
+        }
+
+        assertArrayEquals(HTML, decode("Deflate", compressed.toByteArray(), 100, 1024));
+    }
+
+    @Test
+    @DisplayName("Sem codificação não há decodificador, e codificações desconhecidas são recusadas")
+    void testEncodings() {
+        assertNull(ContentDecoder.forEncoding(null));
+        assertNull(ContentDecoder.forEncoding("identity"));
+        assertTrue(ContentDecoder.isSupported(" GZIP "));
+        assertFalse(ContentDecoder.isSupported("br"));
+        assertThrows(IllegalArgumentException.class, () -> ContentDecoder.forEncoding("br"));
+    }
+
+    @Test
+    @DisplayName("Corpo que não é gzip falha ao completar o cabeçalho")
+    void testNotGzip() {
+        ContentDecoder decoder = ContentDecoder.forEncoding("gzip");
+        try {
+            assertThrows(DataFormatException.class, () -> decoder.setInput(ByteBuffer.wrap(HTML)));
+        } finally {
+            decoder.end();
+        }
+    }
+
+    private static byte[] decode(String encoding, byte[] compressed, int chunk, int window) throws DataFormatException {
+        ContentDecoder decoder = ContentDecoder.forEncoding(encoding);
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        byte[] out = new byte[window];
+        try {
+            for (int offset = 0; offset < compressed.length; offset += chunk) {
+                decoder.setInput(ByteBuffer.wrap(compressed, offset, Math.min(chunk, compressed.length - offset)));
+                int length;
+                while ((length = decoder.decode(out, 0, out.length)) > 0) {
+                    decoded.write(out, 0, length);
+                }
+            }
+            assertTrue(decoder.isFinished());
+        } finally {
+            decoder.end();
+        }
+        return decoded.toByteArray();
+    }
+
+    private static byte[] rawDeflate(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,135 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Fronteira compartilhada de URLs")
+class CrawlFrontierTest {
+
+    @Test
+    @DisplayName("Fronteira com URL em processamento não está esgotada")
+    void testNotExhaustedWhileUrlInFlight() throws InterruptedException {
+        // Arrange
+        CrawlFrontier frontier = new CrawlFrontier();
+        frontier.offer("http://example.com/");
+
+        // Act
+        String url = frontier.next(10, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertEquals("http://example.com/", url);
+        assertEquals(0, frontier.size());
+        assertFalse(frontier.isExhausted(), "Worker ainda pode descobrir novos links");
+
+        frontier.done();
+        assertTrue(frontier.isExhausted());
+    }
+
+    @Test
+    @DisplayName("Poll sem resultado não deixa URL em processamento")
+    void testEmptyPollDoesNotLeakInFlight() throws InterruptedException {
+        // Arrange
+        CrawlFrontier frontier = new CrawlFrontier();
+
+        // Act
+        String url = frontier.next(10, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertNull(url);
+        assertEquals(0, frontier.inFlight());
+        assertTrue(frontier.isExhausted());
+    }
+
+    @Test
+    @DisplayName("Links enfileirados antes do done mantêm a fronteira ativa")
+    void testLinksOfferedBeforeDoneKeepFrontierAlive() throws InterruptedException {
+        // Arrange
+        CrawlFrontier frontier = new CrawlFrontier();
+        frontier.offer("http://example.com/");
+
+        // Act
+        frontier.next(10, TimeUnit.MILLISECONDS);
+        frontier.offer("http://example.com/a");
+        frontier.offer("http://example.com/b");
+        frontier.done();
+
+        // Assert
+        assertFalse(frontier.isExhausted());
+        assertEquals(2, frontier.size());
+    }
+
+    @Test
+    @DisplayName("Worker ocioso aguarda links de uma URL em processamento")
+    void testIdleWorkerWaitsForInFlightLinks() throws Exception {
+        // Arrange
+        CrawlFrontier frontier = new CrawlFrontier();
+        frontier.offer("http://example.com/");
+        frontier.next(10, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<String> idleWorker = CompletableFuture.supplyAsync(() -> {
+            try {
+                return frontier.next(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        });
+
+        // Act
+        Thread.sleep(50);
+        frontier.offer("http://example.com/child");
+        frontier.done();
+
+        // Assert
+        assertEquals("http://example.com/child", idleWorker.get(5, TimeUnit.SECONDS));
+        assertEquals(1, frontier.inFlight());
+    }
+
+    @Test
+    @DisplayName("Fronteira priorizada entrega primeiro a maior prioridade e, no empate, a mais antiga")
+    void testBestFirst() throws InterruptedException {
+        CrawlFrontier frontier = new CrawlFrontier(true);
+        frontier.offer("http://example.com/a", 1, 0);
+        frontier.offer("http://example.com/b", 2, 5);
+        frontier.offer("http://example.com/c", 1, 0);
+        frontier.offer("http://example.com/d", 3, 5);
+
+        CrawlFrontier.Entry first = frontier.nextEntry(10, TimeUnit.MILLISECONDS);
+        assertEquals("http://example.com/b", first.getUrl());
+        assertEquals(2, first.getDepth());
+        assertEquals("http://example.com/d", frontier.next(10, TimeUnit.MILLISECONDS));
+        assertEquals("http://example.com/a", frontier.next(10, TimeUnit.MILLISECONDS));
+        assertEquals("http://example.com/c", frontier.next(10, TimeUnit.MILLISECONDS));
+        assertTrue(frontier.isPrioritized());
+        assertFalse(new CrawlFrontier().isPrioritized());
+    }
+
+    @Test
+    @DisplayName("Snapshot inclui as URLs em processamento e as da fila")
+    void testSnapshotIncludesInFlightEntries() throws InterruptedException {
+        // Arrange
+        CrawlFrontier frontier = new CrawlFrontier();
+        frontier.offer("http://example.com/", 0, 0);
+        frontier.offer("http://example.com/a", 1, 3);
+
+        // Act
+        CrawlFrontier.Entry taken = frontier.nextEntry(10, TimeUnit.MILLISECONDS);
+        frontier.offer("http://example.com/b", 1, 0);
+
+        // Assert
+        assertEquals(List.of("http://example.com/", "http://example.com/a", "http://example.com/b"),
+                frontier.snapshot().stream().map(CrawlFrontier.Entry::getUrl).toList());
+        assertEquals(3, frontier.snapshot().get(1).getPriority());
+
+        frontier.done(taken);
+        assertEquals(List.of("http://example.com/a", "http://example.com/b"),
+                frontier.snapshot().stream().map(CrawlFrontier.Entry::getUrl).toList());
+        assertEquals(0, frontier.inFlight());
+    }
+}
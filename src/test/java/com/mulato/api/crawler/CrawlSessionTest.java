@@ -0,0 +1,124 @@
+package com.mulato.api.crawler;
+
+import com.mulato.api.model.CrawlTask;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Sessão de crawling compartilhada")
+class CrawlSessionTest {
+
+    private static final String BASE_URL = "http://example.com/";
+
+    @Test
+    @DisplayName("Primeira visita reserva a página para todas as tarefas anexadas")
+    void testFirstVisitCoversAttachedTasks() {
+        CrawlSession session = new CrawlSession(new CrawlTask("a", "security", BASE_URL));
+        session.attach(new CrawlTask("b", "privacy", BASE_URL));
+
+        CrawlSession.Visit visit = session.claim(BASE_URL, 10);
+
+        assertNotNull(visit);
+        assertTrue(visit.isFirstVisit());
+        assertEquals(0, visit.getFrom());
+        assertEquals(2, visit.getTasks().size());
+        assertEquals(2, visit.getMatcher().size());
+        assertNull(session.claim(BASE_URL, 10), "URL já coberta por todas as tarefas");
+    }
+
+    @Test
+    @DisplayName("Tarefa anexada depois revisita só as páginas já processadas")
+    void testLateTaskRevisitsProcessedPages() throws InterruptedException {
+        CrawlSession session = new CrawlSession(new CrawlTask("a", "security", BASE_URL));
+        CrawlFrontier frontier = session.getFrontier();
+        frontier.next(10, TimeUnit.MILLISECONDS);
+        assertNotNull(session.claim(BASE_URL, 1));
+        frontier.done();
+
+        assertTrue(session.attach(new CrawlTask("b", "privacy", BASE_URL)));
+
+        assertEquals(BASE_URL, frontier.next(10, TimeUnit.MILLISECONDS));
+        CrawlSession.Visit visit = session.claim(BASE_URL, 1);
+        assertNotNull(visit, "Revisita não conta no limite de páginas");
+        assertFalse(visit.isFirstVisit());
+        assertEquals(1, visit.getFrom());
+        assertEquals(1, session.getPagesProcessed());
+        assertNull(session.claim("http://example.com/other", 1), "Limite de páginas novas atingido");
+    }
+
+    @Test
+    @DisplayName("URL já enfileirada não entra de novo na fronteira")
+    void testEnqueueOnce() {
+        CrawlSession session = new CrawlSession(new CrawlTask("a", "security", BASE_URL));
+
+        assertFalse(session.enqueue(BASE_URL), "URL base já está na fronteira");
+        assertTrue(session.enqueue("http://example.com/a"));
+        assertFalse(session.enqueue("http://example.com/a"));
+
+        assertEquals(2, session.getFrontier().size());
+    }
+
+    @Test
+    @DisplayName("Sessão encerrada não aceita novas tarefas")
+    void testClosedSessionRejectsTasks() throws InterruptedException {
+        CrawlSession session = new CrawlSession(new CrawlTask("a", "security", BASE_URL));
+        assertFalse(session.close(), "Fronteira ainda tem a URL base");
+
+        session.getFrontier().next(10, TimeUnit.MILLISECONDS);
+        session.getFrontier().done();
+
+        assertTrue(session.close());
+        assertFalse(session.attach(new CrawlTask("b", "privacy", BASE_URL)));
+    }
+
+    @Test
+    @DisplayName("Sessão sem coalescência não aceita outras tarefas")
+    void testNonCoalescingSessionRejectsTasks() {
+        CrawlSession session = new CrawlSession(new CrawlTask("a", "security", BASE_URL), BASE_URL, false, false);
+
+        assertNotNull(session.claim(BASE_URL, 10));
+        assertFalse(session.attach(new CrawlTask("b", "privacy", BASE_URL)));
+        assertEquals(1, session.getTasks().size());
+        assertNull(session.claim(BASE_URL, 10), "URL já coberta");
+    }
+
+    @Test
+    @DisplayName("Páginas revisitadas para a tarefa anexada mantêm a profundidade da primeira visita")
+    void testLateTaskKeepsDepth() throws InterruptedException {
+        CrawlSession session = new CrawlSession(new CrawlTask("a", "security", BASE_URL), BASE_URL, true);
+        CrawlFrontier frontier = session.getFrontier();
+        frontier.next(10, TimeUnit.MILLISECONDS);
+        CrawlSession.Visit visit = session.claim(BASE_URL, 10);
+        session.alias("http://example.com/canonical", visit);
+        frontier.done();
+        session.enqueue("http://example.com/security/deep", 3, 0);
+        frontier.next(10, TimeUnit.MILLISECONDS);
+        session.claim("http://example.com/security/deep", 3, 10);
+        frontier.done();
+
+        assertTrue(session.attach(new CrawlTask("b", "security", BASE_URL)));
+
+        // Só a URL base volta à fronteira; as demais voltam pelos links da revisita
+        assertEquals(List.of(BASE_URL), urls(frontier));
+        frontier.next(10, TimeUnit.MILLISECONDS);
+        assertFalse(session.claim(BASE_URL, 10).isFirstVisit());
+        frontier.done();
+
+        assertTrue(session.enqueue("http://example.com/security/deep", 1, 0));
+        assertFalse(session.enqueue("http://example.com/security/deep", 1, 0), "Devolvida uma vez por tarefa anexada");
+        CrawlFrontier.Entry entry = frontier.snapshot().get(0);
+        assertEquals(3, entry.getDepth());
+        assertTrue(entry.getPriority() > 0, "Prioridade calculada com as palavras-chave das tarefas");
+        assertEquals(3, session.claim(entry.getUrl(), entry.getDepth(), 10).getDepth());
+
+        assertFalse(session.enqueue("http://example.com/security/deep", 1, 0), "Já coberta pelas duas tarefas");
+    }
+
+    private static List<String> urls(CrawlFrontier frontier) {
+        return frontier.snapshot().stream().map(CrawlFrontier.Entry::getUrl).toList();
+    }
+}
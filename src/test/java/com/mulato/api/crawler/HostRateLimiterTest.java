@@ -0,0 +1,55 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Limite de requisições por host")
+class HostRateLimiterTest {
+
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    @DisplayName("Reservas seguidas ao mesmo host recebem horários sucessivos")
+    void testSuccessiveReservations() {
+        HostRateLimiter limiter = new HostRateLimiter();
+
+        assertEquals(0, limiter.reserve("http://example.com:80", INTERVAL, 1));
+        assertWait(INTERVAL, limiter.reserve("http://example.com:80", INTERVAL, 1));
+        assertWait(2 * INTERVAL, limiter.reserve("http://example.com:80", INTERVAL, 1));
+    }
+
+    @Test
+    @DisplayName("Rajada inicial sai sem espera e hosts diferentes não interferem")
+    void testBurstAndIndependentHosts() {
+        HostRateLimiter limiter = new HostRateLimiter();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.reserve("http://example.com:80", INTERVAL, 3));
+        }
+        assertWait(INTERVAL, limiter.reserve("http://example.com:80", INTERVAL, 3));
+        assertEquals(0, limiter.reserve("http://other.com:80", INTERVAL, 3));
+        assertEquals(2, limiter.size());
+    }
+
+    @Test
+    @DisplayName("Intervalo zero desativa o limite")
+    void testDisabled() {
+        HostRateLimiter limiter = new HostRateLimiter();
+
+        assertEquals(0, limiter.reserve("http://example.com:80", 0, 1));
+        assertEquals(0, limiter.reserve("http://example.com:80", 0, 1));
+        assertEquals(0, limiter.size());
+    }
+
+    /**
+     * A espera é calculada a partir do relógio no momento da reserva; tolera o tempo gasto no teste.
+     */
+    private static void assertWait(long expected, long actual) {
+        assertTrue(actual <= expected && actual > expected - TimeUnit.SECONDS.toNanos(1),
+                "Espera esperada de ~" + expected + " ns, obtida " + actual);
+    }
+}
@@ -0,0 +1,53 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Vagas de requisição por host")
+class HostRequestPermitsTest {
+
+    @Test
+    @DisplayName("Requisições acima do limite esperam na fila e saem, na ordem, quando uma vaga é devolvida")
+    void testQueueing() {
+        List<Long> waits = new ArrayList<>();
+        HostRequestPermits permits = new HostRequestPermits(2, waits::add);
+        List<Integer> started = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            int request = i;
+            permits.acquire(() -> started.add(request));
+        }
+        assertEquals(List.of(0, 1), started);
+        assertEquals(2, permits.active());
+        assertEquals(2, permits.pending());
+        assertEquals(1.0, permits.saturation());
+
+        permits.release();
+        assertEquals(List.of(0, 1, 2), started);
+        assertEquals(2, permits.active());
+        assertEquals(1, permits.pending());
+        // Duas sem espera e uma que saiu da fila
+        assertEquals(3, waits.size());
+        assertEquals(0L, waits.get(0));
+    }
+
+    @Test
+    @DisplayName("Vagas devolvidas sem fila ficam livres")
+    void testReleaseWithoutQueue() {
+        HostRequestPermits permits = new HostRequestPermits(4, wait -> { });
+
+        for (int i = 0; i < 3; i++) {
+            permits.acquire(() -> { });
+        }
+        permits.release();
+        permits.release();
+
+        assertEquals(1, permits.active());
+        assertEquals(0.25, permits.saturation());
+    }
+}
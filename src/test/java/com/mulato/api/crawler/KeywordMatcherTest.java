@@ -0,0 +1,108 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Busca da palavra-chave nos bytes da página")
+class KeywordMatcherTest {
+
+    @Test
+    @DisplayName("Deve encontrar o termo ignorando maiúsculas e minúsculas")
+    void testCaseInsensitiveMatch() {
+        KeywordMatcher matcher = KeywordMatcher.compile("security");
+
+        assertTrue(matcher.matches(utf8("<div class=\"SeCuRiTy\">")));
+        assertTrue(matcher.matches(utf8("<!-- SECURITY -->")));
+        assertFalse(matcher.matches(utf8("<p>secur ity</p>")));
+        assertFalse(matcher.matches(utf8("secur")));
+    }
+
+    @Test
+    @DisplayName("Deve encontrar o termo com acentos em qualquer caixa")
+    void testAccentedKeyword() {
+        KeywordMatcher matcher = KeywordMatcher.compile("segurança");
+
+        assertTrue(matcher.matches(utf8("<h1>SEGURANÇA da informação</h1>")));
+        assertTrue(matcher.matches(utf8("<h1>Segurança</h1>")));
+        assertFalse(matcher.matches(utf8("<h1>seguranca</h1>")));
+    }
+
+    @Test
+    @DisplayName("Deve codificar o termo no charset da página")
+    void testPageCharset() {
+        KeywordMatcher matcher = KeywordMatcher.compile("segurança").forCharset("ISO-8859-1");
+
+        assertTrue(matcher.matches("SEGURANÇA".getBytes(StandardCharsets.ISO_8859_1)));
+        assertFalse(matcher.matches(utf8("SEGURANÇA")));
+        assertSame(matcher, matcher.forCharset(null));
+    }
+
+    @Test
+    @DisplayName("Deve encontrar ocorrências divididas entre dois blocos em qualquer posição")
+    void testMatchAcrossChunkBoundary() {
+        KeywordMatcher matcher = KeywordMatcher.compile("security");
+        byte[] page = utf8("<html><body>lorem ipsum SECURITY dolor</body></html>");
+
+        for (int split = 0; split <= page.length; split++) {
+            KeywordMatcher.Scanner scanner = matcher.newScanner();
+            scanner.accept(page, 0, split);
+            scanner.accept(page, split, page.length - split);
+            assertTrue(scanner.isFound(), "Divisão na posição " + split);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve encontrar o termo com o corpo entregue byte a byte")
+    void testSingleByteChunks() {
+        KeywordMatcher matcher = KeywordMatcher.compile("security");
+        byte[] page = utf8("<p>sec</p><p>Security</p>");
+
+        KeywordMatcher.Scanner scanner = matcher.newScanner();
+        for (int i = 0; i < page.length; i++) {
+            scanner.accept(page, i, 1);
+        }
+
+        assertTrue(scanner.isFound());
+    }
+
+    @Test
+    @DisplayName("Não deve juntar bytes de blocos que não são vizinhos")
+    void testNoFalseMatchAcrossChunks() {
+        KeywordMatcher matcher = KeywordMatcher.compile("security");
+        byte[] page = utf8("secu---rity sec urity");
+
+        KeywordMatcher.Scanner scanner = matcher.newScanner();
+        for (int i = 0; i < page.length; i += 3) {
+            scanner.accept(page, i, Math.min(3, page.length - i));
+        }
+
+        assertFalse(scanner.isFound());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar o restante do corpo após encontrar o termo")
+    void testStopsAfterFirstHit() {
+        KeywordMatcher matcher = KeywordMatcher.compile("security");
+        KeywordMatcher.Scanner scanner = matcher.newScanner();
+
+        scanner.accept(utf8("security"), 0, 8);
+        // Um bloco inválido não é mais lido depois do primeiro acerto
+        scanner.accept(new byte[0], 0, 100);
+
+        assertTrue(scanner.isFound());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar palavra-chave vazia")
+    void testEmptyKeyword() {
+        assertThrows(IllegalArgumentException.class, () -> KeywordMatcher.compile(""));
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
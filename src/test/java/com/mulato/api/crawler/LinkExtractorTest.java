@@ -0,0 +1,152 @@
+package com.mulato.api.crawler;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Extração de links em uma passada sobre os bytes")
+class LinkExtractorTest {
+
+    @Test
+    @DisplayName("Deve extrair hrefs com aspas duplas, simples e sem aspas")
+    void testAttributeQuoting() {
+        List<String> links = extract("<a href=\"/one\">1</a><A HREF='/two'>2</A><a class=x href=/three>3</a>");
+
+        assertEquals(List.of("/one", "/two", "/three"), links);
+    }
+
+    @Test
+    @DisplayName("Deve ignorar links em comentários, scripts e outros atributos")
+    void testIgnoredMarkup() {
+        List<String> links = extract("<!-- <a href=\"/comment\"> -->"
+                + "<script>var s = '<a href=\"/script\">';</script>"
+                + "<link href=\"/style.css\"><a data-href=\"/data\" title='a > b'>x</a>"
+                + "<textarea><a href=\"/textarea\"></textarea><a href=\"/real\">ok</a>");
+
+        assertEquals(List.of("/real"), links);
+    }
+
+    @Test
+    @DisplayName("Deve decodificar entidades e remover espaços das pontas")
+    void testEntitiesAndWhitespace() {
+        List<String> links = extract("<a href=\"  /search?a=1&amp;b=2&#38;c=&#x33; \">s</a>");
+
+        assertEquals(List.of("/search?a=1&b=2&c=3"), links);
+    }
+
+    @Test
+    @DisplayName("Deve usar o primeiro href repetido e o primeiro <base href>")
+    void testFirstAttributeAndBase() {
+        LinkExtractor extractor = new LinkExtractor(null);
+        byte[] body = utf8("<head><base href=\"/docs/\"><base href=\"/other/\"></head>"
+                + "<a href=\"first\" href=\"second\">x</a>");
+        extractor.accept(body, 0, body.length);
+
+        assertEquals("/docs/", extractor.getBaseHref());
+        assertEquals(List.of("first"), extractor.getLinks());
+    }
+
+    @Test
+    @DisplayName("Deve reconhecer <link rel=\"canonical\"> entre outros valores de rel")
+    void testCanonicalLink() {
+        LinkExtractor extractor = new LinkExtractor(null);
+        byte[] body = utf8("<head><link rel=\"stylesheet\" href=\"/style.css\">"
+                + "<link href='/docs/page' REL='Canonical alternate'><link rel=canonical href=/other></head>");
+        extractor.accept(body, 0, body.length);
+
+        assertEquals("/docs/page", extractor.getCanonicalHref());
+        assertTrue(extractor.getLinks().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve dar o mesmo resultado com o corpo entregue byte a byte")
+    void testChunkBoundaries() {
+        byte[] body = utf8(sampleDocument());
+        LinkExtractor whole = new LinkExtractor(null);
+        whole.accept(body, 0, body.length);
+
+        LinkExtractor chunked = new LinkExtractor(null);
+        for (int i = 0; i < body.length; i++) {
+            chunked.accept(body, i, 1);
+        }
+
+        assertEquals(whole.getLinks(), chunked.getLinks());
+        assertEquals(7, whole.getLinks().size());
+    }
+
+    @Test
+    @DisplayName("Deve encontrar os mesmos links que o jsoup")
+    void testSameLinksAsJsoup() {
+        String html = sampleDocument();
+        List<String> expected = new ArrayList<>();
+        for (Element link : Jsoup.parse(html).select("a[href]")) {
+            expected.add(link.attr("href").strip());
+        }
+
+        assertEquals(expected, extract(html));
+    }
+
+    @Test
+    @DisplayName("Deve guardar o texto de cada link como o jsoup, inclusive em blocos de um byte")
+    void testAnchorTexts() {
+        String html = sampleDocument() + "<a href=\"/nested\">Read <b>about</b> security &amp; more</a><a href=/open>open";
+        List<String> expected = new ArrayList<>();
+        for (Element link : Jsoup.parse(html).select("a[href]")) {
+            expected.add(link.text());
+        }
+
+        byte[] body = utf8(html);
+        LinkExtractor chunked = new LinkExtractor(null, true);
+        for (int i = 0; i < body.length; i++) {
+            chunked.accept(body, i, 1);
+        }
+
+        assertEquals(expected, chunked.getAnchorTexts());
+        assertEquals(chunked.getLinks().size(), chunked.getAnchorTexts().size());
+        assertTrue(new LinkExtractor(null).getAnchorTexts().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve decodificar os hrefs no charset da página")
+    void testPageCharset() {
+        byte[] body = "<a href=\"/ação\">x</a>".getBytes(StandardCharsets.ISO_8859_1);
+        LinkExtractor extractor = new LinkExtractor("ISO-8859-1");
+        extractor.accept(body, 0, body.length);
+
+        assertEquals(List.of("/ação"), extractor.getLinks());
+        assertTrue(LinkExtractor.supports("ISO-8859-1"));
+        assertTrue(LinkExtractor.supports(null));
+        assertFalse(LinkExtractor.supports("UTF-16"));
+    }
+
+    private static String sampleDocument() {
+        return "<!DOCTYPE html><html><head><title>Docs <a href=\"/title\"></title>"
+                + "<style>a[href] { color: red }</style></head><body>"
+                + "<nav><a href=\"/\">Home</a> <a href='guide.html' class=active>Guide</a></nav>"
+                + "<!-- <a href=\"/hidden\">hidden</a> -->"
+                + "<p>Text with <b>bold</b> and <a href=\"api/index.html?v=1&amp;lang=pt\">API</a>.</p>"
+                + "<script type=\"text/javascript\">document.write('<a href=\"/js\">js</a>');</SCRIPT>"
+                + "<a name=\"anchor\">no href</a><a href=https://example.com/ext>external</a>"
+                + "<a\nhref\n=\n\"/multi-line\"\n>multi</a>"
+                + "<a href=\"#top\" href=\"/ignored\">top</a><a href=\"/ação\">acentos</a>"
+                + "</body></html>";
+    }
+
+    private static List<String> extract(String html) {
+        byte[] body = utf8(html);
+        LinkExtractor extractor = new LinkExtractor(null);
+        extractor.accept(body, 0, body.length);
+        return extractor.getLinks();
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,54 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Prioridade dos links na fronteira best-first")
+class LinkPriorityTest {
+
+    private final LinkPriority priority = new LinkPriority(List.of("Security", "kernel"));
+
+    @Test
+    @DisplayName("Palavra-chave no texto do link vale mais que na URL, que vale mais que a página de origem")
+    void testSignals() {
+        int plain = priority.score("http://example.com/docs/intro.html", "Introduction", 1, false);
+        int parent = priority.score("http://example.com/docs/intro.html", "Introduction", 1, true);
+        int path = priority.score("http://example.com/docs/security.html", "Next", 1, false);
+        int anchor = priority.score("http://example.com/docs/page-7.html", "Security notes", 1, false);
+
+        assertTrue(anchor > path);
+        assertTrue(path > parent);
+        assertTrue(parent > plain);
+        assertEquals(LinkPriority.ANCHOR_TEXT + LinkPriority.URL_PATH + LinkPriority.PARENT_MATCHED - 1,
+                priority.score("http://example.com/KERNEL/", "kernel docs", 1, true));
+    }
+
+    @Test
+    @DisplayName("Links mais profundos perdem prioridade, mas links relevantes ficam à frente em qualquer profundidade")
+    void testDepth() {
+        assertTrue(priority.score("http://example.com/a", null, 1, false)
+                > priority.score("http://example.com/a", null, 2, false));
+        assertEquals(priority.score("http://example.com/a", null, 50, false),
+                priority.score("http://example.com/a", null, LinkPriority.MAX_DEPTH_PENALTY, false));
+        assertTrue(priority.score("http://example.com/a", "security", 50, false)
+                > priority.score("http://example.com/a", null, 1, false));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "http://security.example.com/, /",
+            "http://example.com/a/b?q=security#security, /a/b?q=security",
+            "http://example.com, ''",
+            "/relative/security, /relative/security"
+    })
+    @DisplayName("Só o caminho e a query da URL são comparados")
+    void testPathOf(String url, String expected) {
+        assertEquals(expected, LinkPriority.pathOf(url));
+    }
+}
@@ -0,0 +1,106 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Busca de várias palavras-chave em uma passada")
+class MultiKeywordMatcherTest {
+
+    @Test
+    @DisplayName("Deve informar quais palavras-chave aparecem na página")
+    void testReportsEachKeyword() {
+        MultiKeywordMatcher matcher = MultiKeywordMatcher.compile(List.of("security", "privacy", "cookie"));
+
+        MultiKeywordMatcher.Scanner scanner = scan(matcher, "<p>Our PRIVACY policy and <b>Security</b> notes</p>");
+
+        assertTrue(scanner.isFound(0));
+        assertTrue(scanner.isFound(1));
+        assertFalse(scanner.isFound(2));
+    }
+
+    @Test
+    @DisplayName("Deve encontrar palavras-chave sobrepostas e contidas em outras")
+    void testOverlappingKeywords() {
+        MultiKeywordMatcher matcher = MultiKeywordMatcher.compile(List.of("curity", "security", "secure", "rity"));
+
+        MultiKeywordMatcher.Scanner scanner = scan(matcher, "<div class=\"SECURITY\">");
+
+        assertTrue(scanner.isFound(0));
+        assertTrue(scanner.isFound(1));
+        assertFalse(scanner.isFound(2));
+        assertTrue(scanner.isFound(3));
+    }
+
+    @Test
+    @DisplayName("Deve tratar letras acentuadas sem diferenciar maiúsculas")
+    void testLatinAccents() {
+        MultiKeywordMatcher matcher = MultiKeywordMatcher.compile(List.of("segurança", "ação"));
+
+        MultiKeywordMatcher.Scanner scanner = scan(matcher, "<h1>SEGURANÇA</h1><p>AÇÃO</p>");
+
+        assertTrue(scanner.isFound(0));
+        assertTrue(scanner.isFound(1));
+    }
+
+    @Test
+    @DisplayName("Deve usar busca individual para letras fora do autômato")
+    void testKeywordOutsideAutomaton() {
+        MultiKeywordMatcher matcher = MultiKeywordMatcher.compile(List.of("straße", "σοφία", "security"));
+
+        MultiKeywordMatcher.Scanner scanner = scan(matcher, "<p>Straße</p><p>ΣΟΦΊΑ σοφία</p>");
+
+        assertTrue(scanner.isFound(0));
+        assertTrue(scanner.isFound(1));
+        assertFalse(scanner.isFound(2));
+    }
+
+    @Test
+    @DisplayName("Deve encontrar ocorrências divididas entre blocos")
+    void testMatchAcrossChunkBoundary() {
+        MultiKeywordMatcher matcher = MultiKeywordMatcher.compile(List.of("security", "ação"));
+        byte[] page = "lorem SECURITY ipsum AÇÃO".getBytes(StandardCharsets.UTF_8);
+
+        for (int split = 0; split <= page.length; split++) {
+            MultiKeywordMatcher.Scanner scanner = matcher.newScanner(null);
+            scanner.accept(page, 0, split);
+            scanner.accept(page, split, page.length - split);
+            assertTrue(scanner.isFound(0) && scanner.isFound(1), "Divisão na posição " + split);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve codificar as palavras-chave no charset da página")
+    void testPageCharset() {
+        MultiKeywordMatcher matcher = MultiKeywordMatcher.compile(List.of("segurança", "security"));
+        byte[] page = "SEGURANÇA".getBytes(StandardCharsets.ISO_8859_1);
+
+        MultiKeywordMatcher.Scanner scanner = matcher.newScanner("ISO-8859-1");
+        scanner.accept(page, 0, page.length);
+
+        assertTrue(scanner.isFound(0));
+        assertFalse(scanner.isFound(1));
+    }
+
+    @Test
+    @DisplayName("Palavras-chave repetidas são reportadas em todos os índices")
+    void testDuplicateKeywords() {
+        MultiKeywordMatcher matcher = MultiKeywordMatcher.compile(List.of("security", "Security"));
+
+        MultiKeywordMatcher.Scanner scanner = scan(matcher, "security");
+
+        assertTrue(scanner.isFound(0));
+        assertTrue(scanner.isFound(1));
+    }
+
+    private static MultiKeywordMatcher.Scanner scan(MultiKeywordMatcher matcher, String html) {
+        byte[] page = html.getBytes(StandardCharsets.UTF_8);
+        MultiKeywordMatcher.Scanner scanner = matcher.newScanner(null);
+        scanner.accept(page, 0, page.length);
+        return scanner;
+    }
+}
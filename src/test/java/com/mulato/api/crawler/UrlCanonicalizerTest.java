@@ -0,0 +1,50 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Forma canônica das URLs da fronteira")
+class UrlCanonicalizerTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "http://host/a, http://host/a",
+        "http://host/a#top, http://host/a",
+        "http://host:80/a, http://host/a",
+        "http://host/./a, http://host/a",
+        "HTTP://Host.COM/A, http://host.com/A",
+        "http://host, http://host/",
+        "https://host:443/, https://host/",
+        "https://host:8443/a, https://host:8443/a",
+        "http://host/a/b/../c/./d, http://host/a/c/d",
+        "http://host/a/.., http://host/",
+        "http://host/../../a, http://host/a",
+        "http://host/%7euser/%2fpath, http://host/~user/%2Fpath",
+        "http://host/a?, http://host/a",
+        "http://host/a?b=2&a=1, http://host/a?b=2&a=1"
+    })
+    @DisplayName("Deve normalizar esquema, host, porta, fragmento, caminho e escapes")
+    void testCanonicalize(String url, String expected) {
+        assertEquals(expected, UrlCanonicalizer.canonicalize(url, false));
+    }
+
+    @Test
+    @DisplayName("Deve ordenar os parâmetros da query pelo nome quando configurado")
+    void testSortQuery() {
+        assertEquals("http://host/a?a=1&b=2&b=1&c",
+                UrlCanonicalizer.canonicalize("http://host/a?b=2&c&a=1&b=1", true));
+    }
+
+    @Test
+    @DisplayName("Deve devolver URLs relativas, opacas ou inválidas como estão")
+    void testUnchanged() {
+        assertEquals("/relative/path", UrlCanonicalizer.canonicalize("/relative/path", false));
+        assertEquals("mailto:someone@example.com", UrlCanonicalizer.canonicalize("mailto:someone@example.com", false));
+        assertEquals("http://host/a b", UrlCanonicalizer.canonicalize("http://host/a b", false));
+        assertNull(UrlCanonicalizer.canonicalize(null, false));
+    }
+}
@@ -0,0 +1,41 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Cobertura de URLs por impressão digital")
+class UrlCoverageMapTest {
+
+    @Test
+    @DisplayName("Deve guardar a cobertura de cada URL e crescer mantendo as anteriores")
+    void testCoverAndGrow() {
+        UrlCoverageMap coverage = new UrlCoverageMap();
+        for (int i = 0; i < 1000; i++) {
+            coverage.cover("http://example.com/page" + i, 1 + i % 3, i % 5);
+        }
+
+        assertEquals(1000, coverage.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(1 + i % 3, coverage.covered("http://example.com/page" + i));
+            assertEquals(i % 5, coverage.depth("http://example.com/page" + i));
+        }
+        assertEquals(-1, coverage.covered("http://example.com/other"));
+        assertEquals(-1, coverage.depth("http://example.com/other"));
+    }
+
+    @Test
+    @DisplayName("A cobertura de uma URL já registrada só aumenta, e a profundidade é a da primeira visita")
+    void testCoverageOnlyGrows() {
+        UrlCoverageMap coverage = new UrlCoverageMap();
+        coverage.cover("http://example.com/a", 2, 1);
+        coverage.cover("http://example.com/a", 1, 3);
+        assertEquals(2, coverage.covered("http://example.com/a"));
+
+        coverage.cover("http://example.com/a", 3, 2);
+        assertEquals(3, coverage.covered("http://example.com/a"));
+        assertEquals(1, coverage.depth("http://example.com/a"));
+        assertEquals(1, coverage.size());
+    }
+}
@@ -0,0 +1,40 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Pré-filtro de links por extensão")
+class UrlExtensionFilterTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "http://example.com/docs/manual.pdf",
+            "http://example.com/img/logo.PNG",
+            "http://example.com/downloads/linux-6.1.tar.gz",
+            "http://example.com/media/talk.mp4?t=30",
+            "http://example.com/static/app.js#main"
+    })
+    @DisplayName("Arquivos que não são HTML são descartados")
+    void testSkipped(String url) {
+        assertTrue(UrlExtensionFilter.isSkipped(url));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "http://example.com/",
+            "http://example.com",
+            "http://example.com/docs/intro.html",
+            "http://example.com/download.php?file=manual.pdf",
+            "http://example.com/v1.2/notes",
+            "http://example.com/archive.pdf/index",
+            "http://example.com/data.csv",
+            "http://example.com/about"
+    })
+    @DisplayName("Páginas, links sem extensão e extensões desconhecidas passam")
+    void testAccepted(String url) {
+        assertFalse(UrlExtensionFilter.isSkipped(url));
+    }
+}
@@ -0,0 +1,133 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Conjunto de impressões digitais de URLs")
+class UrlFingerprintSetTest {
+
+    @Test
+    @DisplayName("Implementação de referência do XXH64 confere com os vetores publicados")
+    void testReferenceVectors() {
+        assertEquals(0xEF46DB3751D8E999L, xxh64(new byte[0]));
+        assertEquals(0xD24EC4F1A98C6E5BL, xxh64("a".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(0x44BC2CF5AD770999L, xxh64("abc".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    @DisplayName("Hash dos caracteres é o XXH64 dos bytes em UTF-16LE, em todos os tamanhos")
+    void testHashMatchesUtf16Bytes() {
+        Random random = new Random(42);
+        for (int length = 0; length < 80; length++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                // Inclui caracteres acima de 0xFF para exercitar o byte alto
+                text.append(random.nextInt(4) == 0 ? (char) (0x100 + random.nextInt(0x2000)) : (char) ('a' + random.nextInt(26)));
+            }
+            String value = text.toString();
+            assertEquals(xxh64(value.getBytes(StandardCharsets.UTF_16LE)), UrlFingerprintSet.hash(value),
+                    "Tamanho " + length);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Deve adicionar cada URL uma vez e crescer mantendo as anteriores")
+    void testAddAndGrow(boolean offHeap) {
+        UrlFingerprintSet set = new UrlFingerprintSet(offHeap);
+        int urls = 10_000;
+
+        for (int i = 0; i < urls; i++) {
+            assertTrue(set.add("http://example.com/page/" + i + ".html"));
+        }
+        for (int i = 0; i < urls; i++) {
+            assertFalse(set.add("http://example.com/page/" + i + ".html"));
+            assertTrue(set.contains("http://example.com/page/" + i + ".html"));
+        }
+
+        assertFalse(set.contains("http://example.com/page/" + urls + ".html"));
+        assertEquals(urls, set.size());
+        assertEquals(offHeap, set.isOffHeap());
+        // Fator de carga entre 3/8 e 3/4
+        assertTrue(set.tableBytes() <= urls * 8L * 8 / 3, "Tabela: " + set.tableBytes() + " bytes");
+    }
+
+    @Test
+    @DisplayName("Conjunto vazio não contém nenhuma URL")
+    void testEmpty() {
+        UrlFingerprintSet set = new UrlFingerprintSet();
+
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(""));
+        assertTrue(set.add(""));
+        assertTrue(set.contains(""));
+    }
+
+    /**
+     * XXH64 com semente 0 sobre bytes, direto da especificação.
+     */
+    private static long xxh64(byte[] data) {
+        final long p1 = 0x9E3779B185EBCA87L;
+        final long p2 = 0xC2B2AE3D27D4EB4FL;
+        final long p3 = 0x165667B19E3779F9L;
+        final long p4 = 0x85EBCA77C2B2AE63L;
+        final long p5 = 0x27D4EB2F165667C5L;
+        int length = data.length;
+        int i = 0;
+        long h;
+        if (length >= 32) {
+            long v1 = p1 + p2;
+            long v2 = p2;
+            long v3 = 0;
+            long v4 = -p1;
+            for (; i + 32 <= length; i += 32) {
+                v1 = Long.rotateLeft(v1 + readLong(data, i) * p2, 31) * p1;
+                v2 = Long.rotateLeft(v2 + readLong(data, i + 8) * p2, 31) * p1;
+                v3 = Long.rotateLeft(v3 + readLong(data, i + 16) * p2, 31) * p1;
+                v4 = Long.rotateLeft(v4 + readLong(data, i + 24) * p2, 31) * p1;
+            }
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            for (long v : new long[] {v1, v2, v3, v4}) {
+                h ^= Long.rotateLeft(v * p2, 31) * p1;
+                h = h * p1 + p4;
+            }
+        } else {
+            h = p5;
+        }
+        h += length;
+        for (; i + 8 <= length; i += 8) {
+            h ^= Long.rotateLeft(readLong(data, i) * p2, 31) * p1;
+            h = Long.rotateLeft(h, 27) * p1 + p4;
+        }
+        if (i + 4 <= length) {
+            h ^= (readInt(data, i) & 0xFFFFFFFFL) * p1;
+            h = Long.rotateLeft(h, 23) * p2 + p3;
+            i += 4;
+        }
+        for (; i < length; i++) {
+            h ^= (data[i] & 0xFF) * p5;
+            h = Long.rotateLeft(h, 11) * p1;
+        }
+        h ^= h >>> 33;
+        h *= p2;
+        h ^= h >>> 29;
+        h *= p3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long readLong(byte[] data, int i) {
+        return (readInt(data, i) & 0xFFFFFFFFL) | ((long) readInt(data, i + 4) << 32);
+    }
+
+    private static int readInt(byte[] data, int i) {
+        return (data[i] & 0xFF) | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF) << 16 | (data[i + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,81 @@
+package com.mulato.api.crawler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Escopo da URL base")
+class UrlScopeTest {
+
+    private final UrlScope scope = UrlScope.of("http://example.com/");
+
+    @ParameterizedTest
+    @CsvSource({
+            "http://example.com/page, true",
+            "HTTP://Example.COM/page, true",
+            "http://example.com:80/page, true",
+            "http://example.com, true",
+            "http://example.com?q=1, true",
+            "http://user@example.com/page, true",
+            "http://example.com:8080/page, false",
+            "https://example.com/page, false",
+            "http://example.com.evil.org/page, false",
+            "http://evil.org/?next=http://example.com/, false",
+            "http://evil.org/@example.com, false",
+            "http://sub.example.com/page, false",
+            "http://example.com:abc/page, false",
+            "mailto:user@example.com, false",
+            "not a valid url, false",
+            "/relative/path, false"
+    })
+    @DisplayName("Deve comparar esquema, host e porta efetiva")
+    void testContains(String url, boolean expected) {
+        assertEquals(expected, scope.contains(url));
+    }
+
+    @Test
+    @DisplayName("Deve considerar a porta padrão do esquema da URL base")
+    void testExplicitPorts() {
+        UrlScope https = UrlScope.of("https://example.com:443/docs/");
+        assertTrue(https.contains("https://example.com/other"));
+        assertFalse(https.contains("https://example.com:80/other"));
+
+        UrlScope custom = UrlScope.of("http://localhost:8080");
+        assertTrue(custom.contains("http://localhost:8080/a"));
+        assertFalse(custom.contains("http://localhost/a"));
+
+        UrlScope ipv6 = UrlScope.of("http://[::1]:8080/");
+        assertTrue(ipv6.contains("http://[::1]:8080/a"));
+        assertFalse(ipv6.contains("http://[::2]:8080/a"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "page.html, true, true",
+            "page.html, false, false",
+            "?q=1, true, true",
+            "//example.com/page, false, true",
+            "//cdn.example.net/app.js, true, false",
+            "https://example.com/page, true, false",
+            "http://example.com/page, false, true",
+            "javascript:alert('xss'), true, false",
+            "mailto:user@example.com, true, false"
+    })
+    @DisplayName("Deve descartar hrefs de outros sites antes da resolução")
+    void testMayContain(String href, boolean relativeInScope, boolean expected) {
+        assertEquals(expected, scope.mayContain(href, relativeInScope));
+    }
+
+    @Test
+    @DisplayName("URL base inválida resulta em um escopo vazio")
+    void testInvalidBase() {
+        UrlScope empty = UrlScope.of("not a valid url");
+
+        assertFalse(empty.contains("http://example.com/"));
+        assertFalse(empty.mayContain("page.html", true));
+        assertFalse(UrlScope.of(null).contains("http://example.com/"));
+    }
+}
@@ -0,0 +1,297 @@
+package com.mulato.api.service;
+
+import com.mulato.api.crawler.CrawlFrontier;
+import com.mulato.api.crawler.CrawlSession;
+import com.mulato.api.entity.CrawlCheckpointEntity;
+import com.mulato.api.entity.CrawlSessionCheckpointEntity;
+import com.mulato.api.entity.CrawlTaskEntity;
+import com.mulato.api.model.CrawlBudget;
+import com.mulato.api.model.CrawlTask;
+import com.mulato.api.repository.CrawlCheckpointRepository;
+import com.mulato.api.repository.CrawlSessionCheckpointRepository;
+import com.mulato.api.repository.CrawlTaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Checkpoints das tarefas de crawling")
+class CrawlCheckpointServiceTest {
+
+    private static final String BASE_URL = "http://example.com/";
+
+    @Mock
+    private CrawlCheckpointRepository crawlCheckpointRepository;
+
+    @Mock
+    private CrawlSessionCheckpointRepository crawlSessionCheckpointRepository;
+
+    @Mock
+    private CrawlTaskRepository crawlTaskRepository;
+
+    @Mock
+    private CrawlPersistenceService crawlPersistenceService;
+
+    @Mock
+    private CrawlMessageService crawlMessageService;
+
+    @InjectMocks
+    private CrawlCheckpointService crawlCheckpointService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(crawlCheckpointService, "enabled", true);
+        ReflectionTestUtils.setField(crawlCheckpointService, "staleAfter", 300000L);
+    }
+
+    @Test
+    @DisplayName("Fronteira gravada e lida de volta mantém URL, profundidade e prioridade")
+    void testEncodeDecode() throws InterruptedException {
+        // Arrange
+        CrawlFrontier frontier = new CrawlFrontier(true);
+        frontier.offer(BASE_URL, 0, 0);
+        frontier.offer("http://example.com/a?q=1&b=2", 2, -3);
+
+        // Act
+        List<CrawlCheckpointService.SavedEntry> entries =
+                CrawlCheckpointService.decode(CrawlCheckpointService.encode(frontier.snapshot()));
+
+        // Assert
+        assertEquals(2, entries.size());
+        CrawlCheckpointService.SavedEntry second = entries.stream()
+                .filter(entry -> entry.url.endsWith("b=2")).findFirst().orElseThrow();
+        assertEquals(2, second.depth);
+        assertEquals(-3, second.priority);
+        assertTrue(CrawlCheckpointService.decode("").isEmpty());
+        assertTrue(CrawlCheckpointService.decode(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Checkpoint grava as URLs pendentes antes e ignora tarefas encerradas")
+    void testCheckpointWritesPendingRowsFirst() throws InterruptedException {
+        // Arrange
+        CrawlTask task = new CrawlTask("chk-0001", "security", BASE_URL, new CrawlBudget(3, null, null, 10));
+        task.startBudget();
+        task.addBytesDownloaded(512);
+        CrawlSession session = new CrawlSession(task, BASE_URL);
+        CrawlTask finished = new CrawlTask("chk-0002", "privacy", BASE_URL);
+        finished.setActive(false);
+        session.attach(finished);
+        CrawlFrontier.Entry taken = session.getFrontier().nextEntry(10, TimeUnit.MILLISECONDS);
+        session.claim(taken.getUrl(), 100);
+        session.enqueue("http://example.com/a", 1, 0);
+        when(crawlSessionCheckpointRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        crawlCheckpointService.checkpoint(session);
+
+        // Assert
+        ArgumentCaptor<CrawlCheckpointEntity> saved = ArgumentCaptor.forClass(CrawlCheckpointEntity.class);
+        InOrder inOrder = inOrder(crawlPersistenceService, crawlSessionCheckpointRepository, crawlCheckpointRepository);
+        inOrder.verify(crawlPersistenceService).writePending("chk-0001");
+        inOrder.verify(crawlSessionCheckpointRepository).save(any());
+        inOrder.verify(crawlCheckpointRepository).save(saved.capture());
+        verify(crawlPersistenceService, never()).writePending("chk-0002");
+
+        CrawlCheckpointEntity checkpoint = saved.getValue();
+        assertEquals("chk-0001", checkpoint.getTaskId());
+        assertEquals(512L, checkpoint.getBytesDownloaded());
+        assertEquals(3, checkpoint.getMaxDepth());
+        assertEquals(10, checkpoint.getMaxResults());
+        assertNull(checkpoint.getMaxBytes());
+        CrawlSessionCheckpointEntity sessionCheckpoint = checkpoint.getSession();
+        assertEquals("chk-0001", sessionCheckpoint.getSessionId());
+        assertEquals(2, sessionCheckpoint.getFrontierSize());
+        assertEquals(1, sessionCheckpoint.getPagesProcessed());
+        assertEquals(List.of(BASE_URL, "http://example.com/a"),
+                CrawlCheckpointService.decode(sessionCheckpoint.getFrontier()).stream().map(entry -> entry.url).toList());
+    }
+
+    @Test
+    @DisplayName("Sessão com várias tarefas grava a fronteira uma vez")
+    void testCheckpointSavesFrontierOncePerSession() {
+        // Arrange
+        CrawlSession session = new CrawlSession(new CrawlTask("chk-0003", "security", BASE_URL), BASE_URL);
+        session.attach(new CrawlTask("chk-0004", "privacy", BASE_URL));
+        when(crawlSessionCheckpointRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        crawlCheckpointService.checkpoint(session);
+
+        // Assert
+        ArgumentCaptor<CrawlCheckpointEntity> saved = ArgumentCaptor.forClass(CrawlCheckpointEntity.class);
+        verify(crawlSessionCheckpointRepository, times(1)).save(any());
+        verify(crawlCheckpointRepository, times(2)).save(saved.capture());
+        assertSame(saved.getAllValues().get(0).getSession(), saved.getAllValues().get(1).getSession());
+    }
+
+    @Test
+    @DisplayName("Fronteira da sessão é removida com o checkpoint da última tarefa que a usa")
+    void testDeleteRemovesUnusedSessionCheckpoint() {
+        // Arrange
+        CrawlCheckpointEntity checkpoint = new CrawlCheckpointEntity("del-0001");
+        checkpoint.setSession(new CrawlSessionCheckpointEntity("del-0001"));
+        when(crawlCheckpointRepository.findById("del-0001")).thenReturn(Optional.of(checkpoint));
+        when(crawlCheckpointRepository.existsBySessionSessionId("del-0001")).thenReturn(false);
+
+        // Act
+        crawlCheckpointService.delete("del-0001");
+
+        // Assert
+        verify(crawlCheckpointRepository).delete(checkpoint);
+        verify(crawlSessionCheckpointRepository).deleteById("del-0001");
+    }
+
+    @Test
+    @DisplayName("Sem configuração explícita, checkpoints ficam desativados com H2 em memória")
+    void testDefaultsOffForInMemoryDatabase() {
+        assertTrue(CrawlCheckpointService.isInMemory("jdbc:h2:mem:testdb"));
+        assertFalse(CrawlCheckpointService.isInMemory("jdbc:h2:file:./data/crawler"));
+
+        ReflectionTestUtils.setField(crawlCheckpointService, "datasourceUrl", "jdbc:h2:mem:testdb");
+        crawlCheckpointService.init();
+        assertFalse(crawlCheckpointService.isEnabled());
+
+        ReflectionTestUtils.setField(crawlCheckpointService, "configuredEnabled", true);
+        ReflectionTestUtils.setField(crawlCheckpointService, "interval", 30000L);
+        crawlCheckpointService.init();
+        try {
+            assertTrue(crawlCheckpointService.isEnabled(), "Configuração explícita prevalece");
+        } finally {
+            crawlCheckpointService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Retomada marca como visitadas só as URLs anteriores ao checkpoint fora da fronteira")
+    void testRestoreTask() {
+        // Arrange
+        LocalDateTime checkpointAt = LocalDateTime.now().minusMinutes(5);
+        CrawlCheckpointEntity checkpoint = new CrawlCheckpointEntity("res-0001");
+        CrawlSessionCheckpointEntity sessionCheckpoint = new CrawlSessionCheckpointEntity("res-0001");
+        sessionCheckpoint.setFrontier("1\t0\thttp://example.com/a\n1\t0\thttp://example.com/b\n");
+        sessionCheckpoint.setPagesProcessed(2);
+        checkpoint.setSession(sessionCheckpoint);
+        checkpoint.setBytesDownloaded(2048L);
+        checkpoint.setElapsedMs(60000L);
+        checkpoint.setCheckpointAt(checkpointAt);
+        // /a estava em processamento no checkpoint e pode não ter enfileirado os seus links
+        when(crawlPersistenceService.getVisitedUrls("res-0001", checkpointAt))
+                .thenReturn(List.of(BASE_URL, "http://example.com/a"));
+        when(crawlPersistenceService.getFoundUrls("res-0001")).thenReturn(List.of(BASE_URL));
+        CrawlTask task = new CrawlTask("res-0001", "security", BASE_URL, new CrawlBudget(null, null, 90000L, null));
+
+        // Act
+        crawlCheckpointService.restoreTask(task, checkpoint);
+
+        // Assert
+        assertTrue(task.isUrlVisited(BASE_URL));
+        assertFalse(task.isUrlVisited("http://example.com/a"));
+        assertEquals(List.of(BASE_URL), task.getFoundUrls());
+        assertEquals(2048L, task.getBytesDownloaded());
+        assertTrue(task.getElapsedMillis() >= 60000L);
+        assertTrue(task.checkBudget());
+    }
+
+    @Test
+    @DisplayName("Fronteira do checkpoint volta para a sessão com a contagem de páginas")
+    void testRestoreFrontier() throws InterruptedException {
+        // Arrange
+        CrawlCheckpointEntity checkpoint = new CrawlCheckpointEntity("res-0002");
+        CrawlSessionCheckpointEntity sessionCheckpoint = new CrawlSessionCheckpointEntity("res-0002");
+        sessionCheckpoint.setFrontier("2\t0\thttp://example.com/a/b\n");
+        sessionCheckpoint.setPagesProcessed(7);
+        checkpoint.setSession(sessionCheckpoint);
+        CrawlSession session = new CrawlSession(new CrawlTask("res-0002", "security", BASE_URL), BASE_URL);
+
+        // Act
+        crawlCheckpointService.restoreFrontier(session, checkpoint, true);
+
+        // Assert
+        assertEquals(7, session.getPagesProcessed());
+        session.getFrontier().nextEntry(10, TimeUnit.MILLISECONDS);
+        CrawlFrontier.Entry restored = session.getFrontier().nextEntry(10, TimeUnit.MILLISECONDS);
+        assertEquals("http://example.com/a/b", restored.getUrl());
+        assertEquals(2, restored.getDepth());
+    }
+
+    @Test
+    @DisplayName("Na inicialização, tarefa com checkpoint parado volta para a fila com os seus limites")
+    void testRecoverStaleTasks() {
+        // Arrange
+        CrawlCheckpointEntity checkpoint = new CrawlCheckpointEntity("old-0001");
+        CrawlSessionCheckpointEntity sessionCheckpoint = new CrawlSessionCheckpointEntity("old-0001");
+        sessionCheckpoint.setFrontierSize(1);
+        checkpoint.setSession(sessionCheckpoint);
+        checkpoint.setMaxDepth(4);
+        checkpoint.setMaxResults(20);
+        LocalDateTime seen = LocalDateTime.now().minusHours(1);
+        checkpoint.setCheckpointAt(seen);
+        when(crawlCheckpointRepository.findStaleActive(any())).thenReturn(List.of(checkpoint));
+        when(crawlCheckpointRepository.claim(eq("old-0001"), eq(seen), any())).thenReturn(1);
+        when(crawlTaskRepository.findById("old-0001")).thenReturn(
+                Optional.of(new CrawlTaskEntity("old-0001", "security", BASE_URL)));
+
+        // Act
+        crawlCheckpointService.recoverStaleTasks();
+
+        // Assert
+        ArgumentCaptor<CrawlTask> sent = ArgumentCaptor.forClass(CrawlTask.class);
+        verify(crawlMessageService).sendCrawlMessage(sent.capture());
+        assertEquals("old-0001", sent.getValue().getId());
+        assertEquals("security", sent.getValue().getKeyword());
+        assertEquals(4, sent.getValue().getBudget().getMaxDepth());
+        assertEquals(20, sent.getValue().getBudget().getMaxResults());
+        // O checkpoint é reivindicado para que outro nó não envie a tarefa de novo
+        ArgumentCaptor<LocalDateTime> claimedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(crawlCheckpointRepository).claim(eq("old-0001"), eq(seen), claimedAt.capture());
+        assertTrue(claimedAt.getValue().isAfter(LocalDateTime.now().minusMinutes(1)));
+    }
+
+    @Test
+    @DisplayName("Tarefa já reivindicada por outro nó não volta para a fila de novo")
+    void testRecoverStaleTasks_AlreadyClaimed() {
+        // Arrange
+        CrawlCheckpointEntity checkpoint = new CrawlCheckpointEntity("old-0002");
+        checkpoint.setCheckpointAt(LocalDateTime.now().minusHours(1));
+        when(crawlCheckpointRepository.findStaleActive(any())).thenReturn(List.of(checkpoint));
+        when(crawlCheckpointRepository.claim(eq("old-0002"), any(), any())).thenReturn(0);
+        when(crawlTaskRepository.findById("old-0002")).thenReturn(
+                Optional.of(new CrawlTaskEntity("old-0002", "security", BASE_URL)));
+
+        // Act
+        crawlCheckpointService.recoverStaleTasks();
+
+        // Assert
+        verifyNoInteractions(crawlMessageService);
+    }
+
+    @Test
+    @DisplayName("Checkpoints desativados não consultam o banco")
+    void testDisabled() {
+        // Arrange
+        ReflectionTestUtils.setField(crawlCheckpointService, "enabled", false);
+
+        // Act & Assert
+        assertNull(crawlCheckpointService.load("off-0001"));
+        crawlCheckpointService.recoverStaleTasks();
+        crawlCheckpointService.delete("off-0001");
+        verifyNoInteractions(crawlCheckpointRepository, crawlSessionCheckpointRepository, crawlMessageService);
+    }
+}
@@ -1,7 +1,9 @@
 package com.mulato.api.service;
 
 import com.mulato.api.config.RabbitConfig;
+import com.mulato.api.crawler.UrlFingerprintSet;
 import com.mulato.api.model.CrawlTask;
+import com.mulato.api.model.CrawlUrlMessage;
 import com.mulato.api.util.LogCapture;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,10 +11,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -124,4 +133,43 @@ class CrawlMessageServiceTest {
         assertThrows(RuntimeException.class, 
             () -> crawlMessageService.sendCrawlMessage(null));
     }
+
+    @Test
+    void testCrawlTaskMessageRoundTrip() {
+        // Given
+        Jackson2JsonMessageConverter converter = new RabbitConfig().messageConverter();
+        CrawlTask offHeapTask = new CrawlTask("test-123", "security", "http://example.com", true);
+        offHeapTask.markUrlAsVisited("http://example.com/");
+
+        // When
+        Message message = converter.toMessage(offHeapTask, new MessageProperties());
+        CrawlTask received = (CrawlTask) converter.fromMessage(message, CrawlTask.class);
+
+        // Then - as URLs visitadas ficam fora da mensagem
+        assertFalse(new String(message.getBody(), StandardCharsets.UTF_8).contains("visited"));
+        assertEquals(offHeapTask.getId(), received.getId());
+        assertEquals(offHeapTask.getKeyword(), received.getKeyword());
+        assertEquals(offHeapTask.getBaseUrl(), received.getBaseUrl());
+        assertTrue(received.getVisitedUrls().isEmpty());
+    }
+
+    @Test
+    void testSendUrlMessage_ConsistentHashRoutesByUrlFingerprint() {
+        // Given
+        ReflectionTestUtils.setField(crawlMessageService, "partitioning", RabbitConfig.CONSISTENT_HASH);
+        CrawlUrlMessage first = new CrawlUrlMessage("test-123", "security", "http://example.com",
+                "http://example.com/a", 1, null);
+        CrawlUrlMessage again = new CrawlUrlMessage("test-456", "privacy", "http://example.com",
+                "http://example.com/a", 3, null);
+
+        // When
+        crawlMessageService.sendUrlMessage(first);
+        crawlMessageService.sendUrlMessage(again);
+
+        // Then - a mesma URL tem sempre a mesma routing key, e portanto o mesmo nó dono
+        String routingKey = Long.toHexString(UrlFingerprintSet.hash("http://example.com/a"));
+        verify(rabbitTemplate).convertAndSend(RabbitConfig.CRAWL_URL_HASH_EXCHANGE, routingKey, first);
+        verify(rabbitTemplate).convertAndSend(RabbitConfig.CRAWL_URL_HASH_EXCHANGE, routingKey, again);
+        verify(rabbitTemplate, never()).convertAndSend(eq(RabbitConfig.CRAWL_URL_EXCHANGE), anyString(), any(Object.class));
+    }
 }
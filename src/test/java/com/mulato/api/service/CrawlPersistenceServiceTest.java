@@ -1,22 +1,34 @@
 package com.mulato.api.service;
 
 import com.mulato.api.entity.CrawlResultEntity;
-import com.mulato.api.entity.VisitedUrlEntity;
 import com.mulato.api.repository.CrawlResultRepository;
 import com.mulato.api.repository.VisitedUrlRepository;
 import com.mulato.api.util.LogCapture;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +40,9 @@ class CrawlPersistenceServiceTest {
     @Mock
     private VisitedUrlRepository visitedUrlRepository;
 
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
     @InjectMocks
     private CrawlPersistenceService crawlPersistenceService;
 
@@ -38,82 +53,244 @@ class CrawlPersistenceServiceTest {
     void setUp() {
         testTaskId = "test-task-123";
         testUrl = "http://example.com/page1";
+
+        ReflectionTestUtils.setField(crawlPersistenceService, "batchSize", 500);
+        ReflectionTestUtils.setField(crawlPersistenceService, "bufferCapacity", 10000);
+        ReflectionTestUtils.setField(crawlPersistenceService, "maxRetries", 5);
     }
 
     @Test
     void testSaveFoundUrl_Success() {
-        // Given
-        when(crawlResultRepository.save(any(CrawlResultEntity.class)))
-                .thenReturn(new CrawlResultEntity(testTaskId, testUrl));
-
         // When
         crawlPersistenceService.saveFoundUrl(testTaskId, testUrl);
 
         // Then
-        verify(crawlResultRepository, times(1)).save(any(CrawlResultEntity.class));
+        verifyNoInteractions(jdbcTemplate);
+        assertEquals(1, crawlPersistenceService.pending(testTaskId));
+
+        crawlPersistenceService.flush(testTaskId);
+
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("crawl_results"), rows(1));
+        verify(crawlResultRepository, never()).save(any(CrawlResultEntity.class));
+        assertEquals(0, crawlPersistenceService.pending(testTaskId));
+    }
+
+    @Test
+    void testClaimUrl_DuplicateReturnsFalse() {
+        // Given
+        when(jdbcTemplate.update(contains("INSERT INTO visited_urls"), eq(testTaskId), eq(testUrl), any()))
+                .thenReturn(1)
+                .thenThrow(new DuplicateKeyException("unique_task_url"));
+
+        // When & Then - só a primeira reserva vence, sem passar pelo buffer
+        assertTrue(crawlPersistenceService.claimUrl(testTaskId, testUrl));
+        assertFalse(crawlPersistenceService.claimUrl(testTaskId, testUrl));
+        assertEquals(0, crawlPersistenceService.pending(testTaskId));
     }
 
     @Test
     void testSaveFoundUrl_Exception() {
         // Given
         LogCapture logCapture = new LogCapture(CrawlPersistenceService.class);
-        doThrow(new RuntimeException("Database error"))
-                .when(crawlResultRepository).save(any(CrawlResultEntity.class));
+        when(jdbcTemplate.batchUpdate(contains("crawl_results"), rows()))
+                .thenThrow(new RuntimeException("Database error"));
 
         // When
         crawlPersistenceService.saveFoundUrl(testTaskId, testUrl);
+        crawlPersistenceService.flush(testTaskId);
 
-        // Then
-        verify(crawlResultRepository, times(1)).save(any(CrawlResultEntity.class));
-        assertTrue(logCapture.hasLogMessage("Error saving found URL for task " + testTaskId));
+        // Then: o lote não é perdido, volta para um buffer e é gravado no próximo flush
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("crawl_results"), rows());
+        assertTrue(logCapture.hasLogMessage("Error saving found URLs for task " + testTaskId));
+        assertEquals(1, crawlPersistenceService.pending(testTaskId));
         
         logCapture.stop();
+        
+        reset(jdbcTemplate);
+        crawlPersistenceService.flushAll();
+        
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("crawl_results"), rows(1));
+        assertEquals(0, crawlPersistenceService.pending(testTaskId));
     }
 
     @Test
-    void testSaveVisitedUrl_Success() {
+    void testSaveVisitedUrl_BatchSize() {
         // Given
-        when(visitedUrlRepository.existsByTaskIdAndUrl(testTaskId, testUrl)).thenReturn(false);
-        when(visitedUrlRepository.save(any(VisitedUrlEntity.class)))
-                .thenReturn(new VisitedUrlEntity(testTaskId, testUrl));
+        ReflectionTestUtils.setField(crawlPersistenceService, "batchSize", 2);
 
         // When
         crawlPersistenceService.saveVisitedUrl(testTaskId, testUrl);
+        verifyNoInteractions(jdbcTemplate);
+        crawlPersistenceService.saveVisitedUrl(testTaskId, "http://example.com/page2");
 
         // Then
-        verify(visitedUrlRepository, times(1)).existsByTaskIdAndUrl(testTaskId, testUrl);
-        verify(visitedUrlRepository, times(1)).save(any(VisitedUrlEntity.class));
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("visited_urls"), rows(2));
+        verify(visitedUrlRepository, never()).existsByTaskIdAndUrl(anyString(), anyString());
+        assertEquals(0, crawlPersistenceService.pending(testTaskId));
     }
 
     @Test
-    void testSaveVisitedUrl_AlreadyExists() {
+    void testSaveVisitedUrl_BufferFull() {
         // Given
-        when(visitedUrlRepository.existsByTaskIdAndUrl(testTaskId, testUrl)).thenReturn(true);
+        ReflectionTestUtils.setField(crawlPersistenceService, "bufferCapacity", 3);
+        ReflectionTestUtils.setField(crawlPersistenceService, "flushInterval", 60000L);
+        crawlPersistenceService.init();
+
+        try {
+            // When
+            crawlPersistenceService.saveVisitedUrl(testTaskId, testUrl);
+            crawlPersistenceService.saveFoundUrl(testTaskId, testUrl);
+            crawlPersistenceService.saveVisitedUrl(testTaskId, "http://example.com/page2");
+
+            // Then: o worker que encheu o buffer grava o lote antes de continuar
+            verify(jdbcTemplate, times(1)).batchUpdate(contains("visited_urls"), rows(2));
+            verify(jdbcTemplate, times(1)).batchUpdate(contains("crawl_results"), rows(1));
+            assertEquals(0, crawlPersistenceService.pending(testTaskId));
+        } finally {
+            crawlPersistenceService.shutdown();
+        }
+    }
+
+    @Test
+    void testSaveVisitedUrl_Exception() {
+        // Given
+        LogCapture logCapture = new LogCapture(CrawlPersistenceService.class);
+        when(jdbcTemplate.batchUpdate(contains("visited_urls"), rows()))
+                .thenThrow(new RuntimeException("Database error"));
 
         // When
         crawlPersistenceService.saveVisitedUrl(testTaskId, testUrl);
+        crawlPersistenceService.flush(testTaskId);
 
         // Then
-        verify(visitedUrlRepository, times(1)).existsByTaskIdAndUrl(testTaskId, testUrl);
-        verify(visitedUrlRepository, never()).save(any(VisitedUrlEntity.class));
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("visited_urls"), rows());
+        assertTrue(logCapture.hasLogMessage("Error saving visited URLs for task " + testTaskId));
+        assertEquals(1, crawlPersistenceService.pending(testTaskId));
+        
+        logCapture.stop();
     }
 
     @Test
-    void testSaveVisitedUrl_Exception() {
-        // Given
+    void testSaveFoundUrl_RejectedRowDropped() {
+        // Given: URL maior que a coluna recusa o lote
         LogCapture logCapture = new LogCapture(CrawlPersistenceService.class);
-        when(visitedUrlRepository.existsByTaskIdAndUrl(testTaskId, testUrl)).thenReturn(false);
-        doThrow(new RuntimeException("Database error"))
-                .when(visitedUrlRepository).save(any(VisitedUrlEntity.class));
+        when(jdbcTemplate.batchUpdate(contains("crawl_results"), rows()))
+                .thenThrow(new DataIntegrityViolationException("Value too long for column URL"));
+        when(jdbcTemplate.update(contains("crawl_results"), any(Object[].class)))
+                .thenThrow(new DataIntegrityViolationException("Value too long for column URL"))
+                .thenReturn(1);
+
+        // When
+        crawlPersistenceService.saveFoundUrl(testTaskId, "http://example.com/" + "a".repeat(1000));
+        crawlPersistenceService.saveFoundUrl(testTaskId, testUrl);
+        crawlPersistenceService.flush(testTaskId);
+
+        // Then: só a linha recusada é descartada, sem voltar ao buffer
+        verify(jdbcTemplate, times(2)).update(contains("crawl_results"), any(Object[].class));
+        assertTrue(logCapture.hasLogMessage("Dropping found URL http://example.com/aaa"));
+        assertEquals(0, crawlPersistenceService.pending(testTaskId));
+
+        logCapture.stop();
+    }
+
+    @Test
+    void testSaveVisitedUrl_RetriesLimited() {
+        // Given
+        ReflectionTestUtils.setField(crawlPersistenceService, "maxRetries", 1);
+        when(jdbcTemplate.batchUpdate(contains("visited_urls"), rows()))
+                .thenThrow(new TransientDataAccessResourceException("Connection lost"));
 
         // When
         crawlPersistenceService.saveVisitedUrl(testTaskId, testUrl);
+        crawlPersistenceService.writePending(testTaskId);
+
+        // Then: volta ao buffer uma vez e é descartado na falha seguinte
+        assertEquals(1, crawlPersistenceService.pending(testTaskId));
+        crawlPersistenceService.writePending(testTaskId);
+        assertEquals(0, crawlPersistenceService.pending(testTaskId));
+        verify(jdbcTemplate, times(2)).batchUpdate(contains("visited_urls"), rows());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void testSaveVisitedUrl_SingleScheduledFlush() {
+        // Given
+        ScheduledExecutorService flusher = mock(ScheduledExecutorService.class);
+        ReflectionTestUtils.setField(crawlPersistenceService, "flusher", flusher);
+        ReflectionTestUtils.setField(crawlPersistenceService, "batchSize", 2);
+
+        // When: acima do lote, enquanto o flusher não roda
+        for (int i = 0; i < 5; i++) {
+            crawlPersistenceService.saveVisitedUrl(testTaskId, testUrl + i);
+        }
+
+        // Then: um único lote aguardando o flusher
+        verify(flusher, times(1)).execute(any(Runnable.class));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testSaveVisitedUrl_DialectSql() {
+        // Given
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Object>>any())).thenReturn("PostgreSQL");
+
+        // When
+        crawlPersistenceService.saveVisitedUrl(testTaskId, testUrl);
+        crawlPersistenceService.flush(testTaskId);
 
         // Then
-        verify(visitedUrlRepository, times(1)).save(any(VisitedUrlEntity.class));
-        assertTrue(logCapture.hasLogMessage("Error saving visited URL for task " + testTaskId));
-        
-        logCapture.stop();
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("ON CONFLICT (task_id, url) DO NOTHING"), rows(1));
+    }
+
+    @Test
+    void testSaveVisitedUrl_UnknownDialectSkipsDuplicates() {
+        // Given: banco sem variante conhecida, lote com uma URL já registrada
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Object>>any())).thenReturn("Other");
+        when(jdbcTemplate.batchUpdate(eq("INSERT INTO visited_urls (task_id, url, visited_at) VALUES (?, ?, ?)"), rows()))
+                .thenThrow(new DuplicateKeyException("unique_task_url"));
+        when(jdbcTemplate.update(contains("INSERT INTO visited_urls"), any(Object[].class)))
+                .thenThrow(new DuplicateKeyException("unique_task_url"))
+                .thenReturn(1);
+
+        // When
+        crawlPersistenceService.saveVisitedUrl(testTaskId, testUrl);
+        crawlPersistenceService.saveVisitedUrl(testTaskId, "http://example.com/page2");
+        crawlPersistenceService.flush(testTaskId);
+
+        // Then: linha a linha, sem voltar ao buffer
+        verify(jdbcTemplate, times(2)).update(contains("INSERT INTO visited_urls"), any(Object[].class));
+        assertEquals(0, crawlPersistenceService.pending(testTaskId));
+    }
+
+    @Test
+    void testSaveFoundUrl_AfterFlush() {
+        // Given
+        crawlPersistenceService.saveFoundUrl(testTaskId, testUrl);
+        crawlPersistenceService.flush(testTaskId);
+
+        // When: gravação atrasada de um worker depois de a tarefa ser concluída
+        crawlPersistenceService.saveFoundUrl(testTaskId, "http://example.com/late");
+        crawlPersistenceService.flushAll();
+
+        // Then: a linha é gravada e o buffer recriado é descartado
+        verify(jdbcTemplate, times(2)).batchUpdate(contains("crawl_results"), rows(1));
+        Map<?, ?> buffers = (Map<?, ?>) ReflectionTestUtils.getField(crawlPersistenceService, "buffers");
+        assertTrue(buffers.isEmpty());
+    }
+
+    @Test
+    void testFlushAll() {
+        // Given
+        crawlPersistenceService.saveFoundUrl(testTaskId, testUrl);
+        crawlPersistenceService.saveFoundUrl("other-01", testUrl);
+
+        // When
+        crawlPersistenceService.flushAll();
+
+        // Then
+        verify(jdbcTemplate, times(2)).batchUpdate(contains("crawl_results"), rows());
+        assertEquals(0, crawlPersistenceService.pending(testTaskId));
+        assertEquals(0, crawlPersistenceService.pending("other-01"));
     }
 
     @Test
@@ -231,4 +408,12 @@ class CrawlPersistenceServiceTest {
         assertEquals(0L, result);
         verify(crawlResultRepository, times(1)).countByTaskId(testTaskId);
     }
+
+    private static List<Object[]> rows() {
+        return any();
+    }
+
+    private static List<Object[]> rows(int size) {
+        return argThat(rows -> rows.size() == size);
+    }
 }
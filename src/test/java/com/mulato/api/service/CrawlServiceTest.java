@@ -1,6 +1,7 @@
 package com.mulato.api.service;
 
 import com.mulato.api.entity.CrawlTaskEntity;
+import com.mulato.api.model.CrawlBudget;
 import com.mulato.api.model.CrawlResult;
 import com.mulato.api.model.CrawlTask;
 import com.mulato.api.repository.CrawlResultRepository;
@@ -8,17 +9,21 @@ import com.mulato.api.repository.CrawlTaskRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +41,15 @@ class CrawlServiceTest {
     @Mock
     private CrawlResultRepository crawlResultRepository;
 
+    @Mock
+    private CrawlPersistenceService crawlPersistenceService;
+
+    @Mock
+    private CrawlCheckpointService crawlCheckpointService;
+
+    @Mock
+    private DistributedCrawlService distributedCrawlService;
+
     @InjectMocks
     private CrawlService crawlService;
 
@@ -45,6 +59,10 @@ class CrawlServiceTest {
     void setUp() {
         testBaseUrl = "http://example.com";
         ReflectionTestUtils.setField(crawlService, "baseUrl", testBaseUrl);
+        ReflectionTestUtils.setField(crawlService, "maxDepth", 50);
+        ReflectionTestUtils.setField(crawlService, "maxBytes", DataSize.ofMegabytes(100));
+        ReflectionTestUtils.setField(crawlService, "maxDuration", 600000L);
+        ReflectionTestUtils.setField(crawlService, "maxResults", 100);
     }
 
     @Test
@@ -260,4 +278,109 @@ class CrawlServiceTest {
         // Assert
         assertEquals(customBaseUrl, task.getBaseUrl());
     }
+
+    @Test
+    void testFinishCrawlTaskFlushesPendingUrls() {
+        // Arrange
+        String crawlId = "fin12345";
+        when(idGeneratorService.generateId()).thenReturn(crawlId);
+        crawlService.startCrawl("security");
+        CrawlTaskEntity entity = new CrawlTaskEntity(crawlId, "security", testBaseUrl);
+        when(crawlTaskRepository.findById(crawlId)).thenReturn(Optional.of(entity));
+
+        // Act
+        crawlService.finishCrawlTask(crawlId);
+
+        // Assert - as URLs pendentes são gravadas antes de a tarefa ser marcada como concluída
+        InOrder inOrder = inOrder(crawlPersistenceService, crawlTaskRepository);
+        inOrder.verify(crawlPersistenceService).flush(crawlId);
+        inOrder.verify(crawlTaskRepository).save(argThat(saved -> "done".equals(saved.getStatus())));
+        assertNull(crawlService.getActiveCrawlTask(crawlId));
+    }
+
+    @Test
+    void testStartCrawlCapsRequestedBudget() {
+        // Arrange
+        when(idGeneratorService.generateId()).thenReturn("bud12345", "bud67890");
+
+        // Act - limites acima do servidor são reduzidos e os ausentes assumem o do servidor
+        crawlService.startCrawl("security", new CrawlBudget(3, DataSize.ofGigabytes(5).toBytes(), null, 20));
+        crawlService.startCrawl("security");
+
+        // Assert
+        CrawlBudget requested = crawlService.getActiveCrawlTask("bud12345").getBudget();
+        assertEquals(3, requested.getMaxDepth());
+        assertEquals(DataSize.ofMegabytes(100).toBytes(), requested.getMaxBytes());
+        assertEquals(600000L, requested.getMaxDuration());
+        assertEquals(20, requested.getMaxResults());
+
+        CrawlBudget defaults = crawlService.getActiveCrawlTask("bud67890").getBudget();
+        assertEquals(50, defaults.getMaxDepth());
+        assertEquals(DataSize.ofMegabytes(100).toBytes(), defaults.getMaxBytes());
+        assertEquals(600000L, defaults.getMaxDuration());
+        assertEquals(100, defaults.getMaxResults());
+    }
+
+    @Test
+    void testFinishCrawlTaskRecordsStopReason() {
+        // Arrange
+        String crawlId = "stp12345";
+        when(idGeneratorService.generateId()).thenReturn(crawlId);
+        crawlService.startCrawl("security");
+        crawlService.getActiveCrawlTask(crawlId).stop(CrawlTask.STOP_MAX_BYTES);
+        CrawlTaskEntity entity = new CrawlTaskEntity(crawlId, "security", testBaseUrl);
+        when(crawlTaskRepository.findById(crawlId)).thenReturn(Optional.of(entity));
+
+        // Act
+        crawlService.finishCrawlTask(crawlId);
+
+        // Assert
+        assertEquals(CrawlTask.STOP_MAX_BYTES, entity.getStopReason());
+        when(crawlResultRepository.findUrlsByTaskId(crawlId)).thenReturn(List.of());
+        assertEquals(CrawlTask.STOP_MAX_BYTES, crawlService.getCrawlResult(crawlId).getStopReason());
+    }
+
+    @Test
+    void testFinishCrawlTaskDeletesCheckpoint() {
+        // Arrange
+        String crawlId = "chk12345";
+        when(idGeneratorService.generateId()).thenReturn(crawlId);
+        crawlService.startCrawl("security");
+        when(crawlTaskRepository.findById(crawlId)).thenReturn(
+                Optional.of(new CrawlTaskEntity(crawlId, "security", testBaseUrl)));
+
+        // Act
+        crawlService.finishCrawlTask(crawlId);
+
+        // Assert
+        verify(crawlCheckpointService).delete(crawlId);
+    }
+
+    @Test
+    void testResumeCrawlTaskRegistersRedeliveredTask() {
+        // Arrange - mensagem redistribuída depois de um reinício: a tarefa não está em memória
+        CrawlTask received = new CrawlTask("res12345", "security", testBaseUrl);
+        when(crawlTaskRepository.findById("res12345")).thenReturn(
+                Optional.of(new CrawlTaskEntity("res12345", "security", testBaseUrl)));
+
+        // Act
+        CrawlTask resumed = crawlService.resumeCrawlTask(received);
+
+        // Assert - a cópia da mensagem passa a ser a consultada pelo GET /crawl/{id}
+        assertSame(received, resumed);
+        assertSame(received, crawlService.getActiveCrawlTask("res12345"));
+        assertSame(received, crawlService.resumeCrawlTask(new CrawlTask("res12345", "security", testBaseUrl)));
+    }
+
+    @Test
+    void testResumeCrawlTaskIgnoresFinishedTask() {
+        // Arrange
+        CrawlTaskEntity entity = new CrawlTaskEntity("fin12345", "security", testBaseUrl);
+        entity.setStatus("done");
+        when(crawlTaskRepository.findById("fin12345")).thenReturn(Optional.of(entity));
+
+        // Act & Assert
+        assertNull(crawlService.resumeCrawlTask(new CrawlTask("fin12345", "security", testBaseUrl)));
+        assertNull(crawlService.getActiveCrawlTask("fin12345"));
+    }
 }
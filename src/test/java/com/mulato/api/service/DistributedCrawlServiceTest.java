@@ -0,0 +1,383 @@
+package com.mulato.api.service;
+
+import com.mulato.api.crawler.ScannedPage;
+import com.mulato.api.entity.CrawlTaskEntity;
+import com.mulato.api.model.CrawlBudget;
+import com.mulato.api.model.CrawlTask;
+import com.mulato.api.model.CrawlUrlMessage;
+import com.mulato.api.repository.CrawlTaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Crawling distribuído por mensagens de URL")
+class DistributedCrawlServiceTest {
+
+    private static final String TASK_ID = "dist0001";
+    private static final String BASE_URL = "http://example.com/";
+
+    @Mock
+    private WebCrawlerService webCrawlerService;
+
+    @Mock
+    private CrawlTaskRepository crawlTaskRepository;
+
+    @Mock
+    private CrawlPersistenceService crawlPersistenceService;
+
+    @Mock
+    private CrawlMessageService crawlMessageService;
+
+    @InjectMocks
+    private DistributedCrawlService distributedCrawlService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(distributedCrawlService, "distribution", "distributed");
+        ReflectionTestUtils.setField(distributedCrawlService, "maxPages", 100);
+    }
+
+    private CrawlUrlMessage message(String url, int depth, CrawlBudget budget) {
+        return new CrawlUrlMessage(TASK_ID, "security", BASE_URL, url, depth, budget);
+    }
+
+    private CrawlTaskEntity activeTask() {
+        CrawlTaskEntity entity = new CrawlTaskEntity(TASK_ID, "security", BASE_URL);
+        when(crawlTaskRepository.findById(TASK_ID)).thenReturn(Optional.of(entity));
+        return entity;
+    }
+
+    @Test
+    @DisplayName("A mensagem da tarefa publica só a URL base, uma única vez")
+    void testSeedPublishesBaseUrlOnce() {
+        // Arrange
+        CrawlTask task = new CrawlTask(TASK_ID, "security", "http://example.com", new CrawlBudget(2, null, null, null));
+        when(webCrawlerService.canonicalize("http://example.com")).thenReturn(BASE_URL);
+        when(crawlPersistenceService.claimUrl(TASK_ID, BASE_URL)).thenReturn(true, false);
+
+        // Act
+        distributedCrawlService.seed(task);
+        distributedCrawlService.seed(task);
+
+        // Assert
+        ArgumentCaptor<CrawlUrlMessage> sent = ArgumentCaptor.forClass(CrawlUrlMessage.class);
+        verify(crawlMessageService).sendUrlMessage(sent.capture());
+        assertEquals(BASE_URL, sent.getValue().getUrl());
+        assertEquals(0, sent.getValue().getDepth());
+        assertEquals(2, sent.getValue().getBudget().getMaxDepth());
+        verify(crawlTaskRepository).addPendingUrls(TASK_ID, 1);
+    }
+
+    @Test
+    @DisplayName("Página publica só os links reservados e conta os pendentes antes do envio")
+    void testProcessUrlPublishesClaimedLinks() {
+        // Arrange
+        activeTask();
+        when(crawlTaskRepository.reservePage(TASK_ID, 100)).thenReturn(1);
+        when(webCrawlerService.scanPage(eq(BASE_URL), eq("security"), any())).thenReturn(new ScannedPage(
+                BASE_URL, true, 1024, null, List.of("http://example.com/a", "http://example.com/b")));
+        when(crawlTaskRepository.reserveResult(TASK_ID, Integer.MAX_VALUE)).thenReturn(1);
+        // Outro nó já reservou /b
+        when(crawlPersistenceService.claimUrl(TASK_ID, "http://example.com/a")).thenReturn(true);
+        when(crawlPersistenceService.claimUrl(TASK_ID, "http://example.com/b")).thenReturn(false);
+        when(crawlTaskRepository.findPendingUrls(TASK_ID)).thenReturn(1);
+
+        // Act
+        distributedCrawlService.processUrl(message(BASE_URL, 0, CrawlBudget.UNLIMITED));
+
+        // Assert
+        verify(crawlPersistenceService).saveFoundUrl(TASK_ID, BASE_URL);
+        verify(crawlTaskRepository).addBytesDownloaded(TASK_ID, 1024);
+        ArgumentCaptor<CrawlUrlMessage> sent = ArgumentCaptor.forClass(CrawlUrlMessage.class);
+        InOrder inOrder = inOrder(crawlTaskRepository, crawlMessageService, crawlPersistenceService);
+        inOrder.verify(crawlTaskRepository).addPendingUrls(TASK_ID, 1);
+        inOrder.verify(crawlMessageService).sendUrlMessage(sent.capture());
+        inOrder.verify(crawlPersistenceService).writePending(TASK_ID);
+        inOrder.verify(crawlTaskRepository).addPendingUrls(TASK_ID, -1);
+        assertEquals("http://example.com/a", sent.getValue().getUrl());
+        assertEquals(1, sent.getValue().getDepth());
+        verify(crawlTaskRepository, never()).finish(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("A última mensagem pendente conclui a tarefa")
+    void testLastMessageFinishesTask() {
+        // Arrange
+        activeTask();
+        when(crawlTaskRepository.reservePage(TASK_ID, 100)).thenReturn(1);
+        when(webCrawlerService.scanPage(eq("http://example.com/a"), eq("security"), any()))
+                .thenReturn(new ScannedPage("http://example.com/a", false, 10, null, List.of()));
+        when(crawlTaskRepository.findPendingUrls(TASK_ID)).thenReturn(0);
+        when(crawlTaskRepository.finish(eq(TASK_ID), any())).thenReturn(1);
+
+        // Act
+        distributedCrawlService.processUrl(message("http://example.com/a", 1, CrawlBudget.UNLIMITED));
+
+        // Assert
+        verify(crawlTaskRepository).finish(eq(TASK_ID), any());
+        verify(crawlPersistenceService).flush(TASK_ID);
+        verify(crawlMessageService, never()).sendUrlMessage(any());
+    }
+
+    @Test
+    @DisplayName("Limite de páginas atingido encerra a tarefa sem buscar a página")
+    void testPageLimitStopsTask() {
+        // Arrange
+        activeTask();
+        when(crawlTaskRepository.reservePage(TASK_ID, 100)).thenReturn(0);
+        when(crawlTaskRepository.findPendingUrls(TASK_ID)).thenReturn(3);
+
+        // Act
+        distributedCrawlService.processUrl(message("http://example.com/a", 1, CrawlBudget.UNLIMITED));
+
+        // Assert
+        verify(crawlTaskRepository).stop(TASK_ID, CrawlTask.STOP_MAX_PAGES);
+        verifyNoInteractions(webCrawlerService);
+        verify(crawlTaskRepository).addPendingUrls(TASK_ID, -1);
+    }
+
+    @Test
+    @DisplayName("Tarefa encerrada por um limite só desconta as mensagens restantes")
+    void testStoppedTaskDrainsMessages() {
+        // Arrange
+        activeTask().setStopReason(CrawlTask.STOP_MAX_RESULTS);
+        when(crawlTaskRepository.findPendingUrls(TASK_ID)).thenReturn(2);
+
+        // Act
+        distributedCrawlService.processUrl(message("http://example.com/a", 1, CrawlBudget.UNLIMITED));
+
+        // Assert
+        verify(crawlTaskRepository, never()).reservePage(anyString(), anyInt());
+        verifyNoInteractions(webCrawlerService);
+        verify(crawlTaskRepository).addPendingUrls(TASK_ID, -1);
+    }
+
+    @Test
+    @DisplayName("Links além da profundidade máxima não são publicados")
+    void testDepthLimitMarksTask() {
+        // Arrange
+        activeTask();
+        when(crawlTaskRepository.reservePage(TASK_ID, 100)).thenReturn(1);
+        when(webCrawlerService.scanPage(eq("http://example.com/a"), eq("security"), any()))
+                .thenReturn(new ScannedPage("http://example.com/a", false, 10, null, List.of("http://example.com/b")));
+        when(crawlTaskRepository.findPendingUrls(TASK_ID)).thenReturn(1);
+
+        // Act
+        distributedCrawlService.processUrl(message("http://example.com/a", 1, new CrawlBudget(1, null, null, null)));
+
+        // Assert
+        verify(crawlTaskRepository).markDepthLimited(TASK_ID);
+        verify(crawlPersistenceService, never()).claimUrl(anyString(), anyString());
+        verify(crawlMessageService, never()).sendUrlMessage(any());
+    }
+
+    @Test
+    @DisplayName("Mensagem de tarefa concluída é descartada sem mexer nos contadores")
+    void testFinishedTaskIgnored() {
+        // Arrange
+        activeTask().setStatus("done");
+
+        // Act
+        distributedCrawlService.processUrl(message("http://example.com/a", 1, CrawlBudget.UNLIMITED));
+
+        // Assert
+        verify(crawlTaskRepository, never()).addPendingUrls(anyString(), anyInt());
+        verifyNoInteractions(webCrawlerService, crawlMessageService);
+    }
+
+    @Test
+    @DisplayName("Particionado, todos os links são publicados sem reserva no banco")
+    void testPartitionedPublishesWithoutClaims() {
+        // Arrange
+        activeTask();
+        when(crawlMessageService.isPartitioned()).thenReturn(true);
+        when(crawlTaskRepository.reservePage(TASK_ID, 100)).thenReturn(1);
+        when(webCrawlerService.scanPage(eq(BASE_URL), eq("security"), any())).thenReturn(new ScannedPage(
+                BASE_URL, false, 10, "http://example.com/index", List.of("http://example.com/a", "http://example.com/b")));
+        when(crawlTaskRepository.findPendingUrls(TASK_ID)).thenReturn(2);
+
+        // Act
+        distributedCrawlService.processUrl(message(BASE_URL, 0, CrawlBudget.UNLIMITED));
+
+        // Assert
+        verify(crawlPersistenceService, never()).claimUrl(anyString(), anyString());
+        verify(crawlPersistenceService).saveVisitedUrl(TASK_ID, BASE_URL);
+        verify(crawlTaskRepository).addPendingUrls(TASK_ID, 2);
+        verify(crawlMessageService, times(2)).sendUrlMessage(any());
+    }
+
+    @Test
+    @DisplayName("Particionado, o nó dono descarta a URL que já processou")
+    void testPartitionedOwnerDropsDuplicate() {
+        // Arrange
+        activeTask();
+        when(crawlMessageService.isPartitioned()).thenReturn(true);
+        when(crawlTaskRepository.reservePage(TASK_ID, 100)).thenReturn(1);
+        when(webCrawlerService.scanPage(eq("http://example.com/a"), eq("security"), any()))
+                .thenReturn(new ScannedPage("http://example.com/a", false, 10, null, List.of()));
+        when(crawlTaskRepository.findPendingUrls(TASK_ID)).thenReturn(1);
+
+        // Act - a mesma URL publicada a partir de duas páginas
+        distributedCrawlService.processUrl(message("http://example.com/a", 1, CrawlBudget.UNLIMITED));
+        distributedCrawlService.processUrl(message("http://example.com/a", 2, CrawlBudget.UNLIMITED));
+
+        // Assert - buscada uma vez, e as duas mensagens descontadas dos pendentes
+        verify(webCrawlerService, times(1)).scanPage(anyString(), anyString(), any());
+        verify(crawlTaskRepository, times(1)).reservePage(TASK_ID, 100);
+        verify(crawlTaskRepository, times(2)).addPendingUrls(TASK_ID, -1);
+    }
+
+    @Test
+    @DisplayName("Com intervalo de gravação, os contadores vão ao banco em lote e a tarefa é lida uma vez")
+    void testCountersBatchedPerNode() {
+        // Arrange
+        ReflectionTestUtils.setField(distributedCrawlService, "flushInterval", 60000L);
+        activeTask();
+        when(crawlMessageService.isPartitioned()).thenReturn(true);
+        when(crawlTaskRepository.reservePage(TASK_ID, 100)).thenReturn(1);
+        when(webCrawlerService.scanPage(anyString(), eq("security"), any()))
+                .thenAnswer(invocation -> new ScannedPage(invocation.getArgument(0), false, 10, null, List.of()));
+        when(crawlTaskRepository.findPendingUrls(TASK_ID)).thenReturn(0);
+        when(crawlTaskRepository.finish(eq(TASK_ID), any())).thenReturn(1);
+
+        // Act - duas páginas e uma duplicada
+        distributedCrawlService.processUrl(message("http://example.com/a", 1, CrawlBudget.UNLIMITED));
+        distributedCrawlService.processUrl(message("http://example.com/b", 1, CrawlBudget.UNLIMITED));
+        distributedCrawlService.processUrl(message("http://example.com/a", 2, CrawlBudget.UNLIMITED));
+
+        // Assert - nada gravado por mensagem
+        verify(crawlTaskRepository, times(1)).findById(TASK_ID);
+        verify(crawlPersistenceService, never()).writePending(anyString());
+        verify(crawlTaskRepository, never()).addPendingUrls(anyString(), anyInt());
+        verify(crawlTaskRepository, never()).addBytesDownloaded(anyString(), anyLong());
+
+        distributedCrawlService.flushCounters();
+        distributedCrawlService.flushCounters();
+
+        InOrder inOrder = inOrder(crawlTaskRepository, crawlPersistenceService);
+        inOrder.verify(crawlTaskRepository).addBytesDownloaded(TASK_ID, 20);
+        inOrder.verify(crawlPersistenceService).writePending(TASK_ID);
+        inOrder.verify(crawlTaskRepository).addPendingUrls(TASK_ID, -3);
+        inOrder.verify(crawlTaskRepository).finish(eq(TASK_ID), any());
+        verify(crawlPersistenceService, times(1)).writePending(TASK_ID);
+        verify(crawlTaskRepository, times(1)).findPendingUrls(TASK_ID);
+    }
+
+    @Test
+    @DisplayName("O mesmo link encontrado em duas páginas é reservado e publicado uma vez pelo nó")
+    void testLinksDeduplicatedBeforePublishing() {
+        // Arrange
+        activeTask();
+        when(crawlTaskRepository.reservePage(TASK_ID, 100)).thenReturn(1);
+        when(webCrawlerService.scanPage(anyString(), eq("security"), any())).thenAnswer(invocation -> new ScannedPage(
+                invocation.getArgument(0), false, 10, null, List.of("http://example.com/c")));
+        when(crawlPersistenceService.claimUrl(TASK_ID, "http://example.com/c")).thenReturn(true);
+        when(crawlTaskRepository.findPendingUrls(TASK_ID)).thenReturn(1);
+
+        // Act
+        distributedCrawlService.processUrl(message("http://example.com/a", 1, CrawlBudget.UNLIMITED));
+        distributedCrawlService.processUrl(message("http://example.com/b", 1, CrawlBudget.UNLIMITED));
+
+        // Assert
+        verify(crawlPersistenceService, times(1)).claimUrl(TASK_ID, "http://example.com/c");
+        verify(crawlMessageService, times(1)).sendUrlMessage(any());
+        verify(crawlTaskRepository, times(1)).addPendingUrls(TASK_ID, 1);
+    }
+
+    @Test
+    @DisplayName("Páginas são reservadas em bloco e as não usadas voltam ao limite na gravação")
+    void testPagesLeasedInBlocks() {
+        // Arrange
+        ReflectionTestUtils.setField(distributedCrawlService, "flushInterval", 60000L);
+        ReflectionTestUtils.setField(distributedCrawlService, "pageLease", 8);
+        activeTask();
+        when(crawlTaskRepository.reservePages(TASK_ID, 8, 100)).thenReturn(1);
+        when(webCrawlerService.scanPage(anyString(), eq("security"), any()))
+                .thenAnswer(invocation -> new ScannedPage(invocation.getArgument(0), false, 10, null, List.of()));
+        when(crawlTaskRepository.findPendingUrls(TASK_ID)).thenReturn(5);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            distributedCrawlService.processUrl(message("http://example.com/" + i, 1, CrawlBudget.UNLIMITED));
+        }
+        distributedCrawlService.flushCounters();
+
+        // Assert
+        verify(crawlTaskRepository, times(1)).reservePages(TASK_ID, 8, 100);
+        verify(crawlTaskRepository, never()).reservePage(anyString(), anyInt());
+        verify(crawlTaskRepository).releasePages(TASK_ID, 5);
+        verify(crawlTaskRepository).addPendingUrls(TASK_ID, -3);
+    }
+
+    @Test
+    @DisplayName("A tarefa concluída sai da memória de todos os nós, não só do que a concluiu")
+    void testFinishedTaskEvictedOnEveryNode() {
+        // Arrange - dois nós com o mesmo banco e a mesma fila
+        DistributedCrawlService other = new DistributedCrawlService();
+        for (DistributedCrawlService node : List.of(distributedCrawlService, other)) {
+            ReflectionTestUtils.setField(node, "distribution", "distributed");
+            ReflectionTestUtils.setField(node, "maxPages", 100);
+            ReflectionTestUtils.setField(node, "flushInterval", 60000L);
+            ReflectionTestUtils.setField(node, "webCrawlerService", webCrawlerService);
+            ReflectionTestUtils.setField(node, "crawlTaskRepository", crawlTaskRepository);
+            ReflectionTestUtils.setField(node, "crawlPersistenceService", crawlPersistenceService);
+            ReflectionTestUtils.setField(node, "crawlMessageService", crawlMessageService);
+        }
+        CrawlTaskEntity entity = activeTask();
+        when(crawlTaskRepository.reservePage(TASK_ID, 100)).thenReturn(1);
+        when(webCrawlerService.scanPage(anyString(), eq("security"), any()))
+                .thenAnswer(invocation -> new ScannedPage(invocation.getArgument(0), false, 10, null, List.of()));
+        when(crawlTaskRepository.findPendingUrls(TASK_ID)).thenReturn(1, 0);
+        when(crawlTaskRepository.finish(eq(TASK_ID), any())).thenReturn(1);
+
+        distributedCrawlService.processUrl(message("http://example.com/a", 1, CrawlBudget.UNLIMITED));
+        other.processUrl(message("http://example.com/b", 1, CrawlBudget.UNLIMITED));
+
+        // Act - o primeiro nó ainda vê uma mensagem pendente; o segundo conclui a tarefa
+        distributedCrawlService.flushCounters();
+        other.flushCounters();
+        entity.setStatus("done");
+        distributedCrawlService.flushCounters();
+
+        // Assert
+        verify(crawlTaskRepository, times(1)).finish(eq(TASK_ID), any());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(distributedCrawlService, "tasks")).isEmpty());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(other, "tasks")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Modo distribuído não inicia com banco em memória")
+    void testInMemoryDatabaseRejected() {
+        ReflectionTestUtils.setField(distributedCrawlService, "datasourceUrl", "jdbc:h2:mem:testdb");
+        IllegalStateException error = assertThrows(IllegalStateException.class, distributedCrawlService::init);
+        assertTrue(error.getMessage().contains("jdbc:h2:mem:testdb"));
+
+        ReflectionTestUtils.setField(distributedCrawlService, "datasourceUrl", "jdbc:h2:tcp://db:9092/crawler");
+        assertDoesNotThrow(distributedCrawlService::init);
+        distributedCrawlService.shutdown();
+
+        ReflectionTestUtils.setField(distributedCrawlService, "distribution", "local");
+        ReflectionTestUtils.setField(distributedCrawlService, "datasourceUrl", "jdbc:h2:mem:testdb");
+        assertDoesNotThrow(distributedCrawlService::init);
+    }
+}
@@ -1,9 +1,12 @@
 package com.mulato.api.service;
 
+import com.mulato.api.crawler.KeywordMatcher;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -114,10 +117,8 @@ public class HtmlContentSearchTest {
         }
     }
     
-    // Método para simular o comportamento do método containsKeyword
+    // Aplica o mesmo matcher usado pelo crawler sobre os bytes da página
     private boolean invokeContainsKeyword(String content, String keyword) {
-        // Utilizamos o método toLowerCase().contains() diretamente
-        // para simular o comportamento do método privado containsKeyword
-        return content.toLowerCase().contains(keyword.toLowerCase());
+        return KeywordMatcher.compile(keyword).matches(content.getBytes(StandardCharsets.UTF_8));
     }
 }
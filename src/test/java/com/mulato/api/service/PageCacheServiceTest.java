@@ -0,0 +1,207 @@
+package com.mulato.api.service;
+
+import com.mulato.api.crawler.FetchedPage;
+import com.mulato.api.entity.PageValidatorEntity;
+import com.mulato.api.util.SyntheticSite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testa o cache de páginas na frente do fetcher contra um site sintético local.
+ */
+@DisplayName("Cache de páginas compartilhado")
+class PageCacheServiceTest {
+
+    private PageCacheService pageCacheService;
+    private PageFetcherService pageFetcherService;
+    private SimpleMeterRegistry meterRegistry;
+    private SyntheticSite site;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        site = new SyntheticSite(10, 5, "security", 50);
+
+        pageFetcherService = new PageFetcherService();
+        ReflectionTestUtils.setField(pageFetcherService, "timeout", 5000);
+        ReflectionTestUtils.setField(pageFetcherService, "userAgent", "Test Crawler");
+
+        meterRegistry = new SimpleMeterRegistry();
+        pageCacheService = new PageCacheService();
+        ReflectionTestUtils.setField(pageCacheService, "enabled", true);
+        ReflectionTestUtils.setField(pageCacheService, "ttl", 60000L);
+        ReflectionTestUtils.setField(pageCacheService, "maxSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(pageCacheService, "pageFetcherService", pageFetcherService);
+        ReflectionTestUtils.setField(pageCacheService, "meterRegistry", meterRegistry);
+        pageCacheService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        site.close();
+    }
+
+    @Test
+    @DisplayName("Segunda busca da mesma URL sai do cache e repassa o corpo ao sink")
+    void testCacheHit() {
+        FetchedPage first = pageCacheService.fetchAsync(site.pageUrl(1), contentType -> null).join();
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        FetchedPage second = pageCacheService.fetchAsync(site.pageUrl(1), contentType -> streamed::write).join();
+
+        // O corpo é o mesmo, sem contar de novo os bytes transferidos
+        assertSame(first.getBody(), second.getBody());
+        assertTrue(first.getTransferredBytes() > 0);
+        assertEquals(0, second.getTransferredBytes());
+        assertArrayEquals(first.getBody(), streamed.toByteArray());
+        assertEquals(1, site.totalHits());
+        assertEquals(1.0, requests("hit"));
+        assertEquals(1.0, requests("miss"));
+    }
+
+    @Test
+    @DisplayName("Página truncada em max-body-bytes não entra no cache")
+    void testTruncatedNotCached() {
+        ReflectionTestUtils.setField(pageFetcherService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(pageFetcherService, "maxBodyBytes", DataSize.ofBytes(64));
+
+        FetchedPage first = pageCacheService.fetchAsync(site.pageUrl(1), contentType -> null).join();
+        FetchedPage second = pageCacheService.fetchAsync(site.pageUrl(1), contentType -> null).join();
+
+        assertTrue(first.isTruncated());
+        assertTrue(second.isTruncated());
+        assertEquals(0, pageCacheService.size());
+        assertEquals(2, site.totalHits());
+    }
+
+    @Test
+    @DisplayName("URLs equivalentes usam a mesma entrada")
+    void testNormalizedKey() {
+        assertEquals("http://example.com/", PageCacheService.cacheKey("HTTP://Example.COM:80"));
+        assertEquals("http://example.com/a?b=1", PageCacheService.cacheKey("http://example.com/a?b=1#top"));
+        assertEquals("https://example.com:8443/a", PageCacheService.cacheKey("https://example.com:8443/a"));
+    }
+
+    @Test
+    @DisplayName("Buscas simultâneas da mesma URL fazem uma única requisição")
+    void testSingleFlight() {
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+
+        CompletableFuture<FetchedPage> leader = pageCacheService.fetchAsync(site.pageUrl(2), contentType -> null);
+        CompletableFuture<FetchedPage> follower = pageCacheService.fetchAsync(site.pageUrl(2), contentType -> streamed::write);
+
+        assertSame(leader.join().getBody(), follower.join().getBody());
+        assertEquals(0, follower.join().getTransferredBytes());
+        assertArrayEquals(leader.join().getBody(), streamed.toByteArray());
+        assertEquals(1, site.totalHits());
+        assertEquals(1.0, requests("shared"));
+    }
+
+    @Test
+    @DisplayName("Entrada expirada é buscada de novo")
+    void testTtlExpiry() throws InterruptedException {
+        ReflectionTestUtils.setField(pageCacheService, "ttl", 1L);
+
+        pageCacheService.fetchAsync(site.pageUrl(3), contentType -> null).join();
+        Thread.sleep(5);
+        pageCacheService.fetchAsync(site.pageUrl(3), contentType -> null).join();
+
+        assertEquals(2, site.totalHits());
+        assertEquals(1.0, evictions("expired"));
+    }
+
+    @Test
+    @DisplayName("Páginas usadas há mais tempo são descartadas ao passar do limite de bytes")
+    void testSizeEviction() {
+        pageCacheService.fetchAsync(site.pageUrl(4), contentType -> null).join();
+        // Cabem duas páginas do site sintético, mas não três
+        long entryWeight = pageCacheService.weight();
+        ReflectionTestUtils.setField(pageCacheService, "maxSize", DataSize.ofBytes(2 * entryWeight + 100));
+
+        pageCacheService.fetchAsync(site.pageUrl(5), contentType -> null).join();
+        pageCacheService.fetchAsync(site.pageUrl(4), contentType -> null).join();
+        pageCacheService.fetchAsync(site.pageUrl(6), contentType -> null).join();
+
+        assertEquals(2, pageCacheService.size());
+        assertEquals(1.0, evictions("size"));
+        // A página 5 foi a menos usada recentemente
+        pageCacheService.fetchAsync(site.pageUrl(4), contentType -> null).join();
+        pageCacheService.fetchAsync(site.pageUrl(5), contentType -> null).join();
+        assertEquals(2, site.hits("/page/5.html"));
+        assertEquals(1, site.hits("/page/4.html"));
+    }
+
+    @Test
+    @DisplayName("Cache desativado repassa todas as buscas ao fetcher")
+    void testDisabled() {
+        ReflectionTestUtils.setField(pageCacheService, "enabled", false);
+
+        pageCacheService.fetchAsync(site.pageUrl(7), contentType -> null).join();
+        pageCacheService.fetchAsync(site.pageUrl(7), contentType -> null).join();
+
+        assertEquals(2, site.totalHits());
+        assertEquals(0, pageCacheService.size());
+    }
+
+    @Test
+    @DisplayName("Página não alterada é revalidada com 304 e o corpo guardado vai ao sink")
+    void testRevalidation() {
+        PageValidatorService pageValidatorService = mock(PageValidatorService.class);
+        ReflectionTestUtils.setField(pageCacheService, "pageValidatorService", pageValidatorService);
+        ReflectionTestUtils.setField(pageCacheService, "revalidate", true);
+        ReflectionTestUtils.setField(pageCacheService, "enabled", false);
+        String key = PageCacheService.cacheKey(site.pageUrl(8));
+
+        FetchedPage first = pageCacheService.fetchAsync(site.pageUrl(8), contentType -> null).join();
+        ArgumentCaptor<FetchedPage> saved = ArgumentCaptor.forClass(FetchedPage.class);
+        // Gravado em segundo plano, fora da thread que completou a resposta
+        verify(pageValidatorService, timeout(1000)).save(eq(key), saved.capture());
+        PageValidatorEntity stored = new PageValidatorEntity(key);
+        stored.setFinalUrl(first.getFinalUrl());
+        stored.setContentType(first.getContentType());
+        stored.setEtag(saved.getValue().getEtag());
+        stored.setBody(first.getBody());
+        when(pageValidatorService.find(key)).thenReturn(stored);
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        FetchedPage second = pageCacheService.fetchAsync(site.pageUrl(8), contentType -> streamed::write).join();
+
+        assertEquals(200, second.getStatusCode());
+        assertArrayEquals(first.getBody(), streamed.toByteArray());
+        assertEquals(1, site.notModifiedHits());
+        assertEquals(1.0, revalidations("not-modified"));
+        verify(pageValidatorService).markValidated(eq(stored), any());
+
+        site.touch(8);
+        FetchedPage third = pageCacheService.fetchAsync(site.pageUrl(8), contentType -> null).join();
+
+        assertFalse(Arrays.equals(first.getBody(), third.getBody()));
+        assertEquals(1.0, revalidations("modified"));
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("crawler.page.cache.requests").tag("result", result).counter().count();
+    }
+
+    private double revalidations(String result) {
+        return meterRegistry.get("crawler.page.revalidations").tag("result", result).counter().count();
+    }
+
+    private double evictions(String cause) {
+        return meterRegistry.get("crawler.page.cache.evictions").tag("cause", cause).counter().count();
+    }
+}
@@ -0,0 +1,314 @@
+package com.mulato.api.service;
+
+import com.mulato.api.crawler.AdaptiveConcurrencyLimiter;
+import com.mulato.api.crawler.AdaptiveConcurrencyLimiter.Outcome;
+import com.mulato.api.crawler.FetchedPage;
+import com.mulato.api.crawler.HostRequestPermits;
+import com.mulato.api.crawler.PageFetchException;
+import com.mulato.api.util.SyntheticSite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testa a camada de busca assíncrona contra um site sintético local.
+ */
+@DisplayName("Busca assíncrona de páginas")
+class PageFetcherServiceTest {
+
+    private PageFetcherService pageFetcherService;
+    private SyntheticSite site;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        site = new SyntheticSite(10, 5, "security", 0);
+
+        pageFetcherService = new PageFetcherService();
+        ReflectionTestUtils.setField(pageFetcherService, "timeout", 5000);
+        ReflectionTestUtils.setField(pageFetcherService, "userAgent", "Test Crawler");
+    }
+
+    @AfterEach
+    void tearDown() {
+        site.close();
+    }
+
+    @Test
+    @DisplayName("Deve retornar o corpo e o charset da página")
+    void testFetchAsync_Success() {
+        FetchedPage page = pageFetcherService.fetchAsync(site.baseUrl()).join();
+
+        assertEquals(200, page.getStatusCode());
+        assertEquals(site.baseUrl(), page.getFinalUrl());
+        assertEquals("UTF-8", page.getCharset());
+        assertTrue(new String(page.getBody(), StandardCharsets.UTF_8).contains("security"));
+    }
+
+    @Test
+    @DisplayName("Deve entregar o corpo ao sink enquanto a resposta chega")
+    void testFetchAsync_StreamsBodyToSink() {
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        List<String> contentTypes = new ArrayList<>();
+
+        FetchedPage page = pageFetcherService.fetchAsync(site.baseUrl(), contentType -> {
+            contentTypes.add(contentType);
+            return streamed::write;
+        }).join();
+
+        assertEquals(List.of("text/html; charset=UTF-8"), contentTypes);
+        assertArrayEquals(page.getBody(), streamed.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Deve falhar com PageFetchException para erro HTTP sem ler o corpo")
+    void testFetchAsync_HttpError() {
+        List<String> sinks = new ArrayList<>();
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> pageFetcherService.fetchAsync(site.pageUrl(99), contentType -> {
+                    sinks.add(contentType);
+                    return null;
+                }).join());
+
+        PageFetchException cause = assertInstanceOf(PageFetchException.class, error.getCause());
+        assertEquals(404, cause.getStatusCode());
+        assertTrue(sinks.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Redirecionamento deve voltar ao chamador sem ser seguido nem ter o corpo lido")
+    void testFetchAsync_RedirectNotFollowed() {
+        List<String> sinks = new ArrayList<>();
+
+        FetchedPage page = pageFetcherService.fetchAsync(site.redirectUrl(site.pageUrl(1)), contentType -> {
+            sinks.add(contentType);
+            return null;
+        }).join();
+
+        assertTrue(page.isRedirect());
+        assertEquals(302, page.getStatusCode());
+        assertEquals(site.pageUrl(1), page.getLocation());
+        assertEquals(0, page.getBody().length);
+        assertTrue(sinks.isEmpty());
+        assertEquals(0, site.hits("/page/1.html"));
+    }
+
+    @Test
+    @DisplayName("Busca condicional com ETag atual deve retornar 304 sem criar o sink")
+    void testFetchAsync_NotModified() {
+        FetchedPage first = pageFetcherService.fetchAsync(site.pageUrl(1)).join();
+        assertNotNull(first.getEtag());
+        List<String> contentTypes = new ArrayList<>();
+
+        FetchedPage second = pageFetcherService.fetchAsync(site.pageUrl(1), contentType -> {
+            contentTypes.add(contentType);
+            return null;
+        }, first.getEtag(), null).join();
+
+        assertTrue(second.isNotModified());
+        assertEquals(0, second.getBody().length);
+        assertTrue(contentTypes.isEmpty());
+        assertEquals(1, site.notModifiedHits());
+    }
+
+    @Test
+    @DisplayName("Busca condicional de página alterada deve retornar o novo corpo")
+    void testFetchAsync_ModifiedSinceValidation() {
+        FetchedPage first = pageFetcherService.fetchAsync(site.pageUrl(1)).join();
+        site.touch(1);
+
+        FetchedPage second = pageFetcherService.fetchAsync(site.pageUrl(1), contentType -> null,
+                first.getEtag(), null).join();
+
+        assertFalse(second.isNotModified());
+        assertNotEquals(first.getEtag(), second.getEtag());
+        assertTrue(new String(second.getBody(), StandardCharsets.UTF_8).contains("Revision 1"));
+    }
+
+    @Test
+    @DisplayName("Deve reutilizar o mesmo cliente para o mesmo host")
+    void testClientFor_SharedPerHost() {
+        URI first = URI.create(site.pageUrl(1));
+        URI second = URI.create(site.pageUrl(2));
+
+        assertSame(pageFetcherService.clientFor(first), pageFetcherService.clientFor(second));
+        assertNotSame(pageFetcherService.clientFor(first),
+                      pageFetcherService.clientFor(URI.create("http://example.com/")));
+    }
+
+    @Test
+    @DisplayName("Requisições ao mesmo host são espaçadas sem bloquear quem as agenda")
+    void testFetchAsync_HostRateLimit() {
+        ReflectionTestUtils.setField(pageFetcherService, "delay", 100L);
+        ReflectionTestUtils.setField(pageFetcherService, "hostBurst", 1);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<FetchedPage>> pages = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            pages.add(pageFetcherService.fetchAsync(site.pageUrl(i)));
+        }
+        long scheduled = System.nanoTime() - start;
+        pages.forEach(CompletableFuture::join);
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(scheduled < TimeUnit.MILLISECONDS.toNanos(100), "Agendamento não deve esperar");
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(200), "Terceira requisição sai 200 ms depois da primeira");
+        assertEquals(3, site.totalHits());
+    }
+
+    @Test
+    @DisplayName("Limite adaptativo enfileira requisições ao host e publica o limite atual")
+    void testFetchAsync_AdaptiveLimit() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(pageFetcherService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(pageFetcherService, "adaptive", true);
+        ReflectionTestUtils.setField(pageFetcherService, "initialLimit", 1);
+        ReflectionTestUtils.setField(pageFetcherService, "minLimit", 1);
+        ReflectionTestUtils.setField(pageFetcherService, "maxLimit", 1);
+        ReflectionTestUtils.setField(pageFetcherService, "targetLatency", 2000L);
+        ReflectionTestUtils.setField(pageFetcherService, "maxErrorRate", 0.1);
+        ReflectionTestUtils.setField(pageFetcherService, "backoff", 0.5);
+
+        List<CompletableFuture<FetchedPage>> pages = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            pages.add(pageFetcherService.fetchAsync(site.pageUrl(i)));
+        }
+        pages.forEach(page -> assertEquals(200, page.join().getStatusCode()));
+
+        String host = "http://127.0.0.1:" + URI.create(site.baseUrl()).getPort();
+        AdaptiveConcurrencyLimiter limiter = pageFetcherService.limiterFor(host);
+        assertEquals(0, limiter.inFlight());
+        assertEquals(0, limiter.waiting());
+        assertEquals(5, site.totalHits());
+        assertEquals(1.0, meterRegistry.get("crawler.fetch.concurrency.limit").tag("host", host).gauge().value());
+    }
+
+    @Test
+    @DisplayName("Vagas por host limitam as requisições abertas ao host e publicam ocupação e espera")
+    void testFetchAsync_HostPermits() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(pageFetcherService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(pageFetcherService, "maxRequestsPerHost", 2);
+
+        List<CompletableFuture<FetchedPage>> pages = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            pages.add(pageFetcherService.fetchAsync(site.pageUrl(i)));
+        }
+        pages.forEach(page -> assertEquals(200, page.join().getStatusCode()));
+
+        String host = "http://127.0.0.1:" + URI.create(site.baseUrl()).getPort();
+        HostRequestPermits permits = pageFetcherService.permitsFor(host);
+        assertEquals(0, permits.active());
+        assertEquals(0, permits.pending());
+        assertEquals(6, meterRegistry.get("crawler.http.host.permits.wait").tag("host", host).timer().count());
+        assertEquals(0.0, meterRegistry.get("crawler.http.host.permits.saturation").tag("host", host).gauge().value());
+    }
+
+    @Test
+    @DisplayName("Corpo acima de max-body-bytes é truncado e ainda entregue ao sink")
+    void testFetchAsync_TruncatesOversizedBody() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(pageFetcherService, "meterRegistry", meterRegistry);
+        byte[] full = pageFetcherService.fetchAsync(site.baseUrl()).join().getBody();
+        ReflectionTestUtils.setField(pageFetcherService, "maxBodyBytes", DataSize.ofBytes(64));
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+
+        FetchedPage page = pageFetcherService.fetchAsync(site.baseUrl(), contentType -> streamed::write).join();
+
+        assertTrue(full.length > 64);
+        assertEquals(200, page.getStatusCode());
+        assertTrue(page.isTruncated());
+        assertArrayEquals(Arrays.copyOf(full, 64), page.getBody());
+        assertArrayEquals(page.getBody(), streamed.toByteArray());
+        assertEquals(1.0, meterRegistry.get("crawler.fetch.truncated").counter().count());
+
+        // Corpos dentro do limite não contam
+        ReflectionTestUtils.setField(pageFetcherService, "maxBodyBytes", DataSize.ofBytes(full.length));
+        FetchedPage complete = pageFetcherService.fetchAsync(site.baseUrl()).join();
+        assertArrayEquals(full, complete.getBody());
+        assertFalse(complete.isTruncated());
+        assertEquals(1.0, meterRegistry.get("crawler.fetch.truncated").counter().count());
+    }
+
+    @Test
+    @DisplayName("Corpo com gzip é decodificado enquanto chega e a página informa os bytes transferidos")
+    void testFetchAsync_DecodesCompressedBody() {
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+
+        FetchedPage page = pageFetcherService.fetchAsync(site.baseUrl(), contentType -> streamed::write).join();
+
+        assertEquals(1, site.compressedHits());
+        assertArrayEquals(site.body(0), page.getBody());
+        assertArrayEquals(page.getBody(), streamed.toByteArray());
+        assertTrue(page.getTransferredBytes() > 0);
+        assertNotEquals(page.getBody().length, page.getTransferredBytes());
+
+        // Sem compressão os bytes transferidos são o próprio corpo
+        ReflectionTestUtils.setField(pageFetcherService, "compression", false);
+        FetchedPage plain = pageFetcherService.fetchAsync(site.baseUrl()).join();
+        assertEquals(1, site.compressedHits());
+        assertArrayEquals(site.body(0), plain.getBody());
+        assertEquals(plain.getBody().length, plain.getTransferredBytes());
+    }
+
+    @Test
+    @DisplayName("Conteúdo não HTML é rejeitado pelos cabeçalhos e a URL não é pedida de novo")
+    void testFetchAsync_RejectsNonHtmlByHeaders() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(pageFetcherService, "meterRegistry", meterRegistry);
+        List<String> sinks = new ArrayList<>();
+        String url = site.fileUrl("report");
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> pageFetcherService.fetchAsync(url, contentType -> {
+                    sinks.add(contentType);
+                    return null;
+                }).join());
+        assertInstanceOf(PageFetchException.class, error.getCause());
+        assertThrows(CompletionException.class, () -> pageFetcherService.fetchAsync(url).join());
+
+        assertTrue(sinks.isEmpty());
+        assertEquals(1, site.hits("/files/report"));
+        assertEquals(1.0, meterRegistry.get("crawler.fetch.non-html").counter().count());
+    }
+
+    @Test
+    @DisplayName("Timeouts, 429 e 5xx contam como sobrecarga do host")
+    void testOutcomeOf() {
+        assertEquals(Outcome.SUCCESS, PageFetcherService.outcomeOf(response(200), null));
+        assertEquals(Outcome.SUCCESS, PageFetcherService.outcomeOf(response(404), null));
+        assertEquals(Outcome.OVERLOAD, PageFetcherService.outcomeOf(response(429), null));
+        assertEquals(Outcome.OVERLOAD, PageFetcherService.outcomeOf(response(503), null));
+        assertEquals(Outcome.OVERLOAD, PageFetcherService.outcomeOf(null,
+                new CompletionException(new HttpTimeoutException("request timed out"))));
+        assertEquals(Outcome.ERROR, PageFetcherService.outcomeOf(null, new ConnectException("refused")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<byte[]> response(int status) {
+        HttpResponse<byte[]> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        return response;
+    }
+}
@@ -0,0 +1,176 @@
+package com.mulato.api.service;
+
+import com.mulato.api.crawler.FetchedPage;
+import com.mulato.api.entity.PageValidatorEntity;
+import com.mulato.api.repository.PageValidatorRepository;
+import com.mulato.api.util.LogCapture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PageValidatorServiceTest {
+
+    private static final String URL = "http://example.com/page1";
+
+    @Mock
+    private PageValidatorRepository pageValidatorRepository;
+
+    @InjectMocks
+    private PageValidatorService pageValidatorService;
+
+    @Test
+    void testSave_NewPage() {
+        // Given
+        when(pageValidatorRepository.findByUrl(URL)).thenReturn(Optional.empty());
+        FetchedPage page = page("<html>v1</html>", "\"v1\"");
+
+        // When
+        pageValidatorService.save(URL, page);
+
+        // Then
+        ArgumentCaptor<PageValidatorEntity> saved = ArgumentCaptor.forClass(PageValidatorEntity.class);
+        verify(pageValidatorRepository).save(saved.capture());
+        assertEquals("\"v1\"", saved.getValue().getEtag());
+        assertEquals(PageValidatorService.digest(page.getBody()), saved.getValue().getBodyDigest());
+        assertArrayEquals(page.getBody(), saved.getValue().getBody());
+    }
+
+    @Test
+    void testSave_UnchangedBodyOnlyUpdatesValidators() {
+        // Given
+        FetchedPage page = page("<html>v1</html>", "\"v2\"");
+        PageValidatorEntity stored = stored(7L, "<html>v1</html>", "\"v1\"");
+        when(pageValidatorRepository.findByUrl(URL)).thenReturn(Optional.of(stored));
+
+        // When
+        pageValidatorService.save(URL, page);
+
+        // Then
+        verify(pageValidatorRepository).updateValidators(eq(7L), eq("\"v2\""), isNull(), any());
+        verify(pageValidatorRepository, never()).save(any());
+    }
+
+    @Test
+    void testSave_WithoutValidators() {
+        // When
+        pageValidatorService.save(URL, page("<html>v1</html>", null));
+
+        // Then
+        verifyNoInteractions(pageValidatorRepository);
+    }
+
+    @Test
+    void testSave_Truncated() {
+        // Given
+        FetchedPage truncated = new FetchedPage(URL, URL, 200, "text/html", new byte[64], "\"v1\"", null, 64, true);
+
+        // When
+        pageValidatorService.save(URL, truncated);
+
+        // Then
+        verifyNoInteractions(pageValidatorRepository);
+    }
+
+    @Test
+    void testSave_OversizedBody() {
+        // Given
+        ReflectionTestUtils.setField(pageValidatorService, "maxBodySize", DataSize.ofBytes(8));
+
+        // When
+        boolean saved = pageValidatorService.save(URL, page("<html>v1</html>", "\"v1\""));
+
+        // Then
+        assertFalse(saved);
+        verifyNoInteractions(pageValidatorRepository);
+    }
+
+    @Test
+    void testPrune() {
+        // Given
+        ReflectionTestUtils.setField(pageValidatorService, "maxEntries", 100);
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(1);
+        when(pageValidatorRepository.findValidatedAt(PageRequest.of(100, 1))).thenReturn(List.of(cutoff));
+
+        // When
+        pageValidatorService.prune();
+
+        // Then
+        verify(pageValidatorRepository).deleteValidatedBefore(cutoff);
+    }
+
+    @Test
+    void testSave_Exception() {
+        // Given
+        LogCapture logCapture = new LogCapture(PageValidatorService.class);
+        when(pageValidatorRepository.findByUrl(URL)).thenThrow(new RuntimeException("Database error"));
+
+        // When
+        pageValidatorService.save(URL, page("<html>v1</html>", "\"v1\""));
+
+        // Then
+        assertTrue(logCapture.hasLogMessage("Error saving validators for URL: " + URL));
+
+        logCapture.stop();
+    }
+
+    @Test
+    void testMarkValidated_KeepsValidatorsNotResent() {
+        // Given
+        PageValidatorEntity stored = stored(7L, "<html>v1</html>", "\"v1\"");
+        stored.setLastModified("Wed, 21 Oct 2015 07:28:00 GMT");
+        FetchedPage notModified = new FetchedPage(URL, URL, 304, null, new byte[0], "\"v1\"", null);
+
+        // When
+        pageValidatorService.markValidated(stored, notModified);
+
+        // Then
+        verify(pageValidatorRepository).updateValidators(eq(7L), eq("\"v1\""),
+                eq("Wed, 21 Oct 2015 07:28:00 GMT"), any());
+    }
+
+    @Test
+    void testToPage() {
+        PageValidatorEntity stored = stored(7L, "<html>v1</html>", "\"v1\"");
+
+        FetchedPage page = PageValidatorService.toPage(URL, stored);
+
+        assertEquals(200, page.getStatusCode());
+        assertEquals("text/html; charset=UTF-8", page.getContentType());
+        assertArrayEquals(stored.getBody(), page.getBody());
+    }
+
+    private static FetchedPage page(String html, String etag) {
+        return new FetchedPage(URL, URL, 200, "text/html; charset=UTF-8",
+                html.getBytes(StandardCharsets.UTF_8), etag, null);
+    }
+
+    private static PageValidatorEntity stored(Long id, String html, String etag) {
+        byte[] body = html.getBytes(StandardCharsets.UTF_8);
+        PageValidatorEntity entity = new PageValidatorEntity(URL);
+        entity.setId(id);
+        entity.setFinalUrl(URL);
+        entity.setContentType("text/html; charset=UTF-8");
+        entity.setEtag(etag);
+        entity.setBody(body);
+        entity.setBodyDigest(PageValidatorService.digest(body));
+        return entity;
+    }
+}
@@ -0,0 +1,128 @@
+package com.mulato.api.service;
+
+import com.mulato.api.model.CrawlTask;
+import com.mulato.api.util.SyntheticSite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testa buscas simultâneas da mesma URL base compartilhando uma sessão de crawling.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Sessão compartilhada por URL base")
+class WebCrawlerCoalesceTest {
+
+    private static final int PAGES = 40;
+
+    @Mock
+    private CrawlPersistenceService crawlPersistenceService;
+
+    @Mock
+    private CrawlCheckpointService crawlCheckpointService;
+
+    @Mock
+    private FetchExecutorService fetchExecutorService;
+
+    @InjectMocks
+    private WebCrawlerService webCrawlerService;
+
+    private PageCacheService pageCacheService;
+    private SyntheticSite site;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        site = new SyntheticSite(PAGES, 5, "security", 20);
+
+        PageFetcherService pageFetcherService = new PageFetcherService();
+        ReflectionTestUtils.setField(pageFetcherService, "timeout", 5000);
+        ReflectionTestUtils.setField(pageFetcherService, "userAgent", "Test Crawler");
+        pageCacheService = new PageCacheService();
+        ReflectionTestUtils.setField(pageCacheService, "enabled", true);
+        ReflectionTestUtils.setField(pageCacheService, "ttl", 60000L);
+        ReflectionTestUtils.setField(pageCacheService, "maxSize", DataSize.ofMegabytes(16));
+        ReflectionTestUtils.setField(pageCacheService, "pageFetcherService", pageFetcherService);
+        ReflectionTestUtils.setField(pageCacheService, "meterRegistry", new SimpleMeterRegistry());
+        pageCacheService.init();
+        ReflectionTestUtils.setField(webCrawlerService, "pageCacheService", pageCacheService);
+        ReflectionTestUtils.setField(webCrawlerService, "maxPages", 1000);
+        ReflectionTestUtils.setField(webCrawlerService, "parallelism", 4);
+        ReflectionTestUtils.setField(webCrawlerService, "coalesce", true);
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        site.close();
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @DisplayName("Tarefa anexada durante o crawling recebe todos os resultados sem rebuscar o site")
+    void testLateTaskSharesSession() throws Exception {
+        // Arrange
+        CrawlTask first = new CrawlTask("coa-0001", "security", site.baseUrl());
+        CrawlTask second = new CrawlTask("coa-0002", "synthetic", site.baseUrl());
+
+        // Act
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> webCrawlerService.crawlWebsite(first));
+        while (site.totalHits() == 0) {
+            Thread.sleep(1);
+        }
+        webCrawlerService.crawlWebsite(second);
+        running.get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(site.pagesWithKeyword(), first.getFoundUrls().size());
+        assertEquals(PAGES, second.getFoundUrls().size(), "Todas as páginas contêm 'synthetic'");
+        verify(crawlPersistenceService, times(PAGES)).saveVisitedUrl(eq("coa-0001"), anyString());
+        verify(crawlPersistenceService, times(PAGES)).saveVisitedUrl(eq("coa-0002"), anyString());
+        verify(crawlPersistenceService, times(PAGES)).saveFoundUrl(eq("coa-0002"), anyString());
+
+        // As páginas revisitadas para a segunda tarefa saem do cache
+        assertEquals(PAGES, site.totalHits());
+        assertFalse(first.isActive());
+        assertFalse(second.isActive());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @DisplayName("Sem app.crawler.coalesce nem cache cada tarefa busca o site inteiro")
+    void testCoalesceDisabled() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(webCrawlerService, "coalesce", false);
+        ReflectionTestUtils.setField(pageCacheService, "enabled", false);
+        CrawlTask first = new CrawlTask("coa-0003", "security", site.baseUrl());
+        CrawlTask second = new CrawlTask("coa-0004", "synthetic", site.baseUrl());
+
+        // Act
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> webCrawlerService.crawlWebsite(first));
+        while (site.totalHits() == 0) {
+            Thread.sleep(1);
+        }
+        webCrawlerService.crawlWebsite(second);
+        running.get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(site.pagesWithKeyword(), first.getFoundUrls().size());
+        assertEquals(PAGES, second.getFoundUrls().size());
+        assertEquals(2 * PAGES, site.totalHits());
+    }
+}
@@ -0,0 +1,144 @@
+package com.mulato.api.service;
+
+import com.mulato.api.model.CrawlTask;
+import com.mulato.api.util.SyntheticSite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testa o crawling com vários workers por tarefa contra um site sintético local.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Workers paralelos por tarefa")
+class WebCrawlerParallelismTest {
+
+    private static final int PAGES = 40;
+
+    @Mock
+    private CrawlPersistenceService crawlPersistenceService;
+
+    @Mock
+    private CrawlCheckpointService crawlCheckpointService;
+
+    @Mock
+    private FetchExecutorService fetchExecutorService;
+
+    @InjectMocks
+    private WebCrawlerService webCrawlerService;
+
+    private PageCacheService pageCacheService;
+    private SyntheticSite site;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        site = new SyntheticSite(PAGES, 5, "security", 5);
+
+        PageFetcherService pageFetcherService = new PageFetcherService();
+        ReflectionTestUtils.setField(pageFetcherService, "timeout", 5000);
+        ReflectionTestUtils.setField(pageFetcherService, "userAgent", "Test Crawler");
+        pageCacheService = new PageCacheService();
+        ReflectionTestUtils.setField(pageCacheService, "enabled", true);
+        ReflectionTestUtils.setField(pageCacheService, "ttl", 60000L);
+        ReflectionTestUtils.setField(pageCacheService, "maxSize", DataSize.ofMegabytes(16));
+        ReflectionTestUtils.setField(pageCacheService, "pageFetcherService", pageFetcherService);
+        ReflectionTestUtils.setField(pageCacheService, "meterRegistry", new SimpleMeterRegistry());
+        pageCacheService.init();
+        ReflectionTestUtils.setField(webCrawlerService, "pageCacheService", pageCacheService);
+        ReflectionTestUtils.setField(webCrawlerService, "maxPages", 1000);
+        ReflectionTestUtils.setField(webCrawlerService, "parallelism", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        site.close();
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @DisplayName("Workers compartilham a fronteira e visitam cada página uma única vez")
+    void testEachPageVisitedOnce() {
+        // Arrange
+        CrawlTask task = new CrawlTask("par-0001", "security", site.baseUrl());
+
+        // Act
+        webCrawlerService.crawlWebsite(task);
+
+        // Assert
+        ArgumentCaptor<String> visited = ArgumentCaptor.forClass(String.class);
+        verify(crawlPersistenceService, times(PAGES)).saveVisitedUrl(eq("par-0001"), visited.capture());
+        List<String> visitedUrls = visited.getAllValues();
+        assertEquals(PAGES, new HashSet<>(visitedUrls).size(), "Nenhuma URL deve ser salva duas vezes");
+
+        for (int i = 0; i < PAGES; i++) {
+            assertEquals(1, site.hits("/page/" + i + ".html"), "Página " + i + " deve ser buscada uma vez");
+        }
+        assertEquals(site.pagesWithKeyword(), task.getFoundUrls().size());
+        assertFalse(task.isActive());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @DisplayName("Limite de páginas é respeitado mesmo com vários workers")
+    void testMaxPagesAcrossWorkers() {
+        // Arrange
+        ReflectionTestUtils.setField(webCrawlerService, "maxPages", 7);
+        CrawlTask task = new CrawlTask("par-0002", "security", site.baseUrl());
+
+        // Act
+        webCrawlerService.crawlWebsite(task);
+
+        // Assert
+        verify(crawlPersistenceService, times(7)).saveVisitedUrl(eq("par-0002"), anyString());
+        assertEquals(7, task.getVisitedUrls().size());
+        assertEquals(7, site.totalHits());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @DisplayName("Modo virtual busca cada página uma única vez respeitando o limite global")
+    void testVirtualExecutorMode() {
+        // Arrange
+        FetchExecutorService virtualExecutor = new FetchExecutorService();
+        ReflectionTestUtils.setField(virtualExecutor, "mode", FetchExecutorService.MODE_VIRTUAL);
+        ReflectionTestUtils.setField(virtualExecutor, "maxInFlight", 3);
+        virtualExecutor.init();
+        ReflectionTestUtils.setField(webCrawlerService, "fetchExecutorService", virtualExecutor);
+
+        CrawlTask task = new CrawlTask("par-0003", "security", site.baseUrl());
+
+        try {
+            // Act
+            webCrawlerService.crawlWebsite(task);
+
+            // Assert
+            verify(crawlPersistenceService, times(PAGES)).saveVisitedUrl(eq("par-0003"), anyString());
+            for (int i = 0; i < PAGES; i++) {
+                assertEquals(1, site.hits("/page/" + i + ".html"), "Página " + i + " deve ser buscada uma vez");
+            }
+            assertEquals(site.pagesWithKeyword(), task.getFoundUrls().size());
+            assertEquals(3, virtualExecutor.availablePermits(), "Todas as vagas devem ser devolvidas");
+        } finally {
+            virtualExecutor.shutdown();
+        }
+    }
+}
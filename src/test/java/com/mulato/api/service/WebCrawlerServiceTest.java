@@ -1,25 +1,39 @@
 package com.mulato.api.service;
 
+import com.mulato.api.crawler.BodySink;
+import com.mulato.api.crawler.FetchedPage;
+import com.mulato.api.crawler.ScannedPage;
+import com.mulato.api.crawler.UrlScope;
+import com.mulato.api.entity.CrawlCheckpointEntity;
+import com.mulato.api.entity.CrawlSessionCheckpointEntity;
+import com.mulato.api.model.CrawlBudget;
+import com.mulato.api.repository.CrawlCheckpointRepository;
+import com.mulato.api.repository.CrawlSessionCheckpointRepository;
 import com.mulato.api.model.CrawlTask;
 import com.mulato.api.util.LogCapture;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
-import org.jsoup.Jsoup;
-import org.jsoup.Connection;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,16 +43,13 @@ class WebCrawlerServiceTest {
     private CrawlPersistenceService crawlPersistenceService;
 
     @Mock
-    private Connection connection;
+    private CrawlCheckpointService crawlCheckpointService;
 
     @Mock
-    private Document document;
+    private FetchExecutorService fetchExecutorService;
 
     @Mock
-    private Elements elements;
-
-    @Mock
-    private Element element;
+    private PageCacheService pageCacheService;
 
     @InjectMocks
     private WebCrawlerService webCrawlerService;
@@ -49,72 +60,66 @@ class WebCrawlerServiceTest {
     @BeforeEach
     void setUp() {
         testTask = new CrawlTask("test-123", "security", "http://example.com");
-        testUrl = "http://example.com";
-        
+        // Forma canônica da URL base, usada na fronteira e nas URLs visitadas
+        testUrl = "http://example.com/";
+
         // Configure properties via reflection
-        ReflectionTestUtils.setField(webCrawlerService, "timeout", 30000);
-        ReflectionTestUtils.setField(webCrawlerService, "userAgent", "Test Crawler");
-        ReflectionTestUtils.setField(webCrawlerService, "delay", 100);
         ReflectionTestUtils.setField(webCrawlerService, "maxPages", 10);
     }
 
+    /**
+     * Simula a busca da página entregando o corpo ao sink do crawler, como o fetcher faz.
+     */
+    private void stubPage(String url, String html) {
+        when(pageCacheService.fetchAsync(eq(url), any())).thenAnswer(invocation -> {
+            String contentType = "text/html; charset=UTF-8";
+            byte[] body = html.getBytes(StandardCharsets.UTF_8);
+            Function<String, BodySink> sinkFactory = invocation.getArgument(1);
+            BodySink sink = sinkFactory.apply(contentType);
+            if (sink != null) {
+                sink.accept(body, 0, body.length);
+            }
+            return CompletableFuture.completedFuture(new FetchedPage(url, url, 200, contentType, body));
+        });
+    }
+
     @Test
     void testCrawlWebsite_Success() throws Exception {
-        try (MockedStatic<Jsoup> jsoupMock = mockStatic(Jsoup.class)) {
-            // Given
-            String htmlContent = "<html><body><h1>Security testing</h1><a href='/page1'>Link</a></body></html>";
-            
-            when(crawlPersistenceService.isUrlVisited(anyString(), anyString())).thenReturn(false);
-            
-            jsoupMock.when(() -> Jsoup.connect(testUrl)).thenReturn(connection);
-            when(connection.timeout(30000)).thenReturn(connection);
-            when(connection.userAgent("Test Crawler")).thenReturn(connection);
-            when(connection.get()).thenReturn(document);
-            when(document.html()).thenReturn(htmlContent);
-            when(document.select("a[href]")).thenReturn(elements);
-            when(elements.iterator()).thenReturn(java.util.Collections.emptyIterator());
-
-            // When
-            webCrawlerService.crawlWebsite(testTask);
-
-            // Then
-            assertFalse(testTask.isActive());
-            verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), testUrl);
-            verify(crawlPersistenceService, times(1)).saveFoundUrl(testTask.getId(), testUrl);
-        }
+        // Given
+        String htmlContent = "<html><body><h1>Security testing</h1></body></html>";
+
+        stubPage(testUrl, htmlContent);
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        assertFalse(testTask.isActive());
+        verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), testUrl);
+        verify(crawlPersistenceService, times(1)).saveFoundUrl(testTask.getId(), testUrl);
     }
 
     @Test
     void testCrawlWebsite_NoKeywordFound() throws Exception {
-        try (MockedStatic<Jsoup> jsoupMock = mockStatic(Jsoup.class)) {
-            // Given
-            String htmlContent = "<html><body><h1>Test page without keyword</h1></body></html>";
-            
-            when(crawlPersistenceService.isUrlVisited(anyString(), anyString())).thenReturn(false);
-            
-            jsoupMock.when(() -> Jsoup.connect(testUrl)).thenReturn(connection);
-            when(connection.timeout(30000)).thenReturn(connection);
-            when(connection.userAgent("Test Crawler")).thenReturn(connection);
-            when(connection.get()).thenReturn(document);
-            when(document.html()).thenReturn(htmlContent);
-            when(document.select("a[href]")).thenReturn(elements);
-            when(elements.iterator()).thenReturn(java.util.Collections.emptyIterator());
-
-            // When
-            webCrawlerService.crawlWebsite(testTask);
-
-            // Then
-            assertFalse(testTask.isActive());
-            verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), testUrl);
-            verify(crawlPersistenceService, never()).saveFoundUrl(testTask.getId(), testUrl);
-            assertTrue(testTask.getFoundUrls().isEmpty());
-        }
+        // Given
+        String htmlContent = "<html><body><h1>Test page without keyword</h1></body></html>";
+
+        stubPage(testUrl, htmlContent);
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        assertFalse(testTask.isActive());
+        verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), testUrl);
+        verify(crawlPersistenceService, never()).saveFoundUrl(testTask.getId(), testUrl);
+        assertTrue(testTask.getFoundUrls().isEmpty());
     }
 
     @Test
     void testCrawlWebsite_UrlAlreadyVisited() {
         // Given
-        when(crawlPersistenceService.isUrlVisited(testTask.getId(), testUrl)).thenReturn(true);
+        when(crawlPersistenceService.getVisitedUrls(testTask.getId())).thenReturn(List.of(testUrl));
 
         // When
         webCrawlerService.crawlWebsite(testTask);
@@ -123,60 +128,91 @@ class WebCrawlerServiceTest {
         assertFalse(testTask.isActive());
         verify(crawlPersistenceService, never()).saveVisitedUrl(testTask.getId(), testUrl);
         verify(crawlPersistenceService, never()).saveFoundUrl(testTask.getId(), testUrl);
+        verifyNoInteractions(pageCacheService);
     }
 
     @Test
     void testCrawlWebsite_FetchDocumentIOException() throws Exception {
-        try (MockedStatic<Jsoup> jsoupMock = mockStatic(Jsoup.class)) {
-            // Given
-            LogCapture logCapture = new LogCapture(WebCrawlerService.class);
-            
-            when(crawlPersistenceService.isUrlVisited(anyString(), anyString())).thenReturn(false);
-            
-            jsoupMock.when(() -> Jsoup.connect(testUrl)).thenReturn(connection);
-            when(connection.timeout(30000)).thenReturn(connection);
-            when(connection.userAgent("Test Crawler")).thenReturn(connection);
-            when(connection.get()).thenThrow(new IOException("Connection timeout"));
-
-            // When
-            webCrawlerService.crawlWebsite(testTask);
-
-            // Then
-            assertFalse(testTask.isActive());
-            verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), testUrl);
-            assertTrue(logCapture.hasLogMessage("Failed to fetch URL: " + testUrl));
-            
-            logCapture.stop();
-        }
+        // Given
+        LogCapture logCapture = new LogCapture(WebCrawlerService.class);
+
+        when(pageCacheService.fetchAsync(eq(testUrl), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Connection timeout")));
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        assertFalse(testTask.isActive());
+        verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), testUrl);
+        assertTrue(logCapture.hasLogMessage("Failed to fetch URL: " + testUrl));
+
+        logCapture.stop();
     }
 
     @Test
     void testCrawlWebsite_WithLinks() throws Exception {
-        try (MockedStatic<Jsoup> jsoupMock = mockStatic(Jsoup.class)) {
-            // Given
-            String htmlContent = "<html><body><h1>Security page</h1></body></html>";
-            String linkHref = "/page1";
-            
-            when(crawlPersistenceService.isUrlVisited(anyString(), anyString())).thenReturn(false);
-            
-            jsoupMock.when(() -> Jsoup.connect(testUrl)).thenReturn(connection);
-            when(connection.timeout(30000)).thenReturn(connection);
-            when(connection.userAgent("Test Crawler")).thenReturn(connection);
-            when(connection.get()).thenReturn(document);
-            when(document.html()).thenReturn(htmlContent);
-            when(document.select("a[href]")).thenReturn(elements);
-            
-            when(elements.iterator()).thenReturn(java.util.Arrays.asList(element).iterator());
-            when(element.attr("href")).thenReturn(linkHref);
-
-            // When
-            webCrawlerService.crawlWebsite(testTask);
-
-            // Then
-            assertFalse(testTask.isActive());
-            verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), testUrl);
-            verify(crawlPersistenceService, times(1)).saveFoundUrl(testTask.getId(), testUrl);
-        }
+        // Given
+        String htmlContent = "<html><body><h1>Security page</h1><a href='/page1'>Link</a></body></html>";
+        String linkUrl = "http://example.com/page1";
+
+        stubPage(testUrl, htmlContent);
+        stubPage(linkUrl, "<html><body>Another page</body></html>");
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        assertFalse(testTask.isActive());
+        verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), testUrl);
+        verify(crawlPersistenceService, times(1)).saveFoundUrl(testTask.getId(), testUrl);
+        verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), linkUrl);
+        verify(crawlPersistenceService, never()).saveFoundUrl(testTask.getId(), linkUrl);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jsoup", "streaming"})
+    void testCrawlWebsite_LinksRelativeToBaseHref(String mode) throws Exception {
+        // Given
+        ReflectionTestUtils.setField(webCrawlerService, "linkExtractor", mode);
+        String htmlContent = "<html><head><base href=\"/docs/\"></head>"
+                + "<body>Security<a href=\"guide.html\">Guide</a></body></html>";
+        String linkUrl = "http://example.com/docs/guide.html";
+
+        stubPage(testUrl, htmlContent);
+        stubPage(linkUrl, "<html><body>Another page</body></html>");
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        verify(crawlPersistenceService, times(1)).saveFoundUrl(testTask.getId(), testUrl);
+        verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), linkUrl);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jsoup", "streaming"})
+    void testCrawlWebsite_EquivalentUrlsFetchedOnce(String mode) throws Exception {
+        // Given
+        ReflectionTestUtils.setField(webCrawlerService, "linkExtractor", mode);
+        String htmlContent = "<html><head><link rel=\"canonical\" href=\"/index.html\"></head><body>Security"
+                + "<a href=\"/a\">1</a><a href=\"/a#top\">2</a><a href=\"http://EXAMPLE.com:80/./a\">3</a>"
+                + "<a href=\"/index.html\">4</a></body></html>";
+        String linkUrl = "http://example.com/a";
+
+        stubPage(testUrl, htmlContent);
+        stubPage(linkUrl, "<html><body>Another page</body></html>");
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        verify(pageCacheService, times(1)).fetchAsync(eq(linkUrl), any());
+        verify(pageCacheService, never()).fetchAsync(eq("http://example.com/index.html"), any());
+        verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), linkUrl);
+        assertEquals(2, testTask.getVisitedUrls().size());
+        // Links repetidos são descartados em memória, sem consultar o banco
+        verify(crawlPersistenceService, never()).isUrlVisited(anyString(), anyString());
     }
 
     @Test
@@ -195,83 +231,293 @@ class WebCrawlerServiceTest {
 
     @Test
     void testCrawlWebsite_MaxPagesReached() throws Exception {
-        try (MockedStatic<Jsoup> jsoupMock = mockStatic(Jsoup.class)) {
-            // Given
-            ReflectionTestUtils.setField(webCrawlerService, "maxPages", 1);
-            String htmlContent = "<html><body><h1>Security page</h1><a href='/page1'>Link</a></body></html>";
-            
-            when(crawlPersistenceService.isUrlVisited(anyString(), anyString())).thenReturn(false);
-            
-            jsoupMock.when(() -> Jsoup.connect(testUrl)).thenReturn(connection);
-            when(connection.timeout(30000)).thenReturn(connection);
-            when(connection.userAgent("Test Crawler")).thenReturn(connection);
-            when(connection.get()).thenReturn(document);
-            when(document.html()).thenReturn(htmlContent);
-            when(document.select("a[href]")).thenReturn(elements);
-            
-            when(elements.iterator()).thenReturn(java.util.Arrays.asList(element).iterator());
-            when(element.attr("href")).thenReturn("/page1");
-
-            // When
-            webCrawlerService.crawlWebsite(testTask);
-
-            // Then
-            assertFalse(testTask.isActive());
-            verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), testUrl);
-        }
+        // Given
+        ReflectionTestUtils.setField(webCrawlerService, "maxPages", 1);
+        String htmlContent = "<html><body><h1>Security page</h1><a href='/page1'>Link</a></body></html>";
+
+        stubPage(testUrl, htmlContent);
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        assertFalse(testTask.isActive());
+        verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), testUrl);
+        verify(pageCacheService, never()).fetchAsync(eq("http://example.com/page1"), any());
     }
 
     @Test
     void testCrawlWebsite_LogsCorrectly() throws Exception {
-        try (MockedStatic<Jsoup> jsoupMock = mockStatic(Jsoup.class)) {
-            // Given
-            LogCapture logCapture = new LogCapture(WebCrawlerService.class);
-            String htmlContent = "<html><body><h1>Security testing</h1></body></html>";
-            
-            when(crawlPersistenceService.isUrlVisited(anyString(), anyString())).thenReturn(false);
-            
-            jsoupMock.when(() -> Jsoup.connect(testUrl)).thenReturn(connection);
-            when(connection.timeout(30000)).thenReturn(connection);
-            when(connection.userAgent("Test Crawler")).thenReturn(connection);
-            when(connection.get()).thenReturn(document);
-            when(document.html()).thenReturn(htmlContent);
-            when(document.select("a[href]")).thenReturn(elements);
-            when(elements.iterator()).thenReturn(java.util.Collections.emptyIterator());
-
-            // When
-            webCrawlerService.crawlWebsite(testTask);
-
-            // Then
-            assertTrue(logCapture.hasLogMessage("Starting crawl for task: " + testTask.getId()));
-            assertTrue(logCapture.hasLogMessage("Found keyword 'security' in URL: " + testUrl));
-            assertTrue(logCapture.hasLogMessage("Crawl completed for task: " + testTask.getId()));
-            
-            logCapture.stop();
-        }
+        // Given
+        LogCapture logCapture = new LogCapture(WebCrawlerService.class);
+        String htmlContent = "<html><body><h1>Security testing</h1></body></html>";
+
+        stubPage(testUrl, htmlContent);
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        assertTrue(logCapture.hasLogMessage("Starting crawl for task: " + testTask.getId()));
+        assertTrue(logCapture.hasLogMessage("Found keyword 'security' in URL: " + testUrl));
+        assertTrue(logCapture.hasLogMessage("Crawl completed for task: " + testTask.getId()));
+
+        logCapture.stop();
     }
 
     @Test
     void testCrawlWebsite_CaseInsensitiveKeyword() throws Exception {
-        try (MockedStatic<Jsoup> jsoupMock = mockStatic(Jsoup.class)) {
-            // Given
-            String htmlContent = "<html><body><h1>SECURITY TESTING</h1></body></html>";
-            
-            when(crawlPersistenceService.isUrlVisited(anyString(), anyString())).thenReturn(false);
-            
-            jsoupMock.when(() -> Jsoup.connect(testUrl)).thenReturn(connection);
-            when(connection.timeout(30000)).thenReturn(connection);
-            when(connection.userAgent("Test Crawler")).thenReturn(connection);
-            when(connection.get()).thenReturn(document);
-            when(document.html()).thenReturn(htmlContent);
-            when(document.select("a[href]")).thenReturn(elements);
-            when(elements.iterator()).thenReturn(java.util.Collections.emptyIterator());
-
-            // When
-            webCrawlerService.crawlWebsite(testTask);
-
-            // Then
-            verify(crawlPersistenceService, times(1)).saveFoundUrl(testTask.getId(), testUrl);
-            assertEquals(1, testTask.getFoundUrls().size());
-        }
+        // Given
+        String htmlContent = "<html><body><h1>SECURITY TESTING</h1></body></html>";
+
+        stubPage(testUrl, htmlContent);
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        verify(crawlPersistenceService, times(1)).saveFoundUrl(testTask.getId(), testUrl);
+        assertEquals(1, testTask.getFoundUrls().size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jsoup", "streaming"})
+    void testCrawlWebsite_PriorityFrontierFetchesPromisingLinksFirst(String mode) throws Exception {
+        // Given
+        ReflectionTestUtils.setField(webCrawlerService, "linkExtractor", mode);
+        ReflectionTestUtils.setField(webCrawlerService, "frontierMode", "priority");
+        stubPage(testUrl, "<html><body>"
+                + "<a href=\"/news.html\">News</a>"
+                + "<a href=\"/about.html\">About</a>"
+                + "<a href=\"/docs/security.html\">Guide</a>"
+                + "<a href=\"/blog/post.html\">Read the <b>Security</b> advisory</a>"
+                + "</body></html>");
+        stubPage("http://example.com/news.html", "<html><body>News</body></html>");
+        stubPage("http://example.com/about.html", "<html><body>About</body></html>");
+        stubPage("http://example.com/docs/security.html", "<html><body>Security guide</body></html>");
+        stubPage("http://example.com/blog/post.html", "<html><body>Security advisory</body></html>");
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        InOrder order = inOrder(crawlPersistenceService);
+        order.verify(crawlPersistenceService).saveVisitedUrl(testTask.getId(), testUrl);
+        order.verify(crawlPersistenceService).saveVisitedUrl(testTask.getId(), "http://example.com/blog/post.html");
+        order.verify(crawlPersistenceService).saveVisitedUrl(testTask.getId(), "http://example.com/docs/security.html");
+        order.verify(crawlPersistenceService).saveVisitedUrl(testTask.getId(), "http://example.com/news.html");
+        order.verify(crawlPersistenceService).saveVisitedUrl(testTask.getId(), "http://example.com/about.html");
+        assertEquals(3, testTask.getFoundUrls().size());
+    }
+
+    @Test
+    void testCrawlWebsite_MaxDepthBudget() throws Exception {
+        // Given - base -> /a.html -> /b.html
+        CrawlTask task = new CrawlTask("test-123", "security", "http://example.com", new CrawlBudget(1, null, null, null));
+        stubPage(testUrl, "<html><body><a href=\"/a.html\">A</a></body></html>");
+        stubPage("http://example.com/a.html", "<html><body>Security<a href=\"/b.html\">B</a></body></html>");
+
+        // When
+        webCrawlerService.crawlWebsite(task);
+
+        // Then
+        verify(crawlPersistenceService).saveVisitedUrl(task.getId(), "http://example.com/a.html");
+        verify(crawlPersistenceService, never()).saveVisitedUrl(task.getId(), "http://example.com/b.html");
+        assertEquals(List.of("http://example.com/a.html"), task.getFoundUrls());
+        assertEquals(CrawlTask.STOP_MAX_DEPTH, task.getStopReason());
+    }
+
+    @Test
+    void testCrawlWebsite_MaxBytesBudget() throws Exception {
+        // Given - a primeira página já passa do limite de bytes
+        CrawlTask task = new CrawlTask("test-123", "security", "http://example.com", new CrawlBudget(null, 10L, null, null));
+        stubPage(testUrl, "<html><body>Security<a href=\"/a.html\">A</a></body></html>");
+
+        // When
+        webCrawlerService.crawlWebsite(task);
+
+        // Then - a página que atingiu o limite conta nos resultados
+        verify(crawlPersistenceService, times(1)).saveVisitedUrl(eq(task.getId()), anyString());
+        assertEquals(List.of(testUrl), task.getFoundUrls());
+        assertEquals(CrawlTask.STOP_MAX_BYTES, task.getStopReason());
+        assertFalse(task.isActive());
+    }
+
+    @Test
+    void testCrawlWebsite_MaxDurationBudget() throws Exception {
+        // Given - a busca da página base demora mais que a duração máxima
+        CrawlTask task = new CrawlTask("test-123", "security", "http://example.com", new CrawlBudget(null, null, 20L, null));
+        String html = "<html><body>Security<a href=\"/a.html\">A</a></body></html>";
+        when(pageCacheService.fetchAsync(eq(testUrl), any())).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            byte[] body = html.getBytes(StandardCharsets.UTF_8);
+            Function<String, BodySink> sinkFactory = invocation.getArgument(1);
+            BodySink sink = sinkFactory.apply("text/html");
+            sink.accept(body, 0, body.length);
+            return CompletableFuture.completedFuture(new FetchedPage(testUrl, testUrl, 200, "text/html", body));
+        });
+
+        // When
+        webCrawlerService.crawlWebsite(task);
+
+        // Then
+        verify(crawlPersistenceService, never()).saveVisitedUrl(task.getId(), "http://example.com/a.html");
+        assertEquals(CrawlTask.STOP_MAX_DURATION, task.getStopReason());
+    }
+
+    @Test
+    void testCrawlWebsite_MaxResultsBudget() throws Exception {
+        // Given - três páginas com a palavra-chave e limite de dois resultados
+        CrawlTask task = new CrawlTask("test-123", "security", "http://example.com", new CrawlBudget(null, null, null, 2));
+        stubPage(testUrl, "<html><body>Security<a href=\"/a.html\">A</a></body></html>");
+        stubPage("http://example.com/a.html", "<html><body>Security<a href=\"/b.html\">B</a></body></html>");
+
+        // When
+        webCrawlerService.crawlWebsite(task);
+
+        // Then
+        assertEquals(List.of(testUrl, "http://example.com/a.html"), task.getFoundUrls());
+        verify(crawlPersistenceService, times(2)).saveFoundUrl(eq(task.getId()), anyString());
+        verify(crawlPersistenceService, never()).saveVisitedUrl(task.getId(), "http://example.com/b.html");
+        assertEquals(CrawlTask.STOP_MAX_RESULTS, task.getStopReason());
+        assertTrue(task.isTruncated());
+        assertEquals("done", task.getStatus());
+    }
+
+    @Test
+    void testCrawlWebsite_MaxPagesRecorded() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(webCrawlerService, "maxPages", 1);
+        stubPage(testUrl, "<html><body><a href=\"/a.html\">A</a></body></html>");
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        assertEquals(CrawlTask.STOP_MAX_PAGES, testTask.getStopReason());
+    }
+
+    @Test
+    void testCrawlWebsite_NoBudgetReached() throws Exception {
+        // Given
+        stubPage(testUrl, "<html><body>Security</body></html>");
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        assertNull(testTask.getStopReason());
+    }
+
+    @Test
+    void testCrawlWebsite_ResumesFromCheckpoint() throws Exception {
+        // Given - checkpoint com a página base concluída e /a.html ainda em processamento
+        CrawlCheckpointRepository checkpointRepository = mock(CrawlCheckpointRepository.class);
+        CrawlSessionCheckpointRepository sessionCheckpointRepository = mock(CrawlSessionCheckpointRepository.class);
+        CrawlCheckpointService checkpointService = new CrawlCheckpointService();
+        ReflectionTestUtils.setField(checkpointService, "enabled", true);
+        ReflectionTestUtils.setField(checkpointService, "crawlCheckpointRepository", checkpointRepository);
+        ReflectionTestUtils.setField(checkpointService, "crawlSessionCheckpointRepository", sessionCheckpointRepository);
+        ReflectionTestUtils.setField(checkpointService, "crawlPersistenceService", crawlPersistenceService);
+        ReflectionTestUtils.setField(webCrawlerService, "crawlCheckpointService", checkpointService);
+
+        LocalDateTime checkpointAt = LocalDateTime.now().minusMinutes(1);
+        CrawlCheckpointEntity checkpoint = new CrawlCheckpointEntity(testTask.getId());
+        CrawlSessionCheckpointEntity sessionCheckpoint = new CrawlSessionCheckpointEntity(testTask.getId());
+        sessionCheckpoint.setFrontier("1\t0\thttp://example.com/a.html\n");
+        sessionCheckpoint.setFrontierSize(1);
+        sessionCheckpoint.setPagesProcessed(2);
+        checkpoint.setSession(sessionCheckpoint);
+        checkpoint.setBytesDownloaded(100L);
+        checkpoint.setElapsedMs(1000L);
+        checkpoint.setCheckpointAt(checkpointAt);
+        when(checkpointRepository.findById(testTask.getId())).thenReturn(Optional.of(checkpoint));
+        when(crawlPersistenceService.getVisitedUrls(testTask.getId(), checkpointAt))
+                .thenReturn(List.of(testUrl, "http://example.com/a.html"));
+        when(crawlPersistenceService.getFoundUrls(testTask.getId())).thenReturn(List.of(testUrl));
+        stubPage("http://example.com/a.html", "<html><body>Security<a href=\"/b.html\">B</a></body></html>");
+        stubPage("http://example.com/b.html", "<html><body>Nothing here</body></html>");
+
+        // When
+        boolean finished = webCrawlerService.crawlWebsite(testTask);
+
+        // Then - a página base não é buscada de novo e os resultados anteriores são mantidos
+        assertTrue(finished);
+        verify(pageCacheService, never()).fetchAsync(eq(testUrl), any());
+        verify(crawlPersistenceService, never()).getVisitedUrls(testTask.getId());
+        assertEquals(List.of(testUrl, "http://example.com/a.html"), testTask.getFoundUrls());
+        verify(crawlPersistenceService, never()).saveFoundUrl(testTask.getId(), testUrl);
+        verify(crawlPersistenceService).saveVisitedUrl(testTask.getId(), "http://example.com/b.html");
+        assertTrue(testTask.getBytesDownloaded() > 100L);
+        // Checkpoint imediato ao registrar a sessão retomada
+        verify(sessionCheckpointRepository).save(any(CrawlSessionCheckpointEntity.class));
+        verify(checkpointRepository).save(any(CrawlCheckpointEntity.class));
+    }
+
+    @Test
+    void testCrawlWebsite_RedirectFollowedThroughFrontier() {
+        // Given
+        String targetUrl = "http://example.com/home";
+        when(pageCacheService.fetchAsync(eq(testUrl), any())).thenReturn(
+                CompletableFuture.completedFuture(FetchedPage.redirect(testUrl, 301, "/home")));
+        stubPage(targetUrl, "<html><body>Security</body></html>");
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then - o destino é buscado como uma URL da fronteira
+        verify(crawlPersistenceService, times(1)).saveVisitedUrl(testTask.getId(), targetUrl);
+        verify(crawlPersistenceService, times(1)).saveFoundUrl(testTask.getId(), targetUrl);
+        verify(crawlPersistenceService, never()).saveFoundUrl(testTask.getId(), testUrl);
+    }
+
+    @Test
+    void testCrawlWebsite_RedirectOutOfScopeIgnored() {
+        // Given
+        when(pageCacheService.fetchAsync(eq(testUrl), any())).thenReturn(
+                CompletableFuture.completedFuture(FetchedPage.redirect(testUrl, 302, "http://other.com/")));
+
+        // When
+        webCrawlerService.crawlWebsite(testTask);
+
+        // Then
+        assertFalse(testTask.isActive());
+        verify(pageCacheService, times(1)).fetchAsync(anyString(), any());
+        verify(crawlPersistenceService, times(1)).saveVisitedUrl(eq(testTask.getId()), anyString());
+    }
+
+    @Test
+    void testScanPage_RedirectReturnsTargetInScope() {
+        // Given
+        when(pageCacheService.fetchAsync(eq(testUrl), any())).thenReturn(
+                CompletableFuture.completedFuture(FetchedPage.redirect(testUrl, 301, "/home")));
+
+        // When
+        ScannedPage page = webCrawlerService.scanPage(testUrl, "security", UrlScope.of(testUrl));
+
+        // Then
+        assertFalse(page.isFound());
+        assertEquals(List.of("http://example.com/home"), page.getLinks());
+    }
+
+    @Test
+    void testScanPage_ReturnsInScopeLinksAndKeywordMatch() {
+        // Given
+        String html = "<html><head><link rel=\"canonical\" href=\"/index.html\"></head><body>Security" +
+                "<a href=\"/a.html\">A</a><a href=\"b.html#top\">B</a><a href=\"/a.html\">A de novo</a>" +
+                "<a href=\"http://other.com/c.html\">C</a><a href=\"/manual.pdf\">PDF</a></body></html>";
+        stubPage(testUrl, html);
+
+        // When
+        ScannedPage page = webCrawlerService.scanPage(testUrl, "security", UrlScope.of(testUrl));
+
+        // Then - links de outros sites e downloads ficam de fora e os repetidos aparecem uma vez
+        assertNotNull(page);
+        assertTrue(page.isFound());
+        assertEquals(html.getBytes(StandardCharsets.UTF_8).length, page.getBytes());
+        assertEquals("http://example.com/index.html", page.getCanonicalUrl());
+        assertEquals(List.of("http://example.com/a.html", "http://example.com/b.html"), page.getLinks());
+        // Sem sessão, a página não passa pelo registro de URLs visitadas
+        verifyNoInteractions(crawlPersistenceService);
     }
 }
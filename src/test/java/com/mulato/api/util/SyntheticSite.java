@@ -0,0 +1,229 @@
+package com.mulato.api.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Site sintético servido localmente para testes de crawling.
+ *
+ * As páginas formam uma árvore: /page/{i}.html aponta para os filhos 2i+1 e 2i+2
+ * (links relativos) e de volta para a raiz. Páginas com índice múltiplo de
+ * {@code keywordEvery} contêm a palavra-chave informada.
+ *
+ * Cada página tem um ETag que muda com {@link #touch(int)}; requisições com If-None-Match
+ * igual ao ETag atual recebem 304.
+ *
+ * As páginas saem comprimidas com gzip quando a requisição aceita gzip.
+ *
+ * /files/{nome} é um download de {@value #FILE_SIZE} bytes servido como application/pdf.
+ *
+ * /redirect?to={url} responde 302 com o Location informado.
+ */
+public class SyntheticSite implements AutoCloseable {
+
+    public static final int FILE_SIZE = 1024 * 1024;
+
+    private final HttpServer server;
+    private final int pages;
+    private final int keywordEvery;
+    private final String keyword;
+    private final long latencyMillis;
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> versions = new ConcurrentHashMap<>();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicInteger compressed = new AtomicInteger();
+
+    public SyntheticSite(int pages, int keywordEvery, String keyword, long latencyMillis) throws IOException {
+        this.pages = pages;
+        this.keywordEvery = keywordEvery;
+        this.keyword = keyword;
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "synthetic-site");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        this.server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/page/0.html";
+    }
+
+    public String pageUrl(int index) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/page/" + index + ".html";
+    }
+
+    public String fileUrl(String name) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/files/" + name;
+    }
+
+    public String redirectUrl(String location) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/redirect?to=" + location;
+    }
+
+    public int pages() {
+        return pages;
+    }
+
+    public int pagesWithKeyword() {
+        return (pages + keywordEvery - 1) / keywordEvery;
+    }
+
+    public int hits(String path) {
+        AtomicInteger counter = hits.get(path);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public int totalHits() {
+        return hits.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    /**
+     * Respostas 304 enviadas até agora.
+     */
+    public int notModifiedHits() {
+        return notModified.get();
+    }
+
+    /**
+     * Respostas enviadas com gzip até agora.
+     */
+    public int compressedHits() {
+        return compressed.get();
+    }
+
+    /**
+     * HTML da página, como enviado sem compressão.
+     */
+    public byte[] body(int index) {
+        return render(index).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Altera o conteúdo e o ETag da página.
+     */
+    public void touch(int index) {
+        versions.merge(index, 1, Integer::sum);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        hits.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (path.equals("/redirect")) {
+            String query = exchange.getRequestURI().getQuery();
+            exchange.getResponseHeaders().add("Location", query.substring("to=".length()));
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+            return;
+        }
+
+        if (path.startsWith("/files/")) {
+            exchange.getResponseHeaders().add("Content-Type", "application/pdf");
+            exchange.sendResponseHeaders(200, FILE_SIZE);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(new byte[FILE_SIZE]);
+            } catch (IOException e) {
+                // Cliente fechou a conexão sem ler o corpo
+            }
+            return;
+        }
+
+        int index = pageIndex(path);
+        if (index < 0 || index >= pages) {
+            byte[] notFound = "<html><body>Not found</body></html>".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(404, notFound.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(notFound);
+            } catch (IOException e) {
+                // Cliente fechou a conexão sem ler o corpo
+            }
+            return;
+        }
+
+        String etag = "\"p" + index + "v" + versions.getOrDefault(index, 0) + "\"";
+        exchange.getResponseHeaders().add("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] body = body(index);
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            compressed.incrementAndGet();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                out.write(body);
+            }
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private String render(int index) {
+        StringBuilder html = new StringBuilder("<html><head><title>Page ")
+                .append(index).append("</title></head><body>");
+        html.append("<p>Synthetic page ").append(index).append("</p>");
+        int version = versions.getOrDefault(index, 0);
+        if (version > 0) {
+            html.append("<p>Revision ").append(version).append("</p>");
+        }
+        if (index % keywordEvery == 0) {
+            html.append("<p>This page talks about ").append(keyword).append(".</p>");
+        }
+        for (int child = 2 * index + 1; child <= 2 * index + 2; child++) {
+            if (child < pages) {
+                html.append("<a href=\"").append(child).append(".html\">Page ").append(child).append("</a>");
+            }
+        }
+        html.append("<a href=\"/page/0.html\">Home</a>");
+        html.append("</body></html>");
+        return html.toString();
+    }
+
+    private int pageIndex(String path) {
+        if (!path.startsWith("/page/") || !path.endsWith(".html")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(path.substring("/page/".length(), path.length() - ".html".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}